@@ -261,22 +261,23 @@ public abstract class AS_RankSumTest extends RankSumTest implements ReducibleAnn
         final Map<Allele, CompressedDataList<Integer>> perAlleleValues = myData.getAttributeMap();
         for ( final PerReadAlleleLikelihoodMap likelihoodMap : pralm.values() ) {
             if ( likelihoodMap != null && !likelihoodMap.isEmpty() ) {
-                fillQualsFromLikelihoodMap(vc.getAlleles(), vc.getStart(), likelihoodMap, perAlleleValues);
+                fillQualsFromLikelihoodMap(vc, likelihoodMap, perAlleleValues);
             }
         }
 
     }
 
-    private void fillQualsFromLikelihoodMap(final List<Allele> alleles,
-                                            final int refLoc,
+    private void fillQualsFromLikelihoodMap(final VariantContext vc,
                                             final PerReadAlleleLikelihoodMap likelihoodMap,
                                             final Map<Allele, CompressedDataList<Integer>> perAlleleValues) {
-        for ( final Map.Entry<GATKSAMRecord, Map<Allele,Double>> el : likelihoodMap.getLikelihoodReadMap().entrySet() ) {
-            final MostLikelyAllele a = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue());
+        final int refLoc = vc.getStart();
+        final ReadLikelihoodSummary summary = ReadLikelihoodSummary.of(vc, likelihoodMap);
+        for ( int i = 0; i < summary.size(); i++ ) {
+            final MostLikelyAllele a = summary.getMostLikelyAllele(i);
             if ( ! a.isInformative() )
                 continue; // read is non-informative
 
-            final GATKSAMRecord read = el.getKey();
+            final GATKSAMRecord read = summary.getRead(i);
             if ( isUsableRead(read, refLoc) ) {
                 final Double value = getElementForRead(read, refLoc, a);
                 // Bypass read if the clipping goal is not reached or the refloc is inside a spanning deletion
@@ -294,20 +295,14 @@ public abstract class AS_RankSumTest extends RankSumTest implements ReducibleAnn
         //shortcut to not try to calculate rank sum if there are no reads that unambiguously support the ref
         if (perAlleleValues.get(ref).isEmpty())
             return perAltRankSumResults;
+        //load refs (series 2) once for all of the alts; the test sorting them in place doesn't change their ranks
+        final double[] refs = toArray(perAlleleValues.get(ref));
         for (final Allele alt : perAlleleValues.keySet()) {
             if (alt.equals(ref, false))
                 continue;
             final MannWhitneyU mannWhitneyU = new MannWhitneyU();
             //load alts (series 1)
-            List<Double> alts = new ArrayList<>();
-            for (final Number qual : perAlleleValues.get(alt)) {
-                alts.add((double) qual.intValue());
-            }
-            //load refs (series 2)
-            List<Double> refs = new ArrayList<>();
-            for (final Number qual : perAlleleValues.get(ref)) {
-                refs.add((double) qual.intValue());
-            }
+            final double[] alts = toArray(perAlleleValues.get(alt));
 
             if (DEBUG) {
                 System.out.format("%s, REF QUALS:", this.getClass().getName());
@@ -321,10 +316,28 @@ public abstract class AS_RankSumTest extends RankSumTest implements ReducibleAnn
 
             }
             // we are testing that set1 (the alt bases) have lower quality scores than set2 (the ref bases)
-            final MannWhitneyU.Result result = mannWhitneyU.test(convertToArray(alts), convertToArray(refs), MannWhitneyU.TestType.FIRST_DOMINATES);
+            final MannWhitneyU.Result result = mannWhitneyU.test(alts, refs, MannWhitneyU.TestType.FIRST_DOMINATES);
             perAltRankSumResults.put(alt, result.getZ());
         }
         return perAltRankSumResults;
     }
 
+    /**
+     * @param values the compressed values of one allele
+     * @return a new array holding every one of the values, as many times as it was seen
+     */
+    private static double[] toArray(final CompressedDataList<Integer> values) {
+        int size = 0;
+        for (final int count : values.getValueCounts().values())
+            size += count;
+
+        final double[] array = new double[size];
+        int i = 0;
+        for (final Map.Entry<Integer, Integer> valueCount : values.getValueCounts().entrySet()) {
+            for (int j = 0; j < valueCount.getValue(); j++)
+                array[i++] = valueCount.getKey();
+        }
+        return array;
+    }
+
 }
@@ -289,9 +289,10 @@ public abstract class AS_StrandBiasTest extends StrandBiasTest implements Reduci
 
         for (final PerReadAlleleLikelihoodMap maps : stratifiedPerReadAlleleLikelihoodMap.values() ) {
             final ReducibleAnnotationData<List<Integer>> sampleTable = new AlleleSpecificAnnotationData<>(vc.getAlleles(),null);
-            for (final Map.Entry<GATKSAMRecord,Map<Allele,Double>> el : maps.getLikelihoodReadMap().entrySet()) {
-                final MostLikelyAllele mostLikelyAllele = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue());
-                final GATKSAMRecord read = el.getKey();
+            final ReadLikelihoodSummary summary = ReadLikelihoodSummary.of(vc, maps);
+            for (int i = 0; i < summary.size(); i++) {
+                final MostLikelyAllele mostLikelyAllele = summary.getMostLikelyAllele(i);
+                final GATKSAMRecord read = summary.getRead(i);
                 updateTable(mostLikelyAllele.getAlleleIfInformative(), read, ref, allAlts, sampleTable);
             }
             //for each sample (value in stratified PRALM), only include it if there are >minCount informative reads
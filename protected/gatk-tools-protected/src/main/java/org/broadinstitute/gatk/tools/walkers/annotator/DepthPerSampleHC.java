@@ -59,10 +59,8 @@ import org.broadinstitute.gatk.tools.walkers.annotator.interfaces.StandardAnnota
 import org.broadinstitute.gatk.tools.walkers.annotator.interfaces.StandardHCAnnotation;
 import org.broadinstitute.gatk.utils.contexts.AlignmentContext;
 import org.broadinstitute.gatk.utils.contexts.ReferenceContext;
-import org.broadinstitute.gatk.utils.genotyper.MostLikelyAllele;
 import org.broadinstitute.gatk.utils.genotyper.PerReadAlleleLikelihoodMap;
 import org.broadinstitute.gatk.utils.refdata.RefMetaDataTracker;
-import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
@@ -116,8 +114,6 @@ public class DepthPerSampleHC extends GenotypeAnnotation implements StandardHCAn
         // the depth for the HC is the sum of the informative alleles at this site.  It's not perfect (as we cannot
         // differentiate between reads that align over the event but aren't informative vs. those that aren't even
         // close) but it's a pretty good proxy and it matches with the AD field (i.e., sum(AD) = DP).
-        int dp = 0;
-
         // there are reads
         if ( !alleleLikelihoodMap.isEmpty() ) {
             final Set<Allele> alleles = new HashSet<>(vc.getAlleles());
@@ -131,13 +127,7 @@ public class DepthPerSampleHC extends GenotypeAnnotation implements StandardHCAn
                 return;
             }
 
-            for (Map.Entry<GATKSAMRecord,Map<Allele,Double>> el : alleleLikelihoodMap.getLikelihoodReadMap().entrySet()) {
-                final MostLikelyAllele a = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue(), alleles);
-                if ( a.isInformative() ) {
-                    dp++;
-                }
-            }
-
+            final int dp = ReadLikelihoodSummary.of(vc, alleleLikelihoodMap).getInformativeDepth();
             gb.DP(dp);
         }
     }
@@ -79,6 +79,58 @@ public abstract class RankSumTest extends InfoFieldAnnotation implements ActiveR
     static final boolean DEBUG = false;
     protected static double INVALID_ELEMENT_FROM_READ = Double.NEGATIVE_INFINITY;
 
+    /**
+     * A growable list of primitive doubles
+     */
+    static final class Values {
+        private double[] values = new double[64];
+        private int size = 0;
+
+        void add(final double value) {
+            if ( size == values.length )
+                values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        double get(final int i) {
+            return values[i];
+        }
+
+        /**
+         * @return a new array holding exactly the values added since the last clear()
+         */
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * The ref and alt values collected at a site, reused by all of the tests run on a thread
+     */
+    private static final class SiteValues {
+        private final Values refQuals = new Values();
+        private final Values altQuals = new Values();
+    }
+
+    private static final ThreadLocal<SiteValues> siteValues = new ThreadLocal<SiteValues>() {
+        @Override
+        protected SiteValues initialValue() {
+            return new SiteValues();
+        }
+    };
+
     public Map<String, Object> annotate(final RefMetaDataTracker tracker,
                                         final AnnotatorCompatible walker,
                                         final ReferenceContext ref,
@@ -91,8 +143,11 @@ public abstract class RankSumTest extends InfoFieldAnnotation implements ActiveR
         if (genotypes == null || genotypes.isEmpty())
             return null;
 
-        final List<Double> refQuals = new ArrayList<>();
-        final List<Double> altQuals = new ArrayList<>();
+        final SiteValues values = siteValues.get();
+        final Values refQuals = values.refQuals;
+        final Values altQuals = values.altQuals;
+        refQuals.clear();
+        altQuals.clear();
 
         for ( final Genotype genotype : genotypes.iterateInSampleNameOrder() ) {
 
@@ -101,7 +156,7 @@ public abstract class RankSumTest extends InfoFieldAnnotation implements ActiveR
             if ( stratifiedPerReadAlleleLikelihoodMap != null ) {
                 final PerReadAlleleLikelihoodMap likelihoodMap = stratifiedPerReadAlleleLikelihoodMap.get(genotype.getSampleName());
                 if ( likelihoodMap != null && !likelihoodMap.isEmpty() ) {
-                    fillQualsFromLikelihoodMap(vc.getAlleles(), vc.getStart(), likelihoodMap, refQuals, altQuals);
+                    fillQualsFromLikelihoodMap(vc, likelihoodMap, refQuals, altQuals);
                     usePileup = false;
                 }
             }
@@ -124,17 +179,17 @@ public abstract class RankSumTest extends InfoFieldAnnotation implements ActiveR
 
         if (DEBUG) {
             System.out.format("%s, REF QUALS:", this.getClass().getName());
-            for (final Double qual : refQuals)
-                System.out.format("%4.1f ", qual);
+            for (int i = 0; i < refQuals.size(); i++)
+                System.out.format("%4.1f ", refQuals.get(i));
             System.out.println();
             System.out.format("%s, ALT QUALS:", this.getClass().getName());
-            for (final Double qual : altQuals)
-                System.out.format("%4.1f ", qual);
+            for (int i = 0; i < altQuals.size(); i++)
+                System.out.format("%4.1f ", altQuals.get(i));
             System.out.println();
 
         }
         // we are testing that set1 (the alt bases) have lower quality scores than set2 (the ref bases)
-        final MannWhitneyU.Result result = mannWhitneyU.test(convertToArray(altQuals), convertToArray(refQuals), MannWhitneyU.TestType.FIRST_DOMINATES);
+        final MannWhitneyU.Result result = mannWhitneyU.test(altQuals.toArray(), refQuals.toArray(), MannWhitneyU.TestType.FIRST_DOMINATES);
         final double zScore = result.getZ();
 
 
@@ -156,8 +211,8 @@ public abstract class RankSumTest extends InfoFieldAnnotation implements ActiveR
 
     private void fillQualsFromPileup(final List<Allele> alleles,
                                      final ReadBackedPileup pileup,
-                                     final List<Double> refQuals,
-                                     final List<Double> altQuals) {
+                                     final Values refQuals,
+                                     final Values altQuals) {
         for ( final PileupElement p : pileup ) {
             if ( isUsableBase(p) ) {
                 final Double value = getElementForPileupElement(p);
@@ -172,17 +227,19 @@ public abstract class RankSumTest extends InfoFieldAnnotation implements ActiveR
         }
      }
 
-    private void fillQualsFromLikelihoodMap(final List<Allele> alleles,
-                                            final int refLoc,
+    private void fillQualsFromLikelihoodMap(final VariantContext vc,
                                             final PerReadAlleleLikelihoodMap likelihoodMap,
-                                            final List<Double> refQuals,
-                                            final List<Double> altQuals) {
-        for ( final Map.Entry<GATKSAMRecord, Map<Allele,Double>> el : likelihoodMap.getLikelihoodReadMap().entrySet() ) {
-            final MostLikelyAllele a = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue());
+                                            final Values refQuals,
+                                            final Values altQuals) {
+        final List<Allele> alleles = vc.getAlleles();
+        final int refLoc = vc.getStart();
+        final ReadLikelihoodSummary summary = ReadLikelihoodSummary.of(vc, likelihoodMap);
+        for ( int i = 0; i < summary.size(); i++ ) {
+            final MostLikelyAllele a = summary.getMostLikelyAllele(i);
             if ( ! a.isInformative() )
                 continue; // read is non-informative
 
-            final GATKSAMRecord read = el.getKey();
+            final GATKSAMRecord read = summary.getRead(i);
             if ( isUsableRead(read, refLoc) ) {
                 final Double value = getElementForRead(read, refLoc, a);
                 // Bypass read if the clipping goal is not reached or the refloc is inside a spanning deletion
@@ -148,9 +148,10 @@ public class StrandAlleleCountsBySample extends GenotypeAnnotation {
             // make sure that there's a meaningful relationship between the alleles in the perReadAlleleLikelihoodMap and our VariantContext
             if ( ! maps.getAllelesSet().isEmpty() && ! maps.getAllelesSet().containsAll(alleles) )
                 throw new IllegalStateException("VC alleles " + alleles + " not a strict subset of per read allele map alleles " + maps.getAllelesSet());
-            for (final Map.Entry<GATKSAMRecord,Map<Allele,Double>> el : maps.getLikelihoodReadMap().entrySet()) {
-                final MostLikelyAllele mostLikelyAllele = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue(), alleles);
-                final GATKSAMRecord read = el.getKey();
+            final ReadLikelihoodSummary summary = ReadLikelihoodSummary.of(vc, maps);
+            for (int i = 0; i < summary.size(); i++) {
+                final MostLikelyAllele mostLikelyAllele = summary.getMostLikelyVariantAllele(i);
+                final GATKSAMRecord read = summary.getRead(i);
                 if (mostLikelyAllele.isInformative())
                     updateTable(table, vc.getAlleleIndex(mostLikelyAllele.getAlleleIfInformative()), read);
             }
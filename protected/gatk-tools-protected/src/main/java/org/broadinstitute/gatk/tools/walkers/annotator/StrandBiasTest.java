@@ -271,9 +271,10 @@ public abstract class StrandBiasTest extends InfoFieldAnnotation implements Acti
 
         for (final PerReadAlleleLikelihoodMap maps : stratifiedPerReadAlleleLikelihoodMap.values() ) {
             final int[] myTable = new int[ARRAY_SIZE];
-            for (final Map.Entry<GATKSAMRecord,Map<Allele,Double>> el : maps.getLikelihoodReadMap().entrySet()) {
-                final MostLikelyAllele mostLikelyAllele = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue());
-                final GATKSAMRecord read = el.getKey();
+            final ReadLikelihoodSummary summary = ReadLikelihoodSummary.of(vc, maps);
+            for (int i = 0; i < summary.size(); i++) {
+                final MostLikelyAllele mostLikelyAllele = summary.getMostLikelyAllele(i);
+                final GATKSAMRecord read = summary.getRead(i);
                 updateTable(myTable, mostLikelyAllele.getAlleleIfInformative(), read, ref, allAlts);
             }
             if ( passesMinimumThreshold(myTable, minCount) )
@@ -74,6 +74,7 @@ import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
 import org.broadinstitute.gatk.utils.help.DocumentedGATKFeature;
 import org.broadinstitute.gatk.utils.help.HelpConstants;
+import org.broadinstitute.gatk.utils.nanoScheduler.NSExecutionBackend;
 import org.broadinstitute.gatk.utils.recalibration.*;
 import org.broadinstitute.gatk.engine.recalibration.covariates.Covariate;
 import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
@@ -157,6 +158,7 @@ import java.util.List;
 @BAQMode(ApplicationTime = ReadTransformer.ApplicationTime.FORBIDDEN)
 @ReadFilters({MappingQualityZeroFilter.class, MappingQualityUnavailableFilter.class, UnmappedReadFilter.class, NotPrimaryAlignmentFilter.class, DuplicateReadFilter.class, FailsVendorQualityCheckFilter.class})
 @PartitionBy(PartitionType.READ)
+@NanoSchedulerExecution(backend = NSExecutionBackend.WORK_STEALING)
 public class BaseRecalibrator extends ReadWalker<Long, Long> implements NanoSchedulable {
     /**
      * all the command line arguments for BQSR and its covariates
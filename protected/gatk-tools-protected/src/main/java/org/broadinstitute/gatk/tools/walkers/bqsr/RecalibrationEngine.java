@@ -52,6 +52,7 @@
 package org.broadinstitute.gatk.tools.walkers.bqsr;
 
 import com.google.java.contract.Requires;
+import org.broadinstitute.gatk.engine.recalibration.FlatRecalibrationTable;
 import org.broadinstitute.gatk.engine.recalibration.ReadCovariates;
 import org.broadinstitute.gatk.engine.recalibration.RecalDatum;
 import org.broadinstitute.gatk.engine.recalibration.RecalUtils;
@@ -83,6 +84,37 @@ public class RecalibrationEngine {
 
     private final List<RecalibrationTables> recalibrationTablesList = new LinkedList<RecalibrationTables>();
 
+    /**
+     * Should we collect data in per-thread FlatRecalibrationTables instead of RecalibrationTables?
+     *
+     * The flat tables are only used when every thread has its own tables (i.e., not in low memory mode)
+     * and when we aren't logging every update to the recalibration tables.
+     */
+    final private boolean useFlatTables;
+
+    /**
+     * One stripe of flat tables per thread, indexed like the RecalibrationTables.  The read group table
+     * (index 0) is never updated directly, as it's derived from the quality score table in finalizeData().
+     */
+    private final List<FlatRecalibrationTable[]> flatTablesList = new LinkedList<FlatRecalibrationTable[]>();
+
+    private final ThreadLocal<FlatRecalibrationTable[]> threadLocalFlatTables = new ThreadLocal<FlatRecalibrationTable[]>() {
+        @Override
+        protected FlatRecalibrationTable[] initialValue() {
+            // same dimensions as the corresponding tables in RecalibrationTables
+            final int qualDimension = covariates[RecalibrationTables.TableType.QUALITY_SCORE_TABLE.ordinal()].maximumKeyValue() + 1;
+            final int eventDimension = EventType.values().length;
+            final FlatRecalibrationTable[] tables = new FlatRecalibrationTable[covariates.length];
+            tables[RecalibrationTables.TableType.QUALITY_SCORE_TABLE.ordinal()] = new FlatRecalibrationTable(numReadGroups, qualDimension, eventDimension);
+            for ( int i = RecalibrationTables.TableType.OPTIONAL_COVARIATE_TABLES_START.ordinal(); i < covariates.length; i++ )
+                tables[i] = new FlatRecalibrationTable(numReadGroups, qualDimension, covariates[i].maximumKeyValue() + 1, eventDimension);
+            synchronized ( flatTablesList ) {
+                flatTablesList.add(tables);
+            }
+            return tables;
+        }
+    };
+
     private final ThreadLocal<RecalibrationTables> threadLocalTables = new ThreadLocal<RecalibrationTables>() {
         private synchronized RecalibrationTables makeAndCaptureTable() {
             final RecalibrationTables newTable = new RecalibrationTables(covariates, numReadGroups, maybeLogStream);
@@ -133,6 +165,7 @@ public class RecalibrationEngine {
         this.numReadGroups = numReadGroups;
         this.maybeLogStream = maybeLogStream;
         this.lowMemoryMode = enableLowMemoryMode;
+        this.useFlatTables = ! enableLowMemoryMode && maybeLogStream == null;
     }
 
     /**
@@ -141,6 +174,11 @@ public class RecalibrationEngine {
      */
     @Requires("recalInfo != null")
     public void updateDataForRead( final ReadRecalibrationInfo recalInfo ) {
+        if ( useFlatTables ) {
+            updateFlatTablesForRead(recalInfo);
+            return;
+        }
+
         final GATKSAMRecord read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
         final RecalibrationTables tables = getUpdatableRecalibrationTables();
@@ -168,6 +206,40 @@ public class RecalibrationEngine {
         }
     }
 
+    /**
+     * Update this thread's flat tables with the information in recalInfo
+     *
+     * Makes exactly the same observations, in the same order, as the RecalibrationTables version of updateDataForRead
+     *
+     * @param recalInfo data structure holding information about the recalibration values for a single read
+     */
+    private void updateFlatTablesForRead( final ReadRecalibrationInfo recalInfo ) {
+        final GATKSAMRecord read = recalInfo.getRead();
+        final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
+        final FlatRecalibrationTable[] tables = threadLocalFlatTables.get();
+        final FlatRecalibrationTable qualityScoreTable = tables[RecalibrationTables.TableType.QUALITY_SCORE_TABLE.ordinal()];
+
+        for( int offset = 0; offset < read.getReadBases().length; offset++ ) {
+            if( ! recalInfo.skip(offset) ) {
+
+                for (final EventType eventType : EventType.values()) {
+                    final int[] keys = readCovariates.getKeySet(offset, eventType);
+                    final int eventIndex = eventType.ordinal();
+                    final byte qual = recalInfo.getQual(eventType, offset);
+                    final double isError = recalInfo.getErrorFraction(eventType, offset);
+
+                    qualityScoreTable.increment(qual, isError, keys[0], keys[1], eventIndex);
+
+                    for (int i = 2; i < covariates.length; i++) {
+                        if (keys[i] < 0)
+                            continue;
+
+                        tables[i].increment(qual, isError, keys[0], keys[1], keys[i], eventIndex);
+                    }
+                }
+            }
+        }
+    }
 
     /**
      * Finalize, if appropriate, all derived data in recalibrationTables.
@@ -215,6 +287,15 @@ public class RecalibrationEngine {
      */
     @Requires("! finalized")
     private RecalibrationTables mergeThreadLocalRecalibrationTables() {
+        // convert each thread's flat tables into RecalDatums, so that they merge exactly as RecalibrationTables do
+        for ( final FlatRecalibrationTable[] flatTables : flatTablesList ) {
+            final RecalibrationTables tables = new RecalibrationTables(covariates, numReadGroups);
+            for ( int i = RecalibrationTables.TableType.QUALITY_SCORE_TABLE.ordinal(); i < covariates.length; i++ )
+                flatTables[i].addTo(tables.getTable(i));
+            recalibrationTablesList.add(tables);
+        }
+        flatTablesList.clear();
+
         if ( recalibrationTablesList.isEmpty() ) {
             recalibrationTablesList.add( new RecalibrationTables(covariates, numReadGroups, maybeLogStream) );
         }
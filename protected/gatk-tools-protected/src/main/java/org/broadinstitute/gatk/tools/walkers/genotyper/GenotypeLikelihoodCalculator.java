@@ -57,6 +57,8 @@ import org.broadinstitute.gatk.utils.MathUtils;
 import org.broadinstitute.gatk.utils.collections.IntMaxHeap;
 import org.broadinstitute.gatk.utils.genotyper.ReadLikelihoods;
 
+import java.util.Arrays;
+
 /**
  * Helper to calculate genotype likelihoods given a ploidy and an allele count (number of possible distinct alleles).
  *
@@ -64,6 +66,11 @@ import org.broadinstitute.gatk.utils.genotyper.ReadLikelihoods;
  *     Notice that for performance this class is thread-unsafe an so it cannot be shared between thread in a multi-thread run.
  * </p>
  *
+ * <p>
+ *     The temporary arrays used to calculate likelihoods grow with the number of reads, so rather than being allocated
+ *     by every calculator they are kept per thread and shared by all the calculators used in that thread.
+ * </p>
+ *
  * @author Valentin Ruano-Rubio &lt;valentin@broadinstitute.org&gt;
  */
 public class GenotypeLikelihoodCalculator {
@@ -121,43 +128,6 @@ public class GenotypeLikelihoodCalculator {
      */
     private transient GenotypeAlleleCounts lastOverheadCounts;
 
-    /**
-     * Buffer used as a temporary container for likelihood components for genotypes stratified by alleles, allele frequency and reads.
-     *
-     * <p>To improve performance we use a 1-dimensional array to implement a 3-dimensional one as some of those dimension
-     * have typically very low depths (allele and allele frequency)</p>
-     *
-     * <p>
-     *     The value contained in position <code>[a][f][r] == log10Lk(read[r] | allele[a]) + log10(f) </code>. Exception is
-     *     for f == 0 whose value is undefined (in practice 0.0) and never used.
-     * </p>
-     *
-     * <p>
-     *     It is indexed by read, then by allele and then by the number of copies of the allele. For the latter
-     *     there are as many entries as the ploidy of the calculator + 1 (to accommodate zero copies although is
-     *     never used in practice).
-     * </p>
-     */
-    private double[] readAlleleLikelihoodByAlleleCount = null;
-
-    /**
-     * Buffer used as a temporary container for likelihood components for genotypes stratified by reads.
-     *
-     * <p>
-     *     It is indexed by genotype index and then by read index. The read capacity is increased as needed by calling
-     *     {@link #ensureReadCapacity(int) ensureReadCapacity}.
-     * </p>
-     */
-    private final double[][] readLikelihoodsByGenotypeIndex;
-
-    /**
-     * Indicates how many reads the calculator supports.
-     *
-     * <p>This figure is increased dynamically as per the
-     * calculation request calling {@link #ensureReadCapacity(int) ensureReadCapacity}.<p/>
-     */
-    private int readCapacity = -1;
-
     /**
      * Caches the log10 of the first few integers up to the ploidy supported by the calculator.
      * <p>This is in fact a shallow copy if {@link GenotypeLikelihoodCalculators#ploidyLog10}</p> and is not meant to be modified by
@@ -182,21 +152,9 @@ public class GenotypeLikelihoodCalculator {
     private final int[] genotypeAllelesAndCounts;
 
     /**
-     * Buffer field use as a temporal container for component likelihoods when calculating the likelihood of a
-     * read in a genotype. It is stratified by read and the allele component of the genotype likelihood... that is
-     * the part of the likelihood sum that correspond to a particular allele in the genotype.
-     *
-     * <p>
-     *     It is implemented in a 1-dimensional array since typically one of the dimensions is rather small. Its size
-     *     is equal to {@link #readCapacity} times {@link #maximumDistinctAllelesInGenotype}.
-     * </p>
-     *
-     * <p>
-     *     More concretely [r][i] == log10Lk(read[r] | allele[i]) + log(freq[i]) where allele[i] is the ith allele
-     *     in the genotype of interest and freq[i] is the number of times it occurs in that genotype.
-     * </p>
+     * Temporary arrays of the calculators used by each thread.
      */
-    private double[] readGenotypeLikelihoodComponents;
+    private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
 
     /**
      * Creates a new calculator providing its ploidy and number of genotyping alleles.
@@ -213,7 +171,6 @@ public class GenotypeLikelihoodCalculator {
         genotypeCount = this.alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
 
         alleleHeap = new IntMaxHeap(ploidy);
-        readLikelihoodsByGenotypeIndex = new double[genotypeCount][];
         this.ploidyLog10 = ploidyLog10;
         // The number of possible components is limited by distinct allele count and ploidy.
         maximumDistinctAllelesInGenotype = Math.min(ploidy, alleleCount);
@@ -221,27 +178,13 @@ public class GenotypeLikelihoodCalculator {
     }
 
     /**
-     * Makes sure that temporal arrays and matrices are prepared for a number of reads to process.
+     * Makes sure that the temporal arrays of the calling thread are prepared for a number of reads to process.
      * @param requestedCapacity number of read that need to be processed.
      */
     public void ensureReadCapacity(final int requestedCapacity) {
         if (requestedCapacity < 0)
             throw new IllegalArgumentException("illegal capacity value");
-        if (readCapacity == -1) { // first time call.
-            final int minimumCapacity = Math.max(requestedCapacity,10); // Never go too small, 10 is the minimum.
-            readAlleleLikelihoodByAlleleCount = new double[minimumCapacity * alleleCount * (ploidy+1)];
-            for (int i = 0; i < genotypeCount; i++)
-                readLikelihoodsByGenotypeIndex[i] = new double[minimumCapacity];
-            readGenotypeLikelihoodComponents = new double[ploidy * minimumCapacity];
-            readCapacity = minimumCapacity;
-        } else if (readCapacity < requestedCapacity) {
-            final int doubleCapacity = (requestedCapacity << 1);
-            readAlleleLikelihoodByAlleleCount = new double[doubleCapacity * alleleCount * (ploidy+1)];
-            for (int i = 0; i < genotypeCount; i++)
-                readLikelihoodsByGenotypeIndex[i] = new double[doubleCapacity];
-            readGenotypeLikelihoodComponents = new double[maximumDistinctAllelesInGenotype * doubleCapacity];
-            readCapacity = doubleCapacity;
-        }
+        buffers.get().ensureCapacity(requestedCapacity, alleleCount, ploidy, maximumDistinctAllelesInGenotype);
     }
 
     /**
@@ -326,70 +269,185 @@ public class GenotypeLikelihoodCalculator {
 
         final int readCount = likelihoods.readCount();
 
+        final Buffers buffers = GenotypeLikelihoodCalculator.buffers.get();
+        buffers.ensureCapacity(readCount, alleleCount, ploidy, maximumDistinctAllelesInGenotype);
 
-        ensureReadCapacity(readCount);
-
-        /// [x][y][z] = z * LnLk(Read_x | Allele_y)
-        final double[] readLikelihoodComponentsByAlleleCount
-                = readLikelihoodComponentsByAlleleCount(likelihoods);
-        final double[][] genotypeLikelihoodByRead = genotypeLikelihoodByRead(readLikelihoodComponentsByAlleleCount,readCount);
-        final double[] readLikelihoodsByGenotypeIndex = genotypeLikelihoods(genotypeLikelihoodByRead, readCount);
+        final int distinctReadCount = collapseIdenticalReads(likelihoods, readCount, buffers);
+        final double[] readLikelihoodsByGenotypeIndex = ploidy == 2
+                ? diploidGenotypeLikelihoods(buffers, readCount, distinctReadCount)
+                : genotypeLikelihoods(buffers, readCount, distinctReadCount);
         return GenotypeLikelihoods.fromLog10Likelihoods(readLikelihoodsByGenotypeIndex);
     }
 
     /**
-     * Calculates the final genotype likelihood array out of the likelihoods for each genotype per read.
+     * Copies the read likelihoods into {@link Buffers#readLikelihoodsByAllele} keeping only one read amongst those
+     * with exactly the same likelihood for every allele.
      *
-     * @param readLikelihoodsByGenotypeIndex <i>[g][r]</i> likelihoods for each genotype <i>g</i> and <i>r</i>.
-     * @param readCount number of reads in the input likelihood arrays in {@code genotypeLikelihoodByRead}.
-     * @return never {@code null}, one position per genotype where the <i>i</i> entry is the likelihood of the ith
-     *   genotype (0-based).
+     * <p>
+     *     Reads that share their likelihoods contribute exactly the same to every genotype likelihood, so the expensive
+     *     per genotype calculation is only done once for them. This is common with duplicated or very similar reads, and
+     *     pays off most at sites with many alleles or a large ploidy where there are a lot of genotypes.
+     * </p>
+     *
+     * @param likelihoods the input likelihood matrix.
+     * @param readCount number of reads in {@code likelihoods}.
+     * @param buffers the temporary arrays of the calling thread.
+     * @return the number of distinct reads, whose likelihoods are left in {@link Buffers#readLikelihoodsByAllele}
+     *  with that number of reads per allele.
+     */
+    private <A extends Allele> int collapseIdenticalReads(final ReadLikelihoods.Matrix<A> likelihoods, final int readCount,
+                                                          final Buffers buffers) {
+        final double[] readLikelihoodsByAllele = buffers.readLikelihoodsByAllele;
+        for (int a = 0; a < alleleCount; a++)
+            likelihoods.copyAlleleLikelihoods(a, readLikelihoodsByAllele, a * readCount);
+
+        final int[] distinctReadIndexByRead = buffers.distinctReadIndexByRead;
+        final int[] readIndexByDistinctRead = buffers.readIndexByDistinctRead;
+        final int[] hashTable = buffers.distinctReadHashTable;
+        final int hashMask = Buffers.hashTableSize(readCount) - 1;
+        Arrays.fill(hashTable, 0, hashMask + 1, 0);
+
+        int distinctReadCount = 0;
+        for (int r = 0; r < readCount; r++) {
+            // open addressing; the table contains the distinct read index + 1 so that 0 marks an empty slot.
+            int slot = readLikelihoodsHashCode(readLikelihoodsByAllele, r, readCount) & hashMask;
+            int distinctRead;
+            while ((distinctRead = hashTable[slot] - 1) >= 0
+                    && !sameReadLikelihoods(readLikelihoodsByAllele, readIndexByDistinctRead[distinctRead], r, readCount))
+                slot = (slot + 1) & hashMask;
+            if (distinctRead < 0) {
+                distinctRead = distinctReadCount++;
+                readIndexByDistinctRead[distinctRead] = r;
+                hashTable[slot] = distinctReadCount;
+            }
+            distinctReadIndexByRead[r] = distinctRead;
+        }
+
+        // Compact the likelihoods so that there are only distinctReadCount per allele. This can be done in place as
+        // the destination of each value is never after its source nor after the source of any value moved later.
+        if (distinctReadCount < readCount)
+            for (int a = 0, destinationOffset = 0; a < alleleCount; a++)
+                for (int u = 0, sourceOffset = a * readCount; u < distinctReadCount; u++)
+                    readLikelihoodsByAllele[destinationOffset++] = readLikelihoodsByAllele[sourceOffset + readIndexByDistinctRead[u]];
+        return distinctReadCount;
+    }
+
+    private int readLikelihoodsHashCode(final double[] readLikelihoodsByAllele, final int read, final int readCount) {
+        long result = 1;
+        for (int a = 0, offset = read; a < alleleCount; a++, offset += readCount)
+            result = 31 * result + Double.doubleToLongBits(readLikelihoodsByAllele[offset]);
+        final int hash = (int) (result ^ (result >>> 32));
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean sameReadLikelihoods(final double[] readLikelihoodsByAllele, final int read1, final int read2, final int readCount) {
+        for (int a = 0, offset = 0; a < alleleCount; a++, offset += readCount)
+            if (Double.doubleToLongBits(readLikelihoodsByAllele[offset + read1]) != Double.doubleToLongBits(readLikelihoodsByAllele[offset + read2]))
+                return false;
+        return true;
+    }
+
+    /**
+     * Calculates the final likelihood of a genotype out of its likelihood for each distinct read.
+     *
+     * <p>
+     *     The reads are added up in their original order, so the result is exactly the same as if no read
+     *     had been collapsed by {@link #collapseIdenticalReads}.
+     * </p>
+     *
+     * @param likelihoodByDistinctRead the likelihood of the genotype given each distinct read.
+     * @param distinctReadIndexByRead the distinct read index for each read.
+     * @param readCount number of reads.
+     * @param distinctReadCount number of distinct reads.
+     * @return the genotype likelihood.
      */
-    private double[] genotypeLikelihoods(final double[][] readLikelihoodsByGenotypeIndex, final int readCount) {
-        final double[] result = new double[genotypeCount];
+    private double genotypeLikelihood(final double[] likelihoodByDistinctRead, final int[] distinctReadIndexByRead,
+                                      final int readCount, final int distinctReadCount) {
         final double denominator = readCount * ploidyLog10[ploidy]; // instead of dividing each read likelihood by ploidy
          // ( so subtract log10(ploidy) )  we multiply them all and the divide by ploidy^readCount (so substract readCount * log10(ploidy) )
-        for (int g = 0; g < genotypeCount; g++) {
-            final double[] likelihoodsByRead = readLikelihoodsByGenotypeIndex[g];
-            double s = - denominator;
+        double s = - denominator;
+        if (distinctReadCount == readCount)
             for (int r = 0; r < readCount; r++)
-                s += likelihoodsByRead[r];
-            result[g] = s;
-        }
-        return result;
+                s += likelihoodByDistinctRead[r];
+        else
+            for (int r = 0; r < readCount; r++)
+                s += likelihoodByDistinctRead[distinctReadIndexByRead[r]];
+        return s;
     }
 
     /**
-     * Calculates the likelihood component of each read on each genotype.
+     * Calculates the genotype likelihoods for any ploidy.
      *
-     * @param readLikelihoodComponentsByAlleleCount [a][f][r] likelihood stratified by allele <i>a</i>, frequency in genotype <i>f</i> and
-     *                                              read <i>r</i>.
-     * @param readCount number of reads in {@code readLikelihoodComponentsByAlleleCount}.
-     * @return never {@code null}.
+     * @param buffers the temporary arrays of the calling thread, with the likelihoods left by {@link #collapseIdenticalReads}.
+     * @param readCount number of reads.
+     * @param distinctReadCount number of distinct reads.
+     * @return never {@code null}, one position per genotype where the <i>i</i> entry is the likelihood of the ith
+     *   genotype (0-based).
      */
-    private double[][] genotypeLikelihoodByRead(final double[] readLikelihoodComponentsByAlleleCount, final int readCount) {
+    private double[] genotypeLikelihoods(final Buffers buffers, final int readCount, final int distinctReadCount) {
+        final double[] readLikelihoodComponentsByAlleleCount = readLikelihoodComponentsByAlleleCount(buffers, distinctReadCount);
+        final double[] likelihoodByRead = buffers.genotypeLikelihoodByRead;
+        final double[] result = new double[genotypeCount];
 
         // Here we don't use the convenience of {@link #genotypeAlleleCountsAt(int)} within the loop to spare instantiations of
         // GenotypeAlleleCounts class when we are dealing with many genotypes.
         GenotypeAlleleCounts alleleCounts = genotypeAlleleCounts[0];
 
         for (int genotypeIndex = 0; genotypeIndex < genotypeCount; genotypeIndex++) {
-            final double[] readLikelihoods = this.readLikelihoodsByGenotypeIndex[genotypeIndex];
             final int componentCount = alleleCounts.distinctAlleleCount();
             switch (componentCount) {
                 case 1: //
-                    singleComponentGenotypeLikelihoodByRead(alleleCounts, readLikelihoods, readLikelihoodComponentsByAlleleCount, readCount);
+                    singleComponentGenotypeLikelihoodByRead(alleleCounts, likelihoodByRead, readLikelihoodComponentsByAlleleCount, distinctReadCount);
                     break;
                 case 2:
-                    twoComponentGenotypeLikelihoodByRead(alleleCounts,readLikelihoods,readLikelihoodComponentsByAlleleCount, readCount);
+                    twoComponentGenotypeLikelihoodByRead(alleleCounts, likelihoodByRead, readLikelihoodComponentsByAlleleCount, distinctReadCount);
                     break;
                 default:
-                    manyComponentGenotypeLikelihoodByRead(alleleCounts,readLikelihoods,readLikelihoodComponentsByAlleleCount, readCount);
+                    manyComponentGenotypeLikelihoodByRead(alleleCounts, likelihoodByRead, readLikelihoodComponentsByAlleleCount,
+                            buffers.readGenotypeLikelihoodComponents, distinctReadCount);
             }
+            result[genotypeIndex] = genotypeLikelihood(likelihoodByRead, buffers.distinctReadIndexByRead, readCount, distinctReadCount);
             if (genotypeIndex < genotypeCount - 1)
                 alleleCounts = nextGenotypeAlleleCounts(alleleCounts);
         }
-        return readLikelihoodsByGenotypeIndex;
+        return result;
+    }
+
+    /**
+     * Calculates the genotype likelihoods for a diploid calculator.
+     *
+     * <p>
+     *     This is the most common case by far, and here the genotypes can be enumerated directly without going through
+     *     {@link GenotypeAlleleCounts} nor building the table of read likelihoods by allele count that other ploidies need.
+     *     The result is exactly the same as that of {@link #genotypeLikelihoods(Buffers, int, int)}.
+     * </p>
+     *
+     * @param buffers the temporary arrays of the calling thread, with the likelihoods left by {@link #collapseIdenticalReads}.
+     * @param readCount number of reads.
+     * @param distinctReadCount number of distinct reads.
+     * @return never {@code null}, one position per genotype where the <i>i</i> entry is the likelihood of the ith
+     *   genotype (0-based).
+     */
+    private double[] diploidGenotypeLikelihoods(final Buffers buffers, final int readCount, final int distinctReadCount) {
+        final double[] readLikelihoodsByAllele = buffers.readLikelihoodsByAllele;
+        final double[] likelihoodByRead = buffers.genotypeLikelihoodByRead;
+        final double log10Two = ploidyLog10[2];
+        final double[] result = new double[genotypeCount];
+
+        // diploid genotypes are sorted as 0/0, 0/1, 1/1, 0/2, 1/2, 2/2 and so forth.
+        for (int allele1 = 0, genotypeIndex = 0; allele1 < alleleCount; allele1++) {
+            final int allele1Offset = allele1 * distinctReadCount;
+            for (int allele0 = 0; allele0 < allele1; allele0++) {
+                final int allele0Offset = allele0 * distinctReadCount;
+                for (int r = 0; r < distinctReadCount; r++)
+                    likelihoodByRead[r] = MathUtils.approximateLog10SumLog10(readLikelihoodsByAllele[allele0Offset + r], readLikelihoodsByAllele[allele1Offset + r]);
+                result[genotypeIndex++] = genotypeLikelihood(likelihoodByRead, buffers.distinctReadIndexByRead, readCount, distinctReadCount);
+            }
+            for (int r = 0; r < distinctReadCount; r++)
+                likelihoodByRead[r] = readLikelihoodsByAllele[allele1Offset + r] + log10Two;
+            result[genotypeIndex++] = genotypeLikelihood(likelihoodByRead, buffers.distinctReadIndexByRead, readCount, distinctReadCount);
+        }
+        return result;
     }
 
     private GenotypeAlleleCounts nextGenotypeAlleleCounts(final GenotypeAlleleCounts alleleCounts) {
@@ -415,6 +473,7 @@ public class GenotypeLikelihoodCalculator {
     private void manyComponentGenotypeLikelihoodByRead(final GenotypeAlleleCounts genotypeAlleleCounts,
                                                        final double[] likelihoodByRead,
                                                        final double[]readLikelihoodComponentsByAlleleCount,
+                                                       final double[] readGenotypeLikelihoodComponents,
                                                        final int readCount) {
 
         // First we collect the allele likelihood component for all reads and place it
@@ -480,16 +539,18 @@ public class GenotypeLikelihoodCalculator {
      *     result[y][z][x] :=  z * lnLk ( read_x | allele_y ).
      * </pre>
      *
+     * @param buffers the temporary arrays of the calling thread, with the likelihoods left by {@link #collapseIdenticalReads}.
+     * @param readCount number of distinct reads.
      * @return never {@code null}.
      */
-    private <A extends Allele> double[] readLikelihoodComponentsByAlleleCount(final ReadLikelihoods.Matrix<A> likelihoods) {
-        final int readCount = likelihoods.readCount();
+    private double[] readLikelihoodComponentsByAlleleCount(final Buffers buffers, final int readCount) {
+        final double[] readAlleleLikelihoodByAlleleCount = buffers.readAlleleLikelihoodByAlleleCount;
         final int alleleDataSize = readCount * (ploidy + 1);
 
         // frequency1Offset = readCount to skip the useless frequency == 0. So now we are at the start frequency == 1
         // frequency1Offset += alleleDataSize to skip to the next allele index data location (+ readCount) at each iteration.
         for (int a = 0, frequency1Offset = readCount; a < alleleCount; a++, frequency1Offset += alleleDataSize) {
-            likelihoods.copyAlleleLikelihoods(a, readAlleleLikelihoodByAlleleCount, frequency1Offset);
+            System.arraycopy(buffers.readLikelihoodsByAllele, a * readCount, readAlleleLikelihoodByAlleleCount, frequency1Offset, readCount);
 
             // p = 2 because the frequency == 1 we already have it.
             for (int frequency = 2, destinationOffset = frequency1Offset + readCount; frequency <= ploidy; frequency++) {
@@ -640,4 +701,87 @@ public class GenotypeLikelihoodCalculator {
         destination[newGenotypeIndex] = genotypeIndex;
     }
 
+    /**
+     * Temporary arrays used to calculate genotype likelihoods, sized for the largest read count, allele count and ploidy
+     * requested so far by the thread that owns them.
+     */
+    private static final class Buffers {
+
+        /**
+         * Likelihoods copied from the input matrix indexed by allele and then by read.
+         *
+         * <p>After {@link #collapseIdenticalReads} it only contains the distinct reads.</p>
+         */
+        private double[] readLikelihoodsByAllele = new double[0];
+
+        /**
+         * Likelihood components for genotypes stratified by alleles, allele frequency and distinct reads.
+         *
+         * <p>To improve performance we use a 1-dimensional array to implement a 3-dimensional one as some of those dimension
+         * have typically very low depths (allele and allele frequency)</p>
+         *
+         * <p>
+         *     The value contained in position <code>[a][f][r] == log10Lk(read[r] | allele[a]) + log10(f) </code>. Exception is
+         *     for f == 0 whose value is undefined (in practice 0.0) and never used.
+         * </p>
+         */
+        private double[] readAlleleLikelihoodByAlleleCount = new double[0];
+
+        /**
+         * Likelihood of the genotype being calculated given each distinct read.
+         */
+        private double[] genotypeLikelihoodByRead = new double[0];
+
+        /**
+         * Component likelihoods when calculating the likelihood of a read in a genotype stratified by read and the allele
+         * component of the genotype likelihood, as [r][i] == log10Lk(read[r] | allele[i]) + log(freq[i]) where allele[i] is
+         * the ith allele in the genotype of interest and freq[i] is the number of times it occurs in that genotype.
+         */
+        private double[] readGenotypeLikelihoodComponents = new double[0];
+
+        /**
+         * Index of the distinct read with the same likelihoods as each read.
+         */
+        private int[] distinctReadIndexByRead = new int[0];
+
+        /**
+         * Index of the first read with the likelihoods of each distinct read.
+         */
+        private int[] readIndexByDistinctRead = new int[0];
+
+        /**
+         * Hash table used to find reads with the same likelihoods.
+         */
+        private int[] distinctReadHashTable = new int[0];
+
+        private void ensureCapacity(final int readCount, final int alleleCount, final int ploidy, final int maximumDistinctAllelesInGenotype) {
+            if (readLikelihoodsByAllele.length < readCount * alleleCount)
+                readLikelihoodsByAllele = new double[capacity(readCount) * alleleCount];
+            if (readAlleleLikelihoodByAlleleCount.length < readCount * alleleCount * (ploidy + 1))
+                readAlleleLikelihoodByAlleleCount = new double[capacity(readCount) * alleleCount * (ploidy + 1)];
+            if (readGenotypeLikelihoodComponents.length < readCount * maximumDistinctAllelesInGenotype)
+                readGenotypeLikelihoodComponents = new double[capacity(readCount) * maximumDistinctAllelesInGenotype];
+            if (genotypeLikelihoodByRead.length < readCount) {
+                genotypeLikelihoodByRead = new double[capacity(readCount)];
+                distinctReadIndexByRead = new int[genotypeLikelihoodByRead.length];
+                readIndexByDistinctRead = new int[genotypeLikelihoodByRead.length];
+            }
+            if (distinctReadHashTable.length < hashTableSize(readCount))
+                distinctReadHashTable = new int[hashTableSize(capacity(readCount))];
+        }
+
+        /**
+         * Never go too small, 10 is the minimum, and double the requested capacity to avoid resizing for every small increase.
+         */
+        private static int capacity(final int readCount) {
+            return Math.max(readCount << 1, 10);
+        }
+
+        /**
+         * Size of the hash table used to find reads with the same likelihoods, a power of 2 that keeps its load under 1/2.
+         */
+        private static int hashTableSize(final int readCount) {
+            return Integer.highestOneBit(Math.max(readCount, 1)) << 2;
+        }
+    }
 }
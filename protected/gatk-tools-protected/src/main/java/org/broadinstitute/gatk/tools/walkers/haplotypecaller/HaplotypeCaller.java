@@ -99,6 +99,7 @@ import org.broadinstitute.gatk.utils.fragments.FragmentUtils;
 import org.broadinstitute.gatk.utils.genotyper.*;
 import org.broadinstitute.gatk.utils.gga.GenotypingGivenAllelesUtils;
 import org.broadinstitute.gatk.utils.gvcf.GVCFWriter;
+import org.broadinstitute.gatk.utils.gvcf.ReferenceConfidenceRecords;
 import org.broadinstitute.gatk.utils.haplotype.Haplotype;
 import org.broadinstitute.gatk.utils.haplotypeBAMWriter.DroppedReadsTracker;
 import org.broadinstitute.gatk.utils.haplotypeBAMWriter.HaplotypeBAMWriter;
@@ -686,7 +687,7 @@ public class HaplotypeCaller extends ActiveRegionWalker<List<VariantContext>, In
         vcfWriter.writeHeader(new VCFHeader(headerInfo, sampleSet));
 
         // fasta reference reader to supplement the edges of the reference sequence
-        referenceReader = CachingIndexedFastaSequenceFile.checkAndCreate(getToolkit().getArguments().referenceFile);
+        referenceReader = CachingIndexedFastaSequenceFile.checkAndCreate(getToolkit().getArguments().referenceFile, getToolkit().getArguments().memoryMapReference);
 
         // create and setup the assembler
         assemblyEngine = new ReadThreadingAssembler(RTAC.maxNumHaplotypesInPopulation, RTAC.kmerSizes, RTAC.dontIncreaseKmerSizesForCycles, RTAC.allowNonUniqueKmersInRef, RTAC.numPruningSamples);
@@ -995,7 +996,10 @@ public class HaplotypeCaller extends ActiveRegionWalker<List<VariantContext>, In
                 // no called all of the potential haplotypes
                 return referenceModelForNoVariation(originalActiveRegion, false);
             } else {
-                final List<VariantContext> result = new LinkedList<>();
+                // the records of the flanks and of the variant region are concatenated without building a
+                // VariantContext for any of their reference sites
+                final ReferenceConfidenceRecords result = new ReferenceConfidenceRecords("HC", samplesList.sampleAt(0),
+                        genotypingEngine.getPloidyModel().samplePloidy(0));
                 // output left-flanking non-variant section:
                 if (trimmingResult.hasLeftFlankingRegion())
                     result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(),false));
@@ -1150,8 +1154,13 @@ public class HaplotypeCaller extends ActiveRegionWalker<List<VariantContext>, In
 
     @Override
     public Integer reduce(List<VariantContext> callsInRegion, Integer numCalledRegions) {
-        for( final VariantContext call : callsInRegion ) {
-            vcfWriter.add( call );
+        if ( callsInRegion instanceof ReferenceConfidenceRecords && vcfWriter instanceof GVCFWriter ) {
+            // let the GVCF writer band the reference sites straight from their values
+            ((GVCFWriter) vcfWriter).addAll((ReferenceConfidenceRecords) callsInRegion);
+        } else {
+            for( final VariantContext call : callsInRegion ) {
+                vcfWriter.add( call );
+            }
         }
         return (callsInRegion.isEmpty() ? 0 : 1) + numCalledRegions;
     }
@@ -64,6 +64,8 @@ import org.broadinstitute.gatk.engine.walkers.RodWalker;
 import org.broadinstitute.gatk.engine.walkers.Window;
 import org.broadinstitute.gatk.utils.GenomeLoc;
 import org.broadinstitute.gatk.utils.haplotype.Haplotype;
+import org.broadinstitute.gatk.utils.smithwaterman.Parameters;
+import org.broadinstitute.gatk.utils.smithwaterman.SWImplementation;
 import org.broadinstitute.gatk.utils.smithwaterman.SWPairwiseAlignment;
 import org.broadinstitute.gatk.utils.help.HelpConstants;
 import htsjdk.variant.vcf.VCFHeader;
@@ -348,14 +350,15 @@ public class HaplotypeResolver extends RodWalker<Integer, Integer> {
     private static final int SW_MISMATCH = -100;
     private static final int SW_GAP = -250;
     private static final int SW_GAP_EXTEND = -13;
+    private static final Parameters SW_PARAMETERS = new Parameters(SW_MATCH, SW_MISMATCH, SW_GAP, SW_GAP_EXTEND);
 
     private void resolveByHaplotype(final ReferenceContext refContext) {
 
         final byte[] source1Haplotype = generateHaplotype(sourceVCs1, refContext);
         final byte[] source2Haplotype = generateHaplotype(sourceVCs2, refContext);
 
-        final SWPairwiseAlignment swConsensus1 = new SWPairwiseAlignment( refContext.getBases(), source1Haplotype, SW_MATCH, SW_MISMATCH, SW_GAP, SW_GAP_EXTEND );
-        final SWPairwiseAlignment swConsensus2 = new SWPairwiseAlignment( refContext.getBases(), source2Haplotype, SW_MATCH, SW_MISMATCH, SW_GAP, SW_GAP_EXTEND );
+        final SWPairwiseAlignment swConsensus1 = SWImplementation.getDefaultImplementation().align(refContext.getBases(), source1Haplotype, SW_PARAMETERS);
+        final SWPairwiseAlignment swConsensus2 = SWImplementation.getDefaultImplementation().align(refContext.getBases(), source2Haplotype, SW_PARAMETERS);
 
         // protect against SW failures
         if( swConsensus1.getCigar().toString().contains("S") || swConsensus1.getCigar().getReferenceLength() < 20 ||
@@ -67,6 +67,9 @@ public class KMerCounter {
 
     /**
      * A map of for each kmer to its num occurrences in addKmers
+     *
+     * Kept as a HashMap rather than a PackedKmerMap: ReadErrorCorrector breaks ties between kmers in the
+     * iteration order of this map, so changing it would change the output of error correction.
      */
     private final Map<Kmer, CountedKmer> countsByKMer = new HashMap<Kmer, CountedKmer>();
     private final int kmerLength;
@@ -68,6 +68,8 @@ public class LikelihoodEngineArgumentCollection {
 
     /**
      * The PairHMM implementation to use for genotype likelihood calculations. The various implementations balance a tradeoff of accuracy and runtime.
+     * JAVA_VECTOR_LOGLESS_CACHING gives results equivalent to VECTOR_LOGLESS_CACHING without requiring the native library.
+     * When that library cannot be loaded, VECTOR_LOGLESS_CACHING falls back to LOGLESS_CACHING.
      */
     @Hidden
     @Argument(fullName = "pair_hmm_implementation", shortName = "pairHMM", doc = "The PairHMM implementation to use for genotype likelihood calculations", required = false)
@@ -0,0 +1,504 @@
+/*
+* By downloading the PROGRAM you agree to the following terms of use:
+* 
+* BROAD INSTITUTE
+* SOFTWARE LICENSE AGREEMENT
+* FOR ACADEMIC NON-COMMERCIAL RESEARCH PURPOSES ONLY
+* 
+* This Agreement is made between the Broad Institute, Inc. with a principal address at 415 Main Street, Cambridge, MA 02142 ("BROAD") and the LICENSEE and is effective at the date the downloading is completed ("EFFECTIVE DATE").
+* 
+* WHEREAS, LICENSEE desires to license the PROGRAM, as defined hereinafter, and BROAD wishes to have this PROGRAM utilized in the public interest, subject only to the royalty-free, nonexclusive, nontransferable license rights of the United States Government pursuant to 48 CFR 52.227-14; and
+* WHEREAS, LICENSEE desires to license the PROGRAM and BROAD desires to grant a license on the following terms and conditions.
+* NOW, THEREFORE, in consideration of the promises and covenants made herein, the parties hereto agree as follows:
+* 
+* 1. DEFINITIONS
+* 1.1 PROGRAM shall mean copyright in the object code and source code known as GATK3 and related documentation, if any, as they exist on the EFFECTIVE DATE and can be downloaded from http://www.broadinstitute.org/gatk on the EFFECTIVE DATE.
+* 
+* 2. LICENSE
+* 2.1 Grant. Subject to the terms of this Agreement, BROAD hereby grants to LICENSEE, solely for academic non-commercial research purposes, a non-exclusive, non-transferable license to: (a) download, execute and display the PROGRAM and (b) create bug fixes and modify the PROGRAM. LICENSEE hereby automatically grants to BROAD a non-exclusive, royalty-free, irrevocable license to any LICENSEE bug fixes or modifications to the PROGRAM with unlimited rights to sublicense and/or distribute.  LICENSEE agrees to provide any such modifications and bug fixes to BROAD promptly upon their creation.
+* The LICENSEE may apply the PROGRAM in a pipeline to data owned by users other than the LICENSEE and provide these users the results of the PROGRAM provided LICENSEE does so for academic non-commercial purposes only. For clarification purposes, academic sponsored research is not a commercial use under the terms of this Agreement.
+* 2.2 No Sublicensing or Additional Rights. LICENSEE shall not sublicense or distribute the PROGRAM, in whole or in part, without prior written permission from BROAD. LICENSEE shall ensure that all of its users agree to the terms of this Agreement. LICENSEE further agrees that it shall not put the PROGRAM on a network, server, or other similar technology that may be accessed by anyone other than the LICENSEE and its employees and users who have agreed to the terms of this agreement.
+* 2.3 License Limitations. Nothing in this Agreement shall be construed to confer any rights upon LICENSEE by implication, estoppel, or otherwise to any computer software, trademark, intellectual property, or patent rights of BROAD, or of any other entity, except as expressly granted herein. LICENSEE agrees that the PROGRAM, in whole or part, shall not be used for any commercial purpose, including without limitation, as the basis of a commercial software or hardware product or to provide services. LICENSEE further agrees that the PROGRAM shall not be copied or otherwise adapted in order to circumvent the need for obtaining a license for use of the PROGRAM.
+* 
+* 3. PHONE-HOME FEATURE
+* LICENSEE expressly acknowledges that the PROGRAM contains an embedded automatic reporting system ("PHONE-HOME") which is enabled by default upon download. Unless LICENSEE requests disablement of PHONE-HOME, LICENSEE agrees that BROAD may collect limited information transmitted by PHONE-HOME regarding LICENSEE and its use of the PROGRAM.  Such information shall include LICENSEE'S user identification, version number of the PROGRAM and tools being run, mode of analysis employed, and any error reports generated during run-time.  Collection of such information is used by BROAD solely to monitor usage rates, fulfill reporting requirements to BROAD funding agencies, drive improvements to the PROGRAM, and facilitate adjustments to PROGRAM-related documentation.
+* 
+* 4. OWNERSHIP OF INTELLECTUAL PROPERTY
+* LICENSEE acknowledges that title to the PROGRAM shall remain with BROAD. The PROGRAM is marked with the following BROAD copyright notice and notice of attribution to contributors. LICENSEE shall retain such notice on all copies. LICENSEE agrees to include appropriate attribution if any results obtained from use of the PROGRAM are included in any publication.
+* Copyright 2012-2016 Broad Institute, Inc.
+* Notice of attribution: The GATK3 program was made available through the generosity of Medical and Population Genetics program at the Broad Institute, Inc.
+* LICENSEE shall not use any trademark or trade name of BROAD, or any variation, adaptation, or abbreviation, of such marks or trade names, or any names of officers, faculty, students, employees, or agents of BROAD except as states above for attribution purposes.
+* 
+* 5. INDEMNIFICATION
+* LICENSEE shall indemnify, defend, and hold harmless BROAD, and their respective officers, faculty, students, employees, associated investigators and agents, and their respective successors, heirs and assigns, (Indemnitees), against any liability, damage, loss, or expense (including reasonable attorneys fees and expenses) incurred by or imposed upon any of the Indemnitees in connection with any claims, suits, actions, demands or judgments arising out of any theory of liability (including, without limitation, actions in the form of tort, warranty, or strict liability and regardless of whether such action has any factual basis) pursuant to any right or license granted under this Agreement.
+* 
+* 6. NO REPRESENTATIONS OR WARRANTIES
+* THE PROGRAM IS DELIVERED AS IS. BROAD MAKES NO REPRESENTATIONS OR WARRANTIES OF ANY KIND CONCERNING THE PROGRAM OR THE COPYRIGHT, EXPRESS OR IMPLIED, INCLUDING, WITHOUT LIMITATION, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, NONINFRINGEMENT, OR THE ABSENCE OF LATENT OR OTHER DEFECTS, WHETHER OR NOT DISCOVERABLE. BROAD EXTENDS NO WARRANTIES OF ANY KIND AS TO PROGRAM CONFORMITY WITH WHATEVER USER MANUALS OR OTHER LITERATURE MAY BE ISSUED FROM TIME TO TIME.
+* IN NO EVENT SHALL BROAD OR ITS RESPECTIVE DIRECTORS, OFFICERS, EMPLOYEES, AFFILIATED INVESTIGATORS AND AFFILIATES BE LIABLE FOR INCIDENTAL OR CONSEQUENTIAL DAMAGES OF ANY KIND, INCLUDING, WITHOUT LIMITATION, ECONOMIC DAMAGES OR INJURY TO PROPERTY AND LOST PROFITS, REGARDLESS OF WHETHER BROAD SHALL BE ADVISED, SHALL HAVE OTHER REASON TO KNOW, OR IN FACT SHALL KNOW OF THE POSSIBILITY OF THE FOREGOING.
+* 
+* 7. ASSIGNMENT
+* This Agreement is personal to LICENSEE and any rights or obligations assigned by LICENSEE without the prior written consent of BROAD shall be null and void.
+* 
+* 8. MISCELLANEOUS
+* 8.1 Export Control. LICENSEE gives assurance that it will comply with all United States export control laws and regulations controlling the export of the PROGRAM, including, without limitation, all Export Administration Regulations of the United States Department of Commerce. Among other things, these laws and regulations prohibit, or require a license for, the export of certain types of software to specified countries.
+* 8.2 Termination. LICENSEE shall have the right to terminate this Agreement for any reason upon prior written notice to BROAD. If LICENSEE breaches any provision hereunder, and fails to cure such breach within thirty (30) days, BROAD may terminate this Agreement immediately. Upon termination, LICENSEE shall provide BROAD with written assurance that the original and all copies of the PROGRAM have been destroyed, except that, upon prior written authorization from BROAD, LICENSEE may retain a copy for archive purposes.
+* 8.3 Survival. The following provisions shall survive the expiration or termination of this Agreement: Articles 1, 3, 4, 5 and Sections 2.2, 2.3, 7.3, and 7.4.
+* 8.4 Notice. Any notices under this Agreement shall be in writing, shall specifically refer to this Agreement, and shall be sent by hand, recognized national overnight courier, confirmed facsimile transmission, confirmed electronic mail, or registered or certified mail, postage prepaid, return receipt requested. All notices under this Agreement shall be deemed effective upon receipt.
+* 8.5 Amendment and Waiver; Entire Agreement. This Agreement may be amended, supplemented, or otherwise modified only by means of a written instrument signed by all parties. Any waiver of any rights or failure to act in a specific instance shall relate only to such instance and shall not be construed as an agreement to waive any rights or fail to act in any other instance, whether or not similar. This Agreement constitutes the entire agreement among the parties with respect to its subject matter and supersedes prior agreements or understandings between the parties relating to its subject matter.
+* 8.6 Binding Effect; Headings. This Agreement shall be binding upon and inure to the benefit of the parties and their respective permitted successors and assigns. All headings are for convenience only and shall not affect the meaning of any provision of this Agreement.
+* 8.7 Governing Law. This Agreement shall be construed, governed, interpreted and applied in accordance with the internal laws of the Commonwealth of Massachusetts, U.S.A., without regard to conflict of laws principles.
+*/
+
+package org.broadinstitute.gatk.tools.walkers.haplotypecaller;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from kmers to values that doesn't hash Kmer objects for the kmers that matter.
+ *
+ * Kmers of up to MAX_PACKED_KMER_LENGTH bases, all of them A, C, G or T, are packed two bits per base into a long
+ * (with a sentinel bit above the bases, so kmers of different lengths never collide).  The packed kmers index
+ * an open addressing long -> int hash table, whose ints are the ids of the entries in flat key and value arrays.
+ * Any other kmer, such as one containing an N, is kept in an ordinary map alongside.
+ *
+ * Besides the full Map interface, values can be looked up directly from a range of a byte[], which for packable
+ * kmers involves no object allocation at all.  The keys of the map are values, not references into the arrays
+ * they were created from, so later changes to those arrays don't affect the map.
+ *
+ * Null values aren't supported.  Iteration is in insertion order for the packed kmers, followed by the others.
+ *
+ * @param <V> the type of the values
+ */
+public class PackedKmerMap<V> extends AbstractMap<Kmer, V> {
+    /**
+     * The longest kmer that can be packed into a long, leaving room for the sentinel bit
+     */
+    public final static int MAX_PACKED_KMER_LENGTH = 31;
+
+    /**
+     * Returned by pack() for kmers that can't be packed.  No packed kmer is ever negative
+     */
+    public final static long NOT_PACKABLE = -1L;
+
+    private final static long EMPTY = 0L;
+    private final static int INITIAL_CAPACITY = 16;
+
+    private final static byte[] CODES_BY_BASE = new byte[256];
+    private final static byte[] BASES_BY_CODE = { 'A', 'C', 'G', 'T' };
+    static {
+        Arrays.fill(CODES_BY_BASE, (byte)-1);
+        for ( byte code = 0; code < BASES_BY_CODE.length; code++ )
+            CODES_BY_BASE[BASES_BY_CODE[code]] = code;
+    }
+
+    // the hash table, from packed kmer to entry id
+    private long[] slotKeys;
+    private int[] slotEntryIds;
+    private int slotMask;
+
+    // the entries, by id, in insertion order.  Removed entries have EMPTY keys and null values
+    private long[] entryKeys;
+    private Object[] entryValues;
+    private int numEntryIds = 0;
+    private int numPackedEntries = 0;
+
+    /**
+     * The kmers that can't be packed
+     */
+    private final Map<Kmer, V> unpackedEntries = new LinkedHashMap<>();
+
+    public PackedKmerMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Pack bases[start, start + length) into a long
+     *
+     * @param bases the bases
+     * @param start the offset of the first base of the kmer
+     * @param length the length of the kmer
+     * @return the packed kmer, or NOT_PACKABLE if it's too long or has bases other than A, C, G and T
+     */
+    public static long pack(final byte[] bases, final int start, final int length) {
+        if ( length > MAX_PACKED_KMER_LENGTH )
+            return NOT_PACKABLE;
+
+        long packed = 1L;
+        for ( int i = start; i < start + length; i++ ) {
+            final int code = CODES_BY_BASE[bases[i] & 0xFF];
+            if ( code < 0 )
+                return NOT_PACKABLE;
+            packed = (packed << 2) | code;
+        }
+        return packed;
+    }
+
+    /**
+     * Unpack a kmer packed by pack()
+     *
+     * @param packed a packed kmer
+     * @return a new Kmer with the bases of packed
+     */
+    public static Kmer unpack(final long packed) {
+        final int length = (63 - Long.numberOfLeadingZeros(packed)) / 2;
+        final byte[] bases = new byte[length];
+        long remaining = packed;
+        for ( int i = length - 1; i >= 0; i-- ) {
+            bases[i] = BASES_BY_CODE[(int)(remaining & 3)];
+            remaining >>>= 2;
+        }
+        return new Kmer(bases);
+    }
+
+    private static long pack(final Object kmer) {
+        if ( ! (kmer instanceof Kmer) )
+            return NOT_PACKABLE;
+        final Kmer k = (Kmer)kmer;
+        if ( k.length() > MAX_PACKED_KMER_LENGTH )
+            return NOT_PACKABLE;
+
+        long packed = 1L;
+        for ( int i = 0; i < k.length(); i++ ) {
+            final int code = CODES_BY_BASE[k.base(i) & 0xFF];
+            if ( code < 0 )
+                return NOT_PACKABLE;
+            packed = (packed << 2) | code;
+        }
+        return packed;
+    }
+
+    /**
+     * Get the value of the kmer bases[start, start + length), without creating a Kmer if it can be packed
+     *
+     * @return the value, or null if the kmer isn't in this map
+     */
+    public V get(final byte[] bases, final int start, final int length) {
+        final long packed = pack(bases, start, length);
+        return packed == NOT_PACKABLE ? unpackedEntries.get(new Kmer(bases, start, length)) : getPacked(packed);
+    }
+
+    /**
+     * Is the kmer bases[start, start + length) in this map?  Doesn't create a Kmer if it can be packed
+     */
+    public boolean containsKey(final byte[] bases, final int start, final int length) {
+        return get(bases, start, length) != null;
+    }
+
+    /**
+     * Set the value of the kmer bases[start, start + length), only creating a Kmer if it can't be packed
+     *
+     * @return the previous value of the kmer, or null if it wasn't in this map
+     */
+    public V put(final byte[] bases, final int start, final int length, final V value) {
+        if ( value == null ) throw new IllegalArgumentException("value cannot be null");
+        final long packed = pack(bases, start, length);
+        return packed == NOT_PACKABLE ? unpackedEntries.put(new Kmer(Arrays.copyOfRange(bases, start, start + length)), value) : putPacked(packed, value);
+    }
+
+    /**
+     * Remove the kmer bases[start, start + length) from this map, only creating a Kmer if it can't be packed
+     *
+     * @return the value of the kmer, or null if it wasn't in this map
+     */
+    public V remove(final byte[] bases, final int start, final int length) {
+        final long packed = pack(bases, start, length);
+        return packed == NOT_PACKABLE ? unpackedEntries.remove(new Kmer(bases, start, length)) : removePacked(packed);
+    }
+
+    @Override
+    public V get(final Object key) {
+        final long packed = pack(key);
+        return packed == NOT_PACKABLE ? unpackedEntries.get(key) : getPacked(packed);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(final Kmer key, final V value) {
+        if ( key == null ) throw new IllegalArgumentException("key cannot be null");
+        if ( value == null ) throw new IllegalArgumentException("value cannot be null");
+        final long packed = pack(key);
+        return packed == NOT_PACKABLE ? unpackedEntries.put(new Kmer(key.bases().clone()), value) : putPacked(packed, value);
+    }
+
+    @Override
+    public V remove(final Object key) {
+        final long packed = pack(key);
+        return packed == NOT_PACKABLE ? unpackedEntries.remove(key) : removePacked(packed);
+    }
+
+    @Override
+    public int size() {
+        return numPackedEntries + unpackedEntries.size();
+    }
+
+    @Override
+    public void clear() {
+        allocate(INITIAL_CAPACITY);
+        numEntryIds = 0;
+        numPackedEntries = 0;
+        unpackedEntries.clear();
+    }
+
+    @Override
+    public Set<Entry<Kmer, V>> entrySet() {
+        return new AbstractSet<Entry<Kmer, V>>() {
+            @Override
+            public Iterator<Entry<Kmer, V>> iterator() {
+                return new EntryIterator<Entry<Kmer, V>>() {
+                    @Override
+                    protected Entry<Kmer, V> packedEntry(final int entryId) {
+                        return new PackedEntry(entryId);
+                    }
+
+                    @Override
+                    protected Entry<Kmer, V> unpackedEntry(final Entry<Kmer, V> entry) {
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return PackedKmerMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Overridden so that iterating over the values doesn't unpack every key
+     */
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new EntryIterator<V>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    protected V packedEntry(final int entryId) {
+                        return (V)entryValues[entryId];
+                    }
+
+                    @Override
+                    protected V unpackedEntry(final Entry<Kmer, V> entry) {
+                        return entry.getValue();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return PackedKmerMap.this.size();
+            }
+        };
+    }
+
+    // --------------------------------------------------------------------------------
+    // the packed hash table
+    // --------------------------------------------------------------------------------
+
+    private void allocate(final int capacity) {
+        entryKeys = new long[capacity];
+        entryValues = new Object[capacity];
+        slotKeys = new long[2 * capacity];
+        slotEntryIds = new int[2 * capacity];
+        slotMask = 2 * capacity - 1;
+    }
+
+    private int slotFor(final long packed) {
+        // Fibonacci hashing, as neighbouring kmers differ mostly in their low bits
+        return (int)((packed * 0x9E3779B97F4A7C15L) >>> 32) & slotMask;
+    }
+
+    private int findSlot(final long packed) {
+        int slot = slotFor(packed);
+        while ( slotKeys[slot] != EMPTY && slotKeys[slot] != packed )
+            slot = (slot + 1) & slotMask;
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getPacked(final long packed) {
+        final int slot = findSlot(packed);
+        return slotKeys[slot] == EMPTY ? null : (V)entryValues[slotEntryIds[slot]];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V putPacked(final long packed, final V value) {
+        int slot = findSlot(packed);
+        if ( slotKeys[slot] != EMPTY ) {
+            final int entryId = slotEntryIds[slot];
+            final V previous = (V)entryValues[entryId];
+            entryValues[entryId] = value;
+            return previous;
+        }
+
+        if ( numEntryIds == entryKeys.length ) {
+            // reclaim the ids of removed entries if there are enough of them, otherwise grow
+            rebuild(numPackedEntries * 2 <= numEntryIds ? entryKeys.length : 2 * entryKeys.length);
+            slot = findSlot(packed);
+        }
+
+        final int entryId = numEntryIds++;
+        entryKeys[entryId] = packed;
+        entryValues[entryId] = value;
+        slotKeys[slot] = packed;
+        slotEntryIds[slot] = entryId;
+        numPackedEntries++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removePacked(final long packed) {
+        int hole = findSlot(packed);
+        if ( slotKeys[hole] == EMPTY )
+            return null;
+
+        final int entryId = slotEntryIds[hole];
+        final V previous = (V)entryValues[entryId];
+        removeEntry(entryId);
+
+        // shift back the following kmers of the probe sequence that may no longer be reachable across the hole
+        for ( int slot = (hole + 1) & slotMask; slotKeys[slot] != EMPTY; slot = (slot + 1) & slotMask ) {
+            final int ideal = slotFor(slotKeys[slot]);
+            if ( ((slot - ideal) & slotMask) >= ((slot - hole) & slotMask) ) {
+                slotKeys[hole] = slotKeys[slot];
+                slotEntryIds[hole] = slotEntryIds[slot];
+                hole = slot;
+            }
+        }
+        slotKeys[hole] = EMPTY;
+        return previous;
+    }
+
+    private void removeEntry(final int entryId) {
+        entryKeys[entryId] = EMPTY;
+        entryValues[entryId] = null;
+        numPackedEntries--;
+    }
+
+    /**
+     * Reallocate with room for capacity entries, renumbering the remaining entries in order
+     */
+    private void rebuild(final int capacity) {
+        final long[] oldKeys = entryKeys;
+        final Object[] oldValues = entryValues;
+        final int oldNumEntryIds = numEntryIds;
+
+        allocate(capacity);
+        numEntryIds = 0;
+        for ( int i = 0; i < oldNumEntryIds; i++ ) {
+            if ( oldKeys[i] == EMPTY )
+                continue;
+            final int slot = findSlot(oldKeys[i]);
+            entryKeys[numEntryIds] = oldKeys[i];
+            entryValues[numEntryIds] = oldValues[i];
+            slotKeys[slot] = oldKeys[i];
+            slotEntryIds[slot] = numEntryIds;
+            numEntryIds++;
+        }
+    }
+
+    /**
+     * An entry of the packed table, writing through to the table
+     */
+    private final class PackedEntry implements Entry<Kmer, V> {
+        private final int entryId;
+        private final Kmer key;
+
+        private PackedEntry(final int entryId) {
+            this.entryId = entryId;
+            this.key = unpack(entryKeys[entryId]);
+        }
+
+        @Override
+        public Kmer getKey() {
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V)entryValues[entryId];
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if ( value == null ) throw new IllegalArgumentException("value cannot be null");
+            final V previous = getValue();
+            entryValues[entryId] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( ! (o instanceof Entry) ) return false;
+            final Entry<?, ?> other = (Entry<?, ?>)o;
+            return key.equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * Iterates over the live packed entries, then the unpacked ones.  The map mustn't be added to while iterating
+     */
+    private abstract class EntryIterator<T> implements Iterator<T> {
+        private int nextEntryId = 0;
+        private int lastEntryId = -1;
+        private final Iterator<Entry<Kmer, V>> unpackedIterator = unpackedEntries.entrySet().iterator();
+        private boolean inUnpacked = false;
+
+        protected abstract T packedEntry(final int entryId);
+        protected abstract T unpackedEntry(final Entry<Kmer, V> entry);
+
+        @Override
+        public boolean hasNext() {
+            while ( nextEntryId < numEntryIds && entryKeys[nextEntryId] == EMPTY )
+                nextEntryId++;
+            return nextEntryId < numEntryIds || unpackedIterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if ( ! hasNext() ) throw new NoSuchElementException();
+            if ( nextEntryId < numEntryIds ) {
+                lastEntryId = nextEntryId++;
+                return packedEntry(lastEntryId);
+            }
+            inUnpacked = true;
+            return unpackedEntry(unpackedIterator.next());
+        }
+
+        @Override
+        public void remove() {
+            if ( inUnpacked ) {
+                unpackedIterator.remove();
+            } else {
+                if ( lastEntryId < 0 || entryKeys[lastEntryId] == EMPTY ) throw new IllegalStateException();
+                removePacked(entryKeys[lastEntryId]);
+            }
+        }
+    }
+}
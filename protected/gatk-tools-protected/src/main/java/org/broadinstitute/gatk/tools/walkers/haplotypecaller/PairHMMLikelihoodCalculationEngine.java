@@ -114,8 +114,10 @@ public class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodCalcula
                         return new ArrayLoglessPairHMM();
                     else
                         return new CnyPairHMM();
+                case JAVA_VECTOR_LOGLESS_CACHING:
+                    return new JavaVectorLoglessPairHMM();
                 default:
-                    throw new UserException.BadArgumentValue("pairHMM", "Specified pairHMM implementation is unrecognized or incompatible with the HaplotypeCaller. Acceptable options are ORIGINAL, EXACT, CACHING, LOGLESS_CACHING, and ARRAY_LOGLESS.");
+                    throw new UserException.BadArgumentValue("pairHMM", "Specified pairHMM implementation is unrecognized or incompatible with the HaplotypeCaller. Acceptable options are ORIGINAL, EXACT, CACHING, LOGLESS_CACHING, ARRAY_LOGLESS, VECTOR_LOGLESS_CACHING and JAVA_VECTOR_LOGLESS_CACHING.");
             }
         }
     };
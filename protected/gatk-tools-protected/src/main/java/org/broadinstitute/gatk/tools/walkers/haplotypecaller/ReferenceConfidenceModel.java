@@ -66,6 +66,7 @@ import org.broadinstitute.gatk.utils.contexts.AlignmentContext;
 import org.broadinstitute.gatk.utils.genotyper.ReadLikelihoods;
 import org.broadinstitute.gatk.utils.genotyper.SampleList;
 import org.broadinstitute.gatk.utils.genotyper.SampleListUtils;
+import org.broadinstitute.gatk.utils.gvcf.ReferenceConfidenceRecords;
 import org.broadinstitute.gatk.utils.haplotype.Haplotype;
 import org.broadinstitute.gatk.utils.locusiterator.LocusIteratorByState;
 import org.broadinstitute.gatk.utils.pileup.PileupElement;
@@ -188,15 +189,16 @@ public class ReferenceConfidenceModel {
      *                     correct order by genomic position, and any variant in this list will stop us emitting a ref confidence
      *                     under any position it covers (for snps and insertions that is 1 bp, but for deletions its the entire ref span)
      * @return an ordered list of variant contexts that spans activeRegion.getLoc() and includes both reference confidence
-     *         contexts as well as calls from variantCalls if any were provided
+     *         contexts as well as calls from variantCalls if any were provided.  The reference confidence contexts are
+     *         kept as primitive values, and are only turned into VariantContexts when they are read from the list
      */
-    public List<VariantContext> calculateRefConfidence(final Haplotype refHaplotype,
-                                                       final Collection<Haplotype> calledHaplotypes,
-                                                       final GenomeLoc paddedReferenceLoc,
-                                                       final ActiveRegion activeRegion,
-                                                       final ReadLikelihoods<Haplotype> readLikelihoods,
-                                                       final PloidyModel ploidyModel,
-                                                       final GenotypingModel model,
+    public ReferenceConfidenceRecords calculateRefConfidence(final Haplotype refHaplotype,
+                                                             final Collection<Haplotype> calledHaplotypes,
+                                                             final GenomeLoc paddedReferenceLoc,
+                                                             final ActiveRegion activeRegion,
+                                                             final ReadLikelihoods<Haplotype> readLikelihoods,
+                                                             final PloidyModel ploidyModel,
+                                                             final GenotypingModel model,
                                                        final List<VariantContext> variantCalls) {
         if ( refHaplotype == null ) throw new IllegalArgumentException("refHaplotype cannot be null");
         if ( calledHaplotypes == null ) throw new IllegalArgumentException("calledHaplotypes cannot be null");
@@ -213,8 +215,8 @@ public class ReferenceConfidenceModel {
         final GenomeLoc refSpan = activeRegion.getLocation();
         final List<ReadBackedPileup> refPileups = getPileupsOverReference(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, refSpan, readLikelihoods);
         final byte[] ref = refHaplotype.getBases();
-        final List<VariantContext> results = new ArrayList<>(refSpan.size());
         final String sampleName = readLikelihoods.sampleAt(0);
+        final ReferenceConfidenceRecords results = new ReferenceConfidenceRecords("HC", sampleName, ploidy, refSpan.size());
 
         final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedLoc().getStart();
         for ( final ReadBackedPileup pileup : refPileups ) {
@@ -232,13 +234,6 @@ public class ReferenceConfidenceModel {
                 final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null);
                 homRefCalc.capByHomRefLikelihood();
 
-                final Allele refAllele = Allele.create(refBase, true);
-                final List<Allele> refSiteAlleles = Arrays.asList(refAllele, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE);
-                final VariantContextBuilder vcb = new VariantContextBuilder("HC", curPos.getContig(), curPos.getStart(), curPos.getStart(), refSiteAlleles);
-                final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
-                gb.AD(homRefCalc.AD_Ref_Any);
-                gb.DP(homRefCalc.getDP());
-
                 // genotype likelihood calculation
                 final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(homRefCalc.genotypeLikelihoods);
                 final int nIndelInformativeReads = calcNIndelInformativeReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
@@ -253,13 +248,11 @@ public class ReferenceConfidenceModel {
                 final GenotypeLikelihoods leastConfidenceGLs = getGLwithWorstGQ(indelGLs, snpGLs);
 
                 final int[] leastConfidenceGLsAsPLs = leastConfidenceGLs.getAsPLs();
-                gb.GQ(GATKVariantContextUtils.calculateGQFromPLs(leastConfidenceGLsAsPLs));
-                gb.PL(leastConfidenceGLsAsPLs);
                 //gb.attribute(INDEL_INFORMATIVE_DEPTH, nIndelInformativeReads);
 
-                vcb.genotypes(gb.make());
-                results.add(vcb.make());
-//                logger.info("  => VariantContext " + vcb.make());
+                // the VariantContext of the site is only built if someone asks for it; the GVCFWriter bands the values directly
+                results.addReferenceSite(curPos.getContig(), curPos.getStart(), refBase, homRefCalc.AD_Ref_Any, homRefCalc.getDP(),
+                        GATKVariantContextUtils.calculateGQFromPLs(leastConfidenceGLsAsPLs), leastConfidenceGLsAsPLs);
             }
         }
 
@@ -53,6 +53,8 @@ package org.broadinstitute.gatk.tools.walkers.haplotypecaller.readthreading;
 
 import org.apache.log4j.Logger;
 import org.broadinstitute.gatk.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.gatk.tools.walkers.haplotypecaller.PackedKmerMap;
+import org.broadinstitute.gatk.tools.walkers.haplotypecaller.PackedKmerSet;
 import org.broadinstitute.gatk.tools.walkers.haplotypecaller.graphs.*;
 import org.broadinstitute.gatk.utils.BaseUtils;
 import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
@@ -83,12 +85,13 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
     /**
      * A set of non-unique kmers that cannot be used as merge points in the graph
      */
-    protected Set<Kmer> nonUniqueKmers;
+    protected PackedKmerSet nonUniqueKmers;
 
     /**
-     * A map from kmers -> their corresponding vertex in the graph
+     * A map from kmers -> their corresponding vertex in the graph.  Looked up straight from the bases of the
+     * sequences being threaded, so that threading doesn't create a Kmer object for every base
      */
-    protected Map<Kmer, MultiDeBruijnVertex> uniqueKmers = new LinkedHashMap<>();
+    protected PackedKmerMap<MultiDeBruijnVertex> uniqueKmers = new PackedKmerMap<>();
 
     /**
      *
@@ -257,8 +260,7 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
             return 0;
 
         for ( int i = seqForKmers.start; i < seqForKmers.stop - kmerSize; i++ ) {
-            final Kmer kmer1 = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if ( isThreadingStart(kmer1) )
+            if ( isThreadingStart(seqForKmers.sequence, i) )
                 return i;
         }
 
@@ -280,6 +282,15 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
         return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(kmer) : !nonUniqueKmers.contains(kmer);
     }
 
+    /**
+     * Checks whether the kmer at start in sequence can be the threading start, without creating a Kmer.
+     *
+     * @see #isThreadingStart(Kmer)
+     */
+    private boolean isThreadingStart(final byte[] sequence, final int start) {
+        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(sequence, start, kmerSize) : !nonUniqueKmers.contains(sequence, start, kmerSize);
+    }
+
     /**
      * Changes the threading start location policy.
      *
@@ -339,8 +350,7 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
         final boolean result = super.removeVertex(V);
         if (result) {
             final byte[] sequence = V.getSequence();
-            final Kmer kmer = new Kmer(sequence);
-            uniqueKmers.remove(kmer);
+            uniqueKmers.remove(sequence, 0, sequence.length);
         }
         return result;
     }
@@ -370,10 +380,10 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
 
     /** structure that keeps track of the non-unique kmers for a given kmer size */
     private static class NonUniqueResult {
-        final Set<Kmer> nonUniques;
+        final PackedKmerSet nonUniques;
         final int kmerSize;
 
-        private NonUniqueResult(Set<Kmer> nonUniques, int kmerSize) {
+        private NonUniqueResult(PackedKmerSet nonUniques, int kmerSize) {
             this.nonUniques = nonUniques;
             this.kmerSize = kmerSize;
         }
@@ -390,7 +400,7 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
      */
     protected NonUniqueResult determineKmerSizeAndNonUniques(final int minKmerSize, final int maxKmerSize) {
         final Collection<SequenceForKmers> withNonUniques = getAllPendingSequences();
-        final Set<Kmer> nonUniqueKmers = new HashSet<>();
+        final PackedKmerSet nonUniqueKmers = new PackedKmerSet();
 
         // go through the sequences and determine which kmers aren't unique within each read
         int kmerSize = minKmerSize;
@@ -443,12 +453,12 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
         // count up occurrences of kmers within each read
 
         final int stopPosition = seqForKmers.stop - kmerSize;
-        final Set<Kmer> result = new LinkedHashSet<>(stopPosition + 1);
-        final Set<Kmer> allKmers = new HashSet<>(stopPosition + 1);
+        final Set<Kmer> result = new LinkedHashSet<>();
+        final PackedKmerSet allKmers = new PackedKmerSet();
         for ( int i = 0; i <= stopPosition; i++ ) {
-            final Kmer kmer = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if (!allKmers.add(kmer)) {
-                result.add(kmer);
+            // only the (rare) non-unique kmers need Kmer objects
+            if (!allKmers.add(seqForKmers.sequence, i, kmerSize)) {
+                result.add(new Kmer(seqForKmers.sequence, i, kmerSize));
             }
         }
         return result;
@@ -486,21 +496,32 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
      * @return a non-null vertex
      */
     private MultiDeBruijnVertex getOrCreateKmerVertex(final byte[] sequence, final int start) {
-        final Kmer kmer = new Kmer(sequence, start, kmerSize);
-        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(kmer, true);
-        return ( vertex != null ) ? vertex : createVertex(kmer);
+        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(sequence, start, true);
+        return ( vertex != null ) ? vertex : createVertex(sequence, start);
     }
 
     /**
-     * Get the unique vertex for kmer, or null if not possible.
+     * Get the unique vertex for the kmer at start in sequence, or null if not possible.
      *
      * @param allowRefSource if true, we will allow kmer to match the reference source vertex
      * @return a vertex for kmer, or null if it's not unique
      */
-    private MultiDeBruijnVertex getUniqueKmerVertex(final Kmer kmer, final boolean allowRefSource) {
-        if ( ! allowRefSource && kmer.equals(refSource) ) return null;
+    private MultiDeBruijnVertex getUniqueKmerVertex(final byte[] sequence, final int start, final boolean allowRefSource) {
+        if ( ! allowRefSource && isRefSource(sequence, start) ) return null;
 
-        return uniqueKmers.get(kmer);
+        return uniqueKmers.get(sequence, start, kmerSize);
+    }
+
+    /**
+     * Is the kmer at start in sequence the reference source kmer?
+     */
+    private boolean isRefSource(final byte[] sequence, final int start) {
+        if ( refSource == null )
+            return false;
+        for ( int i = 0; i < kmerSize; i++ )
+            if ( refSource.base(i) != sequence[start + i] )
+                return false;
+        return true;
     }
 
 
@@ -509,11 +530,12 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
      *
      * kmer must not have a entry in unique kmers, or an error will be thrown
      *
-     * @param kmer the kmer we want to create a vertex for
+     * @param sequence the sequence containing the kmer we want to create a vertex for
+     * @param start the position of the kmer start
      * @return the non-null created vertex
      */
-    private MultiDeBruijnVertex createVertex(final Kmer kmer) {
-        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(kmer.bases());
+    private MultiDeBruijnVertex createVertex(final byte[] sequence, final int start) {
+        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(Arrays.copyOfRange(sequence, start, start + kmerSize));
         final int prevSize = vertexSet().size();
         addVertex(newVertex);
 
@@ -521,8 +543,8 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
         if ( vertexSet().size() != prevSize + 1) throw new IllegalStateException("Adding vertex " + newVertex + " to graph didn't increase the graph size");
 
         // add the vertex to the unique kmer map, if it is in fact unique
-        if ( ! nonUniqueKmers.contains(kmer) && ! uniqueKmers.containsKey(kmer) ) // TODO -- not sure this last test is necessary
-            uniqueKmers.put(kmer, newVertex);
+        if ( ! nonUniqueKmers.contains(sequence, start, kmerSize) && ! uniqueKmers.containsKey(sequence, start, kmerSize) ) // TODO -- not sure this last test is necessary
+            uniqueKmers.put(sequence, start, kmerSize, newVertex);
 
         return newVertex;
     }
@@ -552,14 +574,13 @@ public class ReadThreadingGraph extends DanglingChainMergingGraph implements Kme
         }
 
         // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
-        final Kmer kmer = new Kmer(sequence, kmerStart, kmerSize);
-        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(kmer, false);
+        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(sequence, kmerStart, false);
 
         if ( isRef && uniqueMergeVertex != null )
             throw new IllegalStateException("Found a unique vertex to merge into the reference graph " + prevVertex + " -> " + uniqueMergeVertex);
 
         // either use our unique merge vertex, or create a new one in the chain
-        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(kmer) : uniqueMergeVertex;
+        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(sequence, kmerStart) : uniqueMergeVertex;
         addEdge(prevVertex, nextVertex, ((MyEdgeFactory)getEdgeFactory()).createEdge(isRef, count));
         return nextVertex;
     }
@@ -64,6 +64,7 @@ import org.broadinstitute.gatk.utils.genotyper.PerReadAlleleLikelihoodMap;
 import org.broadinstitute.gatk.utils.genotyper.ReadLikelihoods;
 import org.broadinstitute.gatk.utils.haplotype.Haplotype;
 import org.broadinstitute.gatk.utils.pairhmm.ArrayLoglessPairHMM;
+import org.broadinstitute.gatk.utils.pairhmm.JavaVectorLoglessPairHMM;
 import org.broadinstitute.gatk.utils.pairhmm.Log10PairHMM;
 import org.broadinstitute.gatk.utils.pairhmm.LoglessPairHMM;
 import org.broadinstitute.gatk.utils.pairhmm.PairHMM;
@@ -129,8 +130,11 @@ public class PairHMMIndelErrorModel {
             case ARRAY_LOGLESS:
                 pairHMM = new ArrayLoglessPairHMM();
                 break;
+            case JAVA_VECTOR_LOGLESS_CACHING:
+                pairHMM = new JavaVectorLoglessPairHMM();
+                break;
             default:
-                throw new UserException.BadArgumentValue("pairHMM", "Specified pairHMM implementation is unrecognized or incompatible with the UnifiedGenotyper. Acceptable options are ORIGINAL, EXACT, LOGLESS_CACHING, or ARRAY_LOGLESS.");
+                throw new UserException.BadArgumentValue("pairHMM", "Specified pairHMM implementation is unrecognized or incompatible with the UnifiedGenotyper. Acceptable options are ORIGINAL, EXACT, LOGLESS_CACHING, ARRAY_LOGLESS or JAVA_VECTOR_LOGLESS_CACHING.");
         }
 
         // fill gap penalty table, affine naive model:
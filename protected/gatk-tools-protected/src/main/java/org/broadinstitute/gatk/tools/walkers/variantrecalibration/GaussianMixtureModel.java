@@ -60,6 +60,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Created by IntelliJ IDEA.
@@ -174,31 +175,62 @@ public class GaussianMixtureModel {
         }
     }
 
-    public void expectationStep( final List<VariantDatum> data ) {
+    /**
+     * Assign to each Gaussian the probability that each datum belongs to it
+     *
+     * @param annotations the annotations of the data, packed by {@link VariantDataManager#packAnnotations}
+     * @param executor the executor to spread the data over, or null to do all the work on the calling thread
+     */
+    public void expectationStep( final double[] annotations, final ExecutorService executor ) {
 
         for( final MultivariateGaussian gaussian : gaussians ) {
             gaussian.precomputeDenominatorForVariationalBayes( getSumHyperParameterLambda() );
         }
 
-        for( final VariantDatum datum : data ) {
-            final double[] pVarInGaussianLog10 = new double[gaussians.size()];
-            int gaussianIndex = 0;
-            for( final MultivariateGaussian gaussian : gaussians ) {
-                final double pVarLog10 = gaussian.evaluateDatumLog10( datum );
-                pVarInGaussianLog10[gaussianIndex++] = pVarLog10;
-            }
-            final double[] pVarInGaussianNormalized = MathUtils.normalizeFromLog10( pVarInGaussianLog10, false );
-            gaussianIndex = 0;
-            for( final MultivariateGaussian gaussian : gaussians ) {
-                gaussian.assignPVarInGaussian( pVarInGaussianNormalized[gaussianIndex++] );
-            }
+        final int numData = annotations.length / getNumAnnotations();
+        for( final MultivariateGaussian gaussian : gaussians ) {
+            gaussian.initializePVarInGaussian( numData );
         }
+
+        // each datum is independent of the others, so the data can be split into chunks
+        new ChunkedDataTask() {
+            @Override
+            protected void run( final int start, final int end ) {
+                final double[] pVarInGaussianLog10 = new double[gaussians.size()];
+                for( int datumIndex = start; datumIndex < end; datumIndex++ ) {
+                    final int offset = datumIndex * getNumAnnotations();
+                    int gaussianIndex = 0;
+                    for( final MultivariateGaussian gaussian : gaussians ) {
+                        pVarInGaussianLog10[gaussianIndex++] = gaussian.evaluateDatumLog10( annotations, offset );
+                    }
+                    final double[] pVarInGaussianNormalized = MathUtils.normalizeFromLog10( pVarInGaussianLog10, false );
+                    gaussianIndex = 0;
+                    for( final MultivariateGaussian gaussian : gaussians ) {
+                        gaussian.assignPVarInGaussian( datumIndex, pVarInGaussianNormalized[gaussianIndex++] );
+                    }
+                }
+            }
+        }.runAll( executor, numData );
     }
 
-    public void maximizationStep( final List<VariantDatum> data ) {
-        for( final MultivariateGaussian gaussian : gaussians ) {
-            gaussian.maximizeGaussian( data, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts);
-        }
+    /**
+     * Update each Gaussian from the probabilities assigned by the last expectation step
+     *
+     * The Gaussians are updated independently, each summing over the data in order, so the
+     * result doesn't depend on the executor
+     *
+     * @param annotations the annotations of the data, packed by {@link VariantDataManager#packAnnotations}
+     * @param executor the executor to spread the Gaussians over, or null to do all the work on the calling thread
+     */
+    public void maximizationStep( final double[] annotations, final ExecutorService executor ) {
+        new ChunkedDataTask() {
+            @Override
+            protected void run( final int start, final int end ) {
+                for( int gaussianIndex = start; gaussianIndex < end; gaussianIndex++ ) {
+                    gaussians.get(gaussianIndex).maximizeGaussian( annotations, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts );
+                }
+            }
+        }.runAll( executor, gaussians.size(), 1 );
     }
 
     private double getSumHyperParameterLambda() {
@@ -209,9 +241,9 @@ public class GaussianMixtureModel {
         return sum;
     }
 
-    public void evaluateFinalModelParameters( final List<VariantDatum> data ) {
+    public void evaluateFinalModelParameters( final double[] annotations ) {
         for( final MultivariateGaussian gaussian : gaussians ) {
-            gaussian.evaluateFinalModelParameters(data);
+            gaussian.evaluateFinalModelParameters(annotations);
         }
         normalizePMixtureLog10();
     }
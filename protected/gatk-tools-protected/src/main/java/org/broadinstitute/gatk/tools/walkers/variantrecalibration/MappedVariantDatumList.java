@@ -0,0 +1,427 @@
+/*
+* By downloading the PROGRAM you agree to the following terms of use:
+* 
+* BROAD INSTITUTE
+* SOFTWARE LICENSE AGREEMENT
+* FOR ACADEMIC NON-COMMERCIAL RESEARCH PURPOSES ONLY
+* 
+* This Agreement is made between the Broad Institute, Inc. with a principal address at 415 Main Street, Cambridge, MA 02142 ("BROAD") and the LICENSEE and is effective at the date the downloading is completed ("EFFECTIVE DATE").
+* 
+* WHEREAS, LICENSEE desires to license the PROGRAM, as defined hereinafter, and BROAD wishes to have this PROGRAM utilized in the public interest, subject only to the royalty-free, nonexclusive, nontransferable license rights of the United States Government pursuant to 48 CFR 52.227-14; and
+* WHEREAS, LICENSEE desires to license the PROGRAM and BROAD desires to grant a license on the following terms and conditions.
+* NOW, THEREFORE, in consideration of the promises and covenants made herein, the parties hereto agree as follows:
+* 
+* 1. DEFINITIONS
+* 1.1 PROGRAM shall mean copyright in the object code and source code known as GATK3 and related documentation, if any, as they exist on the EFFECTIVE DATE and can be downloaded from http://www.broadinstitute.org/gatk on the EFFECTIVE DATE.
+* 
+* 2. LICENSE
+* 2.1 Grant. Subject to the terms of this Agreement, BROAD hereby grants to LICENSEE, solely for academic non-commercial research purposes, a non-exclusive, non-transferable license to: (a) download, execute and display the PROGRAM and (b) create bug fixes and modify the PROGRAM. LICENSEE hereby automatically grants to BROAD a non-exclusive, royalty-free, irrevocable license to any LICENSEE bug fixes or modifications to the PROGRAM with unlimited rights to sublicense and/or distribute.  LICENSEE agrees to provide any such modifications and bug fixes to BROAD promptly upon their creation.
+* The LICENSEE may apply the PROGRAM in a pipeline to data owned by users other than the LICENSEE and provide these users the results of the PROGRAM provided LICENSEE does so for academic non-commercial purposes only. For clarification purposes, academic sponsored research is not a commercial use under the terms of this Agreement.
+* 2.2 No Sublicensing or Additional Rights. LICENSEE shall not sublicense or distribute the PROGRAM, in whole or in part, without prior written permission from BROAD. LICENSEE shall ensure that all of its users agree to the terms of this Agreement. LICENSEE further agrees that it shall not put the PROGRAM on a network, server, or other similar technology that may be accessed by anyone other than the LICENSEE and its employees and users who have agreed to the terms of this agreement.
+* 2.3 License Limitations. Nothing in this Agreement shall be construed to confer any rights upon LICENSEE by implication, estoppel, or otherwise to any computer software, trademark, intellectual property, or patent rights of BROAD, or of any other entity, except as expressly granted herein. LICENSEE agrees that the PROGRAM, in whole or part, shall not be used for any commercial purpose, including without limitation, as the basis of a commercial software or hardware product or to provide services. LICENSEE further agrees that the PROGRAM shall not be copied or otherwise adapted in order to circumvent the need for obtaining a license for use of the PROGRAM.
+* 
+* 3. PHONE-HOME FEATURE
+* LICENSEE expressly acknowledges that the PROGRAM contains an embedded automatic reporting system ("PHONE-HOME") which is enabled by default upon download. Unless LICENSEE requests disablement of PHONE-HOME, LICENSEE agrees that BROAD may collect limited information transmitted by PHONE-HOME regarding LICENSEE and its use of the PROGRAM.  Such information shall include LICENSEE'S user identification, version number of the PROGRAM and tools being run, mode of analysis employed, and any error reports generated during run-time.  Collection of such information is used by BROAD solely to monitor usage rates, fulfill reporting requirements to BROAD funding agencies, drive improvements to the PROGRAM, and facilitate adjustments to PROGRAM-related documentation.
+* 
+* 4. OWNERSHIP OF INTELLECTUAL PROPERTY
+* LICENSEE acknowledges that title to the PROGRAM shall remain with BROAD. The PROGRAM is marked with the following BROAD copyright notice and notice of attribution to contributors. LICENSEE shall retain such notice on all copies. LICENSEE agrees to include appropriate attribution if any results obtained from use of the PROGRAM are included in any publication.
+* Copyright 2012-2016 Broad Institute, Inc.
+* Notice of attribution: The GATK3 program was made available through the generosity of Medical and Population Genetics program at the Broad Institute, Inc.
+* LICENSEE shall not use any trademark or trade name of BROAD, or any variation, adaptation, or abbreviation, of such marks or trade names, or any names of officers, faculty, students, employees, or agents of BROAD except as states above for attribution purposes.
+* 
+* 5. INDEMNIFICATION
+* LICENSEE shall indemnify, defend, and hold harmless BROAD, and their respective officers, faculty, students, employees, associated investigators and agents, and their respective successors, heirs and assigns, (Indemnitees), against any liability, damage, loss, or expense (including reasonable attorneys fees and expenses) incurred by or imposed upon any of the Indemnitees in connection with any claims, suits, actions, demands or judgments arising out of any theory of liability (including, without limitation, actions in the form of tort, warranty, or strict liability and regardless of whether such action has any factual basis) pursuant to any right or license granted under this Agreement.
+* 
+* 6. NO REPRESENTATIONS OR WARRANTIES
+* THE PROGRAM IS DELIVERED AS IS. BROAD MAKES NO REPRESENTATIONS OR WARRANTIES OF ANY KIND CONCERNING THE PROGRAM OR THE COPYRIGHT, EXPRESS OR IMPLIED, INCLUDING, WITHOUT LIMITATION, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, NONINFRINGEMENT, OR THE ABSENCE OF LATENT OR OTHER DEFECTS, WHETHER OR NOT DISCOVERABLE. BROAD EXTENDS NO WARRANTIES OF ANY KIND AS TO PROGRAM CONFORMITY WITH WHATEVER USER MANUALS OR OTHER LITERATURE MAY BE ISSUED FROM TIME TO TIME.
+* IN NO EVENT SHALL BROAD OR ITS RESPECTIVE DIRECTORS, OFFICERS, EMPLOYEES, AFFILIATED INVESTIGATORS AND AFFILIATES BE LIABLE FOR INCIDENTAL OR CONSEQUENTIAL DAMAGES OF ANY KIND, INCLUDING, WITHOUT LIMITATION, ECONOMIC DAMAGES OR INJURY TO PROPERTY AND LOST PROFITS, REGARDLESS OF WHETHER BROAD SHALL BE ADVISED, SHALL HAVE OTHER REASON TO KNOW, OR IN FACT SHALL KNOW OF THE POSSIBILITY OF THE FOREGOING.
+* 
+* 7. ASSIGNMENT
+* This Agreement is personal to LICENSEE and any rights or obligations assigned by LICENSEE without the prior written consent of BROAD shall be null and void.
+* 
+* 8. MISCELLANEOUS
+* 8.1 Export Control. LICENSEE gives assurance that it will comply with all United States export control laws and regulations controlling the export of the PROGRAM, including, without limitation, all Export Administration Regulations of the United States Department of Commerce. Among other things, these laws and regulations prohibit, or require a license for, the export of certain types of software to specified countries.
+* 8.2 Termination. LICENSEE shall have the right to terminate this Agreement for any reason upon prior written notice to BROAD. If LICENSEE breaches any provision hereunder, and fails to cure such breach within thirty (30) days, BROAD may terminate this Agreement immediately. Upon termination, LICENSEE shall provide BROAD with written assurance that the original and all copies of the PROGRAM have been destroyed, except that, upon prior written authorization from BROAD, LICENSEE may retain a copy for archive purposes.
+* 8.3 Survival. The following provisions shall survive the expiration or termination of this Agreement: Articles 1, 3, 4, 5 and Sections 2.2, 2.3, 7.3, and 7.4.
+* 8.4 Notice. Any notices under this Agreement shall be in writing, shall specifically refer to this Agreement, and shall be sent by hand, recognized national overnight courier, confirmed facsimile transmission, confirmed electronic mail, or registered or certified mail, postage prepaid, return receipt requested. All notices under this Agreement shall be deemed effective upon receipt.
+* 8.5 Amendment and Waiver; Entire Agreement. This Agreement may be amended, supplemented, or otherwise modified only by means of a written instrument signed by all parties. Any waiver of any rights or failure to act in a specific instance shall relate only to such instance and shall not be construed as an agreement to waive any rights or fail to act in any other instance, whether or not similar. This Agreement constitutes the entire agreement among the parties with respect to its subject matter and supersedes prior agreements or understandings between the parties relating to its subject matter.
+* 8.6 Binding Effect; Headings. This Agreement shall be binding upon and inure to the benefit of the parties and their respective permitted successors and assigns. All headings are for convenience only and shall not affect the meaning of any provision of this Agreement.
+* 8.7 Governing Law. This Agreement shall be construed, governed, interpreted and applied in accordance with the internal laws of the Commonwealth of Massachusetts, U.S.A., without regard to conflict of laws principles.
+*/
+
+package org.broadinstitute.gatk.tools.walkers.variantrecalibration;
+
+import htsjdk.variant.variantcontext.Allele;
+import org.broadinstitute.gatk.utils.GenomeLoc;
+import org.broadinstitute.gatk.utils.GenomeLocParser;
+import org.broadinstitute.gatk.utils.exceptions.UserException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A list of VariantDatum kept in a memory-mapped temporary file instead of on the heap
+ *
+ * Every datum is stored as a fixed-width record holding its annotations, flags, scores and location, so the heap
+ * used by the list doesn't grow with the number of data (apart from the distinct alleles of allele-specific data,
+ * which are interned).  get() decodes a new VariantDatum from its record, so changes made to a datum must be
+ * written back with set().  The k-means assignment of a datum is not stored.
+ *
+ * Sorting by lod or by location, as the tranche computation and the recalibration table output do, sorts an
+ * index of the records and rewrites the file in the new order rather than decoding all of the data.
+ *
+ * get(), and set() of different indices, may be called from several threads at once, as long as nothing is being added
+ * to or removed from the list at the same time.
+ */
+public class MappedVariantDatumList extends AbstractList<VariantDatum> implements RandomAccess, Closeable {
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final int NO_VALUE = -1;
+
+    private static final int IS_KNOWN = 1;
+    private static final int AT_TRUTH_SITE = 1 << 1;
+    private static final int AT_TRAINING_SITE = 1 << 2;
+    private static final int AT_ANTI_TRAINING_SITE = 1 << 3;
+    private static final int IS_TRANSITION = 1 << 4;
+    private static final int IS_SNP = 1 << 5;
+    private static final int FAILING_STD_THRESHOLD = 1 << 6;
+    private static final int IS_AGGREGATE = 1 << 7;
+
+    private final int numAnnotations;
+    private final GenomeLocParser genomeLocParser;
+    private final File tempDir;
+
+    // the layout of a record
+    private final int isNullOffset;
+    private final int flagsOffset;
+    private final int doublesOffset;
+    private final int intsOffset;
+    private final int recordSize;
+    private final int recordsPerSegment;
+
+    private File file;
+    private RandomAccessFile randomAccessFile;
+    private List<MappedByteBuffer> segments = new ArrayList<>();
+    private int size = 0;
+
+    private final List<Allele> alleles = new ArrayList<>();
+    private final Map<Allele, Integer> alleleIndices = new HashMap<>();
+
+    /**
+     * Create an empty list backed by a new file in tempDir
+     *
+     * @param numAnnotations the number of annotations of every datum in the list
+     * @param genomeLocParser the parser to recreate the location of the data with
+     * @param tempDir the directory to create the file in, or null for the default temporary directory
+     */
+    public MappedVariantDatumList( final int numAnnotations, final GenomeLocParser genomeLocParser, final File tempDir ) {
+        if( numAnnotations < 0 ) { throw new IllegalArgumentException("numAnnotations cannot be negative but found: " + numAnnotations); }
+        if( genomeLocParser == null ) { throw new IllegalArgumentException("genomeLocParser cannot be null"); }
+
+        this.numAnnotations = numAnnotations;
+        this.genomeLocParser = genomeLocParser;
+        this.tempDir = tempDir;
+
+        isNullOffset = numAnnotations * 8;
+        flagsOffset = isNullOffset + numAnnotations;
+        doublesOffset = flagsOffset + 1;                   // lod, originalQual, prior, worstValue
+        intsOffset = doublesOffset + 4 * 8;                // consensusCount, worstAnnotation, contig, start, stop, ref allele, alt allele
+        recordSize = intsOffset + 7 * 4;
+        recordsPerSegment = (int) Math.max(1, SEGMENT_SIZE / recordSize);
+
+        file = createFile();
+        randomAccessFile = open(file);
+    }
+
+    private File createFile() {
+        try {
+            final File newFile = File.createTempFile("VariantDatum.", ".bin", tempDir);
+            newFile.deleteOnExit();
+            return newFile;
+        } catch( IOException e ) {
+            throw new UserException.BadTmpDir("Could not create a file for the variant data: " + e.getMessage());
+        }
+    }
+
+    private static RandomAccessFile open( final File file ) {
+        try {
+            return new RandomAccessFile(file, "rw");
+        } catch( IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(file, "Could not open the file for the variant data", e);
+        }
+    }
+
+    private static MappedByteBuffer map( final RandomAccessFile randomAccessFile, final File file, final long position, final long size ) {
+        try {
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, position, size);
+        } catch( IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(file, "Could not map the file for the variant data", e);
+        }
+    }
+
+    /**
+     * Get the buffer holding record index, mapping a new segment of the file if needed
+     */
+    private ByteBuffer segmentFor( final int index ) {
+        final int segment = index / recordsPerSegment;
+        while( segments.size() <= segment ) {
+            final long segmentBytes = (long) recordsPerSegment * recordSize;
+            segments.add(map(randomAccessFile, file, segments.size() * segmentBytes, segmentBytes));
+        }
+        return segments.get(segment);
+    }
+
+    private int offsetOf( final int index ) {
+        return (index % recordsPerSegment) * recordSize;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public VariantDatum get( final int index ) {
+        if( index < 0 || index >= size ) { throw new IndexOutOfBoundsException("index " + index + " is out of bounds for " + size + " data"); }
+        final ByteBuffer buffer = segmentFor(index);
+        final int offset = offsetOf(index);
+
+        final VariantDatum datum = new VariantDatum();
+        datum.annotations = new double[numAnnotations];
+        datum.isNull = new boolean[numAnnotations];
+        for( int iii = 0; iii < numAnnotations; iii++ ) {
+            datum.annotations[iii] = buffer.getDouble(offset + iii * 8);
+            datum.isNull[iii] = buffer.get(offset + isNullOffset + iii) != 0;
+        }
+
+        final int flags = buffer.get(offset + flagsOffset);
+        datum.isKnown = (flags & IS_KNOWN) != 0;
+        datum.atTruthSite = (flags & AT_TRUTH_SITE) != 0;
+        datum.atTrainingSite = (flags & AT_TRAINING_SITE) != 0;
+        datum.atAntiTrainingSite = (flags & AT_ANTI_TRAINING_SITE) != 0;
+        datum.isTransition = (flags & IS_TRANSITION) != 0;
+        datum.isSNP = (flags & IS_SNP) != 0;
+        datum.failingSTDThreshold = (flags & FAILING_STD_THRESHOLD) != 0;
+        datum.isAggregate = (flags & IS_AGGREGATE) != 0;
+
+        datum.lod = buffer.getDouble(offset + doublesOffset);
+        datum.originalQual = buffer.getDouble(offset + doublesOffset + 8);
+        datum.prior = buffer.getDouble(offset + doublesOffset + 16);
+        datum.worstValue = buffer.getDouble(offset + doublesOffset + 24);
+
+        datum.consensusCount = buffer.getInt(offset + intsOffset);
+        datum.worstAnnotation = buffer.getInt(offset + intsOffset + 4);
+        final int contigIndex = buffer.getInt(offset + intsOffset + 8);
+        if( contigIndex != NO_VALUE ) {
+            final String contig = genomeLocParser.getContigs().getSequence(contigIndex).getSequenceName();
+            datum.loc = genomeLocParser.createGenomeLoc(contig, contigIndex, buffer.getInt(offset + intsOffset + 12), buffer.getInt(offset + intsOffset + 16));
+        }
+        datum.referenceAllele = getAllele(buffer.getInt(offset + intsOffset + 20));
+        datum.alternateAllele = getAllele(buffer.getInt(offset + intsOffset + 24));
+        return datum;
+    }
+
+    @Override
+    public VariantDatum set( final int index, final VariantDatum datum ) {
+        final VariantDatum previous = get(index);
+        write(index, datum);
+        return previous;
+    }
+
+    @Override
+    public boolean add( final VariantDatum datum ) {
+        write(size, datum);
+        size++;
+        return true;
+    }
+
+    private void write( final int index, final VariantDatum datum ) {
+        if( datum == null ) { throw new IllegalArgumentException("datum cannot be null"); }
+        if( datum.annotations.length != numAnnotations ) { throw new IllegalArgumentException("datum must have " + numAnnotations + " annotations but found: " + datum.annotations.length); }
+        final ByteBuffer buffer = segmentFor(index);
+        final int offset = offsetOf(index);
+
+        for( int iii = 0; iii < numAnnotations; iii++ ) {
+            buffer.putDouble(offset + iii * 8, datum.annotations[iii]);
+            buffer.put(offset + isNullOffset + iii, (byte) (datum.isNull[iii] ? 1 : 0));
+        }
+
+        int flags = 0;
+        if( datum.isKnown ) { flags |= IS_KNOWN; }
+        if( datum.atTruthSite ) { flags |= AT_TRUTH_SITE; }
+        if( datum.atTrainingSite ) { flags |= AT_TRAINING_SITE; }
+        if( datum.atAntiTrainingSite ) { flags |= AT_ANTI_TRAINING_SITE; }
+        if( datum.isTransition ) { flags |= IS_TRANSITION; }
+        if( datum.isSNP ) { flags |= IS_SNP; }
+        if( datum.failingSTDThreshold ) { flags |= FAILING_STD_THRESHOLD; }
+        if( datum.isAggregate ) { flags |= IS_AGGREGATE; }
+        buffer.put(offset + flagsOffset, (byte) flags);
+
+        buffer.putDouble(offset + doublesOffset, datum.lod);
+        buffer.putDouble(offset + doublesOffset + 8, datum.originalQual);
+        buffer.putDouble(offset + doublesOffset + 16, datum.prior);
+        buffer.putDouble(offset + doublesOffset + 24, datum.worstValue);
+
+        buffer.putInt(offset + intsOffset, datum.consensusCount);
+        buffer.putInt(offset + intsOffset + 4, datum.worstAnnotation);
+        buffer.putInt(offset + intsOffset + 8, datum.loc == null ? NO_VALUE : datum.loc.getContigIndex());
+        buffer.putInt(offset + intsOffset + 12, datum.loc == null ? NO_VALUE : datum.loc.getStart());
+        buffer.putInt(offset + intsOffset + 16, datum.loc == null ? NO_VALUE : datum.loc.getStop());
+        buffer.putInt(offset + intsOffset + 20, getAlleleIndex(datum.referenceAllele));
+        buffer.putInt(offset + intsOffset + 24, getAlleleIndex(datum.alternateAllele));
+    }
+
+    private synchronized Allele getAllele( final int alleleIndex ) {
+        return alleleIndex == NO_VALUE ? null : alleles.get(alleleIndex);
+    }
+
+    private synchronized int getAlleleIndex( final Allele allele ) {
+        if( allele == null ) { return NO_VALUE; }
+        Integer alleleIndex = alleleIndices.get(allele);
+        if( alleleIndex == null ) {
+            alleleIndex = alleles.size();
+            alleles.add(allele);
+            alleleIndices.put(allele, alleleIndex);
+        }
+        return alleleIndex;
+    }
+
+    /**
+     * Remove the data matching filter by compacting the file, keeping the other data in order
+     */
+    @Override
+    public boolean removeIf( final Predicate<? super VariantDatum> filter ) {
+        int kept = 0;
+        for( int iii = 0; iii < size; iii++ ) {
+            if( !filter.test(get(iii)) ) {
+                if( kept != iii ) {
+                    copyRecord(segmentFor(iii), offsetOf(iii), segmentFor(kept), offsetOf(kept));
+                }
+                kept++;
+            }
+        }
+        final boolean removed = kept != size;
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Sort the data, without decoding them, when c is a VariantDatumLODComparator or a VariantDatumLocComparator
+     *
+     * Like Collections.sort the sort is stable.  Any other comparator falls back to sorting decoded data.
+     */
+    @Override
+    public void sort( final Comparator<? super VariantDatum> c ) {
+        final long[] primaryKeys = new long[size];
+        final long[] secondaryKeys = new long[size];
+        if( c instanceof VariantDatum.VariantDatumLODComparator ) {
+            for( int iii = 0; iii < size; iii++ ) {
+                primaryKeys[iii] = sortableLong(segmentFor(iii).getDouble(offsetOf(iii) + doublesOffset));
+            }
+        } else if( c instanceof VariantDatum.VariantDatumLocComparator ) {
+            for( int iii = 0; iii < size; iii++ ) {
+                final ByteBuffer buffer = segmentFor(iii);
+                final int offset = offsetOf(iii);
+                final int contigIndex = buffer.getInt(offset + intsOffset + 8);
+                // data without a location sort after all of the others, like unmapped GenomeLocs
+                primaryKeys[iii] = contigIndex == NO_VALUE ? Long.MAX_VALUE : ((long) contigIndex << 32) | buffer.getInt(offset + intsOffset + 12);
+                secondaryKeys[iii] = contigIndex == NO_VALUE ? 0 : buffer.getInt(offset + intsOffset + 16);
+            }
+        } else {
+            super.sort(c);
+            return;
+        }
+        reorder(stableSortedOrder(primaryKeys, secondaryKeys));
+    }
+
+    /**
+     * A long whose signed order is the order of the doubles under Double.compare
+     */
+    private static long sortableLong( final double value ) {
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Stable bottom-up merge sort of the indices by their primary then secondary keys
+     */
+    protected static int[] stableSortedOrder( final long[] primaryKeys, final long[] secondaryKeys ) {
+        final int n = primaryKeys.length;
+        int[] order = new int[n];
+        int[] buffer = new int[n];
+        for( int iii = 0; iii < n; iii++ ) {
+            order[iii] = iii;
+        }
+        for( int width = 1; width < n; width *= 2 ) {
+            for( int start = 0; start < n; start += 2 * width ) {
+                final int mid = Math.min(start + width, n);
+                final int end = Math.min(start + 2 * width, n);
+                int left = start, right = mid, out = start;
+                while( left < mid && right < end ) {
+                    final int l = order[left], r = order[right];
+                    final boolean takeRight = primaryKeys[r] < primaryKeys[l] || (primaryKeys[r] == primaryKeys[l] && secondaryKeys[r] < secondaryKeys[l]);
+                    buffer[out++] = takeRight ? order[right++] : order[left++];
+                }
+                while( left < mid ) { buffer[out++] = order[left++]; }
+                while( right < end ) { buffer[out++] = order[right++]; }
+            }
+            final int[] tmp = order;
+            order = buffer;
+            buffer = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Rewrite the records into a new file so that record iii is the one that was at order[iii]
+     */
+    private void reorder( final int[] order ) {
+        final File newFile = createFile();
+        final RandomAccessFile newRandomAccessFile = open(newFile);
+        final List<MappedByteBuffer> newSegments = new ArrayList<>();
+        final long segmentBytes = (long) recordsPerSegment * recordSize;
+        for( int iii = 0; iii < order.length; iii++ ) {
+            final int segment = iii / recordsPerSegment;
+            if( newSegments.size() <= segment ) {
+                newSegments.add(map(newRandomAccessFile, newFile, segment * segmentBytes, segmentBytes));
+            }
+            copyRecord(segmentFor(order[iii]), offsetOf(order[iii]), newSegments.get(segment), offsetOf(iii));
+        }
+
+        close();
+        file = newFile;
+        randomAccessFile = newRandomAccessFile;
+        segments = newSegments;
+    }
+
+    private void copyRecord( final ByteBuffer from, final int fromOffset, final ByteBuffer to, final int toOffset ) {
+        final ByteBuffer source = from.duplicate();
+        source.position(fromOffset);
+        source.limit(fromOffset + recordSize);
+        final ByteBuffer destination = to.duplicate();
+        destination.position(toOffset);
+        destination.put(source);
+    }
+
+    /**
+     * Release the file holding the data.  The list can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        try {
+            randomAccessFile.close();
+        } catch( IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(file, "Could not close the file for the variant data", e);
+        }
+        segments = new ArrayList<>();
+        if( !file.delete() ) {
+            file.deleteOnExit();
+        }
+    }
+}
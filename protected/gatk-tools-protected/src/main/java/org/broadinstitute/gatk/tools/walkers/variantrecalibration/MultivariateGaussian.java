@@ -54,11 +54,9 @@ package org.broadinstitute.gatk.tools.walkers.variantrecalibration;
 import Jama.Matrix;
 import org.apache.commons.math.special.Gamma;
 import org.broadinstitute.gatk.utils.MathUtils;
-import org.broadinstitute.gatk.utils.collections.ExpandingArrayList;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -76,13 +74,14 @@ public class MultivariateGaussian {
     public double hyperParameter_b;
     public double hyperParameter_lambda;
     private double cachedDenomLog10;
-    private Matrix cachedSigmaInverse;
-    final private ExpandingArrayList<Double> pVarInGaussian;
+    /** the inverse of sigma, row-major, so that evaluating a datum doesn't have to go through Jama */
+    private double[] cachedSigmaInverse;
+    /** the probability that each datum of the data being modeled belongs to this Gaussian */
+    private double[] pVarInGaussian;
 
     public MultivariateGaussian( final int numAnnotations ) {
         mu = new double[numAnnotations];
         sigma = new Matrix(numAnnotations, numAnnotations);
-        pVarInGaussian = new ExpandingArrayList<>();
     }
 
     public void zeroOutMu() {
@@ -140,25 +139,34 @@ public class MultivariateGaussian {
         }
     }
 
-    private void precomputeInverse() {
+    private Matrix invertSigma() {
         try {
-            cachedSigmaInverse = sigma.inverse();
+            return sigma.inverse();
         } catch( Exception e ) {
             throw new UserException("Error during clustering. Most likely there are too few variants used during Gaussian mixture modeling. Please consider raising the number of variants used to train the negative model (via --percentBadVariants 0.05, for example) or lowering the maximum number of Gaussians to use in the model (via --maxGaussians 4, for example).");
         }
     }
 
+    private void cacheSigmaInverse( final Matrix sigmaInverse ) {
+        final double[] flattened = new double[mu.length * mu.length];
+        for( int iii = 0; iii < mu.length; iii++ ) {
+            System.arraycopy(sigmaInverse.getArray()[iii], 0, flattened, iii * mu.length, mu.length);
+        }
+        cachedSigmaInverse = flattened;
+    }
+
 
     public void precomputeDenominatorForEvaluation() {
-        precomputeInverse();
+        cacheSigmaInverse(invertSigma());
         cachedDenomLog10 = Math.log10(Math.pow(2.0 * Math.PI, -1.0 * ((double) mu.length) / 2.0)) + Math.log10(Math.pow(sigma.det(), -0.5)) ;
     }
 
     public void precomputeDenominatorForVariationalBayes( final double sumHyperParameterLambda ) {
 
         // Variational Bayes calculations from Bishop
-        precomputeInverse();
-        cachedSigmaInverse.timesEquals( hyperParameter_a );
+        final Matrix sigmaInverse = invertSigma();
+        sigmaInverse.timesEquals( hyperParameter_a );
+        cacheSigmaInverse(sigmaInverse);
         double sum = 0.0;
         for(int jjj = 1; jjj <= mu.length; jjj++) {
             sum += Gamma.digamma( (hyperParameter_a + 1.0 - jjj) / 2.0 );
@@ -172,42 +180,61 @@ public class MultivariateGaussian {
     }
 
     public double evaluateDatumLog10( final VariantDatum datum ) {
+        return evaluateDatumLog10( datum.annotations, 0 );
+    }
+
+    /**
+     * Evaluate the datum whose annotations start at offset in annotations
+     *
+     * Safe to call from several threads at once once the denominator has been precomputed
+     *
+     * @param annotations the annotations of one or more data, each taking mu.length entries
+     * @param offset the index in annotations of the first annotation of the datum
+     * @return the log10 density of this Gaussian at the datum
+     */
+    public double evaluateDatumLog10( final double[] annotations, final int offset ) {
+        final int numAnnotations = mu.length;
         double sumKernel = 0.0;
-        final double[] crossProdTmp = new double[mu.length];
-        Arrays.fill(crossProdTmp, 0.0);
-        for( int iii = 0; iii < mu.length; iii++ ) {
-            for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                crossProdTmp[iii] += (datum.annotations[jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
+        for( int iii = 0; iii < numAnnotations; iii++ ) {
+            double crossProd = 0.0;
+            for( int jjj = 0; jjj < numAnnotations; jjj++ ) {
+                crossProd += (annotations[offset + jjj] - mu[jjj]) * cachedSigmaInverse[jjj * numAnnotations + iii];
             }
+            sumKernel += crossProd * (annotations[offset + iii] - mu[iii]);
         }
-        for( int iii = 0; iii < mu.length; iii++ ) {
-            sumKernel += crossProdTmp[iii] * (datum.annotations[iii] - mu[iii]);
-        }
-        
+
         return (( -0.5 * sumKernel ) / Math.log(10.0)) + cachedDenomLog10; // This is the definition of a Gaussian PDF Log10
     }
 
-    public void assignPVarInGaussian( final double pVar ) {
-        pVarInGaussian.add( pVar );
+    /**
+     * Make room for the probabilities that each of numData data belong to this Gaussian
+     */
+    public void initializePVarInGaussian( final int numData ) {
+        if( pVarInGaussian == null || pVarInGaussian.length != numData ) {
+            pVarInGaussian = new double[numData];
+        }
+    }
+
+    public void assignPVarInGaussian( final int datumIndex, final double pVar ) {
+        pVarInGaussian[datumIndex] = pVar;
     }
 
     public void resetPVarInGaussian() {
-        pVarInGaussian.clear();
+        pVarInGaussian = null;
     }
 
-    public void maximizeGaussian( final List<VariantDatum> data, final double[] empiricalMu, final Matrix empiricalSigma,
+    /**
+     * Update this Gaussian from the data and the probabilities assigned to them by the last expectation step
+     *
+     * @param annotations the annotations of the data, mu.length entries per datum, in the order of the assigned probabilities
+     */
+    public void maximizeGaussian( final double[] annotations, final double[] empiricalMu, final Matrix empiricalSigma,
                                   final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
-        sumProb = 1E-10;
         final Matrix wishart = new Matrix(mu.length, mu.length);
         zeroOutMu();
         zeroOutSigma();
-        
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian.get(datumIndex++);
-            sumProb += prob;
-            incrementMu( datum, prob );
-        }
+
+        sumProb = incrementMuByAssignedData( annotations, 1E-10 );
         divideEqualsMu( sumProb );
 
         final double shrinkageFactor = (SHRINKAGE * sumProb) / (SHRINKAGE + sumProb);
@@ -217,17 +244,7 @@ public class MultivariateGaussian {
             }
         }
 
-        datumIndex = 0;
-        final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian.get(datumIndex++);
-            for( int iii = 0; iii < mu.length; iii++ ) {
-                for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                    pVarSigma.set(iii, jjj, prob * (datum.annotations[iii]-mu[iii]) * (datum.annotations[jjj]-mu[jjj]));
-                }
-            }
-            sigma.plusEquals( pVarSigma );
-        }
+        incrementSigmaByAssignedData( annotations );
 
         sigma.plusEquals( empiricalSigma );
         sigma.plusEquals( wishart );
@@ -239,36 +256,62 @@ public class MultivariateGaussian {
         hyperParameter_a = sumProb + DEGREES_OF_FREEDOM;
         hyperParameter_b = sumProb + SHRINKAGE;
         hyperParameter_lambda = sumProb + DIRICHLET_PARAMETER;
-
-        resetPVarInGaussian(); // clean up some memory
     }
 
-    public void evaluateFinalModelParameters( final List<VariantDatum> data ) {
-        sumProb = 0.0;
+    /**
+     * Set the final mean and covariance of this Gaussian from the data and the probabilities assigned to them
+     *
+     * @param annotations the annotations of the data, mu.length entries per datum, in the order of the assigned probabilities
+     */
+    public void evaluateFinalModelParameters( final double[] annotations ) {
         zeroOutMu();
         zeroOutSigma();
 
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian.get(datumIndex++);
-            sumProb += prob;
-            incrementMu( datum, prob );
-        }
+        sumProb = incrementMuByAssignedData( annotations, 0.0 );
         divideEqualsMu( sumProb );
 
-        datumIndex = 0;
-        final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian.get(datumIndex++);
-            for( int iii = 0; iii < mu.length; iii++ ) {
-                for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                    pVarSigma.set(iii, jjj, prob * (datum.annotations[iii]-mu[iii]) * (datum.annotations[jjj]-mu[jjj]));
-                }
-            }
-            sigma.plusEquals( pVarSigma );
-        }
+        incrementSigmaByAssignedData( annotations );
         sigma.timesEquals( 1.0 / sumProb );
 
         resetPVarInGaussian(); // clean up some memory
     }
+
+    /**
+     * Add the annotations of each datum, weighted by its assigned probability, to mu
+     *
+     * The data are visited in order so the result doesn't depend on how the expectation step was run
+     *
+     * @param initialSumProb the value to start the sum of the assigned probabilities from
+     * @return the sum of the assigned probabilities
+     */
+    private double incrementMuByAssignedData( final double[] annotations, final double initialSumProb ) {
+        final int numAnnotations = mu.length;
+        double sum = initialSumProb;
+        for( int datumIndex = 0; datumIndex < pVarInGaussian.length; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            sum += prob;
+            final int offset = datumIndex * numAnnotations;
+            for( int jjj = 0; jjj < numAnnotations; jjj++ ) {
+                mu[jjj] += prob * annotations[offset + jjj];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Add the scatter of each datum around mu, weighted by its assigned probability, to sigma
+     */
+    private void incrementSigmaByAssignedData( final double[] annotations ) {
+        final int numAnnotations = mu.length;
+        final double[][] sigmaArray = sigma.getArray();
+        for( int datumIndex = 0; datumIndex < pVarInGaussian.length; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            final int offset = datumIndex * numAnnotations;
+            for( int iii = 0; iii < numAnnotations; iii++ ) {
+                for( int jjj = 0; jjj < numAnnotations; jjj++ ) {
+                    sigmaArray[iii][jjj] += prob * (annotations[offset + iii]-mu[iii]) * (annotations[offset + jjj]-mu[jjj]);
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
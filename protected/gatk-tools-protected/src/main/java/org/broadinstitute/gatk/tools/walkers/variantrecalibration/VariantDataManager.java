@@ -68,6 +68,7 @@ import htsjdk.variant.variantcontext.VariantContextBuilder;
 import org.broadinstitute.gatk.utils.variant.GATKVCFConstants;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Created by IntelliJ IDEA.
@@ -116,9 +117,11 @@ public class VariantDataManager {
             foundZeroVarianceAnnotation = foundZeroVarianceAnnotation || (theSTD < 1E-5);
             meanVector[iii] = theMean;
             varianceVector[iii] = theSTD;
-            for( final VariantDatum datum : data ) {
+            for( int jjj = 0; jjj < data.size(); jjj++ ) {
                 // Transform each data point via: (x - mean) / standard deviation
+                final VariantDatum datum = data.get(jjj);
                 datum.annotations[iii] = ( datum.isNull[iii] ? 0.1 * Utils.getRandomGenerator().nextGaussian() : ( datum.annotations[iii] - theMean ) / theSTD );
+                data.set(jjj, datum); // data may be stored out of core, so write the change back
             }
         }
         if( foundZeroVarianceAnnotation ) {
@@ -126,25 +129,48 @@ public class VariantDataManager {
         }
 
         // trim data by standard deviation threshold and mark failing data for exclusion later
-        for( final VariantDatum datum : data ) {
+        // also re-order the data by increasing standard deviation so that the results don't depend on the order things were specified on the command line
+        // standard deviation over the training points is used as a simple proxy for information content, perhaps there is a better thing to use here
+        final List<Integer> theOrder = calculateSortOrder(meanVector);
+        for( int jjj = 0; jjj < data.size(); jjj++ ) {
+            final VariantDatum datum = data.get(jjj);
             boolean remove = false;
             for( final double val : datum.annotations ) {
                 remove = remove || (Math.abs(val) > VRAC.STD_THRESHOLD);
             }
             datum.failingSTDThreshold = remove;
+            datum.annotations = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(datum.annotations), theOrder));
+            datum.isNull = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(datum.isNull), theOrder));
+            data.set(jjj, datum);
         }
-
-        // re-order the data by increasing standard deviation so that the results don't depend on the order things were specified on the command line
-        // standard deviation over the training points is used as a simple proxy for information content, perhaps there is a better thing to use here
-        final List<Integer> theOrder = calculateSortOrder(meanVector);
         annotationKeys = reorderList(annotationKeys, theOrder);
         varianceVector = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(varianceVector), theOrder));
         meanVector = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(meanVector), theOrder));
+        logger.info("Annotations are now ordered by their information content: " + annotationKeys.toString());
+    }
+
+    /**
+     * Copy the annotations of data into a single array, one datum after the other
+     *
+     * The Gaussian mixture model iterates over the training data many times, and reads them much faster
+     * from one contiguous array than by following each VariantDatum to its own annotations array.
+     *
+     * @param data a non-empty list of data that all have the same number of annotations
+     * @return an array with the annotation jjj of datum iii at index iii * numAnnotations + jjj
+     */
+    protected static double[] packAnnotations( final List<VariantDatum> data ) {
+        if( data == null || data.isEmpty() ) { throw new IllegalArgumentException("No data found."); }
+        final int numAnnotations = data.get(0).annotations.length;
+        final double[] annotations = new double[data.size() * numAnnotations];
+        int offset = 0;
         for( final VariantDatum datum : data ) {
-            datum.annotations = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(datum.annotations), theOrder));
-            datum.isNull = ArrayUtils.toPrimitive(reorderArray(ArrayUtils.toObject(datum.isNull), theOrder));
+            if( datum.annotations.length != numAnnotations ) {
+                throw new IllegalArgumentException("All data must have " + numAnnotations + " annotations but found: " + datum.annotations.length);
+            }
+            System.arraycopy(datum.annotations, 0, annotations, offset, numAnnotations);
+            offset += numAnnotations;
         }
-        logger.info("Annotations are now ordered by their information content: " + annotationKeys.toString());
+        return annotations;
     }
 
     public double[] getMeanVector() {
@@ -270,9 +296,11 @@ public class VariantDataManager {
     public List<VariantDatum> selectWorstVariants() {
         final List<VariantDatum> trainingData = new ExpandingArrayList<>();
 
-        for( final VariantDatum datum : data ) {
+        for( int iii = 0; iii < data.size(); iii++ ) {
+            final VariantDatum datum = data.get(iii);
             if( datum != null && !datum.failingSTDThreshold && !Double.isInfinite(datum.lod) && datum.lod < VRAC.BAD_LOD_CUTOFF ) {
                 datum.atAntiTrainingSite = true;
+                data.set( iii, datum );
                 trainingData.add( datum );
             }
         }
@@ -298,13 +326,12 @@ public class VariantDataManager {
      * Remove all VariantDatum's from the data list which are marked as aggregate data
      */
     public void dropAggregateData() {
-        final Iterator<VariantDatum> iter = data.iterator();
-        while (iter.hasNext()) {
-            final VariantDatum datum = iter.next();
-            if( datum.isAggregate ) {
-                iter.remove();
+        data.removeIf(new Predicate<VariantDatum>() {
+            @Override
+            public boolean test( final VariantDatum datum ) {
+                return datum.isAggregate;
             }
-        }
+        });
     }
 
     public List<VariantDatum> getRandomDataForPlotting( final int numToAdd, final List<VariantDatum> trainingData, final List<VariantDatum> antiTrainingData, final List<VariantDatum> evaluationData ) {
@@ -474,10 +501,7 @@ public class VariantDataManager {
 
     public void writeOutRecalibrationTable( final VariantContextWriter recalWriter ) {
         // we need to sort in coordinate order in order to produce a valid VCF
-        Collections.sort( data, new Comparator<VariantDatum>() {
-            public int compare(VariantDatum vd1, VariantDatum vd2) {
-                return vd1.loc.compareTo(vd2.loc);
-            }} );
+        Collections.sort( data, new VariantDatum.VariantDatumLocComparator() );
 
         // create dummy alleles to be used
         List<Allele> alleles = Arrays.asList(Allele.create("N", true), Allele.create("<VQSR>", false));
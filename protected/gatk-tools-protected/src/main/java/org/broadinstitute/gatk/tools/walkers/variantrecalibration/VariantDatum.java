@@ -92,4 +92,11 @@ public class VariantDatum {
             return Double.compare(datum1.lod, datum2.lod);
         }
     }
+
+    public static class VariantDatumLocComparator implements Comparator<VariantDatum>, Serializable {
+        @Override
+        public int compare(final VariantDatum datum1, final VariantDatum datum2) {
+            return datum1.loc.compareTo(datum2.loc);
+        }
+    }
 }
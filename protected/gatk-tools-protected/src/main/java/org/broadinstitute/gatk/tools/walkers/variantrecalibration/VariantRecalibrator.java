@@ -184,7 +184,7 @@ import Jama.Matrix;
 
 @DocumentedGATKFeature( groupName = HelpConstants.DOCS_CAT_VARDISC, extraDocs = {CommandLineGATK.class} )
 @PartitionBy(PartitionType.NONE)
-public class VariantRecalibrator extends RodWalker<ExpandingArrayList<VariantDatum>, ExpandingArrayList<VariantDatum>> implements TreeReducible<ExpandingArrayList<VariantDatum>> {
+public class VariantRecalibrator extends RodWalker<ExpandingArrayList<VariantDatum>, List<VariantDatum>> implements TreeReducible<List<VariantDatum>> {
 
     private static final String PLOT_TRANCHES_RSCRIPT = "plot_Tranches.R";
 
@@ -297,6 +297,15 @@ public class VariantRecalibrator extends RodWalker<ExpandingArrayList<VariantDat
     @Argument(fullName="max_attempts", shortName = "max_attempts", doc="Number of attempts to build a model before failing", required=false)
     protected int max_attempts = 1;
 
+    /**
+     * Keep the annotations and scores of the variants in a memory-mapped temporary file instead of on the heap. This lets
+     * callsets with hundreds of millions of variants be recalibrated without a correspondingly large heap, at the cost
+     * of some speed. The training data and the data used for plotting are still kept in memory.
+     */
+    @Advanced
+    @Argument(fullName="disk_backed_data", shortName = "diskBackedData", doc="Keep the variant data in a temporary file instead of in memory", required=false)
+    protected boolean DISK_BACKED_DATA = false;
+
     /////////////////////////////
     // Debug Arguments
     /////////////////////////////
@@ -310,7 +319,7 @@ public class VariantRecalibrator extends RodWalker<ExpandingArrayList<VariantDat
     private VariantDataManager dataManager;
     private PrintStream tranchesStream;
     private final Set<String> ignoreInputFilterSet = new TreeSet<>();
-    private final VariantRecalibratorEngine engine = new VariantRecalibratorEngine( VRAC );
+    private VariantRecalibratorEngine engine;
 
     //---------------------------------------------------------------------------------------------------------------
     //
@@ -321,6 +330,8 @@ public class VariantRecalibrator extends RodWalker<ExpandingArrayList<VariantDat
     @Override
     public void initialize() {
         dataManager = new VariantDataManager( new ArrayList<>(USE_ANNOTATIONS), VRAC );
+        // the data threads are idle by the time the models are built, so the engine can use as many
+        engine = new VariantRecalibratorEngine( VRAC, getToolkit().getArguments().numberOfDataThreads );
 
         if (RSCRIPT_FILE != null && !RScriptExecutor.RSCRIPT_EXISTS)
             Utils.warnUser(logger, String.format(
@@ -450,22 +461,32 @@ public class VariantRecalibrator extends RodWalker<ExpandingArrayList<VariantDat
     //---------------------------------------------------------------------------------------------------------------
 
     @Override
-    public ExpandingArrayList<VariantDatum> reduceInit() {
+    public List<VariantDatum> reduceInit() {
+        if( DISK_BACKED_DATA ) {
+            return new MappedVariantDatumList( USE_ANNOTATIONS.size(), getToolkit().getGenomeLocParser(), null );
+        }
         return new ExpandingArrayList<>();
     }
 
     @Override
-    public ExpandingArrayList<VariantDatum> reduce( final ExpandingArrayList<VariantDatum> mapValue, final ExpandingArrayList<VariantDatum> reduceSum ) {
+    public List<VariantDatum> reduce( final ExpandingArrayList<VariantDatum> mapValue, final List<VariantDatum> reduceSum ) {
         reduceSum.addAll( mapValue );
         return reduceSum;
     }
 
     @Override
-    public ExpandingArrayList<VariantDatum> treeReduce( final ExpandingArrayList<VariantDatum> lhs, final ExpandingArrayList<VariantDatum> rhs ) {
+    public List<VariantDatum> treeReduce( final List<VariantDatum> lhs, final List<VariantDatum> rhs ) {
         rhs.addAll( lhs );
+        closeIfDiskBacked( lhs );
         return rhs;
     }
 
+    private static void closeIfDiskBacked( final List<VariantDatum> data ) {
+        if( data instanceof MappedVariantDatumList ) {
+            ((MappedVariantDatumList) data).close();
+        }
+    }
+
     //---------------------------------------------------------------------------------------------------------------
     //
     // on traversal done
@@ -473,7 +494,16 @@ public class VariantRecalibrator extends RodWalker<ExpandingArrayList<VariantDat
     //---------------------------------------------------------------------------------------------------------------
 
     @Override
-    public void onTraversalDone( final ExpandingArrayList<VariantDatum> reduceSum ) {
+    public void onTraversalDone( final List<VariantDatum> reduceSum ) {
+        try {
+            buildModelAndRecalibrate( reduceSum );
+        } finally {
+            engine.close();
+            closeIfDiskBacked( reduceSum );
+        }
+    }
+
+    private void buildModelAndRecalibrate( final List<VariantDatum> reduceSum ) {
         for (int i = 1; i <= max_attempts; i++) {
             try {
                 dataManager.setData(reduceSum);
@@ -55,6 +55,8 @@ import org.apache.log4j.Logger;
 import org.broadinstitute.gatk.utils.Utils;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by IntelliJ IDEA.
@@ -76,12 +78,26 @@ public class VariantRecalibratorEngine {
 
     private final static double MIN_PROB_CONVERGENCE = 2E-3;
 
+    // the threads to spread the model fitting and the evaluation over, null to do everything on the calling thread
+    final private ExecutorService executor;
+
     /////////////////////////////
     // Public Methods to interface with the Engine
     /////////////////////////////
 
     public VariantRecalibratorEngine( final VariantRecalibratorArgumentCollection VRAC ) {
+        this( VRAC, 1 );
+    }
+
+    /**
+     * Create an engine that uses numThreads threads to fit and evaluate its models
+     *
+     * The results are the same for any number of threads.
+     */
+    public VariantRecalibratorEngine( final VariantRecalibratorArgumentCollection VRAC, final int numThreads ) {
+        if( numThreads <= 0 ) { throw new IllegalArgumentException("numThreads must be a positive integer but found: " + numThreads); }
         this.VRAC = VRAC;
+        this.executor = ( numThreads > 1 ? new ForkJoinPool( numThreads ) : null );
     }
 
     public GaussianMixtureModel generateModel( final List<VariantDatum> data, final int maxGaussians ) {
@@ -104,8 +120,23 @@ public class VariantRecalibratorEngine {
         }
         
         logger.info("Evaluating full set of " + data.size() + " variants...");
-        for( final VariantDatum datum : data ) {
-            final double thisLod = evaluateDatum( datum, model );
+
+        // Data with missing annotations are marginalized with random draws, so they are evaluated below in order
+        // along with the random jitter of the contrastive evaluation; all the others can be evaluated in parallel
+        final double[] lods = new double[data.size()];
+        new ChunkedDataTask() {
+            @Override
+            protected void run( final int start, final int end ) {
+                for( int iii = start; iii < end; iii++ ) {
+                    final VariantDatum datum = data.get(iii);
+                    lods[iii] = ( hasNullAnnotation(datum) ? Double.NaN : evaluateDatum( datum, model ) );
+                }
+            }
+        }.runAll( executor, data.size() );
+
+        for( int iii = 0; iii < data.size(); iii++ ) {
+            final VariantDatum datum = data.get(iii);
+            final double thisLod = ( hasNullAnnotation(datum) ? evaluateDatum( datum, model ) : lods[iii] );
             if( Double.isNaN(thisLod) ) {
                 model.failedToConverge = true;
                 return;
@@ -116,25 +147,51 @@ public class VariantRecalibratorEngine {
                                     ( MIN_ACCEPTABLE_LOD_SCORE + Utils.getRandomGenerator().nextDouble() * MIN_ACCEPTABLE_LOD_SCORE ) // Negative infinity lod values are possible when covariates are extremely far away from their tight Gaussians
                                     : datum.prior + datum.lod - thisLod) // contrastive evaluation: (prior + positive model - negative model)
                             : thisLod ); // positive model only so set the lod and return
+            data.set(iii, datum); // data may be stored out of core, so write the new lod back
+        }
+    }
+
+    private static boolean hasNullAnnotation( final VariantDatum datum ) {
+        for( final boolean isNull : datum.isNull ) {
+            if( isNull ) { return true; }
         }
+        return false;
     }
 
     public void calculateWorstPerformingAnnotation( final List<VariantDatum> data, final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
-        for( final VariantDatum datum : data ) {
-            int worstAnnotation = -1;
-            double minProb = Double.MAX_VALUE;
-            double worstValue = -1;
-            for( int iii = 0; iii < datum.annotations.length; iii++ ) {
-                final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(datum, iii);
-                final Double badProbLog10 = badModel.evaluateDatumInOneDimension(datum, iii);
-                if( goodProbLog10 != null && badProbLog10 != null ) {
-                    final double prob = goodProbLog10 - badProbLog10;
-                    if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = datum.annotations[iii];}
+        new ChunkedDataTask() {
+            @Override
+            protected void run( final int start, final int end ) {
+                for( int iii = start; iii < end; iii++ ) {
+                    final VariantDatum datum = data.get(iii);
+                    calculateWorstPerformingAnnotation( datum, goodModel, badModel );
+                    data.set(iii, datum);
                 }
             }
-            datum.worstAnnotation = worstAnnotation;
-            datum.worstValue = worstValue;
+        }.runAll( executor, data.size() );
+    }
+
+    private void calculateWorstPerformingAnnotation( final VariantDatum datum, final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
+        int worstAnnotation = -1;
+        double minProb = Double.MAX_VALUE;
+        double worstValue = -1;
+        for( int iii = 0; iii < datum.annotations.length; iii++ ) {
+            final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(datum, iii);
+            final Double badProbLog10 = badModel.evaluateDatumInOneDimension(datum, iii);
+            if( goodProbLog10 != null && badProbLog10 != null ) {
+                final double prob = goodProbLog10 - badProbLog10;
+                if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = datum.annotations[iii];}
+            }
         }
+        datum.worstAnnotation = worstAnnotation;
+        datum.worstValue = worstValue;
+    }
+
+    /**
+     * Stop the threads used to fit and evaluate the models.  The engine can't be used afterwards.
+     */
+    public void close() {
+        if( executor != null ) { executor.shutdown(); }
     }
 
 
@@ -146,17 +203,20 @@ public class VariantRecalibratorEngine {
 
         model.initializeRandomModel( data, VRAC.NUM_KMEANS_ITERATIONS );
 
+        // The EM steps go over all of the data many times, so give them the annotations in one contiguous array
+        final double[] annotations = VariantDataManager.packAnnotations( data );
+
         // The VBEM loop
         model.normalizePMixtureLog10();
-        model.expectationStep( data );
+        model.expectationStep( annotations, executor );
         double currentChangeInMixtureCoefficients;
         int iteration = 0;
         logger.info("Finished iteration " + iteration + ".");
         while( iteration < VRAC.MAX_ITERATIONS ) {
             iteration++;
-            model.maximizationStep( data );
+            model.maximizationStep( annotations, executor );
             currentChangeInMixtureCoefficients = model.normalizePMixtureLog10();
-            model.expectationStep( data );
+            model.expectationStep( annotations, executor );
             if( iteration % 5 == 0 ) { // cut down on the number of output lines so that users can read the warning messages
                 logger.info("Finished iteration " + iteration + ". \tCurrent change in mixture coefficients = " + String.format("%.5f", currentChangeInMixtureCoefficients));
             }
@@ -166,7 +226,7 @@ public class VariantRecalibratorEngine {
             }
         }
 
-        model.evaluateFinalModelParameters( data );
+        model.evaluateFinalModelParameters( annotations );
     }
 
     /////////////////////////////
@@ -104,7 +104,7 @@ import java.util.*;
  *
  * <h3>Input</h3>
  * <p>
- * One or more HaplotypeCaller gVCFs to genotype.
+ * One or more HaplotypeCaller gVCFs to genotype, or the cohort.list of a cohort store built by AddGVCFsToCohortStore.
  * </p>
  *
  * <h3>Output</h3>
@@ -297,6 +297,12 @@ public class GenotypeGVCFs extends RodWalker<VariantContext, VariantContextWrite
 
         final GenomeLoc loc = ref.getLocus();
         final List<VariantContext> vcsAtThisLocus = tracker.getPrioritizedValue(variants, loc);
+
+        // unless we emit the non-variant sites, only loci where some gVCF has a real alternate allele can make it to
+        // the output, so don't pay for merging the genotypes of every sample at the loci covered only by reference blocks
+        if ( !INCLUDE_NON_VARIANTS && !ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(vcsAtThisLocus, loc) )
+            return null;
+
         final Byte refBase = INCLUDE_NON_VARIANTS ? ref.getBase() : null;
         final boolean removeNonRefSymbolicAllele = !INCLUDE_NON_VARIANTS;
         final VariantContext combinedVC = ReferenceConfidenceVariantContextMerger.merge(vcsAtThisLocus, loc,
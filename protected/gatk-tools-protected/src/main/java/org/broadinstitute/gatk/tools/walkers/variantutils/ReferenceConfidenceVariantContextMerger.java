@@ -219,6 +219,33 @@ public class ReferenceConfidenceVariantContextMerger {
         return builder.make();
     }
 
+    /**
+     * Could merging these VariantContexts with the <NON_REF> allele removed give a site with an alternate allele?
+     *
+     * Only the contexts that start at the current location contribute alternate alleles to the merge, and a context
+     * whose only alternate allele is <NON_REF> contributes none, so this is a cheap way of telling that a locus is
+     * covered by nothing but reference blocks.  It looks at no genotypes, so they are never decoded at such loci,
+     * which is most of them.
+     *
+     * @param VCs     collection of unsorted genomic VCs
+     * @param loc     the current location
+     * @return false if the merge is certain to have no alternate alleles, true otherwise
+     */
+    public static boolean mayHaveAlternateAlleles(final List<VariantContext> VCs, final GenomeLoc loc) {
+        if ( VCs == null )
+            return false;
+
+        for ( final VariantContext vc : VCs ) {
+            if ( vc.getStart() != loc.getStart() )
+                continue;
+            for ( final Allele allele : vc.getAlternateAlleles() ) {
+                if ( ! allele.equals(GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE) )
+                    return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * parse the annotations that were not identified as reducible annotations and combined by the annotation engine
      * @param annotationMap the map of info field annotation names and the list of their data from the merged VCs
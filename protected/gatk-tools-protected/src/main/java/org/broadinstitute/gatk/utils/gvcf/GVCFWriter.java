@@ -51,6 +51,7 @@
 
 package org.broadinstitute.gatk.utils.gvcf;
 
+import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
 import htsjdk.variant.variantcontext.VariantContext;
@@ -61,6 +62,7 @@ import org.broadinstitute.gatk.utils.variant.GATKVCFConstants;
 import org.broadinstitute.gatk.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.gatk.utils.variant.GATKVariantContextUtils;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -76,6 +78,9 @@ public class GVCFWriter implements VariantContextWriter {
 
     private static final int MAX_GENOTYPE_QUAL = VCFConstants.MAX_GENOTYPE_QUAL;
 
+    /** The source of the hom-ref block records that don't start at a VariantContext */
+    private static final String SOURCE = "GVCF";
+
     //
     // Final fields initialized in constructor
     //
@@ -89,6 +94,8 @@ public class GVCFWriter implements VariantContextWriter {
     String contigOfNextAvailableStart = null;
     private String sampleName = null;
     private HomRefBlock currentBlock = null;
+    /** a block that has been emitted and can be reset to start the next one */
+    private HomRefBlock spareBlock = null;
     private final int defaultPloidy;
 
     /**
@@ -205,10 +212,28 @@ public class GVCFWriter implements VariantContextWriter {
      * @return a VariantContext to be emitted, or null if non is appropriate
      */
     protected VariantContext addHomRefSite(final VariantContext vc, final Genotype g) {
+        return addHomRefSite(vc.getChr(), vc.getStart(), vc.getReference(), vc, g.getPloidy(), g.getGQ(), g.getDP(), g.getPL());
+    }
+
+    /**
+     * Add the values of a hom-ref site to this gVCF hom-ref state tracking, emitting any pending states if appropriate
+     *
+     * @param contig the contig of the site
+     * @param start the position of the site
+     * @param ref the reference allele of the site
+     * @param vc the VariantContext of the site, or null if the site doesn't have one
+     * @param ploidy the ploidy of the hom-ref genotype
+     * @param GQ the GQ of the hom-ref genotype
+     * @param DP the depth at the site
+     * @param PLs the PLs of the hom-ref genotype, must be non-null for the site to be added to a block
+     * @return a VariantContext to be emitted, or null if non is appropriate
+     */
+    private VariantContext addHomRefSite(final String contig, final int start, final Allele ref, final VariantContext vc,
+                                         final int ploidy, final int GQ, final int DP, final int[] PLs) {
 
         if ( nextAvailableStart != -1 ) {
             // don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
-            if ( vc.getStart() <= nextAvailableStart && vc.getChr().equals(contigOfNextAvailableStart) )
+            if ( start <= nextAvailableStart && contig.equals(contigOfNextAvailableStart) )
                 return null;
             // otherwise, reset to non-relevant
             nextAvailableStart = -1;
@@ -216,19 +241,20 @@ public class GVCFWriter implements VariantContextWriter {
         }
 
         final VariantContext result;
-        if (genotypeCanBeMergedInCurrentBlock(g)) {
-            currentBlock.add(vc.getStart(), g);
+        if (genotypeCanBeMergedInCurrentBlock(GQ, ploidy, PLs)) {
+            currentBlock.add(start, GQ, DP, PLs);
             result = null;
         } else {
             result = blockToVCF(currentBlock);
-            currentBlock = createNewBlock(vc, g);
+            recycleCurrentBlock();
+            currentBlock = createNewBlock(contig, start, ref, vc, ploidy, GQ, DP, PLs);
         }
         return result;
     }
 
-    private boolean genotypeCanBeMergedInCurrentBlock(final Genotype g) {
-        return currentBlock != null && currentBlock.withinBounds(capToMaxGQ(g.getGQ())) && currentBlock.getPloidy() == g.getPloidy()
-                && (currentBlock.getMinPLs() == null || !g.hasPL() || (currentBlock.getMinPLs().length == g.getPL().length));
+    private boolean genotypeCanBeMergedInCurrentBlock(final int GQ, final int ploidy, final int[] PLs) {
+        return currentBlock != null && currentBlock.withinBounds(capToMaxGQ(GQ)) && currentBlock.getPloidy() == ploidy
+                && (currentBlock.getMinPLs() == null || PLs == null || (currentBlock.getMinPLs().length == PLs.length));
     }
 
     private int capToMaxGQ(final int gq) {
@@ -242,10 +268,19 @@ public class GVCFWriter implements VariantContextWriter {
         if ( currentBlock != null ) {
             // there's actually some work to do
             underlyingWriter.add(blockToVCF(currentBlock));
-            currentBlock = null;
+            recycleCurrentBlock();
         }
     }
 
+    /**
+     * Keep the current block, which must already have been converted to a VariantContext, for reuse, and set it to null
+     */
+    private void recycleCurrentBlock() {
+        if ( currentBlock != null )
+            spareBlock = currentBlock;
+        currentBlock = null;
+    }
+
     /**
      * Convert a HomRefBlock into a VariantContext
      *
@@ -257,8 +292,14 @@ public class GVCFWriter implements VariantContextWriter {
     private VariantContext blockToVCF(final HomRefBlock block) {
         if ( block == null ) return null;
 
-        final VariantContextBuilder vcb = new VariantContextBuilder(block.getStartingVC());
-        vcb.attributes(new HashMap<String, Object>(2)); // clear the attributes
+        final VariantContextBuilder vcb;
+        if ( block.getStartingVC() != null ) {
+            vcb = new VariantContextBuilder(block.getStartingVC());
+            vcb.attributes(new HashMap<String, Object>(2)); // clear the attributes
+        } else {
+            vcb = new VariantContextBuilder(SOURCE, block.getContig(), block.getStart(), block.getStop(),
+                    Arrays.asList(block.getRef(), GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE));
+        }
         vcb.stop(block.getStop());
         vcb.attribute(VCFConstants.END_KEY, block.getStop());
 
@@ -266,7 +307,7 @@ public class GVCFWriter implements VariantContextWriter {
         final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(block.getRef(),block.getPloidy()));
         gb.noAD().noPL().noAttributes(); // clear all attributes
 
-        final int[] minPLs = block.getMinPLs();
+        final int[] minPLs = block.getMinPLs().clone(); // the block's own array is reused by the next block
         gb.PL(minPLs);
         final int gq = GATKVariantContextUtils.calculateGQFromPLs(minPLs);
         gb.GQ(gq);
@@ -280,28 +321,44 @@ public class GVCFWriter implements VariantContextWriter {
     }
 
     /**
-     * Helper function to create a new HomRefBlock from a variant context and current genotype
+     * Helper function to create a new HomRefBlock from the values of a hom-ref site, reusing the spare block if there is one
      *
-     * @param vc the VariantContext at the site where want to start the band
-     * @param g the genotype of the sample from vc that should be used to initialize the block
-     * @return a newly allocated and initialized block containing g already
+     * @param contig the contig of the site where want to start the band
+     * @param start the position of the site
+     * @param ref the reference allele of the site
+     * @param vc the VariantContext of the site, or null if the site doesn't have one
+     * @param ploidy the ploidy of the hom-ref genotype
+     * @param GQ the GQ of the hom-ref genotype
+     * @param DP the depth at the site
+     * @param PLs the non-null PLs of the hom-ref genotype
+     * @return an initialized block containing the site already
      */
-    private HomRefBlock createNewBlock(final VariantContext vc, final Genotype g) {
-        // figure out the GQ limits to use based on the GQ of g
+    private HomRefBlock createNewBlock(final String contig, final int start, final Allele ref, final VariantContext vc,
+                                       final int ploidy, final int GQ, final int DP, final int[] PLs) {
+        // figure out the GQ limits to use based on the GQ of the site
         HomRefBlock partition = null;
         for ( final HomRefBlock maybePartition : GQPartitions ) {
-            if ( maybePartition.withinBounds(capToMaxGQ(g.getGQ())) ) {
+            if ( maybePartition.withinBounds(capToMaxGQ(GQ)) ) {
                 partition = maybePartition;
                 break;
             }
         }
 
         if ( partition == null )
-            throw new IllegalStateException("GQ " + g + " from " + vc + " didn't fit into any partition");
-
-        // create the block, add g to it, and return it for use
-        final HomRefBlock block = new HomRefBlock(vc, partition.getGQLowerBound(), partition.getGQUpperBound(), defaultPloidy);
-        block.add(vc.getStart(), g);
+            throw new IllegalStateException("GQ " + GQ + " at " + contig + ":" + start + " didn't fit into any partition");
+
+        // create the block, add the site to it, and return it for use
+        final HomRefBlock block;
+        if ( vc != null ) {
+            block = new HomRefBlock(vc, partition.getGQLowerBound(), partition.getGQUpperBound(), defaultPloidy);
+        } else if ( spareBlock != null ) {
+            block = spareBlock;
+            block.reset(contig, start, ref, ploidy, partition.getGQLowerBound(), partition.getGQUpperBound());
+            spareBlock = null;
+        } else {
+            block = new HomRefBlock(contig, start, ref, ploidy, partition.getGQLowerBound(), partition.getGQUpperBound());
+        }
+        block.add(start, GQ, DP, PLs);
         return block;
     }
 
@@ -344,6 +401,39 @@ public class GVCFWriter implements VariantContextWriter {
         }
     }
 
+    /**
+     * Add reference confidence records to this writer for emission
+     *
+     * The hom-ref sites of records are banded from their primitive values, so only the VariantContexts of
+     * the emitted blocks are ever created for them.  Equivalent to adding each record with {@link #add(VariantContext)}.
+     *
+     * @param records the non-null records to add
+     */
+    public void addAll(final ReferenceConfidenceRecords records) {
+        if ( records == null ) throw new IllegalArgumentException("records cannot be null");
+
+        for ( int i = 0; i < records.size(); i++ ) {
+            if ( ! records.isReferenceSite(i) ) {
+                add(records.get(i));
+                continue;
+            }
+
+            if ( sampleName == null )
+                sampleName = records.getSampleName();
+
+            final String contig = records.getContig();
+            final int position = records.getPosition(i);
+            if ( currentBlock != null && ! currentBlock.isContiguous(contig, position) ) {
+                // we've made a non-contiguous step (across interval, onto another chr), so finalize
+                emitCurrentBlock();
+            }
+
+            final VariantContext maybeCompletedBand = addHomRefSite(contig, position, records.getRefAllele(i), null,
+                    records.getPloidy(), records.getGQ(i), records.getDP(i), records.getPL(i));
+            if ( maybeCompletedBand != null ) underlyingWriter.add(maybeCompletedBand);
+        }
+    }
+
     /**
      * Check the return from PrintStream.checkError() if underlying stream is a java.io.PrintStream
      * @return false, no error since the underlying stream is not a java.io.PrintStream
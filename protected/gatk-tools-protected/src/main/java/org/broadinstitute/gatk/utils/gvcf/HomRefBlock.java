@@ -55,10 +55,8 @@ import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeaderLine;
-import org.broadinstitute.gatk.utils.MathUtils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Helper class for calculating a GQ band in the GVCF writer
@@ -68,19 +66,27 @@ import java.util.List;
  *
  * Genotypes within the HomRefBlock are restricted to hom-ref genotypes within a band of GQ scores
  *
+ * The GQ and DP values are kept in primitive arrays, and a block can be {@link #reset} to start a new band
+ * so that the GVCFWriter doesn't need to allocate a new block (or box a value) for every hom-ref site.
+ *
  * User: depristo
  * Date: 6/25/13
  * Time: 9:41 AM
  */
 final class HomRefBlock {
-    private final VariantContext startingVC;
+    private static final int INITIAL_CAPACITY = 100;
+
+    private VariantContext startingVC;
+    private String contig;
+    private int start;
     private int stop;
-    private final int minGQ, maxGQ;
+    private int minGQ, maxGQ;
     private int[] minPLs = null;
-    final private List<Integer> GQs = new ArrayList<>(100);
-    final private List<Integer> DPs = new ArrayList<>(100);
-    private final Allele ref;
-    private final int ploidy;
+    private int[] GQs = new int[INITIAL_CAPACITY];
+    private int[] DPs = new int[INITIAL_CAPACITY];
+    private int size = 0;
+    private Allele ref;
+    private int ploidy;
 
     /**
      * Create a new HomRefBlock
@@ -91,14 +97,22 @@ final class HomRefBlock {
      */
     public HomRefBlock(final VariantContext startingVC, final int minGQ, final int maxGQ, final int defaultPloidy) {
         if ( startingVC == null ) throw new IllegalArgumentException("startingVC cannot be null");
-        if ( minGQ > maxGQ ) throw new IllegalArgumentException("bad minGQ " + minGQ + " as its > maxGQ " + maxGQ);
-
+        reset(startingVC.getChr(), startingVC.getStart(), startingVC.getReference(), startingVC.getMaxPloidy(defaultPloidy), minGQ, maxGQ);
         this.startingVC = startingVC;
-        this.stop = getStart() - 1;
-        this.ref = startingVC.getReference();
-        this.minGQ = minGQ;
-        this.maxGQ = maxGQ;
-        this.ploidy = startingVC.getMaxPloidy(defaultPloidy);
+    }
+
+    /**
+     * Create a new HomRefBlock starting at a reference site that has no VariantContext of its own
+     *
+     * @param contig the contig of the band
+     * @param start the first position of the band
+     * @param ref the reference allele at start
+     * @param ploidy the ploidy of the genotypes in the band
+     * @param minGQ the minGQ (inclusive) to use in this band
+     * @param maxGQ the maxGQ (exclusive) to use in this band
+     */
+    public HomRefBlock(final String contig, final int start, final Allele ref, final int ploidy, final int minGQ, final int maxGQ) {
+        reset(contig, start, ref, ploidy, minGQ, maxGQ);
     }
 
     /**
@@ -110,14 +124,38 @@ final class HomRefBlock {
     public HomRefBlock(final int minGQ, final int maxGQ, final int ploidy) {
         if ( minGQ > maxGQ ) throw new IllegalArgumentException("bad minGQ " + minGQ + " as its > maxGQ " + maxGQ);
 
-        this.startingVC = null;
         this.stop = -1;
-        this.ref = null;
         this.minGQ = minGQ;
         this.maxGQ = maxGQ;
         this.ploidy = ploidy;
     }
 
+    /**
+     * Empty this block and make it start a new band, keeping its buffers
+     *
+     * @param contig the contig of the new band
+     * @param start the first position of the new band
+     * @param ref the reference allele at start
+     * @param ploidy the ploidy of the genotypes in the new band
+     * @param minGQ the minGQ (inclusive) to use in the new band
+     * @param maxGQ the maxGQ (exclusive) to use in the new band
+     */
+    public void reset(final String contig, final int start, final Allele ref, final int ploidy, final int minGQ, final int maxGQ) {
+        if ( contig == null ) throw new IllegalArgumentException("contig cannot be null");
+        if ( ref == null ) throw new IllegalArgumentException("ref cannot be null");
+        if ( minGQ > maxGQ ) throw new IllegalArgumentException("bad minGQ " + minGQ + " as its > maxGQ " + maxGQ);
+
+        this.startingVC = null;
+        this.contig = contig;
+        this.start = start;
+        this.stop = start - 1;
+        this.ref = ref;
+        this.ploidy = ploidy;
+        this.minGQ = minGQ;
+        this.maxGQ = maxGQ;
+        this.size = 0; // the buffers, including minPLs when the PL arrays have the same length, are reused
+    }
+
     /**
      * Add information from this Genotype to this band
      * @param g a non-null Genotype with GQ and DP attributes
@@ -126,23 +164,43 @@ final class HomRefBlock {
         if ( g == null ) throw new IllegalArgumentException("g cannot be null");
         if ( ! g.hasGQ() ) throw new IllegalArgumentException("g must have GQ field");
         if ( ! g.hasPL() ) throw new IllegalArgumentException("g must have PL field");
-        if ( pos != stop + 1 ) throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous stop " + stop);
         if ( g.getPloidy() != ploidy)
             throw new IllegalArgumentException("cannot add a genotype with a different ploidy: " + g.getPloidy() + " != " + ploidy);
+        add(pos, g.getGQ(), g.getDP(), g.getPL());
+    }
+
+    /**
+     * Add the GQ, DP and PLs of a hom-ref site to this band
+     *
+     * @param pos the position of the site, must be immediately after the current stop of this band
+     * @param GQ the GQ of the site
+     * @param DP the depth of the site, or a negative value if unknown
+     * @param PLs the non-null PLs of the site, which are not modified or kept by this band
+     */
+    public void add(final int pos, final int GQ, final int DP, final int[] PLs) {
+        if ( PLs == null ) throw new IllegalArgumentException("PLs cannot be null");
+        if ( pos != stop + 1 ) throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous stop " + stop);
 
-        if( minPLs == null )
-            minPLs = g.getPL();
-        else { // otherwise take the min with the provided genotype's PLs
-            final int[] PL = g.getPL();
-            if (PL.length != minPLs.length)
-                throw new IllegalStateException("trying to merge different PL array sizes: " + PL.length + " != " + minPLs.length);
-            for (int i = 0; i < PL.length; i++)
-                if (minPLs[i] > PL[i])
-                    minPLs[i] = PL[i];
+        if ( size == 0 ) {
+            if ( minPLs == null || minPLs.length != PLs.length )
+                minPLs = new int[PLs.length];
+            System.arraycopy(PLs, 0, minPLs, 0, PLs.length);
+        } else { // otherwise take the min with the provided genotype's PLs
+            if (PLs.length != minPLs.length)
+                throw new IllegalStateException("trying to merge different PL array sizes: " + PLs.length + " != " + minPLs.length);
+            for (int i = 0; i < PLs.length; i++)
+                if (minPLs[i] > PLs[i])
+                    minPLs[i] = PLs[i];
+        }
+
+        if ( size == GQs.length ) {
+            GQs = Arrays.copyOf(GQs, size * 2);
+            DPs = Arrays.copyOf(DPs, size * 2);
         }
         stop = pos;
-        GQs.add(Math.min(g.getGQ(), 99)); // cap the GQs by the max. of 99 emission
-        DPs.add(Math.max(g.getDP(),0));
+        GQs[size] = Math.min(GQ, 99); // cap the GQs by the max. of 99 emission
+        DPs[size] = Math.max(DP, 0);
+        size++;
     }
 
     /**
@@ -155,25 +213,50 @@ final class HomRefBlock {
     }
 
     /** Get the min GQ observed within this band */
-    public int getMinGQ() { return MathUtils.arrayMin(GQs); }
+    public int getMinGQ() { return min(GQs); }
     /** Get the median GQ observed within this band */
-    public int getMedianGQ() { return MathUtils.median(GQs); }
+    public int getMedianGQ() { return median(GQs); }
     /** Get the min DP observed within this band */
-    public int getMinDP() { return MathUtils.arrayMin(DPs); }
+    public int getMinDP() { return min(DPs); }
     /** Get the median DP observed within this band */
-    public int getMedianDP() { return MathUtils.median(DPs); }
+    public int getMedianDP() { return median(DPs); }
     /** Get the min PLs observed within this band, can be null if no PLs have yet been observed */
-    public int[] getMinPLs() { return minPLs; }
+    public int[] getMinPLs() { return size == 0 ? null : minPLs; }
+
+    private int min(final int[] values) {
+        if ( size == 0 ) throw new IllegalArgumentException("Array size cannot be 0");
+        int min = values[0];
+        for ( int i = 1; i < size; i++ )
+            if ( values[i] < min )
+                min = values[i];
+        return min;
+    }
+
+    /**
+     * The element at size / 2 of the sorted values, which is how MathUtils.median defines the median
+     */
+    private int median(final int[] values) {
+        if ( size == 0 ) throw new IllegalArgumentException("Array cannot have size 0");
+        final int[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        return sorted[size / 2];
+    }
 
     protected int getGQUpperBound() { return maxGQ; }
     protected int getGQLowerBound() { return minGQ; }
 
     public boolean isContiguous(final VariantContext vc) {
-        return vc.getEnd() == getStop() + 1 && startingVC.getChr().equals(vc.getChr());
+        return isContiguous(vc.getChr(), vc.getEnd());
+    }
+
+    public boolean isContiguous(final String contig, final int pos) {
+        return pos == getStop() + 1 && this.contig.equals(contig);
     }
 
+    /** Get the VariantContext that started this band, or null if the band was started from primitive values */
     public VariantContext getStartingVC() { return startingVC; }
-    public int getStart() { return startingVC.getStart(); }
+    public String getContig() { return contig; }
+    public int getStart() { return start; }
     public int getStop() { return stop; }
     public Allele getRef() { return ref; }
     public int getSize() { return getStop() - getStart() + 1; }
@@ -0,0 +1,270 @@
+/*
+* By downloading the PROGRAM you agree to the following terms of use:
+* 
+* BROAD INSTITUTE
+* SOFTWARE LICENSE AGREEMENT
+* FOR ACADEMIC NON-COMMERCIAL RESEARCH PURPOSES ONLY
+* 
+* This Agreement is made between the Broad Institute, Inc. with a principal address at 415 Main Street, Cambridge, MA 02142 ("BROAD") and the LICENSEE and is effective at the date the downloading is completed ("EFFECTIVE DATE").
+* 
+* WHEREAS, LICENSEE desires to license the PROGRAM, as defined hereinafter, and BROAD wishes to have this PROGRAM utilized in the public interest, subject only to the royalty-free, nonexclusive, nontransferable license rights of the United States Government pursuant to 48 CFR 52.227-14; and
+* WHEREAS, LICENSEE desires to license the PROGRAM and BROAD desires to grant a license on the following terms and conditions.
+* NOW, THEREFORE, in consideration of the promises and covenants made herein, the parties hereto agree as follows:
+* 
+* 1. DEFINITIONS
+* 1.1 PROGRAM shall mean copyright in the object code and source code known as GATK3 and related documentation, if any, as they exist on the EFFECTIVE DATE and can be downloaded from http://www.broadinstitute.org/gatk on the EFFECTIVE DATE.
+* 
+* 2. LICENSE
+* 2.1 Grant. Subject to the terms of this Agreement, BROAD hereby grants to LICENSEE, solely for academic non-commercial research purposes, a non-exclusive, non-transferable license to: (a) download, execute and display the PROGRAM and (b) create bug fixes and modify the PROGRAM. LICENSEE hereby automatically grants to BROAD a non-exclusive, royalty-free, irrevocable license to any LICENSEE bug fixes or modifications to the PROGRAM with unlimited rights to sublicense and/or distribute.  LICENSEE agrees to provide any such modifications and bug fixes to BROAD promptly upon their creation.
+* The LICENSEE may apply the PROGRAM in a pipeline to data owned by users other than the LICENSEE and provide these users the results of the PROGRAM provided LICENSEE does so for academic non-commercial purposes only. For clarification purposes, academic sponsored research is not a commercial use under the terms of this Agreement.
+* 2.2 No Sublicensing or Additional Rights. LICENSEE shall not sublicense or distribute the PROGRAM, in whole or in part, without prior written permission from BROAD. LICENSEE shall ensure that all of its users agree to the terms of this Agreement. LICENSEE further agrees that it shall not put the PROGRAM on a network, server, or other similar technology that may be accessed by anyone other than the LICENSEE and its employees and users who have agreed to the terms of this agreement.
+* 2.3 License Limitations. Nothing in this Agreement shall be construed to confer any rights upon LICENSEE by implication, estoppel, or otherwise to any computer software, trademark, intellectual property, or patent rights of BROAD, or of any other entity, except as expressly granted herein. LICENSEE agrees that the PROGRAM, in whole or part, shall not be used for any commercial purpose, including without limitation, as the basis of a commercial software or hardware product or to provide services. LICENSEE further agrees that the PROGRAM shall not be copied or otherwise adapted in order to circumvent the need for obtaining a license for use of the PROGRAM.
+* 
+* 3. PHONE-HOME FEATURE
+* LICENSEE expressly acknowledges that the PROGRAM contains an embedded automatic reporting system ("PHONE-HOME") which is enabled by default upon download. Unless LICENSEE requests disablement of PHONE-HOME, LICENSEE agrees that BROAD may collect limited information transmitted by PHONE-HOME regarding LICENSEE and its use of the PROGRAM.  Such information shall include LICENSEE'S user identification, version number of the PROGRAM and tools being run, mode of analysis employed, and any error reports generated during run-time.  Collection of such information is used by BROAD solely to monitor usage rates, fulfill reporting requirements to BROAD funding agencies, drive improvements to the PROGRAM, and facilitate adjustments to PROGRAM-related documentation.
+* 
+* 4. OWNERSHIP OF INTELLECTUAL PROPERTY
+* LICENSEE acknowledges that title to the PROGRAM shall remain with BROAD. The PROGRAM is marked with the following BROAD copyright notice and notice of attribution to contributors. LICENSEE shall retain such notice on all copies. LICENSEE agrees to include appropriate attribution if any results obtained from use of the PROGRAM are included in any publication.
+* Copyright 2012-2016 Broad Institute, Inc.
+* Notice of attribution: The GATK3 program was made available through the generosity of Medical and Population Genetics program at the Broad Institute, Inc.
+* LICENSEE shall not use any trademark or trade name of BROAD, or any variation, adaptation, or abbreviation, of such marks or trade names, or any names of officers, faculty, students, employees, or agents of BROAD except as states above for attribution purposes.
+* 
+* 5. INDEMNIFICATION
+* LICENSEE shall indemnify, defend, and hold harmless BROAD, and their respective officers, faculty, students, employees, associated investigators and agents, and their respective successors, heirs and assigns, (Indemnitees), against any liability, damage, loss, or expense (including reasonable attorneys fees and expenses) incurred by or imposed upon any of the Indemnitees in connection with any claims, suits, actions, demands or judgments arising out of any theory of liability (including, without limitation, actions in the form of tort, warranty, or strict liability and regardless of whether such action has any factual basis) pursuant to any right or license granted under this Agreement.
+* 
+* 6. NO REPRESENTATIONS OR WARRANTIES
+* THE PROGRAM IS DELIVERED AS IS. BROAD MAKES NO REPRESENTATIONS OR WARRANTIES OF ANY KIND CONCERNING THE PROGRAM OR THE COPYRIGHT, EXPRESS OR IMPLIED, INCLUDING, WITHOUT LIMITATION, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, NONINFRINGEMENT, OR THE ABSENCE OF LATENT OR OTHER DEFECTS, WHETHER OR NOT DISCOVERABLE. BROAD EXTENDS NO WARRANTIES OF ANY KIND AS TO PROGRAM CONFORMITY WITH WHATEVER USER MANUALS OR OTHER LITERATURE MAY BE ISSUED FROM TIME TO TIME.
+* IN NO EVENT SHALL BROAD OR ITS RESPECTIVE DIRECTORS, OFFICERS, EMPLOYEES, AFFILIATED INVESTIGATORS AND AFFILIATES BE LIABLE FOR INCIDENTAL OR CONSEQUENTIAL DAMAGES OF ANY KIND, INCLUDING, WITHOUT LIMITATION, ECONOMIC DAMAGES OR INJURY TO PROPERTY AND LOST PROFITS, REGARDLESS OF WHETHER BROAD SHALL BE ADVISED, SHALL HAVE OTHER REASON TO KNOW, OR IN FACT SHALL KNOW OF THE POSSIBILITY OF THE FOREGOING.
+* 
+* 7. ASSIGNMENT
+* This Agreement is personal to LICENSEE and any rights or obligations assigned by LICENSEE without the prior written consent of BROAD shall be null and void.
+* 
+* 8. MISCELLANEOUS
+* 8.1 Export Control. LICENSEE gives assurance that it will comply with all United States export control laws and regulations controlling the export of the PROGRAM, including, without limitation, all Export Administration Regulations of the United States Department of Commerce. Among other things, these laws and regulations prohibit, or require a license for, the export of certain types of software to specified countries.
+* 8.2 Termination. LICENSEE shall have the right to terminate this Agreement for any reason upon prior written notice to BROAD. If LICENSEE breaches any provision hereunder, and fails to cure such breach within thirty (30) days, BROAD may terminate this Agreement immediately. Upon termination, LICENSEE shall provide BROAD with written assurance that the original and all copies of the PROGRAM have been destroyed, except that, upon prior written authorization from BROAD, LICENSEE may retain a copy for archive purposes.
+* 8.3 Survival. The following provisions shall survive the expiration or termination of this Agreement: Articles 1, 3, 4, 5 and Sections 2.2, 2.3, 7.3, and 7.4.
+* 8.4 Notice. Any notices under this Agreement shall be in writing, shall specifically refer to this Agreement, and shall be sent by hand, recognized national overnight courier, confirmed facsimile transmission, confirmed electronic mail, or registered or certified mail, postage prepaid, return receipt requested. All notices under this Agreement shall be deemed effective upon receipt.
+* 8.5 Amendment and Waiver; Entire Agreement. This Agreement may be amended, supplemented, or otherwise modified only by means of a written instrument signed by all parties. Any waiver of any rights or failure to act in a specific instance shall relate only to such instance and shall not be construed as an agreement to waive any rights or fail to act in any other instance, whether or not similar. This Agreement constitutes the entire agreement among the parties with respect to its subject matter and supersedes prior agreements or understandings between the parties relating to its subject matter.
+* 8.6 Binding Effect; Headings. This Agreement shall be binding upon and inure to the benefit of the parties and their respective permitted successors and assigns. All headings are for convenience only and shall not affect the meaning of any provision of this Agreement.
+* 8.7 Governing Law. This Agreement shall be construed, governed, interpreted and applied in accordance with the internal laws of the Commonwealth of Massachusetts, U.S.A., without regard to conflict of laws principles.
+*/
+
+package org.broadinstitute.gatk.utils.gvcf;
+
+import htsjdk.variant.variantcontext.*;
+import org.broadinstitute.gatk.utils.variant.GATKVCFConstants;
+import org.broadinstitute.gatk.utils.variant.GATKVariantContextUtils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The records of a single sample emitted in reference confidence mode over a stretch of the genome
+ *
+ * Most of these records are hom-ref sites whose only information is their reference base, AD, DP, GQ and PLs.
+ * Rather than building a VariantContext for each of them, their values are kept in primitive arrays, and the
+ * VariantContext of a site is only created when it is requested through the List interface.  The GVCFWriter
+ * reads the primitive values directly (see {@link GVCFWriter#addAll(ReferenceConfidenceRecords)}), so in GVCF
+ * mode only the variant calls and the emitted hom-ref blocks ever become VariantContexts.
+ *
+ * Variant calls (or any other VariantContext) can be interleaved with the reference sites and are kept as is.
+ */
+public final class ReferenceConfidenceRecords extends AbstractList<VariantContext> implements RandomAccess {
+    private static final int DEFAULT_INITIAL_CAPACITY = 100;
+
+    private final String source;
+    private final String sampleName;
+    private final int ploidy;
+    private String contig = null;
+
+    private int size = 0;
+    /** the records that are full VariantContexts, null for the reference sites */
+    private VariantContext[] variantContexts;
+    private int[] positions;
+    private byte[] refBases;
+    /** the ref and non-ref ADs of each reference site, interleaved */
+    private int[] ADs;
+    private int[] DPs;
+    private int[] GQs;
+    private int[][] PLs;
+
+    /**
+     * Create an empty set of records
+     *
+     * @param source the source of the VariantContexts created for the reference sites
+     * @param sampleName the name of the sample
+     * @param ploidy the ploidy of the sample
+     */
+    public ReferenceConfidenceRecords(final String source, final String sampleName, final int ploidy) {
+        this(source, sampleName, ploidy, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create an empty set of records
+     *
+     * @param source the source of the VariantContexts created for the reference sites
+     * @param sampleName the name of the sample
+     * @param ploidy the ploidy of the sample
+     * @param initialCapacity the number of records to make room for
+     */
+    public ReferenceConfidenceRecords(final String source, final String sampleName, final int ploidy, final int initialCapacity) {
+        if ( source == null ) throw new IllegalArgumentException("source cannot be null");
+        if ( sampleName == null ) throw new IllegalArgumentException("sampleName cannot be null");
+        if ( ploidy < 0 ) throw new IllegalArgumentException("ploidy cannot be negative");
+        if ( initialCapacity < 0 ) throw new IllegalArgumentException("initialCapacity cannot be negative");
+
+        this.source = source;
+        this.sampleName = sampleName;
+        this.ploidy = ploidy;
+        final int capacity = Math.max(initialCapacity, 1);
+        variantContexts = new VariantContext[capacity];
+        positions = new int[capacity];
+        refBases = new byte[capacity];
+        ADs = new int[capacity * 2];
+        DPs = new int[capacity];
+        GQs = new int[capacity];
+        PLs = new int[capacity][];
+    }
+
+    /**
+     * Add a hom-ref site
+     *
+     * @param contig the contig of the site, all sites must be on the same contig
+     * @param position the position of the site
+     * @param refBase the reference base at position
+     * @param AD the non-null ref and non-ref allele depths of the site
+     * @param DP the depth of the site
+     * @param GQ the GQ of the hom-ref genotype
+     * @param PL the non-null PLs of the site, which are kept by these records
+     */
+    public void addReferenceSite(final String contig, final int position, final byte refBase,
+                                 final int[] AD, final int DP, final int GQ, final int[] PL) {
+        if ( contig == null ) throw new IllegalArgumentException("contig cannot be null");
+        if ( AD == null || AD.length != 2 ) throw new IllegalArgumentException("AD must have a ref and a non-ref depth");
+        if ( PL == null ) throw new IllegalArgumentException("PL cannot be null");
+        if ( this.contig == null )
+            this.contig = contig;
+        else if ( ! this.contig.equals(contig) )
+            throw new IllegalArgumentException("all reference sites must be on contig " + this.contig + " but saw " + contig);
+
+        ensureCapacity(size + 1);
+        positions[size] = position;
+        refBases[size] = refBase;
+        ADs[2 * size] = AD[0];
+        ADs[2 * size + 1] = AD[1];
+        DPs[size] = DP;
+        GQs[size] = GQ;
+        PLs[size] = PL;
+        size++;
+    }
+
+    /**
+     * Add a record that is kept as a VariantContext
+     *
+     * @param vc a non-null VariantContext
+     * @return true
+     */
+    @Override
+    public boolean add(final VariantContext vc) {
+        if ( vc == null ) throw new IllegalArgumentException("vc cannot be null");
+        ensureCapacity(size + 1);
+        variantContexts[size++] = vc;
+        return true;
+    }
+
+    /**
+     * Add all of the records in c after the ones already here, without creating VariantContexts for
+     * the reference sites when c is itself a ReferenceConfidenceRecords
+     */
+    @Override
+    public boolean addAll(final Collection<? extends VariantContext> c) {
+        if ( ! (c instanceof ReferenceConfidenceRecords) )
+            return super.addAll(c);
+
+        final ReferenceConfidenceRecords other = (ReferenceConfidenceRecords) c;
+        if ( other.size == 0 )
+            return false;
+        if ( ! sampleName.equals(other.sampleName) || ploidy != other.ploidy )
+            throw new IllegalArgumentException("cannot add the records of sample " + other.sampleName + " with ploidy " + other.ploidy
+                    + " to those of sample " + sampleName + " with ploidy " + ploidy);
+        if ( other.contig != null ) {
+            if ( contig == null )
+                contig = other.contig;
+            else if ( ! contig.equals(other.contig) )
+                throw new IllegalArgumentException("all reference sites must be on contig " + contig + " but saw " + other.contig);
+        }
+
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.variantContexts, 0, variantContexts, size, other.size);
+        System.arraycopy(other.positions, 0, positions, size, other.size);
+        System.arraycopy(other.refBases, 0, refBases, size, other.size);
+        System.arraycopy(other.ADs, 0, ADs, 2 * size, 2 * other.size);
+        System.arraycopy(other.DPs, 0, DPs, size, other.size);
+        System.arraycopy(other.GQs, 0, GQs, size, other.size);
+        System.arraycopy(other.PLs, 0, PLs, size, other.size);
+        size += other.size;
+        return true;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if ( capacity <= positions.length )
+            return;
+        final int newCapacity = Math.max(capacity, positions.length * 2);
+        variantContexts = Arrays.copyOf(variantContexts, newCapacity);
+        positions = Arrays.copyOf(positions, newCapacity);
+        refBases = Arrays.copyOf(refBases, newCapacity);
+        ADs = Arrays.copyOf(ADs, newCapacity * 2);
+        DPs = Arrays.copyOf(DPs, newCapacity);
+        GQs = Arrays.copyOf(GQs, newCapacity);
+        PLs = Arrays.copyOf(PLs, newCapacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the i-th record, creating the VariantContext of a reference site
+     */
+    @Override
+    public VariantContext get(final int i) {
+        checkIndex(i);
+        if ( ! isReferenceSite(i) )
+            return variantContexts[i];
+
+        final Allele refAllele = getRefAllele(i);
+        final VariantContextBuilder vcb = new VariantContextBuilder(source, contig, positions[i], positions[i],
+                Arrays.asList(refAllele, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE));
+        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
+        gb.AD(new int[]{ADs[2 * i], ADs[2 * i + 1]});
+        gb.DP(DPs[i]);
+        gb.GQ(GQs[i]);
+        gb.PL(PLs[i]);
+        return vcb.genotypes(gb.make()).make();
+    }
+
+    private void checkIndex(final int i) {
+        if ( i < 0 || i >= size ) throw new IndexOutOfBoundsException("index " + i + " is out of bounds for " + size + " records");
+    }
+
+    /** Is the i-th record a hom-ref site kept as primitive values? */
+    public boolean isReferenceSite(final int i) {
+        checkIndex(i);
+        return variantContexts[i] == null;
+    }
+
+    /** Get the contig of the reference sites, null if there are none */
+    public String getContig() { return contig; }
+    public String getSampleName() { return sampleName; }
+    public int getPloidy() { return ploidy; }
+
+    // The per-site getters below are only meaningful for reference sites
+    public int getPosition(final int i) { checkIndex(i); return positions[i]; }
+    public Allele getRefAllele(final int i) { checkIndex(i); return Allele.create(refBases[i], true); }
+    public int getDP(final int i) { checkIndex(i); return DPs[i]; }
+    public int getGQ(final int i) { checkIndex(i); return GQs[i]; }
+    public int[] getPL(final int i) { checkIndex(i); return PLs[i]; }
+}
@@ -0,0 +1,340 @@
+/*
+* By downloading the PROGRAM you agree to the following terms of use:
+* 
+* BROAD INSTITUTE
+* SOFTWARE LICENSE AGREEMENT
+* FOR ACADEMIC NON-COMMERCIAL RESEARCH PURPOSES ONLY
+* 
+* This Agreement is made between the Broad Institute, Inc. with a principal address at 415 Main Street, Cambridge, MA 02142 ("BROAD") and the LICENSEE and is effective at the date the downloading is completed ("EFFECTIVE DATE").
+* 
+* WHEREAS, LICENSEE desires to license the PROGRAM, as defined hereinafter, and BROAD wishes to have this PROGRAM utilized in the public interest, subject only to the royalty-free, nonexclusive, nontransferable license rights of the United States Government pursuant to 48 CFR 52.227-14; and
+* WHEREAS, LICENSEE desires to license the PROGRAM and BROAD desires to grant a license on the following terms and conditions.
+* NOW, THEREFORE, in consideration of the promises and covenants made herein, the parties hereto agree as follows:
+* 
+* 1. DEFINITIONS
+* 1.1 PROGRAM shall mean copyright in the object code and source code known as GATK3 and related documentation, if any, as they exist on the EFFECTIVE DATE and can be downloaded from http://www.broadinstitute.org/gatk on the EFFECTIVE DATE.
+* 
+* 2. LICENSE
+* 2.1 Grant. Subject to the terms of this Agreement, BROAD hereby grants to LICENSEE, solely for academic non-commercial research purposes, a non-exclusive, non-transferable license to: (a) download, execute and display the PROGRAM and (b) create bug fixes and modify the PROGRAM. LICENSEE hereby automatically grants to BROAD a non-exclusive, royalty-free, irrevocable license to any LICENSEE bug fixes or modifications to the PROGRAM with unlimited rights to sublicense and/or distribute.  LICENSEE agrees to provide any such modifications and bug fixes to BROAD promptly upon their creation.
+* The LICENSEE may apply the PROGRAM in a pipeline to data owned by users other than the LICENSEE and provide these users the results of the PROGRAM provided LICENSEE does so for academic non-commercial purposes only. For clarification purposes, academic sponsored research is not a commercial use under the terms of this Agreement.
+* 2.2 No Sublicensing or Additional Rights. LICENSEE shall not sublicense or distribute the PROGRAM, in whole or in part, without prior written permission from BROAD. LICENSEE shall ensure that all of its users agree to the terms of this Agreement. LICENSEE further agrees that it shall not put the PROGRAM on a network, server, or other similar technology that may be accessed by anyone other than the LICENSEE and its employees and users who have agreed to the terms of this agreement.
+* 2.3 License Limitations. Nothing in this Agreement shall be construed to confer any rights upon LICENSEE by implication, estoppel, or otherwise to any computer software, trademark, intellectual property, or patent rights of BROAD, or of any other entity, except as expressly granted herein. LICENSEE agrees that the PROGRAM, in whole or part, shall not be used for any commercial purpose, including without limitation, as the basis of a commercial software or hardware product or to provide services. LICENSEE further agrees that the PROGRAM shall not be copied or otherwise adapted in order to circumvent the need for obtaining a license for use of the PROGRAM.
+* 
+* 3. PHONE-HOME FEATURE
+* LICENSEE expressly acknowledges that the PROGRAM contains an embedded automatic reporting system ("PHONE-HOME") which is enabled by default upon download. Unless LICENSEE requests disablement of PHONE-HOME, LICENSEE agrees that BROAD may collect limited information transmitted by PHONE-HOME regarding LICENSEE and its use of the PROGRAM.  Such information shall include LICENSEE'S user identification, version number of the PROGRAM and tools being run, mode of analysis employed, and any error reports generated during run-time.  Collection of such information is used by BROAD solely to monitor usage rates, fulfill reporting requirements to BROAD funding agencies, drive improvements to the PROGRAM, and facilitate adjustments to PROGRAM-related documentation.
+* 
+* 4. OWNERSHIP OF INTELLECTUAL PROPERTY
+* LICENSEE acknowledges that title to the PROGRAM shall remain with BROAD. The PROGRAM is marked with the following BROAD copyright notice and notice of attribution to contributors. LICENSEE shall retain such notice on all copies. LICENSEE agrees to include appropriate attribution if any results obtained from use of the PROGRAM are included in any publication.
+* Copyright 2012-2016 Broad Institute, Inc.
+* Notice of attribution: The GATK3 program was made available through the generosity of Medical and Population Genetics program at the Broad Institute, Inc.
+* LICENSEE shall not use any trademark or trade name of BROAD, or any variation, adaptation, or abbreviation, of such marks or trade names, or any names of officers, faculty, students, employees, or agents of BROAD except as states above for attribution purposes.
+* 
+* 5. INDEMNIFICATION
+* LICENSEE shall indemnify, defend, and hold harmless BROAD, and their respective officers, faculty, students, employees, associated investigators and agents, and their respective successors, heirs and assigns, (Indemnitees), against any liability, damage, loss, or expense (including reasonable attorneys fees and expenses) incurred by or imposed upon any of the Indemnitees in connection with any claims, suits, actions, demands or judgments arising out of any theory of liability (including, without limitation, actions in the form of tort, warranty, or strict liability and regardless of whether such action has any factual basis) pursuant to any right or license granted under this Agreement.
+* 
+* 6. NO REPRESENTATIONS OR WARRANTIES
+* THE PROGRAM IS DELIVERED AS IS. BROAD MAKES NO REPRESENTATIONS OR WARRANTIES OF ANY KIND CONCERNING THE PROGRAM OR THE COPYRIGHT, EXPRESS OR IMPLIED, INCLUDING, WITHOUT LIMITATION, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, NONINFRINGEMENT, OR THE ABSENCE OF LATENT OR OTHER DEFECTS, WHETHER OR NOT DISCOVERABLE. BROAD EXTENDS NO WARRANTIES OF ANY KIND AS TO PROGRAM CONFORMITY WITH WHATEVER USER MANUALS OR OTHER LITERATURE MAY BE ISSUED FROM TIME TO TIME.
+* IN NO EVENT SHALL BROAD OR ITS RESPECTIVE DIRECTORS, OFFICERS, EMPLOYEES, AFFILIATED INVESTIGATORS AND AFFILIATES BE LIABLE FOR INCIDENTAL OR CONSEQUENTIAL DAMAGES OF ANY KIND, INCLUDING, WITHOUT LIMITATION, ECONOMIC DAMAGES OR INJURY TO PROPERTY AND LOST PROFITS, REGARDLESS OF WHETHER BROAD SHALL BE ADVISED, SHALL HAVE OTHER REASON TO KNOW, OR IN FACT SHALL KNOW OF THE POSSIBILITY OF THE FOREGOING.
+* 
+* 7. ASSIGNMENT
+* This Agreement is personal to LICENSEE and any rights or obligations assigned by LICENSEE without the prior written consent of BROAD shall be null and void.
+* 
+* 8. MISCELLANEOUS
+* 8.1 Export Control. LICENSEE gives assurance that it will comply with all United States export control laws and regulations controlling the export of the PROGRAM, including, without limitation, all Export Administration Regulations of the United States Department of Commerce. Among other things, these laws and regulations prohibit, or require a license for, the export of certain types of software to specified countries.
+* 8.2 Termination. LICENSEE shall have the right to terminate this Agreement for any reason upon prior written notice to BROAD. If LICENSEE breaches any provision hereunder, and fails to cure such breach within thirty (30) days, BROAD may terminate this Agreement immediately. Upon termination, LICENSEE shall provide BROAD with written assurance that the original and all copies of the PROGRAM have been destroyed, except that, upon prior written authorization from BROAD, LICENSEE may retain a copy for archive purposes.
+* 8.3 Survival. The following provisions shall survive the expiration or termination of this Agreement: Articles 1, 3, 4, 5 and Sections 2.2, 2.3, 7.3, and 7.4.
+* 8.4 Notice. Any notices under this Agreement shall be in writing, shall specifically refer to this Agreement, and shall be sent by hand, recognized national overnight courier, confirmed facsimile transmission, confirmed electronic mail, or registered or certified mail, postage prepaid, return receipt requested. All notices under this Agreement shall be deemed effective upon receipt.
+* 8.5 Amendment and Waiver; Entire Agreement. This Agreement may be amended, supplemented, or otherwise modified only by means of a written instrument signed by all parties. Any waiver of any rights or failure to act in a specific instance shall relate only to such instance and shall not be construed as an agreement to waive any rights or fail to act in any other instance, whether or not similar. This Agreement constitutes the entire agreement among the parties with respect to its subject matter and supersedes prior agreements or understandings between the parties relating to its subject matter.
+* 8.6 Binding Effect; Headings. This Agreement shall be binding upon and inure to the benefit of the parties and their respective permitted successors and assigns. All headings are for convenience only and shall not affect the meaning of any provision of this Agreement.
+* 8.7 Governing Law. This Agreement shall be construed, governed, interpreted and applied in accordance with the internal laws of the Commonwealth of Massachusetts, U.S.A., without regard to conflict of laws principles.
+*/
+
+package org.broadinstitute.gatk.utils.pairhmm;
+
+import org.broadinstitute.gatk.utils.QualityUtils;
+
+import static org.broadinstitute.gatk.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure Java version of the vectorized logless PairHMM
+ *
+ * Follows the scheme of the native VectorLoglessPairHMM, so that a fast PairHMM is available
+ * when libVectorLoglessPairHMM cannot be loaded:
+ *
+ * - the matrices are traversed by anti-diagonals.  All cells of an anti-diagonal depend only on the
+ *   two previous anti-diagonals, so the inner loop has no loop-carried dependency, runs over
+ *   contiguous arrays indexed by read position and contains no branches other than selects, so
+ *   it is amenable to the JIT compiler's auto-vectorization;
+ *
+ * - the computation is first done in single precision, which doubles the number of cells per
+ *   vector register, and is only redone in double precision if the single precision result is
+ *   too small to be trusted, exactly like the native implementation does.
+ *
+ * Only three anti-diagonals of each of the M, X and Y matrices are kept in memory, so unlike
+ * the N2MemoryPairHMM implementations the memory footprint is linear in the read length.
+ * Because of the traversal order, no work is shared between consecutive haplotypes, but the
+ * per-read probabilities are only computed once per read.
+ */
+public final class JavaVectorLoglessPairHMM extends PairHMM {
+    private static final float INITIAL_CONDITION_FLOAT = (float)Math.pow(2, 120);
+    private static final double INITIAL_CONDITION_FLOAT_LOG10 = Math.log10(INITIAL_CONDITION_FLOAT);
+    private static final double INITIAL_CONDITION_DOUBLE = Math.pow(2, 1020);
+    private static final double INITIAL_CONDITION_DOUBLE_LOG10 = Math.log10(INITIAL_CONDITION_DOUBLE);
+
+    /**
+     * Single precision results below this value are recomputed in double precision, as in the native implementation
+     */
+    static final float MIN_ACCEPTED_FLOAT_RESULT = 1e-28f;
+
+    /*
+     * Cells far from the best alignment quickly become subnormal numbers, which most CPUs process
+     * orders of magnitude more slowly than normal ones.  The native implementation runs with the
+     * flush-to-zero mode of the CPU; as Java has no such mode we flush these values explicitly.
+     */
+    private static final float MIN_NORMAL_FLOAT = Float.MIN_NORMAL;
+    private static final double MIN_NORMAL_DOUBLE = Double.MIN_NORMAL;
+
+    // we divide e by 3 because the observed base could have come from any of the non-observed alleles
+    private static final double TRISTATE_CORRECTION = 3.0;
+
+    /**
+     * Code per base.  Every byte has a code of its own, except N whose code, 0, matches everything, so
+     * that bases match exactly as they do in LoglessPairHMM
+     */
+    private static final int[] BASE_CODES = new int[256];
+    static {
+        for ( int i = 0; i < BASE_CODES.length; i++ )
+            BASE_CODES[i] = i + 1;
+        BASE_CODES['N'] = 0;
+    }
+
+    /**
+     * Do the bases with these codes match?
+     *
+     * Computed without branches: the product is 0 exactly when the codes are equal or either of them is N.
+     *
+     * @return 1 if the bases match, 0 otherwise
+     */
+    private static int hit(final int readCode, final int haplotypeCode) {
+        final int product = (readCode - haplotypeCode) * readCode * haplotypeCode;
+        return 1 - ((product | -product) >>> 31);
+    }
+
+    // per read values, indexed by 1-based read position
+    private int[] readCodes;
+    private float[] fMismatchPrior, fPriorDelta, fMatchToMatch, fIndelToMatch, fMatchToInsertion, fInsertionToInsertion, fMatchToDeletion, fDeletionToDeletion;
+    private double[] dMismatchPrior, dPriorDelta, dMatchToMatch, dIndelToMatch, dMatchToInsertion, dInsertionToInsertion, dMatchToDeletion, dDeletionToDeletion;
+
+    // haplotype base codes, in reverse order
+    private int[] reversedHaplotypeCodes;
+
+    // the current and two previous anti-diagonals of the M, X and Y matrices, indexed by read position
+    private float[][] fMatch, fInsertion, fDeletion;
+    private double[][] dMatch, dInsertion, dDeletion;
+
+    // the number of times we had to fall back to double precision, for testing
+    private long nDoublePrecisionComputations = 0;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(final int readMaxLength, final int haplotypeMaxLength) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+
+        readCodes = new int[paddedMaxReadLength];
+        fMismatchPrior = new float[paddedMaxReadLength];
+        fPriorDelta = new float[paddedMaxReadLength];
+        fMatchToMatch = new float[paddedMaxReadLength];
+        fIndelToMatch = new float[paddedMaxReadLength];
+        fMatchToInsertion = new float[paddedMaxReadLength];
+        fInsertionToInsertion = new float[paddedMaxReadLength];
+        fMatchToDeletion = new float[paddedMaxReadLength];
+        fDeletionToDeletion = new float[paddedMaxReadLength];
+        dMismatchPrior = new double[paddedMaxReadLength];
+        dPriorDelta = new double[paddedMaxReadLength];
+        dMatchToMatch = new double[paddedMaxReadLength];
+        dIndelToMatch = new double[paddedMaxReadLength];
+        dMatchToInsertion = new double[paddedMaxReadLength];
+        dInsertionToInsertion = new double[paddedMaxReadLength];
+        dMatchToDeletion = new double[paddedMaxReadLength];
+        dDeletionToDeletion = new double[paddedMaxReadLength];
+
+        reversedHaplotypeCodes = new int[haplotypeMaxLength];
+
+        fMatch = new float[3][paddedMaxReadLength];
+        fInsertion = new float[3][paddedMaxReadLength];
+        fDeletion = new float[3][paddedMaxReadLength];
+        dMatch = new double[3][paddedMaxReadLength];
+        dInsertion = new double[3][paddedMaxReadLength];
+        dDeletion = new double[3][paddedMaxReadLength];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double subComputeReadLikelihoodGivenHaplotypeLog10( final byte[] haplotypeBases,
+                                                                  final byte[] readBases,
+                                                                  final byte[] readQuals,
+                                                                  final byte[] insertionGOP,
+                                                                  final byte[] deletionGOP,
+                                                                  final byte[] overallGCP,
+                                                                  final int hapStartIndex,
+                                                                  final boolean recacheReadValues,
+                                                                  final int nextHapStartIndex) {
+        if ( ! constantsAreInitialized || recacheReadValues ) {
+            initializeReadValues(readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+            constantsAreInitialized = true;
+        }
+
+        final int haplotypeLength = haplotypeBases.length;
+        for ( int j = 0; j < haplotypeLength; j++ )
+            reversedHaplotypeCodes[haplotypeLength - 1 - j] = BASE_CODES[haplotypeBases[j] & 0xFF];
+
+        final float floatResult = computeFloat(readBases.length, haplotypeLength);
+        if ( floatResult >= MIN_ACCEPTED_FLOAT_RESULT )
+            return Math.log10(floatResult) - INITIAL_CONDITION_FLOAT_LOG10;
+
+        nDoublePrecisionComputations++;
+        return Math.log10(computeDouble(readBases.length, haplotypeLength)) - INITIAL_CONDITION_DOUBLE_LOG10;
+    }
+
+    /**
+     * Compute the per read position priors and transition probabilities, in single and double precision
+     */
+    private void initializeReadValues(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP,
+                                      final byte[] deletionGOP, final byte[] overallGCP) {
+        final double[] transition = new double[TRANS_PROB_ARRAY_LENGTH];
+        final double tristateCorrection = doNotUseTristateCorrection ? 1.0 : TRISTATE_CORRECTION;
+        for ( int i = 1; i <= readBases.length; i++ ) {
+            readCodes[i] = BASE_CODES[readBases[i - 1] & 0xFF];
+
+            final double matchPrior = QualityUtils.qualToProb(readQuals[i - 1]);
+            final double mismatchPrior = QualityUtils.qualToErrorProb(readQuals[i - 1]) / tristateCorrection;
+            dMismatchPrior[i] = mismatchPrior;
+            dPriorDelta[i] = matchPrior - mismatchPrior;
+
+            PairHMMModel.qualToTransProbs(transition, insertionGOP[i - 1], deletionGOP[i - 1], overallGCP[i - 1]);
+            dMatchToMatch[i] = transition[matchToMatch];
+            dIndelToMatch[i] = transition[indelToMatch];
+            dMatchToInsertion[i] = transition[matchToInsertion];
+            dInsertionToInsertion[i] = transition[insertionToInsertion];
+            dMatchToDeletion[i] = transition[matchToDeletion];
+            dDeletionToDeletion[i] = transition[deletionToDeletion];
+
+            fMismatchPrior[i] = (float)dMismatchPrior[i];
+            fPriorDelta[i] = (float)matchPrior - (float)mismatchPrior;
+            fMatchToMatch[i] = (float)dMatchToMatch[i];
+            fIndelToMatch[i] = (float)dIndelToMatch[i];
+            fMatchToInsertion[i] = (float)dMatchToInsertion[i];
+            fInsertionToInsertion[i] = (float)dInsertionToInsertion[i];
+            fMatchToDeletion[i] = (float)dMatchToDeletion[i];
+            fDeletionToDeletion[i] = (float)dDeletionToDeletion[i];
+        }
+    }
+
+    /**
+     * Run the forward algorithm in single precision
+     *
+     * Cell (i, j) lies on anti-diagonal i + j and is stored at index i of that anti-diagonal's arrays.  Its
+     * match state depends on cell (i-1, j-1), index i-1 two anti-diagonals back, its insertion state on cell
+     * (i-1, j), index i-1 of the previous anti-diagonal, and its deletion state on cell (i, j-1), index i of
+     * the previous anti-diagonal.  Its haplotype base j-1 is at index H-d+i of the reversed haplotype, which
+     * like all other inputs increases with i.
+     *
+     * @return the scaled sum of the match and insertion states of the last row
+     */
+    private float computeFloat(final int readLength, final int haplotypeLength) {
+        final float initialValue = INITIAL_CONDITION_FLOAT / haplotypeLength;
+        float[] m2 = fMatch[0], m1 = fMatch[1], m0 = fMatch[2];
+        float[] x2 = fInsertion[0], x1 = fInsertion[1], x0 = fInsertion[2];
+        float[] y2 = fDeletion[0], y1 = fDeletion[1], y0 = fDeletion[2];
+
+        // anti-diagonal 0 holds only cell (0, 0), anti-diagonal 1 cells (0, 1) and (1, 0)
+        m2[0] = 0.0f; x2[0] = 0.0f; y2[0] = initialValue;
+        m1[0] = 0.0f; x1[0] = 0.0f; y1[0] = initialValue;
+        m1[1] = 0.0f; x1[1] = 0.0f; y1[1] = 0.0f;
+
+        float result = 0.0f;
+        for ( int d = 2; d <= readLength + haplotypeLength; d++ ) {
+            // the first row and the first column are initial conditions
+            if ( d <= haplotypeLength ) { m0[0] = 0.0f; x0[0] = 0.0f; y0[0] = initialValue; }
+            if ( d <= readLength ) { m0[d] = 0.0f; x0[d] = 0.0f; y0[d] = 0.0f; }
+
+            final int start = Math.max(1, d - haplotypeLength);
+            final int end = Math.min(readLength, d - 1);
+            final int hapOffset = haplotypeLength - d;
+            for ( int i = start; i <= end; i++ ) {
+                final int hit = hit(readCodes[i], reversedHaplotypeCodes[hapOffset + i]);
+                final float prior = fMismatchPrior[i] + hit * fPriorDelta[i];
+                final float m = prior * (m2[i - 1] * fMatchToMatch[i] + (x2[i - 1] + y2[i - 1]) * fIndelToMatch[i]);
+                final float x = m1[i - 1] * fMatchToInsertion[i] + x1[i - 1] * fInsertionToInsertion[i];
+                final float y = m1[i] * fMatchToDeletion[i] + y1[i] * fDeletionToDeletion[i];
+                m0[i] = m < MIN_NORMAL_FLOAT ? 0.0f : m;
+                x0[i] = x < MIN_NORMAL_FLOAT ? 0.0f : x;
+                y0[i] = y < MIN_NORMAL_FLOAT ? 0.0f : y;
+            }
+
+            // the last row contributes to the result
+            if ( end == readLength )
+                result += m0[readLength] + x0[readLength];
+
+            final float[] mTmp = m2; m2 = m1; m1 = m0; m0 = mTmp;
+            final float[] xTmp = x2; x2 = x1; x1 = x0; x0 = xTmp;
+            final float[] yTmp = y2; y2 = y1; y1 = y0; y0 = yTmp;
+        }
+        return result;
+    }
+
+    /**
+     * Run the forward algorithm in double precision, see computeFloat
+     *
+     * @return the scaled sum of the match and insertion states of the last row
+     */
+    private double computeDouble(final int readLength, final int haplotypeLength) {
+        final double initialValue = INITIAL_CONDITION_DOUBLE / haplotypeLength;
+        double[] m2 = dMatch[0], m1 = dMatch[1], m0 = dMatch[2];
+        double[] x2 = dInsertion[0], x1 = dInsertion[1], x0 = dInsertion[2];
+        double[] y2 = dDeletion[0], y1 = dDeletion[1], y0 = dDeletion[2];
+
+        m2[0] = 0.0; x2[0] = 0.0; y2[0] = initialValue;
+        m1[0] = 0.0; x1[0] = 0.0; y1[0] = initialValue;
+        m1[1] = 0.0; x1[1] = 0.0; y1[1] = 0.0;
+
+        double result = 0.0;
+        for ( int d = 2; d <= readLength + haplotypeLength; d++ ) {
+            if ( d <= haplotypeLength ) { m0[0] = 0.0; x0[0] = 0.0; y0[0] = initialValue; }
+            if ( d <= readLength ) { m0[d] = 0.0; x0[d] = 0.0; y0[d] = 0.0; }
+
+            final int start = Math.max(1, d - haplotypeLength);
+            final int end = Math.min(readLength, d - 1);
+            final int hapOffset = haplotypeLength - d;
+            for ( int i = start; i <= end; i++ ) {
+                final int hit = hit(readCodes[i], reversedHaplotypeCodes[hapOffset + i]);
+                final double prior = dMismatchPrior[i] + hit * dPriorDelta[i];
+                final double m = prior * (m2[i - 1] * dMatchToMatch[i] + (x2[i - 1] + y2[i - 1]) * dIndelToMatch[i]);
+                final double x = m1[i - 1] * dMatchToInsertion[i] + x1[i - 1] * dInsertionToInsertion[i];
+                final double y = m1[i] * dMatchToDeletion[i] + y1[i] * dDeletionToDeletion[i];
+                m0[i] = m < MIN_NORMAL_DOUBLE ? 0.0 : m;
+                x0[i] = x < MIN_NORMAL_DOUBLE ? 0.0 : x;
+                y0[i] = y < MIN_NORMAL_DOUBLE ? 0.0 : y;
+            }
+
+            if ( end == readLength )
+                result += m0[readLength] + x0[readLength];
+
+            final double[] mTmp = m2; m2 = m1; m1 = m0; m0 = mTmp;
+            final double[] xTmp = x2; x2 = x1; x1 = x0; x0 = xTmp;
+            final double[] yTmp = y2; y2 = y1; y1 = y0; y0 = yTmp;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of read x haplotype likelihoods that had to be recomputed in double precision
+     */
+    long getNDoublePrecisionComputations() {
+        return nDoublePrecisionComputations;
+    }
+}
@@ -102,28 +102,49 @@ public class GenotypeLikelihoodCalculatorUnitTest {
         final int genotypeCount = calculator.genotypeCount();
         final int testGenotypeCount = Math.min(30000,genotypeCount);
         final int sampleCount = readCount.length;
-        for (int s = 0; s < sampleCount ; s++) {
-            final ReadLikelihoods.Matrix<Allele> sampleLikelihoods = readLikelihoods.sampleMatrix(s);
-            final GenotypeLikelihoods genotypeLikelihoods = calculator.genotypeLikelihoods(sampleLikelihoods);
-            final double[] genotypeLikelihoodsDoubles = genotypeLikelihoods.getAsVector();
-            Assert.assertEquals(genotypeLikelihoodsDoubles.length,genotypeCount);
-            for (int i = 0; i < testGenotypeCount; i++) {
-                final GenotypeAlleleCounts genotypeAlleleCounts = calculator.genotypeAlleleCountsAt(i);
-                Assert.assertNotNull(genotypeLikelihoods);
-                final double[] readGenotypeLikelihoods = new double[sampleLikelihoods.readCount()];
-                for (int r = 0; r < sampleLikelihoods.readCount(); r++) {
-                    final double[] compoments = new double[genotypeAlleleCounts.distinctAlleleCount()];
-                    for (int ar = 0; ar < genotypeAlleleCounts.distinctAlleleCount(); ar++) {
-                        final int a = genotypeAlleleCounts.alleleIndexAt(ar);
-                        final int aCount = genotypeAlleleCounts.alleleCountAt(ar);
-                        final double readLk = sampleLikelihoods.get(a, r);
-                        compoments[ar] = readLk + Math.log10(aCount);
-                    }
-                    readGenotypeLikelihoods[r] = MathUtils.approximateLog10SumLog10(compoments) - Math.log10(ploidy);
+        for (int s = 0; s < sampleCount ; s++)
+            assertGenotypeLikelihoods(calculator, readLikelihoods.sampleMatrix(s), ploidy, genotypeCount, testGenotypeCount);
+    }
+
+    @Test(dataProvider = "ploidyAndMaximumAlleleData", dependsOnMethods = "testPloidyAndMaximumAllele")
+    public void testLikelihoodCalculationWithIdenticalReads(final int ploidy, final int alleleCount) {
+        final int readCount = 50;
+        final ReadLikelihoods<Allele> readLikelihoods = ReadLikelihoodsUnitTester.readLikelihoods(alleleCount, new int[] { readCount });
+        final ReadLikelihoods.Matrix<Allele> sampleLikelihoods = readLikelihoods.sampleMatrix(0);
+        // make every third read a copy of a previous read, and give a few others the same likelihood for all alleles.
+        for (int r = 3; r < readCount; r += 3)
+            for (int a = 0; a < alleleCount; a++)
+                sampleLikelihoods.set(a, r, sampleLikelihoods.get(a, r / 3));
+        for (int r = 1; r < readCount; r += 7)
+            for (int a = 0; a < alleleCount; a++)
+                sampleLikelihoods.set(a, r, -2.0);
+
+        final GenotypeLikelihoodCalculator calculator = GenotypeLikelihoodCalculators.getInstance(ploidy, alleleCount);
+        final int genotypeCount = calculator.genotypeCount();
+        assertGenotypeLikelihoods(calculator, sampleLikelihoods, ploidy, genotypeCount, Math.min(30000, genotypeCount));
+    }
+
+    private void assertGenotypeLikelihoods(final GenotypeLikelihoodCalculator calculator, final ReadLikelihoods.Matrix<Allele> sampleLikelihoods,
+                                           final int ploidy, final int genotypeCount, final int testGenotypeCount) {
+        final GenotypeLikelihoods genotypeLikelihoods = calculator.genotypeLikelihoods(sampleLikelihoods);
+        final double[] genotypeLikelihoodsDoubles = genotypeLikelihoods.getAsVector();
+        Assert.assertEquals(genotypeLikelihoodsDoubles.length,genotypeCount);
+        for (int i = 0; i < testGenotypeCount; i++) {
+            final GenotypeAlleleCounts genotypeAlleleCounts = calculator.genotypeAlleleCountsAt(i);
+            Assert.assertNotNull(genotypeLikelihoods);
+            final double[] readGenotypeLikelihoods = new double[sampleLikelihoods.readCount()];
+            for (int r = 0; r < sampleLikelihoods.readCount(); r++) {
+                final double[] compoments = new double[genotypeAlleleCounts.distinctAlleleCount()];
+                for (int ar = 0; ar < genotypeAlleleCounts.distinctAlleleCount(); ar++) {
+                    final int a = genotypeAlleleCounts.alleleIndexAt(ar);
+                    final int aCount = genotypeAlleleCounts.alleleCountAt(ar);
+                    final double readLk = sampleLikelihoods.get(a, r);
+                    compoments[ar] = readLk + Math.log10(aCount);
                 }
-                final double genotypeLikelihood = MathUtils.sum(readGenotypeLikelihoods);
-                Assert.assertEquals(genotypeLikelihoodsDoubles[i], genotypeLikelihood, 0.0001);
+                readGenotypeLikelihoods[r] = MathUtils.approximateLog10SumLog10(compoments) - Math.log10(ploidy);
             }
+            final double genotypeLikelihood = MathUtils.sum(readGenotypeLikelihoods);
+            Assert.assertEquals(genotypeLikelihoodsDoubles[i], genotypeLikelihood, 0.0001);
         }
     }
 
@@ -120,6 +120,34 @@ public class VariantContextMergerUnitTest  extends BaseTest {
         }
     }
 
+    @Test(dataProvider = "referenceConfidenceMergeData")
+    public void testMayHaveAlternateAlleles(final String testID, final List<VariantContext> toMerge, final GenomeLoc loc,
+                                            final boolean returnSiteEvenIfMonomorphic, final boolean uniquifySamples, final VariantContext expectedResult) {
+        // it's fine to be wrong about there being alternate alleles, but never about there being none
+        if ( ! ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(toMerge, loc) ) {
+            final VariantContext result = ReferenceConfidenceVariantContextMerger.merge(toMerge, loc, returnSiteEvenIfMonomorphic ? (byte) 'A' : null, true, uniquifySamples, null);
+            Assert.assertTrue(result == null || result.getAlternateAlleles().isEmpty(), testID);
+        }
+    }
+
+    @Test
+    public void testMayHaveAlternateAllelesAtReferenceBlocks() {
+        final int start = 10;
+        final GenomeLoc loc = new UnvalidatingGenomeLoc("20", 0, start, start);
+        final List<Allele> refBlockAlleles = Arrays.asList(Aref, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE);
+        final VariantContext startingRefBlock = new VariantContextBuilder("test", "20", start, start + 10, refBlockAlleles).make();
+        final VariantContext spanningRefBlock = new VariantContextBuilder("test", "20", start - 5, start + 5, refBlockAlleles).make();
+        final VariantContext startingSNP = new VariantContextBuilder("test", "20", start, start, Arrays.asList(Aref, C, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE)).make();
+        final VariantContext spanningDeletion = new VariantContextBuilder("test", "20", start - 1, start, Arrays.asList(ATref, Anoref, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE)).make();
+
+        Assert.assertFalse(ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(null, loc));
+        Assert.assertFalse(ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(Collections.<VariantContext>emptyList(), loc));
+        Assert.assertFalse(ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(Arrays.asList(startingRefBlock, spanningRefBlock), loc));
+        Assert.assertFalse(ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(Arrays.asList(spanningRefBlock, spanningDeletion), loc));
+        Assert.assertTrue(ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(Arrays.asList(startingRefBlock, startingSNP), loc));
+        Assert.assertTrue(ReferenceConfidenceVariantContextMerger.mayHaveAlternateAlleles(Arrays.asList(spanningDeletion, startingSNP), loc));
+    }
+
     @Test
     public void testGenerateADWithNewAlleles() {
 
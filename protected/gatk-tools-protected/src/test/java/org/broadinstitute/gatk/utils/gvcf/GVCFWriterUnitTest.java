@@ -375,6 +375,63 @@ public class GVCFWriterUnitTest extends BaseTest {
         assertGoodVC(mockWriter.emitted.get(2), "20", 4, 7, false);
     }
 
+    @Test
+    public void testReferenceConfidenceRecordsMatchVariantContexts() {
+        final ReferenceConfidenceRecords records = new ReferenceConfidenceRecords("test", SAMPLE_NAME, HomoSapiensConstants.DEFAULT_PLOIDY, 2);
+        final int[] GQs = {0, 0, 15, 15, 15, 50, 0, 0, 0, 50, 50, 50};
+        for ( int i = 0; i < GQs.length; i++ ) {
+            final int pos = i + 1;
+            if ( pos == 8 )
+                records.add(makeDeletion("20", pos, 3));
+            else
+                records.addReferenceSite("20", pos, (byte)'N', new int[]{pos, 0}, pos, GQs[i], new int[]{0, GQs[i] + pos, 100 + pos});
+        }
+        Assert.assertEquals(records.size(), GQs.length);
+        Assert.assertFalse(records.isReferenceSite(7));
+        Assert.assertEquals(records.get(0).getGenotype(0).getGQ(), 0);
+        Assert.assertTrue(Arrays.equals(records.get(0).getGenotype(0).getPL(), new int[]{0, 1, 101}));
+
+        // the primitive path must emit exactly what adding the records one VariantContext at a time does
+        final MockWriter fromValues = new MockWriter();
+        final GVCFWriter valuesWriter = new GVCFWriter(fromValues, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+        valuesWriter.addAll(records);
+        valuesWriter.close();
+
+        final GVCFWriter vcWriter = new GVCFWriter(mockWriter, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+        for ( final VariantContext vc : records )
+            vcWriter.add(vc);
+        vcWriter.close();
+
+        Assert.assertEquals(fromValues.emitted.size(), 6);
+        Assert.assertEquals(fromValues.emitted.size(), mockWriter.emitted.size());
+        for ( int i = 0; i < fromValues.emitted.size(); i++ ) {
+            final VariantContext actual = fromValues.emitted.get(i);
+            final VariantContext expected = mockWriter.emitted.get(i);
+            Assert.assertEquals(actual.getChr(), expected.getChr());
+            Assert.assertEquals(actual.getStart(), expected.getStart());
+            Assert.assertEquals(actual.getEnd(), expected.getEnd());
+            Assert.assertEquals(actual.getAlleles(), expected.getAlleles());
+            Assert.assertEquals(actual.getAttributes(), expected.getAttributes());
+            final Genotype actualGenotype = actual.getGenotype(0);
+            final Genotype expectedGenotype = expected.getGenotype(0);
+            Assert.assertEquals(actualGenotype.getAlleles(), expectedGenotype.getAlleles());
+            Assert.assertEquals(actualGenotype.getGQ(), expectedGenotype.getGQ());
+            Assert.assertEquals(actualGenotype.getDP(), expectedGenotype.getDP());
+            Assert.assertTrue(Arrays.equals(actualGenotype.getPL(), expectedGenotype.getPL()));
+            Assert.assertEquals(actualGenotype.getExtendedAttributes(), expectedGenotype.getExtendedAttributes());
+        }
+        assertGoodVC(fromValues.emitted.get(0), "20", 1, 2, false);
+        assertGoodVC(fromValues.emitted.get(1), "20", 3, 5, false);
+        assertGoodVC(fromValues.emitted.get(2), "20", 6, 6, false);
+        assertGoodVC(fromValues.emitted.get(3), "20", 7, 7, false);
+        assertGoodVC(fromValues.emitted.get(4), "20", 8, 10, true);
+        assertGoodVC(fromValues.emitted.get(5), "20", 11, 12, false);
+        // the PLs of a band are the minimum of its sites, and aren't changed by the bands that reuse its storage
+        Assert.assertTrue(Arrays.equals(fromValues.emitted.get(0).getGenotype(0).getPL(), new int[]{0, 1, 101}));
+        Assert.assertTrue(Arrays.equals(fromValues.emitted.get(1).getGenotype(0).getPL(), new int[]{0, 18, 103}));
+        Assert.assertTrue(Arrays.equals(fromValues.emitted.get(5).getGenotype(0).getPL(), new int[]{0, 61, 111}));
+    }
+
     @DataProvider(name = "BandPartitionData")
     public Object[][] makeBandPartitionData() {
         List<Object[]> tests = new ArrayList<>();
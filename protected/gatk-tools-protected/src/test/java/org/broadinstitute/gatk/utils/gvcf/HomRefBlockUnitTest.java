@@ -131,6 +131,34 @@ public class HomRefBlockUnitTest extends BaseTest {
         assertValues(band, 1000, 1000, 99, 99);
     }
 
+    @Test
+    public void testReset() {
+        final HomRefBlock band = new HomRefBlock(vc, 10, 20, HomoSapiensConstants.DEFAULT_PLOIDY);
+        band.add(vc.getStart(), 11, 5, new int[]{0,11,100});
+        band.add(vc.getStart() + 1, 12, 7, new int[]{0,12,90});
+        assertValues(band, 5, 7, 11, 12);
+
+        final Allele ref = Allele.create("G", true);
+        band.reset("21", 100, ref, HomoSapiensConstants.DEFAULT_PLOIDY, 20, 30);
+        Assert.assertNull(band.getStartingVC());
+        Assert.assertNull(band.getMinPLs());
+        Assert.assertEquals(band.getContig(), "21");
+        Assert.assertEquals(band.getStart(), 100);
+        Assert.assertEquals(band.getRef(), ref);
+        Assert.assertEquals(band.getGQLowerBound(), 20);
+        Assert.assertEquals(band.getGQUpperBound(), 30);
+        Assert.assertTrue(band.isContiguous("21", 100));
+
+        final int[] PLs = {0,25,50};
+        band.add(100, 25, 3, PLs);
+        Assert.assertEquals(band.getSize(), 1);
+        assertValues(band, 3, 3, 25, 25);
+        Assert.assertTrue(Arrays.equals(band.getMinPLs(), PLs));
+        band.add(101, 22, 4, new int[]{0,22,60});
+        Assert.assertTrue(Arrays.equals(band.getMinPLs(), new int[]{0,22,50}));
+        Assert.assertTrue(Arrays.equals(PLs, new int[]{0,25,50}), "the PLs of the first site were modified");
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testBadAdd() {
         final HomRefBlock band = new HomRefBlock(vc, 10, 20, HomoSapiensConstants.DEFAULT_PLOIDY);
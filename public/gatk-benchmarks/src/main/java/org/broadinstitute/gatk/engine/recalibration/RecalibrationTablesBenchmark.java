@@ -0,0 +1,131 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.recalibration;
+
+import org.broadinstitute.gatk.engine.recalibration.covariates.*;
+import org.broadinstitute.gatk.utils.collections.NestedIntegerArray;
+import org.broadinstitute.gatk.utils.recalibration.EventType;
+import org.broadinstitute.gatk.utils.sam.ArtificialBAMBuilder;
+import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
+import org.broadinstitute.gatk.utils.sam.SyntheticReadGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the BQSR inner loop: computing the standard covariates of a read and
+ * updating the NestedIntegerArray recalibration tables with RecalUtils.incrementDatumOrPutIfNecessary,
+ * in the same way as the BaseRecalibrator's RecalibrationEngine
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RecalibrationTablesBenchmark {
+    @Param({"1000"})
+    int nReads;
+
+    @Param({"101"})
+    int readLength;
+
+    @Param({"1", "8"})
+    int nReadGroups;
+
+    private Covariate[] covariates;
+    private List<GATKSAMRecord> reads;
+    private int[][][][] keys;
+    private double[][] isError;
+    private RecalibrationTables tables;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final RecalibrationArgumentCollection RAC = new RecalibrationArgumentCollection();
+        covariates = new Covariate[]{ new ReadGroupCovariate(), new QualityScoreCovariate(), new ContextCovariate(), new CycleCovariate() };
+        for ( final Covariate covariate : covariates )
+            covariate.initialize(RAC);
+
+        final ArtificialBAMBuilder builder = new ArtificialBAMBuilder(1, nReads / nReadGroups).createAndSetHeader(nReadGroups).setReadLength(readLength);
+        final SyntheticReadGenerator generator = new SyntheticReadGenerator();
+        reads = generator.makeReads(builder, generator.randomBases(builder.getAlignmentEnd()), 0.0);
+
+        final Random random = generator.getRandom();
+        keys = new int[reads.size()][EventType.values().length][][];
+        isError = new double[reads.size()][readLength];
+        for ( int i = 0; i < reads.size(); i++ ) {
+            // ReadCovariates recycles its key arrays per read length, so keep our own copy of each read's keys
+            final ReadCovariates readCovariates = RecalUtils.computeCovariates(reads.get(i), covariates);
+            for ( final EventType eventType : EventType.values() ) {
+                final int[][] eventKeys = readCovariates.getKeySet(eventType);
+                keys[i][eventType.ordinal()] = new int[readLength][];
+                for ( int offset = 0; offset < readLength; offset++ )
+                    keys[i][eventType.ordinal()][offset] = eventKeys[offset].clone();
+            }
+            for ( int offset = 0; offset < readLength; offset++ )
+                isError[i][offset] = random.nextDouble() < 0.01 ? 1.0 : 0.0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void makeTables() {
+        tables = new RecalibrationTables(covariates, nReadGroups);
+    }
+
+    @Benchmark
+    public ReadCovariates computeCovariates() {
+        final ReadCovariates results = new ReadCovariates(readLength, covariates.length);
+        for ( final GATKSAMRecord read : reads )
+            RecalUtils.computeCovariates(read, covariates, results);
+        return results;
+    }
+
+    @Benchmark
+    public RecalibrationTables updateTables() {
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = tables.getQualityScoreTable();
+        for ( int r = 0; r < reads.size(); r++ ) {
+            final GATKSAMRecord read = reads.get(r);
+            for ( final EventType eventType : EventType.values() ) {
+                final byte[] quals = read.getBaseQualities(eventType);
+                final int eventIndex = eventType.ordinal();
+                for ( int offset = 0; offset < readLength; offset++ ) {
+                    final int[] readKeys = keys[r][eventIndex][offset];
+                    final double error = eventType == EventType.BASE_SUBSTITUTION ? isError[r][offset] : 0.0;
+
+                    RecalUtils.incrementDatumOrPutIfNecessary(qualityScoreTable, quals[offset], error, readKeys[0], readKeys[1], eventIndex);
+                    for ( int i = 2; i < covariates.length; i++ ) {
+                        if ( readKeys[i] < 0 )
+                            continue;
+                        RecalUtils.incrementDatumOrPutIfNecessary(tables.getTable(i), quals[offset], error, readKeys[0], readKeys[1], readKeys[i], eventIndex);
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+}
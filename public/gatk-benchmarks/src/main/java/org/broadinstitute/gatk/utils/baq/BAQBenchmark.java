@@ -0,0 +1,90 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.baq;
+
+import org.broadinstitute.gatk.utils.sam.ArtificialBAMBuilder;
+import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
+import org.broadinstitute.gatk.utils.sam.SyntheticReadGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the BAQ HMM.  The padded reference window of each read is cut out during
+ * setup so only the HMM and the quality capping are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BAQBenchmark {
+    @Param({"101", "250"})
+    int readLength;
+
+    @Param({"100"})
+    int nReads;
+
+    @Param({"0.01", "0.05"})
+    double errorRate;
+
+    private BAQ baq;
+    private List<GATKSAMRecord> reads;
+    private byte[][] refWindows;
+    private int[] refOffsets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        baq = new BAQ();
+        final int pad = baq.getBandWidth() / 2;
+        final ArtificialBAMBuilder builder = new ArtificialBAMBuilder(1, nReads).setReadLength(readLength).setAlignmentStart(pad + 1);
+        final SyntheticReadGenerator generator = new SyntheticReadGenerator();
+        final byte[] ref = generator.randomBases(builder.getAlignmentEnd() + pad);
+        reads = generator.makeReads(builder, ref, errorRate);
+
+        refWindows = new byte[reads.size()][];
+        refOffsets = new int[reads.size()];
+        for ( int i = 0; i < reads.size(); i++ ) {
+            final GATKSAMRecord read = reads.get(i);
+            final int start = read.getAlignmentStart() - pad;
+            refWindows[i] = Arrays.copyOfRange(ref, start - 1, read.getAlignmentEnd() + pad);
+            refOffsets[i] = start - read.getAlignmentStart();
+        }
+    }
+
+    @Benchmark
+    public long calcBAQ() {
+        long sum = 0;
+        for ( int i = 0; i < reads.size(); i++ ) {
+            final BAQ.BAQCalculationResult result = baq.calcBAQFromHMM(reads.get(i), refWindows[i], refOffsets[i]);
+            sum += result.bq[0];
+        }
+        return sum;
+    }
+}
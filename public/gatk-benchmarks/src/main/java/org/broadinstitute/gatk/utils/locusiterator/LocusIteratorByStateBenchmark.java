@@ -0,0 +1,111 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.locusiterator;
+
+import org.broadinstitute.gatk.utils.contexts.AlignmentContext;
+import org.broadinstitute.gatk.utils.sam.ArtificialBAMBuilder;
+import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
+import org.broadinstitute.gatk.utils.sam.SyntheticReadGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of building pileups with LocusIteratorByState over reads from an ArtificialBAMBuilder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LocusIteratorByStateBenchmark {
+    @Param({"1", "10"})
+    int nReadsPerLocus;
+
+    @Param({"1000"})
+    int nLoci;
+
+    @Param({"1", "4"})
+    int nSamples;
+
+    @Param({"101"})
+    int readLength;
+
+    private ArtificialBAMBuilder builder;
+    private List<GATKSAMRecord> reads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        builder = new ArtificialBAMBuilder(nReadsPerLocus, nLoci).createAndSetHeader(nSamples).setReadLength(readLength);
+        final SyntheticReadGenerator generator = new SyntheticReadGenerator();
+        reads = generator.makeReads(builder, generator.randomBases(builder.getAlignmentEnd()), 0.01);
+    }
+
+    @Benchmark
+    public long pileups() {
+        final LocusIteratorByState libs = new LocusIteratorByState(reads.iterator(),
+                null, true, false,
+                builder.getGenomeLocParser(),
+                builder.getSamples());
+
+        long nElements = 0;
+        while ( libs.hasNext() ) {
+            final AlignmentContext context = libs.next();
+            nElements += context.getBasePileup().getNumberOfElements();
+        }
+        return nElements;
+    }
+
+    @Benchmark
+    public long columnarPileups() {
+        final LocusIteratorByState libs = new LocusIteratorByState(reads.iterator(),
+                null, true, false,
+                builder.getGenomeLocParser(),
+                builder.getSamples(),
+                true);
+
+        long nElements = 0;
+        while ( libs.hasNext() ) {
+            final AlignmentContext context = libs.next();
+            nElements += context.getColumnarPileup().size();
+            context.releaseColumnarPileup();
+        }
+        return nElements;
+    }
+
+    @Benchmark
+    public long alignmentStateMachine() {
+        long nSteps = 0;
+        for ( final GATKSAMRecord read : reads ) {
+            final AlignmentStateMachine alignmentStateMachine = new AlignmentStateMachine(read);
+            while ( alignmentStateMachine.stepForwardOnGenome() != null )
+                nSteps++;
+        }
+        return nSteps;
+    }
+}
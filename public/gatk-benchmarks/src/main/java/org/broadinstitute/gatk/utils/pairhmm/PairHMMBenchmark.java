@@ -0,0 +1,127 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.pairhmm;
+
+import org.broadinstitute.gatk.utils.BaseUtils;
+import org.broadinstitute.gatk.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.gatk.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.gatk.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.gatk.utils.haplotype.Haplotype;
+import org.broadinstitute.gatk.utils.sam.ArtificialSAMUtils;
+import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
+import org.broadinstitute.gatk.utils.sam.SyntheticReadGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of PairHMM implementations, driven through computeLikelihoods() as the
+ * HaplotypeCaller likelihood engine does: one active region worth of haplotypes against one
+ * sample's reads.
+ *
+ * Subclasses choose the implementations to measure by declaring a {@code @Param} and
+ * implementing {@link #makePairHMM()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public abstract class PairHMMBenchmark {
+    protected final static byte GAP_CONTINUATION_PENALTY = 10;
+
+    @Param({"101", "250"})
+    int readLength;
+
+    @Param({"300"})
+    int haplotypeLength;
+
+    @Param({"4", "16"})
+    int nHaplotypes;
+
+    @Param({"64"})
+    int nReads;
+
+    private PairHMM hmm;
+    private ReadLikelihoods<Haplotype> likelihoods;
+    private List<GATKSAMRecord> reads;
+    private Map<GATKSAMRecord, byte[]> gcp;
+
+    /**
+     * @return a new instance of the PairHMM implementation being measured
+     */
+    protected abstract PairHMM makePairHMM();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticReadGenerator generator = new SyntheticReadGenerator();
+        final Random random = generator.getRandom();
+
+        final byte[] ref = generator.randomBases(haplotypeLength);
+        final List<Haplotype> haplotypes = new ArrayList<Haplotype>(nHaplotypes);
+        haplotypes.add(new Haplotype(ref, true));
+        for ( int i = 1; i < nHaplotypes; i++ ) {
+            // a distinct SNP per haplotype keeps them unique
+            final byte[] alt = ref.clone();
+            final int pos = (i * 7919) % haplotypeLength;
+            alt[pos] = BaseUtils.baseIndexToSimpleBase((BaseUtils.simpleBaseToBaseIndex(alt[pos]) + 1) % 4);
+            haplotypes.add(new Haplotype(alt, false));
+        }
+
+        reads = new ArrayList<GATKSAMRecord>(nReads);
+        gcp = new HashMap<GATKSAMRecord, byte[]>(nReads);
+        final byte[] overallGCP = new byte[readLength];
+        Arrays.fill(overallGCP, GAP_CONTINUATION_PENALTY);
+        for ( int i = 0; i < nReads; i++ ) {
+            final byte[] source = haplotypes.get(random.nextInt(nHaplotypes)).getBases();
+            final int start = random.nextInt(Math.max(1, source.length - readLength + 1));
+            final byte[] bases = generator.mutate(Arrays.copyOfRange(source, start, start + readLength), 0.01);
+            final GATKSAMRecord read = ArtificialSAMUtils.createArtificialRead(bases, generator.randomQuals(readLength, 10, 40), readLength + "M");
+            read.setReadName("read" + i);
+            reads.add(read);
+            gcp.put(read, overallGCP);
+        }
+
+        final Map<String, List<GATKSAMRecord>> sampleToReads = Collections.singletonMap("sample", reads);
+        likelihoods = new ReadLikelihoods<Haplotype>(new IndexedSampleList("sample"), new IndexedAlleleList<Haplotype>(haplotypes), sampleToReads);
+
+        hmm = makePairHMM();
+        hmm.initialize(haplotypes, sampleToReads, readLength, haplotypeLength);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hmm.close();
+    }
+
+    @Benchmark
+    public double[] computeLikelihoods() {
+        hmm.computeLikelihoods(likelihoods.sampleMatrix(0), reads, gcp);
+        return hmm.getLikelihoodArray();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.sam;
+
+import org.broadinstitute.gatk.utils.BaseUtils;
+import org.broadinstitute.gatk.utils.QualityUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic source of synthetic sequence, qualities and reads for the JMH benchmarks.
+ *
+ * Reads are laid out by an {@link ArtificialBAMBuilder} and then given bases drawn from a
+ * synthetic reference, with substitution errors and random base qualities, so that the code
+ * under test sees realistic mismatches rather than the all-'A' reads of {@link ArtificialSAMUtils}.
+ * The same seed always produces the same data, which keeps runs of a benchmark comparable.
+ */
+public final class SyntheticReadGenerator {
+    public final static long DEFAULT_SEED = 47382911L;
+
+    private final Random random;
+
+    public SyntheticReadGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public SyntheticReadGenerator(final long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @return the random generator backing this generator, for benchmarks that need extra draws
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Create a random sequence of A, C, G and T
+     *
+     * @param length the number of bases, must be >= 0
+     * @return a newly allocated array of bases
+     */
+    public byte[] randomBases(final int length) {
+        if ( length < 0 ) throw new IllegalArgumentException("length must be >= 0 but got " + length);
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ )
+            bases[i] = BaseUtils.baseIndexToSimpleBase(random.nextInt(4));
+        return bases;
+    }
+
+    /**
+     * Create random base qualities uniformly distributed in [minQual, maxQual]
+     *
+     * @param length the number of qualities, must be >= 0
+     * @param minQual the smallest quality to emit
+     * @param maxQual the largest quality to emit, must be >= minQual
+     * @return a newly allocated array of qualities
+     */
+    public byte[] randomQuals(final int length, final int minQual, final int maxQual) {
+        if ( length < 0 ) throw new IllegalArgumentException("length must be >= 0 but got " + length);
+        if ( minQual < 0 || maxQual < minQual || maxQual > QualityUtils.MAX_SAM_QUAL_SCORE )
+            throw new IllegalArgumentException("Bad quality range [" + minQual + ", " + maxQual + "]");
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ )
+            quals[i] = (byte)(minQual + random.nextInt(maxQual - minQual + 1));
+        return quals;
+    }
+
+    /**
+     * Copy bases, replacing each base by a different one with probability substitutionRate
+     *
+     * @param bases the bases to copy
+     * @param substitutionRate the per base probability of a substitution, in [0, 1]
+     * @return a newly allocated array of bases
+     */
+    public byte[] mutate(final byte[] bases, final double substitutionRate) {
+        if ( bases == null ) throw new IllegalArgumentException("bases cannot be null");
+        if ( substitutionRate < 0.0 || substitutionRate > 1.0 ) throw new IllegalArgumentException("substitutionRate must be in [0, 1] but got " + substitutionRate);
+        final byte[] mutated = bases.clone();
+        for ( int i = 0; i < mutated.length; i++ ) {
+            if ( random.nextDouble() < substitutionRate ) {
+                final int original = BaseUtils.simpleBaseToBaseIndex(mutated[i]);
+                final int offset = 1 + random.nextInt(3);
+                mutated[i] = BaseUtils.baseIndexToSimpleBase(original == -1 ? offset : (original + offset) % 4);
+            }
+        }
+        return mutated;
+    }
+
+    /**
+     * Make the reads laid out by builder, with bases copied from reference at each read's alignment
+     * start, substitution errors at errorRate and random base qualities between 10 and 40
+     *
+     * @param builder lays out the reads (number of loci, reads per locus, read length, samples)
+     * @param reference the bases of the first contig, starting at position 1
+     * @param errorRate the per base substitution error rate
+     * @return a coordinate sorted list of reads
+     */
+    public List<GATKSAMRecord> makeReads(final ArtificialBAMBuilder builder, final byte[] reference, final double errorRate) {
+        if ( builder == null ) throw new IllegalArgumentException("builder cannot be null");
+        if ( reference == null ) throw new IllegalArgumentException("reference cannot be null");
+        if ( reference.length < builder.getAlignmentEnd() )
+            throw new IllegalArgumentException("reference of length " + reference.length + " does not cover reads ending at " + builder.getAlignmentEnd());
+
+        final List<GATKSAMRecord> reads = new ArrayList<GATKSAMRecord>(builder.expectedNumberOfReads());
+        for ( final GATKSAMRecord template : builder.makeReads() ) {
+            final GATKSAMRecord read = (GATKSAMRecord)template.clone();
+            final int start = read.getAlignmentStart() - 1;
+            final byte[] bases = new byte[read.getReadLength()];
+            System.arraycopy(reference, start, bases, 0, bases.length);
+            read.setReadBases(mutate(bases, errorRate));
+            read.setBaseQualities(randomQuals(bases.length, 10, 40));
+            reads.add(read);
+        }
+        return reads;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.smithwaterman;
+
+import htsjdk.samtools.Cigar;
+import org.broadinstitute.gatk.utils.sam.SyntheticReadGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of SWPairwiseAlignment, aligning a haplotype carrying SNPs, an insertion
+ * and a deletion back to its reference
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SWPairwiseAlignmentBenchmark {
+    @Param({"100", "300", "1000"})
+    int refLength;
+
+    @Param({"10"})
+    int indelLength;
+
+    @Param({"ORIGINAL_DEFAULT", "STANDARD_NGS"})
+    SWParameterSet parameterSet;
+
+    @Param({"SOFTCLIP", "INDEL"})
+    SWPairwiseAlignment.OVERHANG_STRATEGY overhangStrategy;
+
+    private byte[] ref;
+    private byte[] alt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticReadGenerator generator = new SyntheticReadGenerator();
+        ref = generator.randomBases(refLength);
+
+        // SNPs throughout, an insertion at a third and a deletion at two thirds of the reference
+        final byte[] snps = generator.mutate(ref, 0.01);
+        final int insertAt = refLength / 3;
+        final int deleteAt = 2 * refLength / 3;
+        final byte[] insertion = generator.randomBases(indelLength);
+        final int deletion = Math.min(indelLength, refLength - deleteAt);
+
+        alt = new byte[refLength + insertion.length - deletion];
+        int j = 0;
+        for ( int i = 0; i < refLength; i++ ) {
+            if ( i == insertAt ) {
+                System.arraycopy(insertion, 0, alt, j, insertion.length);
+                j += insertion.length;
+            }
+            if ( i >= deleteAt && i < deleteAt + deletion )
+                continue;
+            alt[j++] = snps[i];
+        }
+    }
+
+    @Benchmark
+    public Cigar align() {
+        return new SWPairwiseAlignment(ref, alt, parameterSet, overhangStrategy).getCigar();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.variant;
+
+import htsjdk.variant.variantcontext.*;
+import htsjdk.variant.vcf.*;
+import org.broadinstitute.gatk.utils.BaseUtils;
+import org.broadinstitute.gatk.utils.sam.SyntheticReadGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of encoding VariantContexts to VCF text and decoding them back, for synthetic
+ * bi-allelic SNP sites carrying GT:AD:DP:GQ:PL genotypes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VCFCodecBenchmark {
+    @Param({"1000"})
+    int nSites;
+
+    @Param({"1", "100"})
+    int nSamples;
+
+    private VCFHeader header;
+    private List<VariantContext> sites;
+    private List<String> lines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Set<VCFHeaderLine> headerLines = new LinkedHashSet<VCFHeaderLine>();
+        VCFStandardHeaderLines.addStandardFormatLines(headerLines, true,
+                VCFConstants.GENOTYPE_KEY, VCFConstants.GENOTYPE_ALLELE_DEPTHS, VCFConstants.DEPTH_KEY,
+                VCFConstants.GENOTYPE_QUALITY_KEY, VCFConstants.GENOTYPE_PL_KEY);
+        VCFStandardHeaderLines.addStandardInfoLines(headerLines, true,
+                VCFConstants.ALLELE_COUNT_KEY, VCFConstants.ALLELE_FREQUENCY_KEY, VCFConstants.ALLELE_NUMBER_KEY, VCFConstants.DEPTH_KEY);
+        final List<String> samples = new ArrayList<String>(nSamples);
+        for ( int i = 0; i < nSamples; i++ )
+            samples.add("sample" + i);
+        header = new VCFHeader(headerLines, samples);
+
+        final Random random = new SyntheticReadGenerator().getRandom();
+        sites = new ArrayList<VariantContext>(nSites);
+        for ( int i = 0; i < nSites; i++ ) {
+            final int refIndex = random.nextInt(4);
+            final Allele ref = Allele.create(BaseUtils.baseIndexToSimpleBase(refIndex), true);
+            final Allele alt = Allele.create(BaseUtils.baseIndexToSimpleBase((refIndex + 1 + random.nextInt(3)) % 4), false);
+            final List<Allele> alleles = Arrays.asList(ref, alt);
+
+            final List<Genotype> genotypes = new ArrayList<Genotype>(nSamples);
+            int totalDepth = 0;
+            int altCount = 0;
+            for ( final String sample : samples ) {
+                final int nAlt = random.nextInt(3);
+                final int refDepth = random.nextInt(30);
+                final int altDepth = nAlt == 0 ? 0 : random.nextInt(30);
+                final int[] pls = new int[]{ random.nextInt(500), random.nextInt(500), random.nextInt(500) };
+                pls[nAlt] = 0;
+                genotypes.add(new GenotypeBuilder(sample, Arrays.asList(nAlt == 2 ? alt : ref, nAlt == 0 ? ref : alt))
+                        .AD(new int[]{refDepth, altDepth}).DP(refDepth + altDepth).GQ(Math.min(99, random.nextInt(100))).PL(pls).make());
+                totalDepth += refDepth + altDepth;
+                altCount += nAlt;
+            }
+
+            sites.add(new VariantContextBuilder("synthetic", "1", 100 + 10 * i, 100 + 10 * i, alleles)
+                    .genotypes(genotypes)
+                    .log10PError(-random.nextInt(1000) / 10.0)
+                    .attribute(VCFConstants.ALLELE_COUNT_KEY, altCount)
+                    .attribute(VCFConstants.ALLELE_NUMBER_KEY, 2 * nSamples)
+                    .attribute(VCFConstants.ALLELE_FREQUENCY_KEY, altCount / (2.0 * nSamples))
+                    .attribute(VCFConstants.DEPTH_KEY, totalDepth)
+                    .make());
+        }
+
+        lines = new ArrayList<String>(nSites);
+        final VCFEncoder encoder = new VCFEncoder(header, false, false);
+        for ( final VariantContext vc : sites )
+            lines.add(encoder.encode(vc));
+    }
+
+    @Benchmark
+    public long encode() {
+        final VCFEncoder encoder = new VCFEncoder(header, false, false);
+        long nChars = 0;
+        for ( final VariantContext vc : sites )
+            nChars += encoder.encode(vc).length();
+        return nChars;
+    }
+
+    @Benchmark
+    public long decode() {
+        final VCFCodec codec = new VCFCodec();
+        codec.setVCFHeader(header, VCFHeaderVersion.VCF4_2);
+        long nGenotypes = 0;
+        for ( final String line : lines ) {
+            // genotypes are decoded lazily, so ask for them to include their parsing
+            nGenotypes += codec.decode(line).getGenotypes().size();
+        }
+        return nGenotypes;
+    }
+}
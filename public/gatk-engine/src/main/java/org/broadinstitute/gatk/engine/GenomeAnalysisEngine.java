@@ -69,6 +69,7 @@ import org.broadinstitute.gatk.utils.progressmeter.ProgressMeter;
 import org.broadinstitute.gatk.engine.recalibration.BQSRArgumentSet;
 import org.broadinstitute.gatk.utils.sam.ReadUtils;
 import org.broadinstitute.gatk.utils.sam.SAMReaderID;
+import org.broadinstitute.gatk.utils.smithwaterman.SWImplementation;
 import org.broadinstitute.gatk.utils.text.XReadLines;
 import org.broadinstitute.gatk.utils.threading.ThreadEfficiencyMonitor;
 
@@ -268,6 +269,9 @@ public class GenomeAnalysisEngine {
         if (args.nonDeterministicRandomSeed)
             Utils.resetRandomGenerator(System.currentTimeMillis());
 
+        // choose how all of the Smith-Waterman alignments in this run are computed
+        SWImplementation.setDefaultImplementation(args.smithWatermanImplementation);
+
         // if the use specified an input BQSR recalibration table then enable on the fly recalibration
         if (args.BQSR_RECAL_FILE != null) {
             if (args.BQSR_RECAL_FILE.exists()) {
@@ -407,6 +411,19 @@ public class GenomeAnalysisEngine {
         }
 
         setReadTransformers(activeTransformers);
+
+        // read traversals can apply the transformers at the end of the input chain in parallel in their map
+        // function, as long as those are thread-safe; the order of the transformers has to stay the same
+        if ( walker instanceof ReadWalker ) {
+            for ( int i = readTransformers.size() - 1; i >= 0; i-- ) {
+                final ReadTransformer transformer = readTransformers.get(i);
+                if ( transformer.getApplicationTime() != ReadTransformer.ApplicationTime.ON_INPUT )
+                    continue;
+                if ( ! transformer.isThreadSafe() )
+                    break;
+                transformer.moveIntoMap();
+            }
+        }
     }
 
     public List<ReadTransformer> getReadTransformers() {
@@ -811,7 +828,7 @@ public class GenomeAnalysisEngine {
         logger.info("Strictness is " + argCollection.strictnessLevel);
 
         validateSuppliedReference();
-        setReferenceDataSource(argCollection.referenceFile);
+        setReferenceDataSource(argCollection.referenceFile, argCollection.memoryMapReference);
 
         validateSuppliedReads();
         initializeReadTransformers(walker);
@@ -947,7 +964,8 @@ public class GenomeAnalysisEngine {
                 removeProgramRecords,
                 keepReadsInLIBS,
                 sampleRenameMap,
-                argCollection.intervalArguments.intervalMerging);
+                argCollection.intervalArguments.intervalMerging,
+                argCollection.bamIndexCacheDirectory);
     }
 
     /**
@@ -1019,7 +1037,17 @@ public class GenomeAnalysisEngine {
      * @param refFile Handle to a reference sequence file.  Non-null.
      */
     public void setReferenceDataSource(File refFile) {
-        this.referenceDataSource = new ReferenceDataSource(refFile);
+        setReferenceDataSource(refFile, false);
+    }
+
+    /**
+     * Opens a reference sequence file paired with an index, optionally memory mapping it.
+     *
+     * @param refFile Handle to a reference sequence file.  Non-null.
+     * @param memoryMapped If true, memory map the reference rather than caching it per thread.
+     */
+    public void setReferenceDataSource(File refFile, boolean memoryMapped) {
+        this.referenceDataSource = new ReferenceDataSource(refFile, memoryMapped);
         genomeLocParser = new GenomeLocParser(referenceDataSource.getReference());
     }
 
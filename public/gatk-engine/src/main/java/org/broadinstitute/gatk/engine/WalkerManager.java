@@ -38,6 +38,7 @@ import org.broadinstitute.gatk.utils.classloader.PluginManager;
 import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
 import org.broadinstitute.gatk.utils.help.ResourceBundleExtractorDoclet;
+import org.broadinstitute.gatk.utils.nanoScheduler.NSExecutionBackend;
 import org.broadinstitute.gatk.utils.text.TextFormattingUtils;
 
 import java.lang.annotation.Annotation;
@@ -353,6 +354,28 @@ public class WalkerManager extends PluginManager<Walker> {
         return walker.getClass().getAnnotation(BAQMode.class).ApplicationTime();
     }    
 
+    /**
+     * Gets the NanoScheduler execution backend requested by the walker
+     * @param walker The walker to interrogate.
+     * @return the backend requested through the NanoSchedulerExecution annotation, or QUEUED if none is present
+     */
+    public static NSExecutionBackend getNanoSchedulerBackend(final Walker walker) {
+        final NanoSchedulerExecution execution = walker.getClass().getAnnotation(NanoSchedulerExecution.class);
+        return execution == null ? NSExecutionBackend.QUEUED : execution.backend();
+    }
+
+    /**
+     * Gets the NanoScheduler input buffer size requested by the walker
+     * @param walker The walker to interrogate.
+     * @param nThreads the number of threads the NanoScheduler will use
+     * @return the maximum number of input elements the NanoScheduler should hold in flight
+     */
+    public static int getNanoSchedulerBufferSize(final Walker walker, final int nThreads) {
+        final NanoSchedulerExecution execution = walker.getClass().getAnnotation(NanoSchedulerExecution.class);
+        final int perThread = execution == null ? 100 : execution.bufferSizePerThread();
+        return Math.max(perThread * nThreads, 1);
+    }
+
     /**
      * Create a name for this type of walker.
      *
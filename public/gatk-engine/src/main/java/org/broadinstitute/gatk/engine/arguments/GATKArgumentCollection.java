@@ -34,6 +34,7 @@ import org.broadinstitute.gatk.utils.downsampling.DownsamplingMethod;
 import org.broadinstitute.gatk.engine.samples.PedigreeValidationType;
 import org.broadinstitute.gatk.utils.QualityUtils;
 import org.broadinstitute.gatk.utils.baq.BAQ;
+import org.broadinstitute.gatk.utils.smithwaterman.SWImplementation;
 import org.broadinstitute.gatk.utils.variant.GATKVCFIndexType;
 import org.broadinstitute.gatk.engine.GATKVCFUtils;
 
@@ -80,6 +81,16 @@ public class GATKArgumentCollection {
     @Argument(fullName = "read_buffer_size", shortName = "rbs", doc="Number of reads per SAM file to buffer in memory", required = false, minValue = 0)
     public Integer readBufferSize = null;
 
+    /**
+     * Finding the data for a contig in a BAM index, or the start of the unmapped reads, means scanning the index from
+     * its start. With this argument the layout of each index is saved in the given directory, so that later runs over
+     * the same BAM files, such as many short jobs scattered over intervals, can skip that scan. The directory can be
+     * shared by any number of runs, and a saved layout is only used while its index file is unchanged.
+     */
+    @Advanced
+    @Argument(fullName = "bam_index_cache_dir", shortName = "baiCache", doc="Directory in which to cache the layout of BAM indices across runs", required = false)
+    public File bamIndexCacheDirectory = null;
+
     // --------------------------------------------------------------------------------------------------------------
     //
     // General features
@@ -113,6 +124,22 @@ public class GATKArgumentCollection {
      */
     @Input(fullName = "reference_sequence", shortName = "R", doc = "Reference sequence file", required = false)
     public File referenceFile = null;
+    /**
+     * By default, each thread keeps its own cache of a window of the reference.  With this flag the reference is
+     * instead memory mapped and shared by all threads, which saves memory and reference reads when running with
+     * many threads (-nct) over regions that jump around the genome.
+     */
+    @Advanced
+    @Argument(fullName = "memory_map_reference", shortName = "mmapRef", doc = "Memory map the reference and share it between threads", required = false)
+    public boolean memoryMapReference = false;
+    /**
+     * Chooses how every Smith-Waterman alignment made during the run, such as haplotype to reference alignments in
+     * HaplotypeCaller or read realignments in IndelRealigner, is computed. The implementations give exactly the same
+     * alignments; COMPACT avoids filling and allocating the full score matrix for each one.
+     */
+    @Advanced
+    @Argument(fullName = "smith_waterman", shortName = "smithWaterman", doc = "Which Smith-Waterman implementation to use", required = false)
+    public SWImplementation smithWatermanImplementation = SWImplementation.COMPACT;
     /**
      * If this flag is enabled, the random numbers generated will be different in every run, causing GATK to behave non-deterministically.
      */
@@ -451,6 +478,11 @@ public class GATKArgumentCollection {
               minValue = 0, maxValue = 9, required = false)
     public Integer bamCompression = null;
 
+    @Advanced
+    @Argument(fullName = "bam_compression_threads", shortName = "bamct", doc = "Number of threads with which to compress each output BAM file",
+              minValue = 1, required = false)
+    public int bamCompressionThreads = 1;
+
     /**
      * If provided, output BAM/CRAM files will be simplified to include only key reads for downstream variation
      * discovery analyses (removing duplicates, PF-, non-primary reads), as well stripping all extended tags from the
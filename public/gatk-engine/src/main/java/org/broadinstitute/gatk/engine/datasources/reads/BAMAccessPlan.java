@@ -46,6 +46,11 @@ class BAMAccessPlan {
     private final BlockInputStream inputStream;
 
     private final List<GATKChunk> positions;
+
+    /**
+     * The address of the last block containing any of the positions.
+     */
+    private final long lastBlockAddress;
     private PeekableIterator<GATKChunk> positionIterator;
 
     /**
@@ -59,6 +64,12 @@ class BAMAccessPlan {
         this.inputStream = inputStream;
 
         this.positions = fileSpan.getGATKChunks();
+
+        long lastBlockAddress = -1;
+        for(GATKChunk chunk: positions)
+            lastBlockAddress = Math.max(lastBlockAddress,chunk.getBlockEnd());
+        this.lastBlockAddress = lastBlockAddress;
+
         initialize();
     }
 
@@ -78,6 +89,14 @@ class BAMAccessPlan {
         return nextBlockAddress;
     }
 
+    /**
+     * Retrieves the address of the last block this plan will ever read; no block beyond it needs to be loaded.
+     * @return Address of the last block of interest, or -1 if there are no blocks of interest.
+     */
+    public long getLastBlockAddress() {
+        return lastBlockAddress;
+    }
+
     /**
      * Retrieves the first offset of interest in the block returned by getBlockAddress().
      * @return First block of interest in this segment.
@@ -0,0 +1,158 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.datasources.reads;
+
+import org.apache.log4j.Logger;
+import org.broadinstitute.gatk.utils.Utils;
+
+import java.io.*;
+
+/**
+ * A directory caching the layout of BAM index files across runs: where the data for each reference sequence
+ * starts in the index, and the file offset pointed to by its last linear bin.
+ *
+ * Finding either of these means scanning the index from its start, which for short runs over many contigs
+ * or over the unmapped reads can take longer than the traversal itself.  The cache is keyed by the path of the
+ * index, and an entry is only used while the index has the same size and modification time as when the entry
+ * was written.  Any number of runs can share the same cache directory.
+ */
+class BAMIndexLayoutCache {
+    private static final Logger logger = Logger.getLogger(BAMIndexLayoutCache.class);
+
+    /**
+     * Magic number and version of the cache file format.
+     */
+    private static final int CACHE_MAGIC = 0x47424c43;
+    private static final int CACHE_VERSION = 1;
+
+    private static final String CACHE_FILE_EXTENSION = ".bailayout";
+
+    private final File cacheDirectory;
+
+    /**
+     * The layout of one index.
+     */
+    static class Layout {
+        /**
+         * Position in the index of the data for each reference sequence.
+         */
+        final long[] sequenceStarts;
+
+        /**
+         * The file offset of the first record in the last linear bin, or -1 if there are no mapped reads.
+         */
+        final long startOfLastLinearBin;
+
+        Layout(final long[] sequenceStarts, final long startOfLastLinearBin) {
+            this.sequenceStarts = sequenceStarts;
+            this.startOfLastLinearBin = startOfLastLinearBin;
+        }
+    }
+
+    BAMIndexLayoutCache(final File cacheDirectory) {
+        if(cacheDirectory == null)
+            throw new IllegalArgumentException("cacheDirectory cannot be null");
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Get the cached layout of an index.
+     * @param indexFile The index file.
+     * @param sequenceCount The number of reference sequences in the index.
+     * @return The layout, or null if it isn't cached or the index changed since it was.
+     */
+    Layout read(final File indexFile, final int sequenceCount) {
+        final File cacheFile = getCacheFile(indexFile);
+        if(!cacheFile.exists())
+            return null;
+
+        try(final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if(in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION)
+                return null;
+            if(!in.readUTF().equals(getKey(indexFile)) || in.readLong() != indexFile.length() || in.readLong() != indexFile.lastModified())
+                return null;
+            if(in.readInt() != sequenceCount)
+                return null;
+            final long[] sequenceStarts = new long[sequenceCount];
+            for(int i = 0; i < sequenceCount; i++)
+                sequenceStarts[i] = in.readLong();
+            return new Layout(sequenceStarts, in.readLong());
+        }
+        catch(IOException e) {
+            // A partially written or otherwise unreadable entry is simply rebuilt.
+            logger.debug("Unable to read cached BAM index layout " + cacheFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cache the layout of an index.  Failing to do so only costs a scan of the index in later runs, so it isn't an error.
+     * @param indexFile The index file.
+     * @param layout Its layout.
+     */
+    void write(final File indexFile, final Layout layout) {
+        final File cacheFile = getCacheFile(indexFile);
+        File tempFile = null;
+        try {
+            if(!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs() && !cacheDirectory.isDirectory())
+                throw new IOException("Unable to create directory " + cacheDirectory);
+
+            // Write to a temporary file first so that concurrent runs never see a partial entry.
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+            try(final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeUTF(getKey(indexFile));
+                out.writeLong(indexFile.length());
+                out.writeLong(indexFile.lastModified());
+                out.writeInt(layout.sequenceStarts.length);
+                for(final long sequenceStart: layout.sequenceStarts)
+                    out.writeLong(sequenceStart);
+                out.writeLong(layout.startOfLastLinearBin);
+            }
+            if(!tempFile.renameTo(cacheFile) && !(cacheFile.delete() && tempFile.renameTo(cacheFile)))
+                throw new IOException("Unable to rename " + tempFile + " to " + cacheFile);
+        }
+        catch(IOException e) {
+            logger.warn("Unable to cache the layout of BAM index " + indexFile + " in " + cacheDirectory + ": " + e.getMessage());
+            if(tempFile != null)
+                tempFile.delete();
+        }
+    }
+
+    private File getCacheFile(final File indexFile) {
+        return new File(cacheDirectory, Utils.calcMD5(getKey(indexFile)) + CACHE_FILE_EXTENSION);
+    }
+
+    private static String getKey(final File indexFile) {
+        try {
+            return indexFile.getCanonicalPath();
+        }
+        catch(IOException e) {
+            return indexFile.getAbsolutePath();
+        }
+    }
+}
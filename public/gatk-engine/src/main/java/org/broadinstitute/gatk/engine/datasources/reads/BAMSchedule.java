@@ -30,6 +30,7 @@ import htsjdk.samtools.Bin;
 import htsjdk.samtools.GATKBAMFileSpan;
 import htsjdk.samtools.GATKChunk;
 import htsjdk.samtools.util.CloseableIterator;
+import org.apache.log4j.Logger;
 import org.broadinstitute.gatk.utils.GenomeLoc;
 import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
 import org.broadinstitute.gatk.utils.exceptions.GATKException;
@@ -45,11 +46,42 @@ import java.nio.channels.FileChannel;
 import java.util.*;
 
 /**
- * Writes schedules for a single BAM file to a target output file.
+ * Builds the schedule of bins to read over a single contig in every BAM file, and iterates over it.
+ *
+ * The schedule is kept in memory unless it grows over a spill threshold, in which case it is moved to a temporary
+ * file.  Either way it has the same binary format, so where it is stored makes no difference to the iteration.
  */
 public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
+    private static final Logger logger = Logger.getLogger(BAMSchedule.class);
+
+    /**
+     * Size in bytes over which a schedule is moved from memory to a temporary file.  Schedules for exomes and
+     * other interval lists are far smaller than this, and so are never written to disk.
+     */
+    public static final long DEFAULT_SPILL_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * Initial size of the in-memory schedule.
+     */
+    private static final int INITIAL_SCHEDULE_CAPACITY = 64 * 1024;
+
+    /**
+     * Size in bytes over which this schedule is moved to a temporary file.
+     */
+    private final long spillThreshold;
+
+    /**
+     * Schedule data while it is kept in memory; null once it has been spilled to the schedule file.
+     */
+    private ByteBuffer scheduleBuffer;
+
+    /**
+     * Number of bytes of schedule data written so far.
+     */
+    private long scheduleSize = 0;
+
     /**
-     * File in which to store schedule data.
+     * File in which to store schedule data once it has been spilled; null until then.
      */
     private File scheduleFile;
 
@@ -91,12 +123,26 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
      * @param intervals List of 
      */
     public BAMSchedule(final SAMDataSource dataSource, final List<GenomeLoc> intervals) {
+        this(dataSource, intervals, DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * Create a new BAM schedule based on the given index.
+     * @param dataSource The SAM data source to use.
+     * @param intervals List of intervals to schedule.
+     * @param spillThreshold Size in bytes over which the schedule is moved from memory to a temporary file.
+     */
+    public BAMSchedule(final SAMDataSource dataSource, final List<GenomeLoc> intervals, final long spillThreshold) {
         if(intervals.isEmpty())
             throw new ReviewedGATKException("Tried to write schedule for empty interval list.");
+        if(spillThreshold < 0)
+            throw new IllegalArgumentException("spillThreshold cannot be negative: " + spillThreshold);
 
         referenceSequence = dataSource.getHeader().getSequence(intervals.get(0).getContig()).getSequenceIndex();
 
-        createScheduleFile();
+        // The in-memory schedule is a single array, so it can never hold more than an int's worth of bytes.
+        this.spillThreshold = Math.min(spillThreshold, Integer.MAX_VALUE - 8);
+        scheduleBuffer = allocateByteBuffer((int)Math.min(INITIAL_SCHEDULE_CAPACITY, Math.max(spillThreshold, 1)));
 
         readerIDs.addAll(dataSource.getReaderIDs());
 
@@ -111,6 +157,7 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
             final long readerStartOffset = position();
 
             int maxChunkCount = 0;
+            int binCount = 0;
 
             while(currentBinInLowestLevel < GATKBAMIndex.MAX_BINS && currentLocus != null) {
                 final Bin bin = new Bin(referenceSequence,currentBinInLowestLevel);
@@ -145,6 +192,7 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
                         buffer.putLong(chunk.getChunkEnd());
                     }
                     maxChunkCount = Math.max(maxChunkCount,fileSpan.getGATKChunks().size());
+                    binCount++;
 
                     // Prepare buffer for writing
                     buffer.flip();
@@ -158,10 +206,12 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
 
             final long readerStopOffset = position();
 
-            scheduleIterators.add(new PeekableIterator<BAMScheduleEntry>(new BAMScheduleIterator(reader,readerStartOffset,readerStopOffset,maxChunkCount)));
+            if(logger.isDebugEnabled())
+                logger.debug(String.format("BAM schedule for %s on contig %d: %d bins, %d bytes%s",
+                        reader.getSamFilePath(), referenceSequence, binCount, readerStopOffset - readerStartOffset,
+                        scheduleFile != null ? " (on disk)" : ""));
 
-            // Iterator initialization might move the file pointer.  Make sure it gets reset back to where it was before iterator initialization.
-            position(readerStopOffset);
+            scheduleIterators.add(new PeekableIterator<BAMScheduleEntry>(new BAMScheduleIterator(reader,readerStartOffset,readerStopOffset,maxChunkCount)));
         }
 
         advance();
@@ -188,16 +238,36 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
     }
 
     /**
-     * Close down and delete the file.
+     * Release the schedule, closing down and deleting the schedule file if it was spilled to one.
      */
     @Override
     public void close() {
+        scheduleBuffer = null;
+        if(scheduleFileChannel == null)
+            return;
         try {
             scheduleFileChannel.close();
         }
         catch(IOException ex) {
             throw makeIOFailureException(true, "Unable to close schedule file.", ex);
         }
+        scheduleFile.delete();
+    }
+
+    /**
+     * Gets the size of the schedule data, in bytes.
+     * @return the size of the schedule over all readers.
+     */
+    public long getScheduleSize() {
+        return scheduleSize;
+    }
+
+    /**
+     * Whether the schedule outgrew the spill threshold and so was moved to a temporary file.
+     * @return true if the schedule is stored on disk.
+     */
+    public boolean isSpilled() {
+        return scheduleFile != null;
     }
 
     /**
@@ -301,6 +371,18 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
 
     }
 
+    /**
+     * Move the schedule written so far from memory to a new schedule file.
+     */
+    private void spill() {
+        logger.debug(String.format("BAM schedule for contig %d is larger than %d bytes; moving it to disk", referenceSequence, spillThreshold));
+        createScheduleFile();
+        final ByteBuffer data = scheduleBuffer.duplicate();
+        data.flip();
+        writeToFile(data, 0);
+        scheduleBuffer = null;
+    }
+
     /**
      * Creates a new byte buffer of the given size.
      * @param size the size of buffer to allocate.
@@ -313,53 +395,76 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
     }
 
     /**
-     * Reads the contents at the current position on disk into the given buffer.
+     * Reads the schedule contents at the given position into the given buffer.
      * @param buffer buffer to fill.
+     * @param position position of the data in the schedule.
+     * @return the number of bytes read.
      */
-    private int read(final ByteBuffer buffer) {
+    private int read(final ByteBuffer buffer, final long position) {
+        if(scheduleFileChannel == null) {
+            final ByteBuffer data = scheduleBuffer.duplicate();
+            data.limit((int)Math.min(scheduleSize, position + buffer.remaining()));
+            data.position((int)Math.min(scheduleSize, position));
+            final int bytesRead = data.remaining();
+            buffer.put(data);
+            return bytesRead;
+        }
+
         try {
-            return scheduleFileChannel.read(buffer);
+            int bytesRead = 0;
+            while(buffer.hasRemaining()) {
+                final int count = scheduleFileChannel.read(buffer, position + bytesRead);
+                if(count < 0)
+                    break;
+                bytesRead += count;
+            }
+            return bytesRead;
         }
         catch(IOException ex) {
             throw makeIOFailureException(false, "Unable to read data from BAM schedule file.", ex);
         }
     }
 
+    /**
+     * Appends the contents of the given buffer to the schedule, spilling it to disk if it grows too large.
+     * @param buffer buffer to write.
+     */
     private void write(final ByteBuffer buffer) {
-        try {
-            scheduleFileChannel.write(buffer);
-            if(buffer.remaining() > 0)
-                throw makeIOFailureException(true, "Unable to write entire buffer to file.", null);
-        }
-        catch(IOException ex) {
-            throw makeIOFailureException(true, "Unable to write data to BAM schedule file.", ex);
+        final int size = buffer.remaining();
+        if(scheduleFileChannel == null && scheduleSize + size > spillThreshold)
+            spill();
+
+        if(scheduleFileChannel != null)
+            writeToFile(buffer, scheduleSize);
+        else {
+            if(scheduleBuffer.remaining() < size) {
+                final ByteBuffer newBuffer = allocateByteBuffer((int)Math.min(spillThreshold, Math.max(2L * scheduleBuffer.capacity(), scheduleSize + size)));
+                scheduleBuffer.flip();
+                newBuffer.put(scheduleBuffer);
+                scheduleBuffer = newBuffer;
+            }
+            scheduleBuffer.put(buffer);
         }
+        scheduleSize += size;
     }
 
-    /**
-     * Reads the current position from the file channel.
-     * @return Current position within file channel.
-     */
-    private long position() {
+    private void writeToFile(final ByteBuffer buffer, final long position) {
         try {
-            return scheduleFileChannel.position();
+            long offset = position;
+            while(buffer.hasRemaining())
+                offset += scheduleFileChannel.write(buffer, offset);
         }
         catch(IOException ex) {
-            throw makeIOFailureException(false, "Unable to retrieve position of BAM schedule file.", ex);
+            throw makeIOFailureException(true, "Unable to write data to BAM schedule file.", ex);
         }
     }
 
     /**
-     * Reposition the file channel to the specified offset wrt the start of the file.
-     * @param position The position.
+     * Gets the position at which the next data will be written.
+     * @return Current size of the schedule.
      */
-    private void position(final long position) {
-        try {
-            scheduleFileChannel.position(position);
-        }
-        catch(IOException ex) {
-            throw makeIOFailureException(false, "Unable to position BAM schedule file.",ex);
-        }
+    private long position() {
+        return scheduleSize;
     }
 
     /**
@@ -406,16 +511,14 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
 
         @Override
         public BAMScheduleEntry next() {
-            position(currentPosition);
-
             // Read data.
-            int binHeaderBytesRead = read(binHeader);
+            int binHeaderBytesRead = read(binHeader, currentPosition);
 
             // Make sure we read in a complete bin header:
             if ( binHeaderBytesRead < INT_SIZE_IN_BYTES * 3 ) {
-                throw new ReviewedGATKException(String.format("Unable to read a complete bin header from BAM schedule file %s for BAM file %s. " +
-                                                               "The BAM schedule file is likely incomplete/corrupt.",
-                                                               scheduleFile.getAbsolutePath(), reader.getSamFilePath()));
+                throw new ReviewedGATKException(String.format("Unable to read a complete bin header from BAM schedule %s for BAM file %s. " +
+                                                               "The BAM schedule is likely incomplete/corrupt.",
+                                                               scheduleFile != null ? scheduleFile.getAbsolutePath() : "in memory", reader.getSamFilePath()));
             }
 
             // Decode contents.
@@ -432,7 +535,7 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
 
             // Read all chunk data.
             chunkData.limit(numChunks*LONG_SIZE_IN_BYTES*2);
-            long bytesRead = read(chunkData);
+            long bytesRead = read(chunkData, currentPosition + binHeaderBytesRead);
             if(bytesRead != numChunks*LONG_SIZE_IN_BYTES*2)
                 throw new ReviewedGATKException("Unable to read all chunks from file");
 
@@ -448,8 +551,8 @@ public class BAMSchedule implements CloseableIterator<BAMScheduleEntry> {
             BAMScheduleEntry nextScheduleEntry = new BAMScheduleEntry(start,stop);
             nextScheduleEntry.addFileSpan(reader,new GATKBAMFileSpan(chunks));
 
-            // Reset the position of the iterator at the next contig.
-            currentPosition = position();
+            // Move the iterator on to the next bin.
+            currentPosition += binHeaderBytesRead + bytesRead;
 
             return nextScheduleEntry;
         }
@@ -25,19 +25,25 @@
 
 package org.broadinstitute.gatk.engine.datasources.reads;
 
-import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
+import org.broadinstitute.gatk.utils.threading.NamedThreadFactory;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
- * Preloads BGZF blocks in preparation for unzipping and data processing.
- * TODO: Right now, the block loader has all threads blocked waiting for a work request.  Ultimately this should
- * TODO: be replaced with a central thread management strategy.
+ * Loads and inflates BGZF blocks in preparation for data processing.
+ *
+ * Each block load requested by a BlockInputStream runs as a task on the thread pool.  The task also reads
+ * the compressed blocks that the stream's access plan will need next, and queues their inflation on the
+ * same pool, so that the inflation of a stream's blocks is spread over all of the threads while the
+ * stream's reader is still busy with the current block.
  */
 public class BGZFBlockLoadingDispatcher {
+    /**
+     * The number of blocks beyond the current one to read and inflate ahead of each stream, per thread
+     */
+    private final static int READ_AHEAD_BLOCKS_PER_THREAD = 2;
+
     /**
      * The file handle cache, used when allocating blocks from the dispatcher.
      */
@@ -45,42 +51,36 @@ public class BGZFBlockLoadingDispatcher {
 
     private final ExecutorService threadPool;
 
-    private final Queue<BAMAccessPlan> inputQueue;
+    private final int readAheadDepth;
 
     public BGZFBlockLoadingDispatcher(final int numThreads, final int numFileHandles) {
-        threadPool = Executors.newFixedThreadPool(numThreads);
+        threadPool = Executors.newFixedThreadPool(numThreads, new NamedThreadFactory("BGZF-block-loader-%d"));
         fileHandleCache = new FileHandleCache(numFileHandles);
-        inputQueue = new LinkedList<BAMAccessPlan>();
-
-        threadPool.execute(new BlockLoader(this,fileHandleCache,true));
+        readAheadDepth = READ_AHEAD_BLOCKS_PER_THREAD * numThreads;
     }
 
     /**
      * Initiates a request for a new block load.
-      * @param readerPosition Position at which to load.
+     * @param readerPosition Position at which to load.
      */
     void queueBlockLoad(final BAMAccessPlan readerPosition) {
-        synchronized(inputQueue) {
-            inputQueue.add(readerPosition);
-            inputQueue.notify();
-        }
+        threadPool.execute(new BlockLoader(readerPosition));
+    }
+
+    /**
+     * Creates the read ahead buffer for a new BlockInputStream.
+     * @param inputStream the stream whose blocks will be read ahead.
+     * @return a new, empty read ahead buffer.
+     */
+    BlockReadAhead createReadAhead(final BlockInputStream inputStream) {
+        return new BlockReadAhead(this, fileHandleCache, inputStream.length(), readAheadDepth);
     }
 
     /**
-     * Claims the next work request from the queue.
-     * @return The next work request, or null if none is available.
+     * Queues the inflation of a block that has been read ahead.
+     * @param inflation the inflation task.
      */
-    BAMAccessPlan claimNextWorkRequest() {
-        synchronized(inputQueue) {
-            while(inputQueue.isEmpty()) {
-                try {
-                    inputQueue.wait();
-                }
-                catch(InterruptedException ex) {
-                    throw new ReviewedGATKException("Interrupt occurred waiting for next block reader work item");
-                }
-            }
-            return inputQueue.poll();
-        }
+    void queueInflation(final Runnable inflation) {
+        threadPool.execute(inflation);
     }
 }
@@ -48,6 +48,11 @@ public class BlockInputStream extends InputStream {
      */
     private final BGZFBlockLoadingDispatcher dispatcher;
 
+    /**
+     * Blocks read and inflated ahead of this stream.
+     */
+    private final BlockReadAhead readAhead;
+
     /**
      * The reader whose data is supplied by this input stream.
      */
@@ -111,6 +116,7 @@ public class BlockInputStream extends InputStream {
         buffer.limit(0);
 
         this.dispatcher = dispatcher;
+        this.readAhead = dispatcher.createReadAhead(this);
         // TODO: Kill the region when all we want to do is start at the beginning of the stream and run to the end of the stream.
         this.accessPlan = new BAMAccessPlan(reader,this,new GATKBAMFileSpan(new GATKChunk(0,Long.MAX_VALUE)));
 
@@ -140,6 +146,10 @@ public class BlockInputStream extends InputStream {
         return length;
     }
 
+    BlockReadAhead getReadAhead() {
+        return readAhead;
+    }
+
     public long getFilePointer() {
         long filePointer;
         synchronized(lock) {
@@ -186,6 +196,8 @@ public class BlockInputStream extends InputStream {
      */
     public void submitAccessPlan(final BAMAccessPlan accessPlan) {
         //System.out.printf("Thread %s: submitting access plan for block at position: %d%n",Thread.currentThread().getId(),position.getBlockAddress());
+        // Nothing read ahead for the previous plan will be needed again.
+        readAhead.discard();
         this.accessPlan = accessPlan;
         accessPlan.reset();
 
@@ -410,6 +422,7 @@ public class BlockInputStream extends InputStream {
     }
 
     public void close() {
+        readAhead.discard();
         if(validatingInputStream != null) {
             try {
                 validatingInputStream.close();
@@ -0,0 +1,244 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.datasources.reads;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and inflates BGZF blocks ahead of a single BlockInputStream.
+ *
+ * Whenever the stream asks for a block, the compressed blocks following it in the file are read, up to the
+ * read ahead depth and no further than the last block of the stream's access plan, and their inflation is
+ * queued on the dispatcher's threads.  Reading stays sequential, so the next block address is always the
+ * file position following the previous block, exactly as when loading one block at a time.  The stream
+ * discards everything read ahead when it is given a new access plan or closed, cancelling the inflations that
+ * haven't started yet.  Should the stream still ask for a block other than the next one read ahead, everything
+ * read ahead is discarded as well and reading starts over from the requested block.
+ */
+class BlockReadAhead {
+    /**
+     * The inflater of each thread, reused across blocks
+     */
+    private final static ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private final BGZFBlockLoadingDispatcher dispatcher;
+    private final FileHandleCache fileHandleCache;
+    private final long fileLength;
+    private final int depth;
+
+    /**
+     * The blocks read ahead so far, in file order
+     */
+    private final Deque<Block> blocks = new ArrayDeque<Block>();
+
+    BlockReadAhead(final BGZFBlockLoadingDispatcher dispatcher, final FileHandleCache fileHandleCache, final long fileLength, final int depth) {
+        this.dispatcher = dispatcher;
+        this.fileHandleCache = fileHandleCache;
+        this.fileLength = fileLength;
+        this.depth = depth;
+    }
+
+    /**
+     * Gets the block at the access plan's current block address, reading further blocks ahead of it.
+     * @param accessPlan the access plan of the stream.
+     * @return the block; its inflation may or may not have been started by another thread.
+     * @throws IOException if the blocks can't be read.
+     */
+    synchronized Block nextBlock(final BAMAccessPlan accessPlan) throws IOException {
+        final long blockAddress = accessPlan.getBlockAddress();
+        if(blocks.isEmpty() || blocks.peekFirst().blockAddress != blockAddress) {
+            discard();
+            blocks.add(readBlock(accessPlan, blockAddress));
+        }
+
+        final long lastBlockAddress = accessPlan.getLastBlockAddress();
+        while(blocks.size() <= depth) {
+            final long nextBlockAddress = blocks.peekLast().nextBlockAddress;
+            if(nextBlockAddress > lastBlockAddress || nextBlockAddress >= fileLength)
+                break;
+            final Block block = readBlock(accessPlan, nextBlockAddress);
+            blocks.add(block);
+            dispatcher.queueInflation(block.inflation);
+        }
+
+        return blocks.removeFirst();
+    }
+
+    /**
+     * Drops all blocks read ahead, cancelling any inflation not yet started.  Inflations already running
+     * finish on their threads, but their results are dropped with the blocks.
+     */
+    synchronized void discard() {
+        for(final Block block: blocks)
+            block.inflation.cancel(false);
+        blocks.clear();
+    }
+
+    private Block readBlock(final BAMAccessPlan accessPlan, final long blockAddress) throws IOException {
+        final FileInputStream inputStream = fileHandleCache.claimFileInputStream(accessPlan.getReader());
+        try {
+            final ByteBuffer compressedBlock = readBGZFBlock(inputStream.getChannel(), blockAddress);
+            return new Block(blockAddress, inputStream.getChannel().position(), compressedBlock);
+        }
+        finally {
+            fileHandleCache.releaseFileInputStream(accessPlan.getReader(), inputStream);
+        }
+    }
+
+    /**
+     * Reads the compressed block at blockAddress, skipping over any empty blocks that aren't at the end of the file.
+     */
+    private static ByteBuffer readBGZFBlock(final FileChannel channel, final long blockAddress) throws IOException {
+        // Read the block header
+        channel.position(blockAddress);
+
+        final ByteBuffer header = ByteBuffer.allocate(BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+
+        ByteBuffer block;
+        int uncompressedDataSize;
+
+        do {
+            header.clear();
+            channel.read(header);
+            header.flip();
+            if(header.remaining() != BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH)
+                throw new ReviewedGATKException("BUG: unable to read a the complete block header in one pass.");
+
+            // Verify that the file was read at a valid point.
+            if(unpackUByte8(header,0) != BlockCompressedStreamConstants.GZIP_ID1 ||
+                    unpackUByte8(header,1) != BlockCompressedStreamConstants.GZIP_ID2 ||
+                    unpackUByte8(header,3) != BlockCompressedStreamConstants.GZIP_FLG ||
+                    unpackUInt16(header,10) != BlockCompressedStreamConstants.GZIP_XLEN ||
+                    unpackUByte8(header,12) != BlockCompressedStreamConstants.BGZF_ID1 ||
+                    unpackUByte8(header,13) != BlockCompressedStreamConstants.BGZF_ID2) {
+                throw new ReviewedGATKException("BUG: Started reading compressed block at incorrect position");
+            }
+
+            // Copy the header into a buffer sized for the full block, then finish reading the block.
+            final int blockSize = unpackUInt16(header,BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET)+1;
+            block = ByteBuffer.allocate(blockSize);
+            block.order(ByteOrder.LITTLE_ENDIAN);
+            block.put(header);
+            while(block.hasRemaining() && channel.read(block) >= 0)
+                ;
+            if(block.hasRemaining())
+                throw new ReviewedGATKException("BUG: unable to read the complete block at position " + blockAddress);
+
+            // Check the uncompressed length.  If 0 and not at EOF, we'll want to check the next block.
+            uncompressedDataSize = block.getInt(block.limit()-4);
+        }
+        while(uncompressedDataSize == 0 && channel.position() < channel.size());
+
+        // Prepare the buffer for reading.
+        block.flip();
+
+        return block;
+    }
+
+    private static ByteBuffer inflateBGZFBlock(final ByteBuffer bgzfBlock) throws DataFormatException {
+        final int compressedBufferSize = bgzfBlock.limit();
+
+        // Determine the uncompressed buffer size
+        final int uncompressedBufferSize = bgzfBlock.getInt(compressedBufferSize-4);
+        final byte[] uncompressedContent = new byte[uncompressedBufferSize];
+
+        // Inflate the CDATA section of the buffer.
+        final Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(bgzfBlock.array(), BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH,
+                compressedBufferSize-BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH-BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH);
+        final int bytesUncompressed = inflater.inflate(uncompressedContent);
+        if(bytesUncompressed != uncompressedBufferSize)
+            throw new ReviewedGATKException("Error decompressing block");
+
+        return ByteBuffer.wrap(uncompressedContent);
+    }
+
+    private static int unpackUByte8(final ByteBuffer buffer,final int position) {
+        return buffer.get(position) & 0xFF;
+    }
+
+    private static int unpackUInt16(final ByteBuffer buffer,final int position) {
+        return buffer.getShort(position) & 0xFFFF;
+    }
+
+    /**
+     * A compressed block read from the file, and its (possibly pending) inflation
+     */
+    static class Block {
+        private final long blockAddress;
+        private final long nextBlockAddress;
+        private final FutureTask<ByteBuffer> inflation;
+
+        private Block(final long blockAddress, final long nextBlockAddress, final ByteBuffer compressedBlock) {
+            this.blockAddress = blockAddress;
+            this.nextBlockAddress = nextBlockAddress;
+            this.inflation = new FutureTask<ByteBuffer>(new Callable<ByteBuffer>() {
+                @Override
+                public ByteBuffer call() throws DataFormatException {
+                    return inflateBGZFBlock(compressedBlock);
+                }
+            });
+        }
+
+        /**
+         * @return the file position immediately following this block
+         */
+        long getNextBlockAddress() {
+            return nextBlockAddress;
+        }
+
+        /**
+         * Gets the inflated contents of this block, inflating it on the calling thread if no other thread has
+         * started to.  Never waits on a queued task, so can't deadlock the dispatcher's threads.
+         * @return the inflated contents of this block.
+         */
+        ByteBuffer getInflatedData() throws InterruptedException, ExecutionException {
+            inflation.run();
+            return inflation.get();
+        }
+    }
+}
@@ -70,12 +70,28 @@ public class GATKBAMIndexFromFile extends GATKBAMIndex {
      */
     private final long[] sequenceStartCache;
 
+    /**
+     * The file offset of the first record in the last linear bin, if startOfLastLinearBinKnown.
+     */
+    private long startOfLastLinearBin;
+    private boolean startOfLastLinearBinKnown = false;
+
     private SeekableFileStream fileStream;
     private SeekableStream baiStream;
     private SeekableBufferedStream bufferedStream;
     private long fileLength;
 
     public GATKBAMIndexFromFile(final File file, final SAMSequenceDictionary sequenceDictionary) {
+        this(file, sequenceDictionary, null);
+    }
+
+    /**
+     * Create an index reader that looks up the layout of the index in a cache shared across runs.
+     * @param file The index file.
+     * @param sequenceDictionary The sequence dictionary of the indexed file.
+     * @param layoutCacheDirectory Directory caching the layout of indices, or null to scan the index whenever necessary.
+     */
+    public GATKBAMIndexFromFile(final File file, final SAMSequenceDictionary sequenceDictionary, final File layoutCacheDirectory) {
         mFile = file;
         this.sequenceDictionary = sequenceDictionary;
 
@@ -103,9 +119,30 @@ public class GATKBAMIndexFromFile extends GATKBAMIndex {
         if(sequenceCount > 0)
             sequenceStartCache[0] = position();
 
+        if(layoutCacheDirectory != null)
+            loadLayout(new BAMIndexLayoutCache(layoutCacheDirectory));
+
         closeIndexFile();
     }
 
+    /**
+     * Fill in the position of every sequence and the start of the last linear bin from the cache,
+     * scanning the index and adding it to the cache if it isn't there yet.
+     * @param cache The layout cache.
+     */
+    private void loadLayout(final BAMIndexLayoutCache cache) {
+        final BAMIndexLayoutCache.Layout layout = cache.read(mFile, sequenceCount);
+        if(layout != null) {
+            System.arraycopy(layout.sequenceStarts, 0, sequenceStartCache, 0, sequenceCount);
+            startOfLastLinearBin = layout.startOfLastLinearBin;
+            startOfLastLinearBinKnown = true;
+        }
+        else {
+            scanSequences();
+            cache.write(mFile, new BAMIndexLayoutCache.Layout(sequenceStartCache.clone(), startOfLastLinearBin));
+        }
+    }
+
     public GATKBAMIndexData readReferenceSequence(final int referenceSequence) {
         openIndexFile();
 
@@ -207,8 +244,19 @@ public class GATKBAMIndexFromFile extends GATKBAMIndex {
      */
     @Override
     public long getStartOfLastLinearBin() {
-        openIndexFile();
+        if(!startOfLastLinearBinKnown) {
+            openIndexFile();
+            scanSequences();
+            closeIndexFile();
+        }
+        return startOfLastLinearBin;
+    }
 
+    /**
+     * Scan the whole index, filling in the position of every sequence and the start of the last linear bin.
+     * The index file must be open.
+     */
+    private void scanSequences() {
         seek(4);
 
         final int sequenceCount = readInteger();
@@ -217,6 +265,7 @@ public class GATKBAMIndexFromFile extends GATKBAMIndex {
         // the last one from the last sequence that has one.
         long lastLinearIndexPointer = -1;
         for (int i = 0; i < sequenceCount; i++) {
+            sequenceStartCache[i] = position();
             // System.out.println("# Sequence TID: " + i);
             final int nBins = readInteger();
             // System.out.println("# nBins: " + nBins);
@@ -235,9 +284,8 @@ public class GATKBAMIndexFromFile extends GATKBAMIndex {
             }
         }
 
-        closeIndexFile();
-
-        return lastLinearIndexPointer;
+        startOfLastLinearBin = lastLinearIndexPointer;
+        startOfLastLinearBinKnown = true;
     }
 
     protected void skipToSequence(final int referenceSequence) {
@@ -277,6 +277,52 @@ public class SAMDataSource {
             final boolean keepReadsInLIBS,
             final Map<String, String> sampleRenameMap,
             final IntervalMergingRule intervalMergingRule) {
+        this(   referenceFile,
+                samFiles,
+                threadAllocation,
+                numFileHandles,
+                genomeLocParser,
+                useOriginalBaseQualities,
+                strictness,
+                readBufferSize,
+                downsamplingMethod,
+                exclusionList,
+                supplementalFilters,
+                readTransformers,
+                includeReadsWithDeletionAtLoci,
+                defaultBaseQualities,
+                removeProgramRecords,
+                keepReadsInLIBS,
+                sampleRenameMap,
+                intervalMergingRule,
+                null);
+    }
+
+    /**
+     * Create a new SAM data source given the supplied read metadata.
+     * See the constructor above for the description of all but the last parameter.
+     * @param bamIndexCacheDirectory directory in which to cache the layout of the BAM indices across runs, or null for no cache.
+     */
+    public SAMDataSource(
+            final File referenceFile,
+            Collection<SAMReaderID> samFiles,
+            ThreadAllocation threadAllocation,
+            Integer numFileHandles,
+            GenomeLocParser genomeLocParser,
+            boolean useOriginalBaseQualities,
+            ValidationStringency strictness,
+            Integer readBufferSize,
+            DownsamplingMethod downsamplingMethod,
+            ValidationExclusion exclusionList,
+            Collection<ReadFilter> supplementalFilters,
+            List<ReadTransformer> readTransformers,
+            boolean includeReadsWithDeletionAtLoci,
+            byte defaultBaseQualities,
+            boolean removeProgramRecords,
+            final boolean keepReadsInLIBS,
+            final Map<String, String> sampleRenameMap,
+            final IntervalMergingRule intervalMergingRule,
+            final File bamIndexCacheDirectory) {
 
         this.referenceFile = referenceFile;
         this.readMetrics = new ReadMetrics();
@@ -392,7 +438,7 @@ public class SAMDataSource {
         for(SAMReaderID id: readerIDs) {
             File indexFile = findIndexFile(id.getSamFile());
             if(indexFile != null) {
-                bamIndices.put(id, new GATKBAMIndexFromFile(indexFile, samSequenceDictionary));
+                bamIndices.put(id, new GATKBAMIndexFromFile(indexFile, samSequenceDictionary, bamIndexCacheDirectory));
                 continue;
             }
 
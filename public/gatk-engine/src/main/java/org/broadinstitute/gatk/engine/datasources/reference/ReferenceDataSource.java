@@ -56,7 +56,16 @@ public class ReferenceDataSource {
      * @param fastaFile Fasta file to be used as reference
      */
     public ReferenceDataSource(final File fastaFile) {
-        reference = CachingIndexedFastaSequenceFile.checkAndCreate(fastaFile);
+        this(fastaFile, false);
+    }
+
+    /**
+     * Create reference data source from fasta file
+     * @param fastaFile Fasta file to be used as reference
+     * @param memoryMapped If true, memory map the fasta rather than caching it per thread
+     */
+    public ReferenceDataSource(final File fastaFile, final boolean memoryMapped) {
+        reference = CachingIndexedFastaSequenceFile.checkAndCreate(fastaFile, memoryMapped);
     }
 
     /**
@@ -30,6 +30,7 @@ import htsjdk.samtools.reference.ReferenceSequenceFile;
 import org.apache.log4j.Logger;
 import org.broadinstitute.gatk.engine.GenomeAnalysisEngine;
 import org.broadinstitute.gatk.engine.ReadMetrics;
+import org.broadinstitute.gatk.engine.WalkerManager;
 import org.broadinstitute.gatk.engine.datasources.reads.SAMDataSource;
 import org.broadinstitute.gatk.engine.datasources.reads.Shard;
 import org.broadinstitute.gatk.engine.datasources.rmd.ReferenceOrderedDataSource;
@@ -43,6 +44,7 @@ import org.broadinstitute.gatk.utils.AutoFormattingTime;
 import org.broadinstitute.gatk.utils.MathUtils;
 import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
+import org.broadinstitute.gatk.utils.nanoScheduler.NSExecutionBackend;
 import org.broadinstitute.gatk.utils.progressmeter.ProgressMeter;
 import org.broadinstitute.gatk.utils.threading.ThreadEfficiencyMonitor;
 
@@ -233,16 +235,18 @@ public abstract class MicroScheduler implements MicroSchedulerMBean {
      */
     @Ensures("result != null")
     private TraversalEngine createTraversalEngine(final Walker walker, final ThreadAllocation threadAllocation) {
+        final NSExecutionBackend backend = WalkerManager.getNanoSchedulerBackend(walker);
         if (walker instanceof ReadWalker) {
-            return new TraverseReadsNano(threadAllocation.getNumCPUThreadsPerDataThread());
+            return new TraverseReadsNano(threadAllocation.getNumCPUThreadsPerDataThread(), backend);
         } else if (walker instanceof LocusWalker) {
-            return new TraverseLociNano(threadAllocation.getNumCPUThreadsPerDataThread());
+            return new TraverseLociNano(threadAllocation.getNumCPUThreadsPerDataThread(), backend);
         } else if (walker instanceof DuplicateWalker) {
             return new TraverseDuplicates();
         } else if (walker instanceof ReadPairWalker) {
             return new TraverseReadPairs();
         } else if (walker instanceof ActiveRegionWalker) {
-            return new TraverseActiveRegions(threadAllocation.getNumCPUThreadsPerDataThread());
+            final int nThreads = threadAllocation.getNumCPUThreadsPerDataThread();
+            return new TraverseActiveRegions(nThreads, backend, WalkerManager.getNanoSchedulerBufferSize(walker, nThreads));
         } else {
             throw new UnsupportedOperationException("Unable to determine traversal type, the walker is an unknown type.");
         }
@@ -323,6 +327,16 @@ public abstract class MicroScheduler implements MicroSchedulerMBean {
         return (!reads.isEmpty()) ? reads.seek(shard) : new NullSAMIterator();
     }
 
+    /**
+     * Should the locus iterators feeding walker produce columnar pileups?
+     *
+     * @param walker the walker we're running
+     * @return true if walker is a LocusWalker that has opted into columnar pileups
+     */
+    protected static boolean usesColumnarPileups(final Walker walker) {
+        return walker instanceof LocusWalker && ((LocusWalker)walker).usesColumnarPileups();
+    }
+
     /**
      * Must be called by subclasses when execute is done
      */
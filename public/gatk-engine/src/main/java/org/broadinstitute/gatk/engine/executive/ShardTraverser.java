@@ -91,7 +91,8 @@ public class ShardTraverser implements Callable {
             final WindowMaker windowMaker = new WindowMaker(shard,microScheduler.getEngine().getGenomeLocParser(),
                     microScheduler.getReadIterator(shard),
                     shard.getGenomeLocs(),
-                    microScheduler.engine.getSampleDB().getSampleNames()); // todo: microScheduler.engine is protected - is it okay to user it here?
+                    microScheduler.engine.getSampleDB().getSampleNames(), // todo: microScheduler.engine is protected - is it okay to user it here?
+                    MicroScheduler.usesColumnarPileups(walker));
 
             for(WindowMaker.WindowMakerIterator iterator: windowMaker) {
                 final ShardDataProvider dataProvider = new LocusShardDataProvider(shard,iterator.getSourceInfo(),microScheduler.getEngine().getGenomeLocParser(),iterator.getLocus(),iterator,microScheduler.reference,microScheduler.rods);
@@ -107,12 +107,25 @@ public class WindowMaker implements Iterable<WindowMaker.WindowMakerIterator>, I
     private final LocusIteratorByState libs;
 
     public WindowMaker(Shard shard, GenomeLocParser genomeLocParser, GATKSAMIterator iterator, List<GenomeLoc> intervals, Collection<String> sampleNames) {
+        this(shard, genomeLocParser, iterator, intervals, sampleNames, false);
+    }
+
+    /**
+     * Create a new window maker with the given iterator as a data source, covering
+     * the given intervals.
+     * @param iterator The data source for this window.
+     * @param intervals The set of intervals over which to traverse.
+     * @param sampleNames The complete set of sample names in the reads in shard
+     * @param columnarPileups If true, the alignment contexts will hold pooled columnar pileups, which must be
+     *                        released once they have been used
+     */
+    public WindowMaker(Shard shard, GenomeLocParser genomeLocParser, GATKSAMIterator iterator, List<GenomeLoc> intervals, Collection<String> sampleNames, boolean columnarPileups) {
         this.sourceInfo = shard.getReadProperties();
         this.readIterator = new GATKSAMRecordIterator(iterator);
 
         this.libs = new LocusIteratorByState(readIterator,
                 sourceInfo.getDownsamplingMethod(), sourceInfo.includeReadsWithDeletionAtLoci(),
-                sourceInfo.keepUniqueReadListInLIBS(), genomeLocParser,sampleNames);
+                sourceInfo.keepUniqueReadListInLIBS(), genomeLocParser,sampleNames, columnarPileups);
         this.sourceIterator = new PeekableIterator<AlignmentContext>(libs);
 
         this.intervalIterator = intervals.size()>0 ? new PeekableIterator<GenomeLoc>(intervals.iterator()) : null;
@@ -67,6 +67,14 @@ public class BAQReadTransformer extends ReadTransformer {
         return cmode != BAQ.CalculationMode.OFF;
     }
 
+    /**
+     * BAQ keeps its working state per thread, and the reference reader caches per thread too
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public GATKSAMRecord apply(final GATKSAMRecord read) {
         baqHMM.baqRead(read, refReader, cmode, qmode);
@@ -33,6 +33,7 @@ import org.apache.log4j.Logger;
 import org.broadinstitute.gatk.engine.io.stubs.SAMFileWriterStub;
 import org.broadinstitute.gatk.utils.exceptions.GATKException;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
+import org.broadinstitute.gatk.utils.sam.ParallelBAMFileWriter;
 import org.broadinstitute.gatk.utils.sam.SimplifyingSAMFileWriter;
 
 import java.io.File;
@@ -77,6 +78,8 @@ public class SAMFileWriterStorage implements SAMFileWriter, Storage<SAMFileWrite
             try {
                 if (stub.getOutputFile().getName().toLowerCase().endsWith(".cram")) {
                     this.writer = createCRAMWriter(factory, stub.getFileHeader(), file, this.referenceFasta);
+                } else if (canUseParallelBAMWriter(stub, file)) {
+                    this.writer = createParallelBAMWriter(stub, file);
                 } else {
                     this.writer = createBAMWriter(factory,stub.getFileHeader(),stub.isPresorted(),file,stub.getCompressionLevel());
                 }
@@ -137,6 +140,22 @@ public class SAMFileWriterStorage implements SAMFileWriter, Storage<SAMFileWrite
         return factory.makeCRAMWriter(header, file, referenceFasta);
     }
 
+    /**
+     * The parallel BAM writer compresses on several threads, but can't sort, and only writes BAM files.
+     */
+    private static boolean canUseParallelBAMWriter(final SAMFileWriterStub stub, final File outputFile) {
+        return stub.getCompressionThreads() > 1 &&
+                outputFile.getName().toLowerCase().endsWith(".bam") &&
+                (stub.isPresorted() || stub.getFileHeader().getSortOrder() == SAMFileHeader.SortOrder.unsorted);
+    }
+
+    private SAMFileWriter createParallelBAMWriter(final SAMFileWriterStub stub, final File outputFile) {
+        final SAMFileHeader header = stub.getFileHeader();
+        final int compressionLevel = stub.getCompressionLevel() != null ? stub.getCompressionLevel() : Defaults.COMPRESSION_LEVEL;
+        final boolean createIndex = header.getSortOrder().equals(SAMFileHeader.SortOrder.coordinate) && stub.getIndexOnTheFly();
+        return new ParallelBAMFileWriter(header, outputFile, compressionLevel, stub.getCompressionThreads(), createIndex, stub.getGenerateMD5());
+    }
+
     private SAMFileWriter createBAMWriter(final SAMFileWriterFactory factory,
                                  final SAMFileHeader header,
                                  final boolean presorted,
@@ -83,6 +83,11 @@ public class SAMFileWriterStub implements Stub<SAMFileWriter>, GATKSAMFileWriter
      */
     private Integer compressionLevel = null;
 
+    /**
+     * The number of threads with which to compress the BAM.
+     */
+    private int compressionThreads = 1;
+
     /**
      * Should the GATK index the output BAM on-the-fly?
      */
@@ -231,6 +236,24 @@ public class SAMFileWriterStub implements Stub<SAMFileWriter>, GATKSAMFileWriter
         this.compressionLevel = compressionLevel;
     }
 
+    /**
+     * Retrieves the number of threads with which to compress the BAM.
+     * @return The number of compression threads.
+     */
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    /**
+     * Sets the number of threads with which to compress the BAM.
+     * @param compressionThreads The number of compression threads.
+     */
+    public void setCompressionThreads( int compressionThreads ) {
+        if(writeStarted)
+            throw new ReviewedGATKException("Attempted to change the compression threads of a file with alignments already in it.");
+        this.compressionThreads = compressionThreads;
+    }
+
     /**
      * Gets whether to index this output stream on-the-fly.
      * @return True means create an index.  False means skip index creation.
@@ -315,6 +338,7 @@ public class SAMFileWriterStub implements Stub<SAMFileWriter>, GATKSAMFileWriter
     public void processArguments( final GATKArgumentCollection argumentCollection ) {
         if (argumentCollection.bamCompression != null)
             setCompressionLevel(argumentCollection.bamCompression);
+        setCompressionThreads(argumentCollection.bamCompressionThreads);
         setGenerateMD5(argumentCollection.enableBAMmd5);
         setIndexOnTheFly(!argumentCollection.disableBAMIndexing);
         setSimplifyBAM(argumentCollection.simplifyBAM);
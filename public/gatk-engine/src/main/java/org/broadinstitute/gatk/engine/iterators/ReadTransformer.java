@@ -112,6 +112,30 @@ abstract public class ReadTransformer {
         return false;
     }
 
+    /**
+     * Can apply() be called on different reads at the same time from many threads?
+     *
+     * Read traversals run thread-safe transformers inside their map function rather than on the input
+     * stream, so that they are spread over the -nct threads instead of being applied serially as the
+     * reads are loaded.  By default read transformers are not assumed to be thread-safe.
+     *
+     * @return true if apply() is thread-safe
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Apply this ON_INPUT read transformer inside the traversal's map function instead
+     */
+    @Requires("applicationTime == ApplicationTime.ON_INPUT")
+    @Ensures("applicationTime == ApplicationTime.IN_MAP")
+    public final void moveIntoMap() {
+        if ( applicationTime != ApplicationTime.ON_INPUT )
+            throw new IllegalStateException("Only read transformers applied on input can be moved into map, but " + this + " is applied " + applicationTime);
+        applicationTime = ApplicationTime.IN_MAP;
+    }
+
     /**
      * Has this transformer been initialized?
      *
@@ -163,6 +187,12 @@ abstract public class ReadTransformer {
          */
         ON_INPUT,
 
+        /**
+         * apply the transformation to the incoming reads inside the traversal's map function, which the
+         * engine chooses for thread-safe ON_INPUT transformers where the traversal supports it
+         */
+        IN_MAP,
+
         /**
          * apply the transformation to the outgoing read stream
          */
@@ -39,7 +39,6 @@ import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
 import java.util.Collections;
 import java.util.Iterator;
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -54,7 +53,7 @@ public class BaseRecalibration {
     private final static boolean TEST_CACHING = false;
 
     private final QuantizationInfo quantizationInfo; // histogram containing the map for qual quantization (calculated after recalibration is done)
-    private final RecalibrationTables recalibrationTables;
+    private final CompiledRecalibrationTables compiledTables; // the recalibration tables, precomputed for lookups
     private final Covariate[] requestedCovariates; // list of all covariates to be used in this calculation
 
     private final boolean disableIndelQuals;
@@ -64,6 +63,17 @@ public class BaseRecalibration {
 
     private byte[] staticQuantizedMapping = null;
 
+    /**
+     * The final quality for each bounded recalibrated quality, after any quantization and static binning
+     */
+    private final byte[] recalibratedQualMapping;
+
+    /**
+     * A ReadCovariates per thread, reused for every read that fits in it, so computing the covariates of
+     * a read doesn't allocate or go through the ReadCovariates keys cache
+     */
+    private final ThreadLocal<ReadCovariates> readCovariatesBuffer = new ThreadLocal<ReadCovariates>();
+
     /**
      * Constructor using a GATK Report file
      *
@@ -76,7 +86,6 @@ public class BaseRecalibration {
     public BaseRecalibration(final File RECAL_FILE, final int quantizationLevels, final boolean disableIndelQuals, final int preserveQLessThan, final boolean emitOriginalQuals, final double globalQScorePrior, final List<Integer> staticQuantizedQuals, final boolean roundDown) {
         RecalibrationReport recalibrationReport = new RecalibrationReport(RECAL_FILE);
 
-        recalibrationTables = recalibrationReport.getRecalibrationTables();
         requestedCovariates = recalibrationReport.getRequestedCovariates();
         quantizationInfo = recalibrationReport.getQuantizationInfo();
         if (quantizationLevels == 0) // quantizationLevels == 0 means no quantization, preserve the quality scores
@@ -97,6 +106,9 @@ public class BaseRecalibration {
             }
             staticQuantizedMapping = constructStaticQuantizedMapping(staticQuantizedQuals, roundDown);
         }
+
+        compiledTables = new CompiledRecalibrationTables(recalibrationReport.getRecalibrationTables(), globalQScorePrior);
+        recalibratedQualMapping = constructRecalibratedQualMapping(quantizationInfo.getQuantizedQuals(), staticQuantizedMapping);
     }
 
     /**
@@ -127,8 +139,9 @@ public class BaseRecalibration {
             }
         }
 
-        final ReadCovariates readCovariates = RecalUtils.computeCovariates(read, requestedCovariates);
         final int readLength = read.getReadLength();
+        final ReadCovariates readCovariates = getReadCovariatesBuffer(readLength);
+        RecalUtils.computeCovariates(read, requestedCovariates, readCovariates);
 
         for (final EventType errorModel : EventType.values()) { // recalibrate all three quality strings
             if (disableIndelQuals && errorModel != EventType.BASE_SUBSTITUTION) {
@@ -141,44 +154,21 @@ public class BaseRecalibration {
             // get the keyset for this base using the error model
             final int[][] fullReadKeySet = readCovariates.getKeySet(errorModel);
 
-            // the rg key is constant over the whole read, the global deltaQ is too
+            // the rg key is constant over the whole read, and so is whether we have the data to recalibrate it
             final int rgKey = fullReadKeySet[0][0];
-            final RecalDatum empiricalQualRG = recalibrationTables.getReadGroupTable().get(rgKey, errorModel.ordinal());
-
-            if( empiricalQualRG != null ) {
-                final double epsilon = ( globalQScorePrior > 0.0 && errorModel.equals(EventType.BASE_SUBSTITUTION) ? globalQScorePrior : empiricalQualRG.getEstimatedQReported() );
 
+            if( compiledTables.canRecalibrate(rgKey, errorModel) ) {
                 for (int offset = 0; offset < readLength; offset++) { // recalibrate all bases in the read
                     final byte origQual = quals[offset];
 
                     // only recalibrate usable qualities (the original quality will come from the instrument -- reported quality)
                     if ( origQual >= preserveQLessThan ) {
-                        // get the keyset for this base using the error model
-                        final int[] keySet = fullReadKeySet[offset];
-                        final RecalDatum empiricalQualQS = recalibrationTables.getQualityScoreTable().get(keySet[0], keySet[1], errorModel.ordinal());
-                        final List<RecalDatum> empiricalQualCovs = new ArrayList<RecalDatum>();
-                        for (int i = 2; i < requestedCovariates.length; i++) {
-                            if (keySet[i] < 0) {
-                                continue;
-                            }
-                            empiricalQualCovs.add(recalibrationTables.getTable(i).get(keySet[0], keySet[1], keySet[i], errorModel.ordinal()));
-                        }
-
-                        double recalibratedQualDouble = hierarchicalBayesianQualityEstimate( epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovs );
-
-                        // recalibrated quality is bound between 1 and MAX_QUAL
-                        final byte recalibratedQual = QualityUtils.boundQual(MathUtils.fastRound(recalibratedQualDouble), RecalDatum.MAX_RECALIBRATED_Q_SCORE);
+                        // the same estimate as hierarchicalBayesianQualityEstimate(), from the precomputed tables
+                        final double recalibratedQualDouble = compiledTables.getRecalibratedQuality(fullReadKeySet[offset], errorModel);
 
-                        // return the quantized version of the recalibrated quality
-                        final byte recalibratedQualityScore = quantizationInfo.getQuantizedQuals().get(recalibratedQual);
-
-                        // Bin to static quals
-                        if(staticQuantizedMapping != null) {
-                            quals[offset] = staticQuantizedMapping[recalibratedQualityScore];
-                        }
-                        else {
-                            quals[offset] = recalibratedQualityScore;
-                        }
+                        // recalibrated quality is bound between 1 and MAX_QUAL, then quantized and binned
+                        final byte recalibratedQual = QualityUtils.boundQual(MathUtils.fastRound(recalibratedQualDouble), RecalDatum.MAX_RECALIBRATED_Q_SCORE);
+                        quals[offset] = recalibratedQualMapping[recalibratedQual];
                     }
                 }
             }
@@ -188,6 +178,37 @@ public class BaseRecalibration {
         }
     }
 
+    /**
+     * Get this thread's ReadCovariates, replacing it if it's too small to hold a read of readLength bases
+     *
+     * @param readLength the length of the read whose covariates will be computed
+     * @return a ReadCovariates that can hold the keys of readLength bases
+     */
+    private ReadCovariates getReadCovariatesBuffer(final int readLength) {
+        ReadCovariates buffer = readCovariatesBuffer.get();
+        if ( buffer == null || buffer.getMaxReadLength() < readLength ) {
+            buffer = ReadCovariates.createReusable(readLength, requestedCovariates.length);
+            readCovariatesBuffer.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Constructs an array that maps each bounded recalibrated quality to the quality that is finally emitted
+     *
+     * @param quantizedQuals the dynamic quantization of each quality, from the QuantizationInfo
+     * @param staticQuantizedMapping the static binning of each quantized quality, or null if there's none
+     * @return an array indexed by recalibrated qualities from 0 to RecalDatum.MAX_RECALIBRATED_Q_SCORE
+     */
+    protected static byte[] constructRecalibratedQualMapping(final List<Byte> quantizedQuals, final byte[] staticQuantizedMapping) {
+        final byte[] mapping = new byte[RecalDatum.MAX_RECALIBRATED_Q_SCORE + 1];
+        for ( int qual = 0; qual < mapping.length; qual++ ) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            mapping[qual] = staticQuantizedMapping != null ? staticQuantizedMapping[quantizedQual] : quantizedQual;
+        }
+        return mapping;
+    }
+
     /**
      * Constructs an array that maps particular quantized values to a rounded value in staticQuantizedQuals
      *
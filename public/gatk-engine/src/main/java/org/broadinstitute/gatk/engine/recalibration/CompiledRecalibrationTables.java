@@ -0,0 +1,248 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.recalibration;
+
+import org.broadinstitute.gatk.utils.collections.NestedIntegerArray;
+import org.broadinstitute.gatk.utils.recalibration.EventType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The recalibration tables of a RecalibrationReport, precomputed for applying BQSR to reads
+ *
+ * BaseRecalibration.hierarchicalBayesianQualityEstimate() walks from the read group datum down through the
+ * quality score datum to each covariate datum, using the estimate at each level as the prior for the next.
+ * Every one of those priors depends only on the read group, reported quality and event type of the base,
+ * which are themselves keys of every table.  So each level's contribution is a constant per table cell,
+ * and is computed here once, up front:
+ *
+ * - for each read group x reported quality x event, epsilon + globalDeltaQ + deltaQReported, in a dense array
+ * - for each optional covariate, the delta of each observed cell, in a sparse primitive hash table
+ *
+ * Recalibrating a base then costs a dense array lookup plus one hash probe per optional covariate, with
+ * no object allocation, no locking and no empirical quality math.  The arithmetic is performed in the
+ * same order as hierarchicalBayesianQualityEstimate(), so the results are identical to it.
+ *
+ * Instances are immutable once built, and so can be shared between threads.
+ */
+public final class CompiledRecalibrationTables {
+    private final static int EVENT_DIMENSION = EventType.values().length;
+
+    private final int numReadGroups;
+    private final int qualDimension;
+
+    /**
+     * Is there read group data for each read group x event?  Bases without it aren't recalibrated
+     */
+    private final boolean[] hasReadGroupData;
+
+    /**
+     * epsilon + globalDeltaQ, indexed by read group x event, for reported qualities beyond qualDimension
+     */
+    private final double[] readGroupQuals;
+
+    /**
+     * epsilon + globalDeltaQ + deltaQReported, indexed by read group x reported quality x event
+     */
+    private final double[] reportedQuals;
+
+    /**
+     * The delta of each optional covariate table, indexed like the RecalibrationTables.  The read group and
+     * quality score entries are null
+     */
+    private final DeltaTable[] covariateDeltas;
+
+    /**
+     * Precompute the recalibration of tables
+     *
+     * @param tables the recalibration tables from a RecalibrationReport
+     * @param globalQScorePrior if > 0.0, the prior to use for the read group level of base substitutions
+     */
+    public CompiledRecalibrationTables(final RecalibrationTables tables, final double globalQScorePrior) {
+        if ( tables == null ) throw new IllegalArgumentException("tables cannot be null");
+
+        final int[] qualityScoreDimensions = tables.getQualityScoreTable().getDimensions();
+        numReadGroups = qualityScoreDimensions[0];
+        qualDimension = qualityScoreDimensions[1];
+
+        hasReadGroupData = new boolean[numReadGroups * EVENT_DIMENSION];
+        readGroupQuals = new double[numReadGroups * EVENT_DIMENSION];
+        final double[] epsilons = new double[numReadGroups * EVENT_DIMENSION];
+        final double[] globalDeltaQs = new double[numReadGroups * EVENT_DIMENSION];
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : tables.getReadGroupTable().getAllLeaves() ) {
+            final int rgKey = leaf.keys[0];
+            final int eventIndex = leaf.keys[1];
+            if ( rgKey >= numReadGroups )
+                continue;
+
+            final int index = rgKey * EVENT_DIMENSION + eventIndex;
+            final double epsilon = ( globalQScorePrior > 0.0 && eventIndex == EventType.BASE_SUBSTITUTION.ordinal() ? globalQScorePrior : leaf.value.getEstimatedQReported() );
+            final double globalDeltaQ = leaf.value.getEmpiricalQuality(epsilon) - epsilon;
+            hasReadGroupData[index] = true;
+            epsilons[index] = epsilon;
+            globalDeltaQs[index] = globalDeltaQ;
+            readGroupQuals[index] = epsilon + globalDeltaQ + 0.0;
+        }
+
+        // the prior passed down to the optional covariates is summed in a different order than the final
+        // estimate, so we keep both to stay bit-for-bit identical to hierarchicalBayesianQualityEstimate
+        reportedQuals = new double[numReadGroups * qualDimension * EVENT_DIMENSION];
+        final double[] covariatePriors = new double[reportedQuals.length];
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = tables.getQualityScoreTable();
+        for ( int rgKey = 0; rgKey < numReadGroups; rgKey++ ) {
+            for ( int eventIndex = 0; eventIndex < EVENT_DIMENSION; eventIndex++ ) {
+                if ( ! hasReadGroupData[rgKey * EVENT_DIMENSION + eventIndex] )
+                    continue;
+
+                final double epsilon = epsilons[rgKey * EVENT_DIMENSION + eventIndex];
+                final double globalDeltaQ = globalDeltaQs[rgKey * EVENT_DIMENSION + eventIndex];
+                for ( int qual = 0; qual < qualDimension; qual++ ) {
+                    final RecalDatum empiricalQualQS = qualityScoreTable.get(rgKey, qual, eventIndex);
+                    final double deltaQReported = ( empiricalQualQS == null ? 0.0 : empiricalQualQS.getEmpiricalQuality(globalDeltaQ + epsilon) - (globalDeltaQ + epsilon) );
+                    final int index = qualIndex(rgKey, qual, eventIndex);
+                    reportedQuals[index] = epsilon + globalDeltaQ + deltaQReported;
+                    covariatePriors[index] = deltaQReported + globalDeltaQ + epsilon;
+                }
+            }
+        }
+
+        covariateDeltas = new DeltaTable[tables.numTables()];
+        for ( int i = RecalibrationTables.TableType.OPTIONAL_COVARIATE_TABLES_START.ordinal(); i < covariateDeltas.length; i++ ) {
+            final List<NestedIntegerArray.Leaf<RecalDatum>> leaves = tables.getTable(i).getAllLeaves();
+            final DeltaTable deltas = new DeltaTable(tables.getTable(i).getDimensions(), leaves.size());
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : leaves ) {
+                final int rgKey = leaf.keys[0];
+                final int qual = leaf.keys[1];
+                final int eventIndex = leaf.keys[3];
+                if ( rgKey >= numReadGroups || qual >= qualDimension || ! hasReadGroupData[rgKey * EVENT_DIMENSION + eventIndex] )
+                    continue;
+
+                final double prior = covariatePriors[qualIndex(rgKey, qual, eventIndex)];
+                deltas.put(leaf.keys, leaf.value.getEmpiricalQuality(prior) - prior);
+            }
+            covariateDeltas[i] = deltas;
+        }
+    }
+
+    /**
+     * Can bases of the read group with key rgKey be recalibrated for eventType?
+     *
+     * @param rgKey the read group covariate key of the read
+     * @param eventType the event type
+     * @return true if the tables contain read group level data for rgKey and eventType
+     */
+    public boolean canRecalibrate(final int rgKey, final EventType eventType) {
+        return rgKey >= 0 && rgKey < numReadGroups && hasReadGroupData[rgKey * EVENT_DIMENSION + eventType.ordinal()];
+    }
+
+    /**
+     * Get the recalibrated quality of a base
+     *
+     * Equivalent to hierarchicalBayesianQualityEstimate() on the RecalDatums at keySet.  Only valid if
+     * canRecalibrate(keySet[0], eventType) is true
+     *
+     * @param keySet the covariate keys of the base, as computed by RecalUtils.computeCovariates
+     * @param eventType the event type being recalibrated
+     * @return the recalibrated quality, before rounding and quantization
+     */
+    public double getRecalibratedQuality(final int[] keySet, final EventType eventType) {
+        final int rgKey = keySet[0];
+        final int qual = keySet[1];
+        final int eventIndex = eventType.ordinal();
+
+        double deltaQCovariates = 0.0;
+        for ( int i = RecalibrationTables.TableType.OPTIONAL_COVARIATE_TABLES_START.ordinal(); i < covariateDeltas.length; i++ ) {
+            if ( keySet[i] < 0 )
+                continue;
+            deltaQCovariates += covariateDeltas[i].get(rgKey, qual, keySet[i], eventIndex);
+        }
+
+        final double reported = qual < qualDimension ? reportedQuals[qualIndex(rgKey, qual, eventIndex)] : readGroupQuals[rgKey * EVENT_DIMENSION + eventIndex];
+        return reported + deltaQCovariates;
+    }
+
+    private int qualIndex(final int rgKey, final int qual, final int eventIndex) {
+        return (rgKey * qualDimension + qual) * EVENT_DIMENSION + eventIndex;
+    }
+
+    /**
+     * A fixed size open-addressing hash table from the keys of a four dimensional table to the delta of each
+     * key, with 0.0 for keys that were never put
+     */
+    private final static class DeltaTable {
+        private final static long EMPTY = -1L;
+
+        private final int[] dimensions;
+        private final long[] indices;
+        private final double[] deltas;
+        private final int mask;
+
+        private DeltaTable(final int[] dimensions, final int maxSize) {
+            this.dimensions = dimensions.clone();
+
+            // keep the load factor at or below 1/2
+            int capacity = 16;
+            while ( capacity < 2 * maxSize )
+                capacity <<= 1;
+            indices = new long[capacity];
+            Arrays.fill(indices, EMPTY);
+            deltas = new double[capacity];
+            mask = capacity - 1;
+        }
+
+        private void put(final int[] keys, final double delta) {
+            final long index = index(keys[0], keys[1], keys[2], keys[3]);
+            int slot = slotFor(index);
+            while ( indices[slot] != EMPTY && indices[slot] != index )
+                slot = (slot + 1) & mask;
+            indices[slot] = index;
+            deltas[slot] = delta;
+        }
+
+        private double get(final int key0, final int key1, final int key2, final int key3) {
+            // NestedIntegerArray.get() finds nothing for keys beyond its dimensions, so neither do we
+            if ( key1 >= dimensions[1] || key2 >= dimensions[2] )
+                return 0.0;
+
+            final long index = index(key0, key1, key2, key3);
+            for ( int slot = slotFor(index); indices[slot] != EMPTY; slot = (slot + 1) & mask ) {
+                if ( indices[slot] == index )
+                    return deltas[slot];
+            }
+            return 0.0;
+        }
+
+        private long index(final int key0, final int key1, final int key2, final int key3) {
+            return (((long)key0 * dimensions[1] + key1) * dimensions[2] + key2) * dimensions[3] + key3;
+        }
+
+        private int slotFor(final long index) {
+            // Fibonacci hashing spreads the strided indices across the table
+            return (int)((index * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
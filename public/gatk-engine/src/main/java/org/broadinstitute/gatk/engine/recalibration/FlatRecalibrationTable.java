@@ -0,0 +1,254 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.recalibration;
+
+import org.broadinstitute.gatk.utils.collections.NestedIntegerArray;
+import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
+
+import java.util.Arrays;
+
+/**
+ * A primitive-backed accumulator of recalibration observations, for a single thread.
+ *
+ * Each combination of covariate keys is flattened into a single mixed-radix index over the table's
+ * dimensions, and the observation count, mismatch sum and reported quality of each occupied index are
+ * kept in parallel primitive arrays of an open-addressing hash table.  Updating a cell is therefore a
+ * hash probe and two additions, with no RecalDatum allocation and no locking.  The table is sparse, so
+ * it costs memory only for the covariate combinations actually seen, like the lazily allocated
+ * NestedIntegerArray it stands in for.
+ *
+ * The table is NOT thread-safe: the intended use is one table per thread, converted with
+ * {@link #addTo(NestedIntegerArray)} once all of the data has been collected.
+ */
+public final class FlatRecalibrationTable {
+    private final static int INITIAL_CAPACITY = 1024;
+    private final static long EMPTY = -1L;
+
+    private final int[] dimensions;
+
+    /**
+     * The mixed-radix multiplier of each dimension
+     */
+    private final long[] strides;
+
+    private long[] indices;
+    private long[] numObservations;
+    private double[] numMismatches;
+    private byte[] reportedQuals;
+    private int size = 0;
+    private int mask;
+
+    /**
+     * Create an empty table over the given dimensions
+     *
+     * @param dimensions the number of possible keys in each dimension, the product of which must fit in a long
+     */
+    public FlatRecalibrationTable(final int... dimensions) {
+        if ( dimensions == null || dimensions.length == 0 )
+            throw new IllegalArgumentException("There must be at least one dimension to a FlatRecalibrationTable");
+
+        this.dimensions = dimensions.clone();
+        strides = new long[dimensions.length];
+        long stride = 1;
+        for ( int i = dimensions.length - 1; i >= 0; i-- ) {
+            if ( dimensions[i] < 1 ) throw new IllegalArgumentException("Dimension " + i + " must be >= 1 but got " + dimensions[i]);
+            strides[i] = stride;
+            if ( stride > Long.MAX_VALUE / dimensions[i] ) throw new IllegalArgumentException("Dimensions " + Arrays.toString(dimensions) + " are too large to index with a long");
+            stride *= dimensions[i];
+        }
+
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return the dimensions of this table.  DO NOT MODIFY
+     */
+    public int[] getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the number of distinct key combinations that have been observed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Record one observation at the given keys of a three dimensional table
+     *
+     * @param reportedQual the reported quality of the observation, kept from the first observation of each cell
+     * @param isError the error fraction of the observation
+     */
+    public void increment(final byte reportedQual, final double isError, final int key0, final int key1, final int key2) {
+        if ( dimensions.length != 3 ) throw new ReviewedGATKException("Exactly " + dimensions.length + " keys should be passed to this FlatRecalibrationTable but 3 were provided");
+        increment(reportedQual, isError, index(0, key0) + index(1, key1) + index(2, key2));
+    }
+
+    /**
+     * Record one observation at the given keys of a four dimensional table
+     *
+     * @param reportedQual the reported quality of the observation, kept from the first observation of each cell
+     * @param isError the error fraction of the observation
+     */
+    public void increment(final byte reportedQual, final double isError, final int key0, final int key1, final int key2, final int key3) {
+        if ( dimensions.length != 4 ) throw new ReviewedGATKException("Exactly " + dimensions.length + " keys should be passed to this FlatRecalibrationTable but 4 were provided");
+        increment(reportedQual, isError, index(0, key0) + index(1, key1) + index(2, key2) + index(3, key3));
+    }
+
+    /**
+     * Get the number of observations at keys
+     *
+     * @param keys one key per dimension
+     * @return the number of observations, or 0 if nothing has been observed at keys
+     */
+    public long getNumObservations(final int... keys) {
+        final int slot = find(flatten(keys));
+        return slot == -1 ? 0 : numObservations[slot];
+    }
+
+    /**
+     * Get the sum of the error fractions at keys
+     *
+     * @param keys one key per dimension
+     * @return the number of mismatches, or 0.0 if nothing has been observed at keys
+     */
+    public double getNumMismatches(final int... keys) {
+        final int slot = find(flatten(keys));
+        return slot == -1 ? 0.0 : numMismatches[slot];
+    }
+
+    /**
+     * Add a RecalDatum for each occupied cell of this table to table, combining it with any datum already there
+     *
+     * Each new RecalDatum holds exactly the counts and reported quality that incrementing a RecalDatum per
+     * observation with RecalUtils.incrementDatumOrPutIfNecessary would have produced.
+     *
+     * @param table a table with the same dimensions as this one
+     */
+    public void addTo(final NestedIntegerArray<RecalDatum> table) {
+        if ( table == null ) throw new IllegalArgumentException("table cannot be null");
+        if ( ! Arrays.equals(dimensions, table.getDimensions()) )
+            throw new IllegalArgumentException("Table dimensions " + Arrays.toString(table.getDimensions()) + " not equal to " + Arrays.toString(dimensions));
+
+        final int[] keys = new int[dimensions.length];
+        for ( int slot = 0; slot < indices.length; slot++ ) {
+            if ( indices[slot] == EMPTY )
+                continue;
+
+            long remainder = indices[slot];
+            for ( int i = 0; i < dimensions.length; i++ ) {
+                keys[i] = (int)(remainder / strides[i]);
+                remainder %= strides[i];
+            }
+
+            final RecalDatum datum = new RecalDatum(numObservations[slot], numMismatches[slot], reportedQuals[slot]);
+            if ( ! table.put(datum, keys) )
+                table.get(keys).combine(datum);
+        }
+    }
+
+    private long index(final int dimension, final int key) {
+        if ( key < 0 || key >= dimensions[dimension] )
+            throw new ReviewedGATKException("Key " + key + " is out of range for dimension " + dimension + " (max is " + (dimensions[dimension]-1) + ")");
+        return key * strides[dimension];
+    }
+
+    private long flatten(final int[] keys) {
+        if ( keys.length != dimensions.length )
+            throw new ReviewedGATKException("Exactly " + dimensions.length + " keys should be passed to this FlatRecalibrationTable but " + keys.length + " were provided");
+        long flat = 0;
+        for ( int i = 0; i < keys.length; i++ )
+            flat += index(i, keys[i]);
+        return flat;
+    }
+
+    private void increment(final byte reportedQual, final double isError, final long index) {
+        int slot = slotFor(index);
+        while ( indices[slot] != index ) {
+            if ( indices[slot] == EMPTY ) {
+                if ( size >= (indices.length >> 1) ) {
+                    // keep the load factor at or below 1/2, then find the index's new home
+                    allocate(indices.length << 1);
+                    increment(reportedQual, isError, index);
+                    return;
+                }
+                indices[slot] = index;
+                reportedQuals[slot] = reportedQual;
+                size++;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        numObservations[slot]++;
+        numMismatches[slot] += isError;
+    }
+
+    private int find(final long index) {
+        for ( int slot = slotFor(index); indices[slot] != EMPTY; slot = (slot + 1) & mask ) {
+            if ( indices[slot] == index )
+                return slot;
+        }
+        return -1;
+    }
+
+    private int slotFor(final long index) {
+        // Fibonacci hashing spreads the strided indices across the table
+        return (int)((index * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * (Re)allocate the hash table with capacity slots, rehashing any existing cells
+     */
+    private void allocate(final int capacity) {
+        final long[] oldIndices = indices;
+        final long[] oldObservations = numObservations;
+        final double[] oldMismatches = numMismatches;
+        final byte[] oldQuals = reportedQuals;
+
+        indices = new long[capacity];
+        Arrays.fill(indices, EMPTY);
+        numObservations = new long[capacity];
+        numMismatches = new double[capacity];
+        reportedQuals = new byte[capacity];
+        mask = capacity - 1;
+
+        if ( oldIndices != null ) {
+            for ( int old = 0; old < oldIndices.length; old++ ) {
+                if ( oldIndices[old] == EMPTY )
+                    continue;
+                int slot = slotFor(oldIndices[old]);
+                while ( indices[slot] != EMPTY )
+                    slot = (slot + 1) & mask;
+                indices[slot] = oldIndices[old];
+                numObservations[slot] = oldObservations[old];
+                numMismatches[slot] = oldMismatches[old];
+                reportedQuals[slot] = oldQuals[old];
+            }
+        }
+    }
+}
@@ -89,6 +89,31 @@ public class ReadCovariates {
         }
     }
 
+    private ReadCovariates(final int[][][] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Create a ReadCovariates for reads of up to maxReadLength bases that bypasses the keys cache
+     *
+     * Intended to be reused by a single thread for many reads, each overwriting the keys of the last, so
+     * only the first read length positions of the key sets hold the keys of the current read.
+     *
+     * @param maxReadLength the length of the longest read this ReadCovariates can hold
+     * @param numberOfCovariates the number of covariates
+     * @return a new ReadCovariates, not in the keys cache
+     */
+    protected static ReadCovariates createReusable(final int maxReadLength, final int numberOfCovariates) {
+        return new ReadCovariates(new int[EventType.values().length][maxReadLength][numberOfCovariates]);
+    }
+
+    /**
+     * @return the length of the longest read whose keys fit in this ReadCovariates
+     */
+    protected int getMaxReadLength() {
+        return keys[0].length;
+    }
+
     public void setCovariateIndex(final int index) {
         currentCovariateIndex = index;
     }
@@ -42,6 +42,7 @@ import org.broadinstitute.gatk.utils.activeregion.ActiveRegion;
 import org.broadinstitute.gatk.utils.activeregion.ActivityProfile;
 import org.broadinstitute.gatk.utils.activeregion.ActivityProfileState;
 import org.broadinstitute.gatk.utils.activeregion.BandPassActivityProfile;
+import org.broadinstitute.gatk.utils.nanoScheduler.NSExecutionBackend;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSMapFunction;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSProgressFunction;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSReduceFunction;
@@ -123,7 +124,25 @@ public final class TraverseActiveRegions<M, T> extends TraversalEngine<M,T,Activ
      * @param nThreads number of threads
      */
     public TraverseActiveRegions(final int nThreads) {
-        nanoScheduler = new NanoScheduler<>(nThreads);
+        this(nThreads, NSExecutionBackend.QUEUED, nThreads * 100);
+    }
+
+    /**
+     * Create an active region traverser that uses nThreads for getting its work done
+     *
+     * Active regions are determined (the isActive calls, the activity profile and the assignment of
+     * reads to regions) by the NanoScheduler's input iterator, and each region is mapped whole by a
+     * single map call.  The backend only decides how those map calls are spread across threads; the
+     * reduce, and so any output written by the walker, always sees the regions in genomic order.  With
+     * the WORK_STEALING backend at most maxRegionsInFlight regions, each carrying its reads, are held
+     * between the input iterator and the reduce.
+     *
+     * @param nThreads number of threads
+     * @param backend how the NanoScheduler distributes map calls across its threads
+     * @param maxRegionsInFlight the maximum number of regions found but not yet reduced
+     */
+    public TraverseActiveRegions(final int nThreads, final NSExecutionBackend backend, final int maxRegionsInFlight) {
+        nanoScheduler = new NanoScheduler<>(maxRegionsInFlight, nThreads, backend);
         nanoScheduler.setProgressFunction(new NSProgressFunction<MapData>() {
             @Override
             public void progress(MapData lastActiveRegion) {
@@ -34,6 +34,7 @@ import org.broadinstitute.gatk.engine.walkers.DataSource;
 import org.broadinstitute.gatk.engine.walkers.LocusWalker;
 import org.broadinstitute.gatk.engine.walkers.Walker;
 import org.broadinstitute.gatk.utils.GenomeLoc;
+import org.broadinstitute.gatk.utils.nanoScheduler.NSExecutionBackend;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSMapFunction;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSProgressFunction;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSReduceFunction;
@@ -52,7 +53,11 @@ public class TraverseLociNano<M,T> extends TraversalEngine<M,T,LocusWalker<M,T>,
     final NanoScheduler<MapData, MapResult, T> nanoScheduler;
 
     public TraverseLociNano(int nThreads) {
-        nanoScheduler = new NanoScheduler<MapData, MapResult, T>(nThreads);
+        this(nThreads, NSExecutionBackend.QUEUED);
+    }
+
+    public TraverseLociNano(final int nThreads, final NSExecutionBackend backend) {
+        nanoScheduler = new NanoScheduler<MapData, MapResult, T>(nThreads, backend);
         nanoScheduler.setProgressFunction(new TraverseLociProgress());
     }
 
@@ -261,14 +266,20 @@ public class TraverseLociNano<M,T> extends TraversalEngine<M,T,LocusWalker<M,T>,
 
         @Override
         public MapResult apply(final MapData data) {
-            if ( ! walker.isDone() ) {
-                final boolean keepMeP = walker.filter(data.tracker, data.refContext, data.alignmentContext);
-                if (keepMeP) {
-                    final M x = walker.map(data.tracker, data.refContext, data.alignmentContext);
-                    return new MapResult(x);
+            try {
+                if ( ! walker.isDone() ) {
+                    final boolean keepMeP = walker.filter(data.tracker, data.refContext, data.alignmentContext);
+                    if (keepMeP) {
+                        final M x = walker.map(data.tracker, data.refContext, data.alignmentContext);
+                        return new MapResult(x);
+                    }
                 }
+                return SKIP_REDUCE;
+            } finally {
+                // the walker is done with the pileup, so it can be reused at another locus
+                if ( walker.usesColumnarPileups() )
+                    data.alignmentContext.releaseColumnarPileup();
             }
-            return SKIP_REDUCE;
         }
     }
 
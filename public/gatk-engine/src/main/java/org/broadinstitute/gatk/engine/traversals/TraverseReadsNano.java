@@ -32,16 +32,20 @@ import org.broadinstitute.gatk.engine.datasources.providers.ReadBasedReferenceOr
 import org.broadinstitute.gatk.engine.datasources.providers.ReadReferenceView;
 import org.broadinstitute.gatk.engine.datasources.providers.ReadShardDataProvider;
 import org.broadinstitute.gatk.engine.datasources.providers.ReadView;
+import org.broadinstitute.gatk.engine.iterators.ReadTransformer;
 import org.broadinstitute.gatk.utils.refdata.RefMetaDataTracker;
 import org.broadinstitute.gatk.engine.walkers.ReadWalker;
+import org.broadinstitute.gatk.utils.nanoScheduler.NSExecutionBackend;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSMapFunction;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSProgressFunction;
 import org.broadinstitute.gatk.utils.nanoScheduler.NSReduceFunction;
 import org.broadinstitute.gatk.utils.nanoScheduler.NanoScheduler;
 import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * A nano-scheduling version of TraverseReads.
@@ -61,7 +65,11 @@ public class TraverseReadsNano<M,T> extends TraversalEngine<M,T,ReadWalker<M,T>,
     final NanoScheduler<MapData, MapResult, T> nanoScheduler;
 
     public TraverseReadsNano(int nThreads) {
-        nanoScheduler = new NanoScheduler<MapData, MapResult, T>(nThreads);
+        this(nThreads, NSExecutionBackend.QUEUED);
+    }
+
+    public TraverseReadsNano(final int nThreads, final NSExecutionBackend backend) {
+        nanoScheduler = new NanoScheduler<MapData, MapResult, T>(nThreads, backend);
         nanoScheduler.setProgressFunction(new NSProgressFunction<MapData>() {
             @Override
             public void progress(MapData lastProcessedMap) {
@@ -216,16 +224,31 @@ public class TraverseReadsNano<M,T> extends TraversalEngine<M,T,ReadWalker<M,T>,
     private class TraverseReadsMap implements NSMapFunction<MapData, MapResult> {
         final ReadWalker<M,T> walker;
 
+        /**
+         * The read transformers the engine has left for us to apply in map, in order
+         */
+        final List<ReadTransformer> readTransformers = new ArrayList<ReadTransformer>();
+
         private TraverseReadsMap(ReadWalker<M, T> walker) {
             this.walker = walker;
+            if ( engine != null && engine.getReadTransformers() != null ) {
+                for ( final ReadTransformer transformer : engine.getReadTransformers() ) {
+                    if ( transformer.enabled() && transformer.getApplicationTime() == ReadTransformer.ApplicationTime.IN_MAP )
+                        readTransformers.add(transformer);
+                }
+            }
         }
 
         @Override
         public MapResult apply(final MapData data) {
             if ( ! walker.isDone() ) {
-                final boolean keepMeP = walker.filter(data.refContext, data.read);
+                GATKSAMRecord read = data.read;
+                for ( final ReadTransformer transformer : readTransformers )
+                    read = transformer.apply(read);
+
+                final boolean keepMeP = walker.filter(data.refContext, read);
                 if (keepMeP)
-                    return new MapResult(walker.map(data.refContext, data.read, data.tracker));
+                    return new MapResult(walker.map(data.refContext, read, data.tracker));
             }
 
             return SKIP_REDUCE;
@@ -55,4 +55,20 @@ public abstract class LocusWalker<MapType, ReduceType> extends Walker<MapType, R
 
     // Map over the org.broadinstitute.gatk.engine.contexts.AlignmentContext
     public abstract MapType map(RefMetaDataTracker tracker, ReferenceContext ref, AlignmentContext context);
+
+    /**
+     * (conceptual static) method that states whether this walker reads its pileups through
+     * AlignmentContext.getColumnarPileup().
+     *
+     * If true, the engine fills in reusable columnar pileups instead of creating a ReadBackedPileup of
+     * PileupElements at every locus, and gives each columnar pileup back to its pool as soon as filter() or
+     * map() returns.  Walkers returning true must therefore not hold on to the AlignmentContext, or its
+     * columnar pileup, past the end of map().  getBasePileup() still works within map(), but creates the
+     * PileupElements we're trying to avoid.
+     *
+     * @return true if this walker only uses the pileups of its contexts within filter() and map()
+     */
+    public boolean usesColumnarPileups() {
+        return false;
+    }
 }
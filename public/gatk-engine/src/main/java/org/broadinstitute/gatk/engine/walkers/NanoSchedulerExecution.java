@@ -0,0 +1,52 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.walkers;
+
+import org.broadinstitute.gatk.utils.nanoScheduler.NSExecutionBackend;
+
+import java.lang.annotation.*;
+
+/**
+ * Lets a NanoSchedulable walker choose how the engine distributes its map calls
+ * across the -nct threads.  Walkers without this annotation use the QUEUED backend.
+ *
+ * Reduce is always applied in input order, whichever backend is chosen.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface NanoSchedulerExecution {
+    NSExecutionBackend backend() default NSExecutionBackend.QUEUED;
+
+    /**
+     * How many input elements per thread may be read ahead of the reduce?
+     *
+     * Walkers whose inputs hold a lot of data, such as active regions carrying all of their reads,
+     * should keep this small to bound memory use.  Only enforced by the WORK_STEALING backend.
+     */
+    int bufferSizePerThread() default 100;
+}
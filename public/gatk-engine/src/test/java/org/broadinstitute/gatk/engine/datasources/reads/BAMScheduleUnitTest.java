@@ -0,0 +1,102 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.datasources.reads;
+
+import htsjdk.samtools.ValidationStringency;
+import org.broadinstitute.gatk.engine.filters.ReadFilter;
+import org.broadinstitute.gatk.engine.resourcemanagement.ThreadAllocation;
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.broadinstitute.gatk.utils.GenomeLoc;
+import org.broadinstitute.gatk.utils.GenomeLocParser;
+import org.broadinstitute.gatk.utils.ValidationExclusion;
+import org.broadinstitute.gatk.utils.commandline.Tags;
+import org.broadinstitute.gatk.utils.fasta.CachingIndexedFastaSequenceFile;
+import org.broadinstitute.gatk.utils.sam.SAMReaderID;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BAMScheduleUnitTest extends BaseTest {
+    private SAMDataSource dataSource;
+    private List<GenomeLoc> intervals;
+
+    @BeforeClass
+    public void init() throws FileNotFoundException {
+        final File referenceFile = new File(exampleFASTA);
+        final GenomeLocParser genomeLocParser = new GenomeLocParser(new CachingIndexedFastaSequenceFile(referenceFile));
+        final List<SAMReaderID> readers = Collections.singletonList(new SAMReaderID(new File(publicTestDir + "exampleBAM.bam"), new Tags()));
+        dataSource = new SAMDataSource(
+                referenceFile,
+                readers,
+                new ThreadAllocation(),
+                null,
+                genomeLocParser,
+                false,
+                ValidationStringency.SILENT,
+                null,
+                null,
+                new ValidationExclusion(),
+                new ArrayList<ReadFilter>(),
+                false);
+        intervals = Arrays.asList(genomeLocParser.createGenomeLoc("chr1", 1, 50000), genomeLocParser.createGenomeLoc("chr1", 90000, 100000));
+    }
+
+    private List<String> readSchedule(final BAMSchedule schedule) {
+        final List<String> entries = new ArrayList<String>();
+        while(schedule.hasNext()) {
+            final BAMScheduleEntry entry = schedule.next();
+            entries.add(entry.start + "-" + entry.stop + ":" + entry.fileSpans);
+        }
+        return entries;
+    }
+
+    @Test
+    public void testSpilledScheduleMatchesInMemorySchedule() {
+        final BAMSchedule inMemory = new BAMSchedule(dataSource, intervals);
+        final BAMSchedule spilled = new BAMSchedule(dataSource, intervals, 0);
+        try {
+            Assert.assertFalse(inMemory.isSpilled());
+            Assert.assertTrue(spilled.isSpilled());
+            Assert.assertTrue(inMemory.getScheduleSize() > 0);
+            Assert.assertEquals(spilled.getScheduleSize(), inMemory.getScheduleSize());
+
+            final List<String> inMemoryEntries = readSchedule(inMemory);
+            Assert.assertFalse(inMemoryEntries.isEmpty());
+            Assert.assertEquals(readSchedule(spilled), inMemoryEntries);
+        }
+        finally {
+            inMemory.close();
+            spilled.close();
+        }
+    }
+}
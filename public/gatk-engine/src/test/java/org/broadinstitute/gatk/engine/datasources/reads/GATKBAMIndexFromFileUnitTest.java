@@ -25,11 +25,13 @@
 
 package org.broadinstitute.gatk.engine.datasources.reads;
 
+import htsjdk.samtools.Bin;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
 import org.broadinstitute.gatk.utils.BaseTest;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
+import org.broadinstitute.gatk.utils.io.IOUtils;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -111,4 +113,30 @@ public class GATKBAMIndexFromFileUnitTest extends BaseTest {
         index.readReferenceSequence(0);
     }
 
+    @Test
+    public void testLayoutCache() throws IOException {
+        final File bamWithUnmapped = new File(publicTestDir + "exampleBAM_with_unmapped.bam");
+        final File indexWithUnmapped = new File(publicTestDir + "exampleBAM_with_unmapped.bai");
+        final SamReader reader = SamReaderFactory.makeDefault().open(bamWithUnmapped);
+        final SAMSequenceDictionary dictionary = reader.getFileHeader().getSequenceDictionary();
+        reader.close();
+
+        final File cacheDirectory = IOUtils.tempDir("baiLayoutCache.", ".test");
+        try {
+            final GATKBAMIndex uncached = new GATKBAMIndexFromFile(indexWithUnmapped, dictionary);
+            final GATKBAMIndex cacheWriter = new GATKBAMIndexFromFile(indexWithUnmapped, dictionary, cacheDirectory);
+            Assert.assertEquals(cacheDirectory.listFiles().length, 1, "the layout of the index should have been cached");
+            final GATKBAMIndex cacheReader = new GATKBAMIndexFromFile(indexWithUnmapped, dictionary, cacheDirectory);
+
+            Assert.assertEquals(cacheWriter.getStartOfLastLinearBin(), uncached.getStartOfLastLinearBin());
+            Assert.assertEquals(cacheReader.getStartOfLastLinearBin(), uncached.getStartOfLastLinearBin());
+            for (int sequence = dictionary.size() - 1; sequence >= 0; sequence--) {
+                final Bin bin = new Bin(sequence, 0);
+                final String expected = String.valueOf(uncached.readReferenceSequence(sequence).getSpanOverlapping(bin));
+                Assert.assertEquals(String.valueOf(cacheReader.readReferenceSequence(sequence).getSpanOverlapping(bin)), expected);
+            }
+        } finally {
+            IOUtils.tryDelete(cacheDirectory);
+        }
+    }
 }
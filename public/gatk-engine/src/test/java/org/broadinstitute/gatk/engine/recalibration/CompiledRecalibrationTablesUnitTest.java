@@ -0,0 +1,135 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.recalibration;
+
+import org.broadinstitute.gatk.engine.recalibration.covariates.Covariate;
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.broadinstitute.gatk.utils.recalibration.EventType;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CompiledRecalibrationTablesUnitTest extends BaseTest {
+    private final static int NUM_READ_GROUPS = 3;
+
+    /**
+     * Make tables with data for most, but not all, of the read groups, qualities and covariate keys
+     */
+    private static RecalibrationTables makeTables(final Covariate[] covariates, final long seed) {
+        final Random random = new Random(seed);
+        final RecalibrationTables tables = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+
+        for ( int rg = 0; rg < NUM_READ_GROUPS; rg++ ) {
+            for ( final EventType event : EventType.values() ) {
+                // no data at all for the last read group's deletions
+                if ( rg == NUM_READ_GROUPS - 1 && event == EventType.BASE_DELETION )
+                    continue;
+
+                tables.getReadGroupTable().put(makeDatum(random, 1000000), rg, event.ordinal());
+                for ( int qual = 5; qual < 45; qual++ ) {
+                    if ( random.nextInt(4) == 0 )
+                        continue;
+                    tables.getQualityScoreTable().put(makeDatum(random, 10000), rg, qual, event.ordinal());
+                    for ( int i = 2; i < covariates.length; i++ ) {
+                        for ( int key = 0; key < 50; key++ ) {
+                            if ( random.nextBoolean() )
+                                tables.getTable(i).put(makeDatum(random, 1000), rg, qual, key, event.ordinal());
+                        }
+                    }
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    private static RecalDatum makeDatum(final Random random, final int maxObservations) {
+        final long nObservations = 1 + random.nextInt(maxObservations);
+        final double nErrors = random.nextDouble() * 0.05 * nObservations;
+        return new RecalDatum(nObservations, nErrors, (byte)(10 + random.nextInt(30)));
+    }
+
+    @DataProvider(name = "GlobalQScorePriors")
+    public Object[][] makeGlobalQScorePriors() {
+        return new Object[][]{{-1.0}, {0.0}, {30.0}};
+    }
+
+    @Test(dataProvider = "GlobalQScorePriors")
+    public void testMatchesHierarchicalBayesianQualityEstimate(final double globalQScorePrior) {
+        final Covariate[] covariates = RecalibrationTestUtils.makeInitializedStandardCovariates();
+        final CompiledRecalibrationTables compiled = new CompiledRecalibrationTables(makeTables(covariates, 42), globalQScorePrior);
+
+        // compare against an identical, but separate, set of tables, as RecalDatums cache their empirical quality
+        final RecalibrationTables tables = makeTables(covariates, 42);
+        final Random random = new Random(7);
+
+        for ( int rg = 0; rg < NUM_READ_GROUPS + 1; rg++ ) {
+            for ( final EventType event : EventType.values() ) {
+                final RecalDatum empiricalQualRG = tables.getReadGroupTable().get(rg, event.ordinal());
+                Assert.assertEquals(compiled.canRecalibrate(rg, event), empiricalQualRG != null);
+                if ( empiricalQualRG == null )
+                    continue;
+
+                final double epsilon = globalQScorePrior > 0.0 && event == EventType.BASE_SUBSTITUTION ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+                for ( int qual = 0; qual < 50; qual++ ) {
+                    for ( int trial = 0; trial < 20; trial++ ) {
+                        // keys beyond the data, and missing (negative) keys, are all fair game
+                        final int[] keySet = new int[covariates.length];
+                        keySet[0] = rg;
+                        keySet[1] = qual;
+                        for ( int i = 2; i < covariates.length; i++ )
+                            keySet[i] = random.nextInt(10) == 0 ? -1 : random.nextInt(60);
+
+                        final List<RecalDatum> empiricalQualCovs = new ArrayList<RecalDatum>();
+                        for ( int i = 2; i < covariates.length; i++ ) {
+                            if ( keySet[i] < 0 )
+                                continue;
+                            empiricalQualCovs.add(tables.getTable(i).get(rg, qual, keySet[i], event.ordinal()));
+                        }
+                        final double expected = BaseRecalibration.hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG,
+                                tables.getQualityScoreTable().get(rg, qual, event.ordinal()), empiricalQualCovs);
+
+                        // bit-identical, not just close
+                        Assert.assertEquals(Double.doubleToLongBits(compiled.getRecalibratedQuality(keySet, event)), Double.doubleToLongBits(expected));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyTables() {
+        final Covariate[] covariates = RecalibrationTestUtils.makeInitializedStandardCovariates();
+        final CompiledRecalibrationTables compiled = new CompiledRecalibrationTables(new RecalibrationTables(covariates, NUM_READ_GROUPS), -1.0);
+        for ( int rg = -1; rg <= NUM_READ_GROUPS; rg++ )
+            for ( final EventType event : EventType.values() )
+                Assert.assertFalse(compiled.canRecalibrate(rg, event));
+    }
+}
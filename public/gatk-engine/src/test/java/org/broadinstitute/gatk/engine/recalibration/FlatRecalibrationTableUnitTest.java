@@ -0,0 +1,142 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.engine.recalibration;
+
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.broadinstitute.gatk.utils.collections.NestedIntegerArray;
+import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FlatRecalibrationTableUnitTest extends BaseTest {
+
+    @DataProvider(name = "Dimensions")
+    public Object[][] makeDimensions() {
+        final List<Object[]> tests = new ArrayList<Object[]>();
+
+        // dimensions, number of observations
+        tests.add(new Object[]{new int[]{1, 94, 3}, 10});
+        tests.add(new Object[]{new int[]{4, 94, 3}, 100000});
+        tests.add(new Object[]{new int[]{4, 94, 1003, 3}, 100000});
+        tests.add(new Object[]{new int[]{20, 94, 65536, 3}, 100000});
+
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "Dimensions")
+    public void testMatchesNestedIntegerArray(final int[] dimensions, final int nObservations) {
+        final Random random = new Random(42);
+        final FlatRecalibrationTable flat = new FlatRecalibrationTable(dimensions);
+        final NestedIntegerArray<RecalDatum> nested = new NestedIntegerArray<RecalDatum>(dimensions);
+
+        for ( int n = 0; n < nObservations; n++ ) {
+            // skew the keys so that some cells see many observations and most see few
+            final int[] keys = new int[dimensions.length];
+            for ( int i = 0; i < keys.length; i++ )
+                keys[i] = Math.min(dimensions[i] - 1, (int)Math.abs(random.nextGaussian() * Math.min(dimensions[i], 20)));
+            final byte qual = (byte)keys[1];
+            final double isError = random.nextInt(10) == 0 ? random.nextDouble() : 0.0;
+
+            if ( dimensions.length == 3 )
+                flat.increment(qual, isError, keys[0], keys[1], keys[2]);
+            else
+                flat.increment(qual, isError, keys[0], keys[1], keys[2], keys[3]);
+            RecalUtils.incrementDatumOrPutIfNecessary(nested, qual, isError, keys);
+        }
+
+        final List<NestedIntegerArray.Leaf<RecalDatum>> expected = nested.getAllLeaves();
+        Assert.assertEquals(flat.size(), expected.size());
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : expected ) {
+            Assert.assertEquals(flat.getNumObservations(leaf.keys), leaf.value.getNumObservations());
+            Assert.assertEquals(flat.getNumMismatches(leaf.keys), leaf.value.getNumMismatches());
+        }
+
+        final NestedIntegerArray<RecalDatum> converted = new NestedIntegerArray<RecalDatum>(dimensions);
+        flat.addTo(converted);
+        final List<NestedIntegerArray.Leaf<RecalDatum>> actual = converted.getAllLeaves();
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < expected.size(); i++ ) {
+            final RecalDatum expectedDatum = expected.get(i).value;
+            final RecalDatum actualDatum = actual.get(i).value;
+            Assert.assertEquals(actual.get(i).keys, expected.get(i).keys);
+            Assert.assertEquals(actualDatum.getNumObservations(), expectedDatum.getNumObservations());
+            // bit-identical, not just close
+            Assert.assertEquals(Double.doubleToLongBits(actualDatum.getNumMismatches()), Double.doubleToLongBits(expectedDatum.getNumMismatches()));
+            Assert.assertEquals(Double.doubleToLongBits(actualDatum.getEstimatedQReported()), Double.doubleToLongBits(expectedDatum.getEstimatedQReported()));
+        }
+    }
+
+    @Test
+    public void testAddToCombinesWithExistingData() {
+        final FlatRecalibrationTable flat = new FlatRecalibrationTable(2, 50, 3);
+        flat.increment((byte)20, 1.0, 1, 20, 0);
+        flat.increment((byte)20, 0.0, 1, 20, 0);
+
+        final NestedIntegerArray<RecalDatum> table = new NestedIntegerArray<RecalDatum>(2, 50, 3);
+        table.put(new RecalDatum(8, 1.0, (byte)30), 1, 20, 0);
+        flat.addTo(table);
+
+        final RecalDatum expected = new RecalDatum(8, 1.0, (byte)30);
+        expected.combine(new RecalDatum(2, 1.0, (byte)20));
+        final RecalDatum actual = table.get(1, 20, 0);
+        Assert.assertEquals(actual.getNumObservations(), 10);
+        Assert.assertEquals(actual.getNumMismatches(), 2.0);
+        Assert.assertEquals(actual.getEstimatedQReported(), expected.getEstimatedQReported());
+    }
+
+    @Test
+    public void testUnobservedKeys() {
+        final FlatRecalibrationTable flat = new FlatRecalibrationTable(2, 50, 3);
+        Assert.assertEquals(flat.size(), 0);
+        Assert.assertEquals(flat.getNumObservations(1, 2, 0), 0);
+        Assert.assertEquals(flat.getNumMismatches(1, 2, 0), 0.0);
+    }
+
+    @Test(expectedExceptions = ReviewedGATKException.class)
+    public void testKeyTooLarge() {
+        new FlatRecalibrationTable(2, 50, 3).increment((byte)20, 0.0, 2, 20, 0);
+    }
+
+    @Test(expectedExceptions = ReviewedGATKException.class)
+    public void testWrongNumberOfKeys() {
+        new FlatRecalibrationTable(2, 50, 3).increment((byte)20, 0.0, 1, 20, 0, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoDimensions() {
+        new FlatRecalibrationTable();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMismatchedAddTo() {
+        new FlatRecalibrationTable(2, 50, 3).addTo(new NestedIntegerArray<RecalDatum>(2, 50, 4));
+    }
+}
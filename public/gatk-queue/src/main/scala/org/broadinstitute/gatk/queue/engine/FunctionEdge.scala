@@ -37,8 +37,11 @@ import org.apache.commons.lang.StringUtils
  * The edge is created first to determine inter-node dependencies,
  * and then the runner is specified later when the time comes to
  * execute the function in the edge.
+ *
+ * When a job state store is given the status of the function from previous runs is looked up there,
+ * and changes to the status of the function are recorded there as they happen.
  */
-class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNode) extends QEdge with Logging {
+class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNode, val stateStore: QJobStateStore = null) extends QEdge with Logging {
   var runner: JobRunner[_] =_
 
   /**
@@ -53,16 +56,40 @@ class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNod
    */
   var resetFromStatus: RunnerStatus.Value = null
 
+  private var statusValue: RunnerStatus.Value = null
+
+  /**
+   * The current status of the function, initialized on first use with the status from previous runs.
+   */
+  private def currentStatus = {
+    if (statusValue == null)
+      statusValue = initialStatus
+    statusValue
+  }
+
+  private def currentStatus_=(status: RunnerStatus.Value) {
+    statusValue = status
+  }
+
   /**
-   * Initializes with the current status of the function.
+   * Returns the status of the function from previous runs.  The job state store, if any, is the authority,
+   * so the done and fail files are only checked for functions it has never seen, and what they say is then
+   * recorded in the store for the next run.
    */
-  private var currentStatus = {
-    if (function.isFail)
-      RunnerStatus.FAILED
-    else if (function.isDone)
-      RunnerStatus.DONE
-    else
-      RunnerStatus.PENDING
+  private def initialStatus = {
+    val stored = if (stateStore == null) None else stateStore.status(function)
+    stored.getOrElse {
+      val status =
+        if (function.isFail)
+          RunnerStatus.FAILED
+        else if (function.isDone)
+          RunnerStatus.DONE
+        else
+          RunnerStatus.PENDING
+      if (stateStore != null)
+        stateStore.record(function, status)
+      status
+    }
   }
 
   def start() {
@@ -77,7 +104,7 @@ class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNod
         logger.info("Errors written to " + function.jobErrorFile)
 
       function.deleteLogs()
-      function.deleteOutputs()
+      deleteOutputs()
       function.mkOutputDirectories()
 
       runner.init()
@@ -88,6 +115,7 @@ class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNod
         try {
           runner.cleanup()
           function.failOutputs.foreach(_.createNewFile())
+          recordStatus()
           writeStackTrace(e)
         } catch {
           case _: Throwable => /* ignore errors in the exception handler */
@@ -109,6 +137,7 @@ class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNod
             try {
               runner.cleanup()
               function.failOutputs.foreach(_.createNewFile())
+              recordStatus()
             } catch {
               case _: Throwable => /* ignore errors in the error handler */
             }
@@ -118,6 +147,7 @@ class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNod
             try {
               runner.cleanup()
               function.doneOutputs.foreach(_.createNewFile())
+              recordStatus()
             } catch {
               case _: Throwable => /* ignore errors in the done handler */
             }
@@ -129,6 +159,7 @@ class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNod
             try {
               runner.cleanup()
               function.failOutputs.foreach(_.createNewFile())
+              recordStatus()
               writeStackTrace(e)
             } catch {
               case _: Throwable => /* ignore errors in the exception handler */
@@ -163,13 +194,31 @@ class FunctionEdge(val function: QFunction, val inputs: QNode, val outputs: QNod
       resetFromStatus = currentStatus
     currentStatus = RunnerStatus.PENDING
     if (cleanOutputs)
-      function.deleteOutputs()
+      deleteOutputs()
     function.jobErrorLines = Nil
     runner = null
   }
 
+  /**
+   * Deletes the outputs and status files of the function, which will have to be run again in a later run.
+   * The status of the edge in this run is left as is.
+   */
+  def deleteOutputs() {
+    function.deleteOutputs()
+    if (stateStore != null)
+      stateStore.record(function, RunnerStatus.PENDING)
+  }
+
   override def shortDescription = function.shortDescription
 
+  /**
+   * Records the current status in the job state store, if any, once the done or fail files have been written.
+   */
+  private def recordStatus() {
+    if (stateStore != null)
+      stateStore.record(function, currentStatus)
+  }
+
   /**
    * Returns the path to the file to use for logging errors.
    * @return the path to the file to use for logging errors.
@@ -83,6 +83,11 @@ class QGraph extends Logging {
    */
   private var jobInfoReporter: QJobsReporter = null
 
+  /**
+   * Holds the optional store of job states kept between runs
+   */
+  private var jobStateStore: QJobStateStore = null
+
   private class StatusCounts {
     var pending = 0
     var running = 0
@@ -102,6 +107,8 @@ class QGraph extends Logging {
   def initializeWithSettings(settings: QGraphSettings) {
     this.settings = settings
     this.jobInfoReporter = createJobsReporter()
+    if (settings.jobStateFile != null)
+      this.jobStateStore = new QJobStateStore(org.broadinstitute.gatk.utils.io.IOUtils.absolute(settings.qSettings.runDirectory, settings.jobStateFile), settings.recheckJobState)
   }
 
   /**
@@ -121,7 +128,7 @@ class QGraph extends Logging {
             outputFiles :+= command.jobErrorFile
           val inputs = getQNode(inputFiles.sorted(fileOrdering))
           val outputs = getQNode(outputFiles.sorted(fileOrdering))
-          addEdge(new FunctionEdge(command, inputs, outputs))
+          addEdge(new FunctionEdge(command, inputs, outputs, jobStateStore))
         }
       }
     } catch {
@@ -136,28 +143,33 @@ class QGraph extends Logging {
   def run() {
     runningLock.synchronized {
       if (running) {
-        org.broadinstitute.gatk.utils.io.IOUtils.checkTempDir(settings.qSettings.tempDirectory)
-        fillGraph()
-        val isReady = numMissingValues == 0
-
-        if (this.jobGraph.edgeSet.isEmpty) {
-          logger.warn("Nothing to run! Were any Functions added?")
-        } else if (settings.getStatus) {
-          logger.info("Checking pipeline status.")
-          logStatus()
-        } else if (this.dryRun) {
-          dryRunJobs()
-          if (running && isReady) {
-            logger.info("Dry run completed successfully!")
-            logger.info("Re-run with \"-run\" to execute the functions.")
+        try {
+          org.broadinstitute.gatk.utils.io.IOUtils.checkTempDir(settings.qSettings.tempDirectory)
+          fillGraph()
+          val isReady = numMissingValues == 0
+
+          if (this.jobGraph.edgeSet.isEmpty) {
+            logger.warn("Nothing to run! Were any Functions added?")
+          } else if (settings.getStatus) {
+            logger.info("Checking pipeline status.")
+            logStatus()
+          } else if (this.dryRun) {
+            dryRunJobs()
+            if (running && isReady) {
+              logger.info("Dry run completed successfully!")
+              logger.info("Re-run with \"-run\" to execute the functions.")
+            }
+          } else if (isReady) {
+            logger.info("Running jobs.")
+            runJobs()
           }
-        } else if (isReady) {
-          logger.info("Running jobs.")
-          runJobs()
-        }
 
-        if (numMissingValues > 0) {
-          logger.error("Total missing values: " + numMissingValues)
+          if (numMissingValues > 0) {
+            logger.error("Total missing values: " + numMissingValues)
+          }
+        } finally {
+          if (jobStateStore != null)
+            jobStateStore.close()
         }
       }
     }
@@ -501,6 +513,9 @@ class QGraph extends Logging {
         runningJobs --= doneJobs
         runningJobs --= failedJobs
 
+        if (jobStateStore != null)
+          jobStateStore.flush()
+
         startedJobsToEmail &~= failedJobs
 
         addCleanup(doneJobs)
@@ -563,6 +578,16 @@ class QGraph extends Logging {
     else
       traverseFunctions(edge => checkDone(edge, cleanOutputs))
     traverseFunctions(edge => recheckDone(edge))
+
+    if (jobStateStore != null) {
+      if (jobStateStore.recheck)
+        logger.info("Job state store %s: rechecked the done and fail files of %d functions.".format(
+          jobStateStore.file, jobStateStore.missing))
+      else
+        logger.info("Job state store %s: %d functions found from previous runs, %d new or changed.".format(
+          jobStateStore.file, jobStateStore.found, jobStateStore.missing))
+      jobStateStore.flush()
+    }
   }
 
   // TODO: Yet another field to add (with overloads) to QFunction?
@@ -658,7 +683,7 @@ class QGraph extends Logging {
     for (edge <- doneJobs) {
       if (running && !readyRunningCheck(lastRunningCheck)) {
         logger.debug("Deleting intermediates:" + edge.function.description)
-        edge.function.deleteOutputs()
+        edge.deleteOutputs()
         cleanupJobs -= edge
       }
     }
@@ -83,6 +83,14 @@ class QGraphSettings {
   @Argument(fullName="disableJobReport", shortName="disableJobReport", doc="If provided, we will not create a job report", required=false)
   var disableJobReport: Boolean = false
 
+  @Advanced
+  @Argument(fullName="job_state_file", shortName="jobState", doc="File where Queue keeps the status of every function between runs, so that restarting a pipeline doesn't have to check the done and fail files of each function.  Functions found in it are not checked against their done and fail files; see --recheck_job_state.", required=false)
+  var jobStateFile: File = _
+
+  @Advanced
+  @Argument(fullName="recheck_job_state", shortName="recheckJobState", doc="Ignore the statuses in the --job_state_file for this run, check the done and fail files of every function instead, and update the file with them.  Use after deleting done or fail files by hand to rerun functions.", required=false)
+  var recheckJobState = false
+
   @Advanced
   @ClassType(classOf[Int])
   @Argument(fullName="maximumNumberOfJobsToRunConcurrently", shortName="maxConcurrentRun", doc="The maximum number of jobs to start at any given time. (Default is no limit)", required=false)
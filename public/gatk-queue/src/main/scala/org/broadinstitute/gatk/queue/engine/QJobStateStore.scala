@@ -0,0 +1,211 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.queue.engine
+
+import java.io._
+import org.broadinstitute.gatk.queue.QException
+import org.broadinstitute.gatk.queue.function.QFunction
+import org.broadinstitute.gatk.queue.util.Logging
+import org.broadinstitute.gatk.utils.Utils
+import org.apache.commons.io.{FileUtils, IOUtils}
+import scala.collection.mutable
+
+/**
+ * A local store of the status of every function run by Queue, kept between runs.
+ *
+ * The store is an append-only log with one line per status change, "status<TAB>identity", where the identity is
+ * a hash of the function's description and outputs.  When opened the log is read back into an in-memory index of
+ * the latest status of each identity, so resuming a pipeline only has to look up each function of the new graph
+ * instead of searching for the hidden .done/.fail files of every function on a possibly slow shared file system.
+ * Functions whose description or outputs changed have a new identity and are not found in the store.
+ *
+ * The store mirrors the .done/.fail files, which are still written: a function is recorded as done or failed when
+ * those files are created, and as pending when its outputs are deleted.  Functions the store has never seen are
+ * recorded with the status of their files when they are first looked up, so the functions of runs that predate
+ * the store are indexed by the first run that uses it.
+ *
+ * Once a function is in the store its status is taken from the store alone and its files are not checked again.
+ * Deleting a .done or .fail file by hand to rerun a function therefore has no effect on its own; the store has
+ * to be rechecked against the files as well.
+ *
+ * @param file The log file, created if it doesn't exist.
+ * @param recheck If true the recorded statuses are not used for this run, so that every function's status comes
+ *                from its .done/.fail files again and the store is updated with them.
+ */
+class QJobStateStore(val file: File, val recheck: Boolean = false) extends Logging {
+  private val states = mutable.HashMap.empty[String, RunnerStatus.Value]
+  private var logLines = 0
+  private var writer: PrintWriter = _
+
+  /** The number of functions looked up that were found in the store. */
+  var found = 0
+
+  /** The number of functions looked up that were not in the store. */
+  var missing = 0
+
+  load()
+  if (logLines > 2 * states.size + QJobStateStore.MIN_COMPACTION_LINES)
+    compact()
+  writer = openLog()
+
+  /**
+   * Returns the status recorded for the function by this or a previous run.
+   * @param function Function to look up.
+   * @return the recorded status, or None if the store has never seen the function or is being rechecked.
+   */
+  def status(function: QFunction): Option[RunnerStatus.Value] = synchronized {
+    val status = if (recheck) None else states.get(QJobStateStore.identity(function))
+    if (status.isDefined) found += 1 else missing += 1
+    status
+  }
+
+  /**
+   * Records a change to the status of the function.  Only done, failed, and pending are kept;
+   * the other statuses only last as long as the run.
+   * @param function Function whose status changed.
+   * @param status The new status.
+   */
+  def record(function: QFunction, status: RunnerStatus.Value) {
+    if (status == RunnerStatus.DONE || status == RunnerStatus.FAILED || status == RunnerStatus.PENDING) {
+      val identity = QJobStateStore.identity(function)
+      synchronized {
+        if (states.get(identity) != Some(status)) {
+          states(identity) = status
+          if (writer != null) {
+            writer.println(status + "\t" + identity)
+            logLines += 1
+          }
+        }
+      }
+    }
+  }
+
+  /** The number of functions with a status in the store. */
+  def size = synchronized { states.size }
+
+  /**
+   * Writes the recorded status changes to the log.
+   */
+  def flush() {
+    synchronized {
+      if (writer != null)
+        writer.flush()
+    }
+  }
+
+  /**
+   * Writes the recorded status changes to the log and closes it.  Status changes recorded afterwards are not kept.
+   */
+  def close() {
+    synchronized {
+      if (writer != null) {
+        writer.close()
+        writer = null
+      }
+    }
+  }
+
+  /**
+   * Reads the log into the index, skipping any line left incomplete by a run that was killed while writing it.
+   */
+  private def load() {
+    if (file.exists) {
+      val reader = new BufferedReader(new FileReader(file))
+      try {
+        var line = reader.readLine
+        while (line != null) {
+          val fields = line.split("\t")
+          if (fields.length == 2 && fields(1).length == QJobStateStore.IDENTITY_LENGTH) {
+            RunnerStatus.values.find(_.toString == fields(0)) match {
+              case Some(status) => states(fields(1)) = status
+              case None => /* incomplete line */
+            }
+          }
+          logLines += 1
+          line = reader.readLine
+        }
+      } finally {
+        IOUtils.closeQuietly(reader)
+      }
+    }
+  }
+
+  /**
+   * Opens the log for appending, first ending any line left incomplete so that it isn't joined to the next record.
+   */
+  private def openLog() = {
+    val endsWithNewline = !file.exists || file.length == 0 || {
+      val in = new RandomAccessFile(file, "r")
+      try {
+        in.seek(file.length - 1)
+        in.read() == '\n'
+      } finally {
+        in.close()
+      }
+    }
+    val out = new PrintWriter(new BufferedWriter(new FileWriter(file, true)))
+    if (!endsWithNewline)
+      out.println()
+    out
+  }
+
+  /**
+   * Rewrites the log with only the latest status of each function.
+   */
+  private def compact() {
+    logger.debug("Compacting the job state store %s from %d to %d lines.".format(file, logLines, states.size))
+    val compacted = new File(file.getPath + ".tmp")
+    val out = new PrintWriter(new BufferedWriter(new FileWriter(compacted)))
+    try {
+      for ((identity, status) <- states)
+        out.println(status + "\t" + identity)
+    } finally {
+      out.close()
+    }
+    if (!compacted.renameTo(file)) {
+      FileUtils.deleteQuietly(compacted)
+      throw new QException("Unable to replace the job state store: " + file)
+    }
+    logLines = states.size
+  }
+}
+
+object QJobStateStore {
+  /** The log is only compacted once they have at least this many lines more than the index. */
+  private val MIN_COMPACTION_LINES = 10000
+
+  private val IDENTITY_LENGTH = 32
+
+  /**
+   * Returns the identity of a function in the store, which only changes when what the function does changes.
+   * @param function Function to identify.
+   * @return the hash of the function's class, description, and outputs.
+   */
+  def identity(function: QFunction) = {
+    val nl = "%n".format()
+    Utils.calcMD5(function.getClass.getName + nl + function.description + nl + function.outputs.map(_.getAbsolutePath).mkString(nl))
+  }
+}
@@ -0,0 +1,130 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.queue.engine
+
+import java.io.File
+import org.testng.Assert
+import org.testng.annotations.Test
+import org.apache.commons.io.FileUtils
+import org.broadinstitute.gatk.queue.function.CommandLineFunction
+import org.broadinstitute.gatk.utils.io.IOUtils
+
+class FunctionEdgeUnitTest {
+  private def newFunction(dir: File, name: String) = {
+    val function = new CommandLineFunction {
+      def commandLine = "echo " + name
+    }
+    function.jobOutputFile = new File(dir, name + ".out")
+    function
+  }
+
+  private def newEdge(function: CommandLineFunction, store: QJobStateStore) =
+    new FunctionEdge(function, new QNode(0, Seq.empty[File]), new QNode(1, Seq.empty[File]), store)
+
+  private def storeFile(dir: File) = new File(dir, "job.state")
+
+  @Test
+  def testStoredStatusIsUsedWithoutCheckingTheFiles() {
+    val dir = IOUtils.tempDir("FunctionEdgeUnitTest", "")
+    try {
+      val done = newFunction(dir, "done")
+      val failed = newFunction(dir, "failed")
+      val store = new QJobStateStore(storeFile(dir))
+      store.record(done, RunnerStatus.DONE)
+      store.record(failed, RunnerStatus.FAILED)
+
+      // neither function has a done or fail file
+      Assert.assertEquals(newEdge(done, store).status, RunnerStatus.DONE)
+      Assert.assertEquals(newEdge(failed, store).status, RunnerStatus.FAILED)
+      store.close()
+    } finally {
+      FileUtils.deleteDirectory(dir)
+    }
+  }
+
+  @Test
+  def testStatusFromTheFilesIsRecorded() {
+    val dir = IOUtils.tempDir("FunctionEdgeUnitTest", "")
+    try {
+      val done = newFunction(dir, "done")
+      val pending = newFunction(dir, "pending")
+      done.doneOutputs.foreach(FileUtils.touch(_))
+
+      // a run that predates the store
+      val store = new QJobStateStore(storeFile(dir))
+      Assert.assertEquals(newEdge(done, store).status, RunnerStatus.DONE)
+      Assert.assertEquals(newEdge(pending, store).status, RunnerStatus.PENDING)
+      store.close()
+
+      val reopened = new QJobStateStore(storeFile(dir))
+      Assert.assertEquals(reopened.status(done), Some(RunnerStatus.DONE))
+      Assert.assertEquals(reopened.status(pending), Some(RunnerStatus.PENDING))
+      reopened.close()
+    } finally {
+      FileUtils.deleteDirectory(dir)
+    }
+  }
+
+  @Test
+  def testRecheckUsesTheFiles() {
+    val dir = IOUtils.tempDir("FunctionEdgeUnitTest", "")
+    try {
+      val rerun = newFunction(dir, "rerun")
+      val done = newFunction(dir, "done")
+      done.doneOutputs.foreach(FileUtils.touch(_))
+      val store = new QJobStateStore(storeFile(dir))
+      store.record(rerun, RunnerStatus.DONE)
+      store.record(done, RunnerStatus.DONE)
+      store.close()
+
+      // the done file of rerun was deleted by hand to run it again
+      val rechecked = new QJobStateStore(storeFile(dir), recheck = true)
+      Assert.assertEquals(newEdge(rerun, rechecked).status, RunnerStatus.PENDING)
+      Assert.assertEquals(newEdge(done, rechecked).status, RunnerStatus.DONE)
+      rechecked.close()
+
+      val reopened = new QJobStateStore(storeFile(dir))
+      Assert.assertEquals(reopened.status(rerun), Some(RunnerStatus.PENDING))
+      Assert.assertEquals(reopened.status(done), Some(RunnerStatus.DONE))
+      reopened.close()
+    } finally {
+      FileUtils.deleteDirectory(dir)
+    }
+  }
+
+  @Test
+  def testStatusWithoutAStoreComesFromTheFiles() {
+    val dir = IOUtils.tempDir("FunctionEdgeUnitTest", "")
+    try {
+      val function = newFunction(dir, "function")
+      Assert.assertEquals(newEdge(function, null).status, RunnerStatus.PENDING)
+      function.doneOutputs.foreach(FileUtils.touch(_))
+      Assert.assertEquals(newEdge(function, null).status, RunnerStatus.DONE)
+    } finally {
+      FileUtils.deleteDirectory(dir)
+    }
+  }
+}
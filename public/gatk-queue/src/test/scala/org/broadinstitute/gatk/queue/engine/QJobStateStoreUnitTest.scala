@@ -0,0 +1,94 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.queue.engine
+
+import java.io.File
+import org.testng.Assert
+import org.testng.annotations.Test
+import org.apache.commons.io.FileUtils
+import org.broadinstitute.gatk.queue.function.CommandLineFunction
+
+class QJobStateStoreUnitTest {
+  private def newFunction(command: String) = new CommandLineFunction {
+    def commandLine = command
+  }
+
+  private def newStoreFile = {
+    val file = File.createTempFile("QJobStateStoreUnitTest", ".jobstate")
+    file.delete()
+    file.deleteOnExit()
+    file
+  }
+
+  @Test
+  def testStatusIsKeptBetweenRuns() {
+    val file = newStoreFile
+    val done = newFunction("echo done")
+    val failed = newFunction("echo failed")
+    val reset = newFunction("echo reset")
+
+    val store = new QJobStateStore(file)
+    Assert.assertEquals(store.status(done), None)
+    store.record(done, RunnerStatus.DONE)
+    store.record(failed, RunnerStatus.FAILED)
+    store.record(reset, RunnerStatus.DONE)
+    store.record(reset, RunnerStatus.RUNNING)
+    store.record(reset, RunnerStatus.PENDING)
+    store.close()
+
+    val reopened = new QJobStateStore(file)
+    Assert.assertEquals(reopened.size, 3)
+    Assert.assertEquals(reopened.status(done), Some(RunnerStatus.DONE))
+    Assert.assertEquals(reopened.status(failed), Some(RunnerStatus.FAILED))
+    Assert.assertEquals(reopened.status(reset), Some(RunnerStatus.PENDING))
+    Assert.assertEquals(reopened.status(newFunction("echo changed")), None)
+    Assert.assertEquals(reopened.found, 3)
+    Assert.assertEquals(reopened.missing, 1)
+    reopened.close()
+  }
+
+  @Test
+  def testIncompleteLinesAreSkipped() {
+    val file = newStoreFile
+    val done = newFunction("echo done")
+    val next = newFunction("echo next")
+
+    val store = new QJobStateStore(file)
+    store.record(done, RunnerStatus.DONE)
+    store.close()
+    FileUtils.writeStringToFile(file, "done\t0123", true)
+
+    val reopened = new QJobStateStore(file)
+    Assert.assertEquals(reopened.size, 1)
+    reopened.record(next, RunnerStatus.DONE)
+    reopened.close()
+
+    val reopenedAgain = new QJobStateStore(file)
+    Assert.assertEquals(reopenedAgain.status(done), Some(RunnerStatus.DONE))
+    Assert.assertEquals(reopenedAgain.status(next), Some(RunnerStatus.DONE))
+    reopenedAgain.close()
+  }
+}
@@ -39,11 +39,9 @@ import org.broadinstitute.gatk.utils.refdata.RefMetaDataTracker;
 import org.broadinstitute.gatk.tools.walkers.annotator.interfaces.AnnotatorCompatible;
 import org.broadinstitute.gatk.tools.walkers.annotator.interfaces.ExperimentalAnnotation;
 import org.broadinstitute.gatk.tools.walkers.annotator.interfaces.GenotypeAnnotation;
-import org.broadinstitute.gatk.utils.genotyper.MostLikelyAllele;
 import org.broadinstitute.gatk.utils.genotyper.PerReadAlleleLikelihoodMap;
 import org.broadinstitute.gatk.utils.pileup.PileupElement;
 import org.broadinstitute.gatk.utils.pileup.ReadBackedPileup;
-import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
 import org.broadinstitute.gatk.utils.variant.GATKVCFConstants;
 import org.broadinstitute.gatk.utils.variant.GATKVCFHeaderLines;
 
@@ -51,7 +49,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 
@@ -130,20 +127,10 @@ public class AlleleBalanceBySample extends GenotypeAnnotation implements Experim
         if (!perReadAlleleLikelihoodMap.getAllelesSet().containsAll(alleles))
             throw new IllegalStateException("VC alleles " + alleles + " not a strict subset of per read allele map alleles " + perReadAlleleLikelihoodMap.getAllelesSet());
 
-        final HashMap<Allele, MutableInt> alleleCounts = new HashMap<>();
-        for (final Allele allele : vc.getAlleles()) {
-            alleleCounts.put(allele, new MutableInt(0));
-        }
-
-        for (final Map.Entry<GATKSAMRecord, Map<Allele, Double>> el : perReadAlleleLikelihoodMap.getLikelihoodReadMap().entrySet()) {
-            final MostLikelyAllele a = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue(), alleles);
-            if (a.isInformative()) {
-                alleleCounts.get(a.getMostLikelyAllele()).increment();
-            }
-        }
-
-        final int refCount = alleleCounts.get(vc.getReference()).intValue();
-        final int altCount = alleleCounts.get(vc.getAlternateAllele(0)).intValue();
+        // the reference allele comes first in the alleles of the vc, followed by the alternate ones
+        final int[] alleleCounts = ReadLikelihoodSummary.of(vc, perReadAlleleLikelihoodMap).getInformativeReadCounts();
+        final int refCount = alleleCounts[0];
+        final int altCount = alleleCounts[1];
         return (refCount + altCount == 0) ? null : ((double) refCount) / (refCount + altCount);
     }
 
@@ -0,0 +1,198 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.tools.walkers.annotator;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.gatk.utils.genotyper.MostLikelyAllele;
+import org.broadinstitute.gatk.utils.genotyper.PerReadAlleleLikelihoodMap;
+import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
+
+import java.util.*;
+
+/**
+ * The per-read summary of one sample's read likelihoods at a variant site
+ *
+ * Nearly every annotation that works from per-read likelihoods starts by finding the most likely allele of each
+ * read, either among all of the alleles the read was scored against or among the alleles of the variant context.
+ * A summary does both in a single walk over the likelihood map, and also counts the informative reads supporting
+ * each allele of the variant context (the AD field).
+ *
+ * While the VariantAnnotatorEngine annotates a site it keeps the summaries of the samples at the site, so that
+ * every annotation asking for them through of() shares a single traversal of the read likelihoods.  A sample's
+ * summary is only made the first time an annotation asks for it, so sites whose annotations don't use the read
+ * likelihoods pay nothing.  Outside of a site being annotated by the engine, of() makes a new summary every time
+ * it's called.
+ */
+public final class ReadLikelihoodSummary {
+
+    /**
+     * The summaries of the samples at the site the engine is annotating on a thread, if any
+     *
+     * Every likelihood map of the site is a key, mapped to null until its summary is first asked for.
+     */
+    private static final class Site {
+        private List<Allele> alleles = null;
+        private final Map<PerReadAlleleLikelihoodMap, ReadLikelihoodSummary> summaries = new IdentityHashMap<>();
+    }
+
+    private static final ThreadLocal<Site> currentSite = new ThreadLocal<Site>() {
+        @Override
+        protected Site initialValue() {
+            return new Site();
+        }
+    };
+
+    private final GATKSAMRecord[] reads;
+    private final MostLikelyAllele[] mostLikelyAlleles;
+    private final MostLikelyAllele[] mostLikelyVariantAlleles;
+    private final int[] informativeReadCounts;
+
+    private ReadLikelihoodSummary(final List<Allele> alleles, final PerReadAlleleLikelihoodMap likelihoodMap) {
+        final Set<Allele> variantAlleles = new HashSet<>(alleles);
+        final Map<GATKSAMRecord, Map<Allele,Double>> readMap = likelihoodMap.getLikelihoodReadMap();
+
+        reads = new GATKSAMRecord[readMap.size()];
+        mostLikelyAlleles = new MostLikelyAllele[readMap.size()];
+        mostLikelyVariantAlleles = new MostLikelyAllele[readMap.size()];
+        informativeReadCounts = new int[alleles.size()];
+
+        int i = 0;
+        for ( final Map.Entry<GATKSAMRecord, Map<Allele,Double>> el : readMap.entrySet() ) {
+            reads[i] = el.getKey();
+            mostLikelyAlleles[i] = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue());
+            mostLikelyVariantAlleles[i] = PerReadAlleleLikelihoodMap.getMostLikelyAllele(el.getValue(), variantAlleles);
+            if ( mostLikelyVariantAlleles[i].isInformative() )
+                informativeReadCounts[alleles.indexOf(mostLikelyVariantAlleles[i].getMostLikelyAllele())]++;
+            i++;
+        }
+    }
+
+    /**
+     * Start annotating a site, whose read likelihoods are summarized as annotations ask for them
+     *
+     * Until endSite() is called, of() makes each sample's summary only once and then hands it out again.  The
+     * variant context and the likelihood maps must not change while the site is being annotated.
+     *
+     * @param vc                           the variant context to annotate
+     * @param stratifiedPerReadAlleleLikelihoodMap the per-read likelihoods of each sample, or null if there are none
+     */
+    static void beginSite(final VariantContext vc, final Map<String, PerReadAlleleLikelihoodMap> stratifiedPerReadAlleleLikelihoodMap) {
+        if ( vc == null ) throw new IllegalArgumentException("vc cannot be null");
+
+        final Site site = currentSite.get();
+        site.summaries.clear();
+        site.alleles = vc.getAlleles();
+        if ( stratifiedPerReadAlleleLikelihoodMap == null )
+            return;
+
+        for ( final PerReadAlleleLikelihoodMap likelihoodMap : stratifiedPerReadAlleleLikelihoodMap.values() ) {
+            if ( likelihoodMap != null )
+                site.summaries.put(likelihoodMap, null);
+        }
+    }
+
+    /**
+     * Finish annotating the current site, dropping its summaries
+     */
+    static void endSite() {
+        final Site site = currentSite.get();
+        site.summaries.clear();
+        site.alleles = null;
+    }
+
+    /**
+     * Get the summary of one sample's read likelihoods at a variant context
+     *
+     * @param vc            the variant context being annotated
+     * @param likelihoodMap the per-read likelihoods of the sample
+     * @return a non-null summary of the likelihoods
+     */
+    public static ReadLikelihoodSummary of(final VariantContext vc, final PerReadAlleleLikelihoodMap likelihoodMap) {
+        if ( vc == null ) throw new IllegalArgumentException("vc cannot be null");
+        if ( likelihoodMap == null ) throw new IllegalArgumentException("likelihoodMap cannot be null");
+
+        final Site site = currentSite.get();
+        if ( ! site.summaries.containsKey(likelihoodMap) || ! site.alleles.equals(vc.getAlleles()) )
+            return new ReadLikelihoodSummary(vc.getAlleles(), likelihoodMap);
+
+        ReadLikelihoodSummary summary = site.summaries.get(likelihoodMap);
+        if ( summary == null ) {
+            summary = new ReadLikelihoodSummary(site.alleles, likelihoodMap);
+            site.summaries.put(likelihoodMap, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * @return the number of reads in the likelihood map, informative or not
+     */
+    public int size() {
+        return reads.length;
+    }
+
+    /**
+     * @param i the index of a read, from 0 to size() - 1, in the iteration order of the likelihood map
+     * @return the i-th read
+     */
+    public GATKSAMRecord getRead(final int i) {
+        return reads[i];
+    }
+
+    /**
+     * @param i the index of a read, from 0 to size() - 1
+     * @return the most likely allele of the i-th read among all of the alleles it has likelihoods for
+     */
+    public MostLikelyAllele getMostLikelyAllele(final int i) {
+        return mostLikelyAlleles[i];
+    }
+
+    /**
+     * @param i the index of a read, from 0 to size() - 1
+     * @return the most likely allele of the i-th read among the alleles of the variant context
+     */
+    public MostLikelyAllele getMostLikelyVariantAllele(final int i) {
+        return mostLikelyVariantAlleles[i];
+    }
+
+    /**
+     * @return a new array with the number of reads informatively supporting each allele of the variant context,
+     *         in the order of VariantContext.getAlleles()
+     */
+    public int[] getInformativeReadCounts() {
+        return informativeReadCounts.clone();
+    }
+
+    /**
+     * @return the number of reads informatively supporting one of the alleles of the variant context
+     */
+    public int getInformativeDepth() {
+        int depth = 0;
+        for ( final int count : informativeReadCounts )
+            depth += count;
+        return depth;
+    }
+}
@@ -217,24 +217,31 @@ public class VariantAnnotatorEngine {
                                           final Map<String, AlignmentContext> stratifiedContexts,
                                           final VariantContext vc,
                                           final Map<String,PerReadAlleleLikelihoodMap> perReadAlleleLikelihoodMap) {
-        // annotate genotypes
-        final VariantContextBuilder builder = new VariantContextBuilder(vc).genotypes(annotateGenotypes(tracker, ref, stratifiedContexts, vc, perReadAlleleLikelihoodMap));
-        VariantContext newGenotypeAnnotatedVC = builder.make();
-
-        // annotate expressions where available
-        final Map<String, Object> infoAnnotations = new LinkedHashMap<>(newGenotypeAnnotatedVC.getAttributes());
-        annotateExpressions(tracker, ref.getLocus(), newGenotypeAnnotatedVC, infoAnnotations);
+        // share the summaries of the read likelihoods between all of the annotations
+        ReadLikelihoodSummary.beginSite(vc, perReadAlleleLikelihoodMap);
+        final VariantContext annotated;
+        try {
+            // annotate genotypes
+            final VariantContextBuilder builder = new VariantContextBuilder(vc);
+            final VariantContext newGenotypeAnnotatedVC = annotateGenotypes(tracker, ref, stratifiedContexts, vc, perReadAlleleLikelihoodMap, builder);
+
+            // annotate expressions where available
+            final Map<String, Object> infoAnnotations = new LinkedHashMap<>(newGenotypeAnnotatedVC.getAttributes());
+            annotateExpressions(tracker, ref.getLocus(), newGenotypeAnnotatedVC, infoAnnotations);
+
+            // go through all the requested info annotationTypes
+            for ( final InfoFieldAnnotation annotationType : requestedInfoAnnotations ) {
+                final Map<String, Object> annotationsFromCurrentType = annotationType.annotate(tracker, walker, ref, stratifiedContexts, newGenotypeAnnotatedVC, perReadAlleleLikelihoodMap);
+                if ( annotationsFromCurrentType != null )
+                    infoAnnotations.putAll(annotationsFromCurrentType);
+            }
 
-        // go through all the requested info annotationTypes
-        for ( final InfoFieldAnnotation annotationType : requestedInfoAnnotations ) {
-            final Map<String, Object> annotationsFromCurrentType = annotationType.annotate(tracker, walker, ref, stratifiedContexts, newGenotypeAnnotatedVC, perReadAlleleLikelihoodMap);
-            if ( annotationsFromCurrentType != null )
-                infoAnnotations.putAll(annotationsFromCurrentType);
+            // create a new VC in the with info and genotype annotations
+            annotated = builder.attributes(infoAnnotations).make();
+        } finally {
+            ReadLikelihoodSummary.endSite();
         }
 
-        // create a new VC in the with info and genotype annotations
-        final VariantContext annotated = builder.attributes(infoAnnotations).make();
-
         // annotate db occurrences
         return annotateDBs(tracker, annotated);
     }
@@ -274,9 +281,31 @@ public class VariantAnnotatorEngine {
                                                          final Map<String, PerReadAlleleLikelihoodMap> perReadAlleleLikelihoodMap,
                                                          final VariantContext vc,
                                                          final boolean useRaw) {
+        // share the summaries of the read likelihoods between all of the annotations
+        ReadLikelihoodSummary.beginSite(vc, perReadAlleleLikelihoodMap);
+        try {
+            return annotateDBs(tracker, annotateActiveRegionSite(referenceContext, perReadAlleleLikelihoodMap, vc, useRaw));
+        } finally {
+            ReadLikelihoodSummary.endSite();
+        }
+    }
+
+    /**
+     * Annotate the genotypes and the INFO field of a variant context called from an active region
+     *
+     * @param referenceContext
+     * @param perReadAlleleLikelihoodMap
+     * @param vc
+     * @param useRaw    output annotation data as raw data? (Yes in the case of gVCF mode for HaplotypeCaller)
+     * @return the non-null annotated variant context
+     */
+    private VariantContext annotateActiveRegionSite(final ReferenceContext referenceContext,
+                                                    final Map<String, PerReadAlleleLikelihoodMap> perReadAlleleLikelihoodMap,
+                                                    final VariantContext vc,
+                                                    final boolean useRaw) {
         // annotate genotypes
-        final VariantContextBuilder builder = new VariantContextBuilder(vc).genotypes(annotateGenotypes(null, null, null, vc, perReadAlleleLikelihoodMap));
-        VariantContext newGenotypeAnnotatedVC = builder.make();
+        final VariantContextBuilder builder = new VariantContextBuilder(vc);
+        final VariantContext newGenotypeAnnotatedVC = annotateGenotypes(null, null, null, vc, perReadAlleleLikelihoodMap, builder);
 
         final Map<String, Object> infoAnnotations = new LinkedHashMap<>(newGenotypeAnnotatedVC.getAttributes());
 
@@ -319,10 +348,7 @@ public class VariantAnnotatorEngine {
         }
 
         // create a new VC with info and genotype annotations
-        final VariantContext annotated = builder.attributes(infoAnnotations).make();
-
-        // annotate db occurrences
-        return annotateDBs(tracker, annotated);
+        return builder.attributes(infoAnnotations).make();
     }
 
     /**
@@ -495,12 +521,29 @@ public class VariantAnnotatorEngine {
         }
     }
 
+    /**
+     * Annotate the genotypes of a variant context
+     *
+     * The annotated genotypes are set in the builder, which must have been made from vc, and the variant context
+     * with the annotated genotypes is only made if there are genotype annotations to run.
+     *
+     * @param builder   the builder of the annotated variant context
+     * @return the non-null variant context with annotated genotypes, which is vc itself if there are no genotype annotations
+     */
+    private VariantContext annotateGenotypes(final RefMetaDataTracker tracker,
+                                             final ReferenceContext ref, final Map<String, AlignmentContext> stratifiedContexts,
+                                             final VariantContext vc,
+                                             final Map<String,PerReadAlleleLikelihoodMap> stratifiedPerReadAlleleLikelihoodMap,
+                                             final VariantContextBuilder builder) {
+        if ( requestedGenotypeAnnotations.isEmpty() )
+            return vc;
+        return builder.genotypes(annotateGenotypes(tracker, ref, stratifiedContexts, vc, stratifiedPerReadAlleleLikelihoodMap)).make();
+    }
+
     private GenotypesContext annotateGenotypes(final RefMetaDataTracker tracker,
                                                final ReferenceContext ref, final Map<String, AlignmentContext> stratifiedContexts,
                                                final VariantContext vc,
                                                final Map<String,PerReadAlleleLikelihoodMap> stratifiedPerReadAlleleLikelihoodMap) {
-        if ( requestedGenotypeAnnotations.isEmpty() )
-            return vc.getGenotypes();
 
         final GenotypesContext genotypes = GenotypesContext.create(vc.getNSamples());
         for ( final Genotype genotype : vc.getGenotypes() ) {
@@ -39,7 +39,7 @@ import org.broadinstitute.gatk.utils.*;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
 import org.broadinstitute.gatk.utils.help.DocumentedGATKFeature;
 import org.broadinstitute.gatk.utils.help.HelpConstants;
-import org.broadinstitute.gatk.utils.pileup.PileupElement;
+import org.broadinstitute.gatk.utils.pileup.ColumnarPileup;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -243,6 +243,11 @@ public class CallableLoci extends LocusWalker<CallableLoci.CallableBaseState, Ca
         return true;
     }
 
+    @Override
+    public boolean usesColumnarPileups() {
+        return true;
+    }
+
     @Override
     public void initialize() {
         if (getSampleDB().getSamples().size() != 1) {
@@ -308,14 +313,16 @@ public class CallableLoci extends LocusWalker<CallableLoci.CallableBaseState, Ca
             state = CalledState.REF_N;
         } else {
             // count up the depths of all and QC+ bases
-            int rawDepth = 0, QCDepth = 0, lowMAPQDepth = 0;
-            for (PileupElement e : context.getBasePileup()) {
-                rawDepth++;
+            final ColumnarPileup pileup = context.getColumnarPileup();
+            final int rawDepth = pileup.size();
+            int QCDepth = 0, lowMAPQDepth = 0;
+            for (int i = 0; i < rawDepth; i++) {
+                final int mappingQual = pileup.getMappingQual(i);
 
-                if (e.getMappingQual() <= maxLowMAPQ)
+                if (mappingQual <= maxLowMAPQ)
                     lowMAPQDepth++;
 
-                if (e.getMappingQual() >= minMappingQuality && (e.getQual() >= minBaseQuality || e.isDeletion())) {
+                if (mappingQual >= minMappingQuality && (pileup.getQual(i) >= minBaseQuality || pileup.isDeletion(i))) {
                     QCDepth++;
                 }
             }
@@ -0,0 +1,118 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.tools.walkers.annotator;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.broadinstitute.gatk.utils.genotyper.PerReadAlleleLikelihoodMap;
+import org.broadinstitute.gatk.utils.sam.ArtificialSAMUtils;
+import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ReadLikelihoodSummaryUnitTest extends BaseTest {
+    private final SAMFileHeader header = ArtificialSAMUtils.createArtificialSamHeader(1, 1, 1000);
+    private final Allele A = Allele.create("A", true);
+    private final Allele C = Allele.create("C");
+    private final Allele G = Allele.create("G");
+    private int readCount = 0;
+
+    private void addRead(final PerReadAlleleLikelihoodMap likelihoodMap, final double likelihoodA, final double likelihoodC, final double likelihoodG) {
+        final GATKSAMRecord read = ArtificialSAMUtils.createArtificialRead(header, "read" + readCount++, 0, 90, 20);
+        likelihoodMap.add(read, A, likelihoodA);
+        likelihoodMap.add(read, C, likelihoodC);
+        likelihoodMap.add(read, G, likelihoodG);
+    }
+
+    private PerReadAlleleLikelihoodMap makeLikelihoodMap() {
+        final PerReadAlleleLikelihoodMap likelihoodMap = new PerReadAlleleLikelihoodMap();
+        addRead(likelihoodMap, -1.0, -5.0, -5.0);  // supports A
+        addRead(likelihoodMap, -1.0, -5.0, -5.0);  // supports A
+        addRead(likelihoodMap, -5.0, -1.0, -5.0);  // supports C
+        addRead(likelihoodMap, -4.0, -5.0, -1.0);  // supports G, which isn't in the vc, so it supports A among the vc alleles
+        addRead(likelihoodMap, -3.0, -3.05, -1.0); // uninformative among the vc alleles
+        return likelihoodMap;
+    }
+
+    private VariantContext makeVC() {
+        return new VariantContextBuilder("test", "1", 100, 100, Arrays.asList(A, C)).make();
+    }
+
+    @Test
+    public void testSummary() {
+        final PerReadAlleleLikelihoodMap likelihoodMap = makeLikelihoodMap();
+        final ReadLikelihoodSummary summary = ReadLikelihoodSummary.of(makeVC(), likelihoodMap);
+
+        Assert.assertEquals(summary.size(), 5);
+        int i = 0;
+        for ( final GATKSAMRecord read : likelihoodMap.getLikelihoodReadMap().keySet() ) {
+            Assert.assertSame(summary.getRead(i), read);
+            Assert.assertEquals(summary.getMostLikelyAllele(i).getMostLikelyAllele(),
+                    PerReadAlleleLikelihoodMap.getMostLikelyAllele(likelihoodMap.getLikelihoodReadMap().get(read)).getMostLikelyAllele());
+            i++;
+        }
+
+        Assert.assertEquals(summary.getInformativeReadCounts(), new int[]{3, 1});
+        Assert.assertEquals(summary.getInformativeDepth(), 4);
+
+        // the counts handed out are copies
+        summary.getInformativeReadCounts()[0] = 100;
+        Assert.assertEquals(summary.getInformativeReadCounts(), new int[]{3, 1});
+    }
+
+    @Test
+    public void testSummariesAreSharedWithinASite() {
+        final PerReadAlleleLikelihoodMap likelihoodMap = makeLikelihoodMap();
+        final VariantContext vc = makeVC();
+
+        Assert.assertNotSame(ReadLikelihoodSummary.of(vc, likelihoodMap), ReadLikelihoodSummary.of(vc, likelihoodMap));
+
+        ReadLikelihoodSummary.beginSite(vc, Collections.singletonMap("sample", likelihoodMap));
+        try {
+            final ReadLikelihoodSummary summary = ReadLikelihoodSummary.of(vc, likelihoodMap);
+            Assert.assertSame(ReadLikelihoodSummary.of(new VariantContextBuilder(vc).make(), likelihoodMap), summary);
+
+            // a vc with other alleles needs a summary of its own
+            final VariantContext otherVC = new VariantContextBuilder(vc).alleles(Arrays.asList(A, G)).make();
+            Assert.assertNotSame(ReadLikelihoodSummary.of(otherVC, likelihoodMap), summary);
+            Assert.assertEquals(ReadLikelihoodSummary.of(otherVC, likelihoodMap).getInformativeReadCounts(), new int[]{2, 2});
+
+            // neither is a likelihood map that isn't part of the site
+            final PerReadAlleleLikelihoodMap otherLikelihoodMap = makeLikelihoodMap();
+            Assert.assertNotSame(ReadLikelihoodSummary.of(vc, otherLikelihoodMap), ReadLikelihoodSummary.of(vc, otherLikelihoodMap));
+        } finally {
+            ReadLikelihoodSummary.endSite();
+        }
+
+        Assert.assertNotSame(ReadLikelihoodSummary.of(vc, likelihoodMap), ReadLikelihoodSummary.of(vc, likelihoodMap));
+    }
+}
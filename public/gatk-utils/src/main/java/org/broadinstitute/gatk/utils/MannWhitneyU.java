@@ -201,6 +201,21 @@ public class MannWhitneyU {
      */
     private static Map<Key, Set<List<Integer>>> PERMUTATIONS = new ConcurrentHashMap<Key, Set<List<Integer>>>();
 
+    /**
+     * The merged values of both series and the series each of them came from, reused by all of the tests run on a thread
+     */
+    private static final class MergeBuffers {
+        private double[] values = new double[0];
+        private boolean[] fromFirstSeries = new boolean[0];
+    }
+
+    private static final ThreadLocal<MergeBuffers> mergeBuffers = new ThreadLocal<MergeBuffers>() {
+        @Override
+        protected MergeBuffers initialValue() {
+            return new MergeBuffers();
+        }
+    };
+
     /**
      * The minimum length for both data series in order to use a normal distribution
      * to calculate Z and p. If both series are shorter than this value then a permutation test
@@ -275,20 +290,59 @@ public class MannWhitneyU {
 
     /**
      * Rank both groups together and return a TestStatistic object that includes U1, U2 and number of ties for sigma
+     *
+     * Gives exactly the same results as ranking with calculateRank(), but merges the series into primitive
+     * arrays that are reused from one test to the next and sums the ranks of each tie band as it goes, so that
+     * no Rank objects are made.  Like calculateRank(), this sorts both series in place.
      */
     public TestStatistic calculateU1andU2(final double[] series1, final double[] series2) {
-        RankedData ranked = calculateRank(series1, series2);
-        Rank[] ranks = ranked.getRank();
-        ArrayList<Integer> numOfTies = ranked.getNumOfTies();
-        int lengthOfRanks = ranks.length;
+        Arrays.sort(series1);
+        Arrays.sort(series2);
+
+        final int numOfRanks = series1.length + series2.length;
+        final MergeBuffers buffers = mergeBuffers.get();
+        if (buffers.values.length < numOfRanks) {
+            buffers.values = new double[numOfRanks];
+            buffers.fromFirstSeries = new boolean[numOfRanks];
+        }
+        final double[] values = buffers.values;
+        final boolean[] fromFirstSeries = buffers.fromFirstSeries;
 
-        double numOfTiesForSigma = transformTies(lengthOfRanks, numOfTies);
+        // Merge the sorted series, taking from the first one on ties just as calculateRank() does
+        {
+            int i = 0, j = 0;
+            for (int r = 0; r < numOfRanks; r++) {
+                fromFirstSeries[r] = j >= series2.length || (i < series1.length && series1[i] <= series2[j]);
+                values[r] = fromFirstSeries[r] ? series1[i++] : series2[j++];
+            }
+        }
 
-        // Calculate R1 and R2 and U.
+        // Calculate R1 and R2, giving every member of a tie band the mean of the band's ranks
         float r1 = 0, r2 = 0;
-        for (Rank rank : ranks) {
-            if (rank.series == 1) r1 += rank.rank;
-            else r2 += rank.rank;
+        double numOfTiesForSigma = 0.0;
+        for (int i = 0; i < numOfRanks; ) {
+            float rank = i + 1;
+            int count = 1;
+
+            for (int j = i + 1; j < numOfRanks && values[j] == values[i]; ++j) {
+                rank += j + 1;
+                ++count;
+            }
+
+            if (count > 1) {
+                rank /= count;
+                // see transformTies() for why a band made of all of the data doesn't count
+                if (count != numOfRanks)
+                    numOfTiesForSigma += (Math.pow(count, 3)) - count;
+            }
+
+            for (int j = i; j < i + count; ++j) {
+                if (fromFirstSeries[j]) r1 += rank;
+                else r2 += rank;
+            }
+
+            // Skip forward the right number of items
+            i += count;
         }
 
         double n1 = series1.length;
@@ -37,6 +37,8 @@ import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
 import org.broadinstitute.gatk.utils.sam.ReadUtils;
 
+import java.util.Arrays;
+
 /*
   The topology of the profile HMM:
 
@@ -161,13 +163,29 @@ public class BAQ {
     private final static double EM = 0.33333333333;
     private final static double EI = 0.25;
 
-    private double[][][] EPSILONS = new double[256][256][SAMUtils.MAX_PHRED_SCORE+1];
+    /**
+     * The epsilon tables only depend on the minimum base quality, and are large, so they are shared by all BAQ
+     * objects with the same minimum base quality rather than built again for each one
+     */
+    private final static double[][][][] EPSILONS_BY_MIN_BASE_QUAL = new double[256][][][];
+
+    private double[][][] EPSILONS;
 
     private void initializeCachedData() {
+        synchronized (EPSILONS_BY_MIN_BASE_QUAL) {
+            final int index = minBaseQual & 0xFF;
+            if ( EPSILONS_BY_MIN_BASE_QUAL[index] == null )
+                EPSILONS_BY_MIN_BASE_QUAL[index] = makeEpsilons(minBaseQual);
+            EPSILONS = EPSILONS_BY_MIN_BASE_QUAL[index];
+        }
+    }
+
+    private static double[][][] makeEpsilons(final byte minBaseQual) {
+        final double[][][] epsilons = new double[256][256][SAMUtils.MAX_PHRED_SCORE+1];
         for ( int i = 0; i < 256; i++ )
             for ( int j = 0; j < 256; j++ )
                 for ( int q = 0; q <= SAMUtils.MAX_PHRED_SCORE; q++ ) {
-                    EPSILONS[i][j][q] = 1.0;
+                    epsilons[i][j][q] = 1.0;
                 }
 
         for ( char b1 : "ACGTacgt".toCharArray() ) {
@@ -175,12 +193,46 @@ public class BAQ {
                 for ( int q = 0; q <= SAMUtils.MAX_PHRED_SCORE; q++ ) {
                     double qual = qual2prob[q < minBaseQual ? minBaseQual : q];
                     double e = Character.toLowerCase(b1) == Character.toLowerCase(b2) ? 1 - qual : qual * EM;
-                    EPSILONS[(byte)b1][(byte)b2][q] = e;
+                    epsilons[(byte)b1][(byte)b2][q] = e;
                 }
             }
         }
+        return epsilons;
+    }
+
+    /**
+     * Working arrays for hmm_glocal, reused by all of the reads BAQ'd on a thread
+     */
+    private final static class HMMBuffers {
+        private double[] forward = new double[0];
+        private double[] backward = new double[0];
+        private double[] backwardNext = new double[0];
+        private double[] scale = new double[0];
+        private final double[] transitions = new double[9];
+
+        /**
+         * Grows the buffers so that they can hold a query of length l_query in a band of width w
+         */
+        private HMMBuffers ensureCapacity(final int l_query, final int w) {
+            if ( forward.length < (l_query+1) * w )
+                forward = new double[(l_query+1) * w];
+            if ( backward.length < w ) {
+                backward = new double[w];
+                backwardNext = new double[w];
+            }
+            if ( scale.length < l_query+2 )
+                scale = new double[l_query+2];
+            return this;
+        }
     }
 
+    private final static ThreadLocal<HMMBuffers> hmmBuffers = new ThreadLocal<HMMBuffers>() {
+        @Override
+        protected HMMBuffers initialValue() {
+            return new HMMBuffers();
+        }
+    };
+
     protected double calcEpsilon( byte ref, byte read, byte qualB ) {
         return EPSILONS[ref][read][qualB];
     }
@@ -223,17 +275,21 @@ public class BAQ {
         //System.out.printf("c->bw = %d, bw = %d, l_ref = %d, l_query = %d\n", cb, bw, l_ref, l_query);
 		bw2 = bw * 2 + 1;
 
-        // allocate the forward and backward matrices f[][] and b[][] and the scaling array s[]
-		double[][] f = new double[l_query+1][bw2*3 + 6];
-		double[][] b = new double[l_query+1][bw2*3 + 6];
-		double[] s = new double[l_query+2];
+        // the forward matrix f[][] is kept whole, as a single array of rows of width w, but only two rows of the
+        // backward matrix b[][] are ever needed, because the MAP of each row is taken as soon as that row of b[][]
+        // is done.  None of them are allocated here: they are reused from one read to the next on each thread.
+		final int w = bw2*3 + 6;
+		final HMMBuffers buffers = hmmBuffers.get().ensureCapacity(l_query, w);
+		final double[] f = buffers.forward;
+		double[] bi = buffers.backward, bi1 = buffers.backwardNext;
+		final double[] s = buffers.scale;
 
 		// initialize transition probabilities
 		double sM, sI, bM, bI;
 		sM = sI = 1. / (2 * l_query + 2);
         bM = (1 - cd) / l_ref; bI = cd / l_ref; // (bM+bI)*l_ref==1
 
-		double[] m = new double[9];
+		final double[] m = buffers.transitions;
 		m[0*3+0] = (1 - cd - cd) * (1 - sM); m[0*3+1] = m[0*3+2] = cd * (1 - sM);
 		m[1*3+0] = (1 - ce) * (1 - sI); m[1*3+1] = ce * (1 - sI); m[1*3+2] = 0.;
 		m[2*3+0] = 1 - ce; m[2*3+1] = 0.; m[2*3+2] = ce;
@@ -241,71 +297,76 @@ public class BAQ {
 
 		/*** forward ***/
 		// f[0]
-		f[0][set_u(bw, 0, 0)] = s[0] = 1.;
+		Arrays.fill(f, 0, 2*w, 0.);
+		f[set_u(bw, 0, 0)] = s[0] = 1.;
 		{ // f[1]
-			double[] fi = f[1];
+			final int fi = w;
 			double sum;
 			int beg = 1, end = l_ref < bw + 1? l_ref : bw + 1, _beg, _end;
 			for (k = beg, sum = 0.; k <= end; ++k) {
 				int u;
                 double e = calcEpsilon(ref[k-1], query[qstart], _iqual[qstart]);
-				u = set_u(bw, 1, k);
-				fi[u+0] = e * bM; fi[u+1] = EI * bI;
-				sum += fi[u] + fi[u+1];
+				u = fi + set_u(bw, 1, k);
+				f[u+0] = e * bM; f[u+1] = EI * bI;
+				sum += f[u] + f[u+1];
 			}
 			// rescale
 			s[1] = sum;
-			_beg = set_u(bw, 1, beg); _end = set_u(bw, 1, end); _end += 2;
-			for (k = _beg; k <= _end; ++k) fi[k] /= sum;
+			_beg = fi + set_u(bw, 1, beg); _end = fi + set_u(bw, 1, end); _end += 2;
+			for (k = _beg; k <= _end; ++k) f[k] /= sum;
 		}
 
 		// f[2..l_query]
 		for (i = 2; i <= l_query; ++i) {
-			double[] fi = f[i], fi1 = f[i-1];
+			final int fi = i * w, fi1 = fi - w;
 			double sum;
 			int beg = 1, end = l_ref, x, _beg, _end;
 			byte qyi = query[qstart+i-1];
+			Arrays.fill(f, fi, fi + w, 0.);
 			x = i - bw; beg = beg > x? beg : x; // band start
 			x = i + bw; end = end < x? end : x; // band end
 			for (k = beg, sum = 0.; k <= end; ++k) {
 				int u, v11, v01, v10;
                 double e = calcEpsilon(ref[k-1], qyi, _iqual[qstart+i-1]);
-				u = set_u(bw, i, k); v11 = set_u(bw, i-1, k-1); v10 = set_u(bw, i-1, k); v01 = set_u(bw, i, k-1);
-				fi[u+0] = e * (m[0] * fi1[v11+0] + m[3] * fi1[v11+1] + m[6] * fi1[v11+2]);
-				fi[u+1] = EI * (m[1] * fi1[v10+0] + m[4] * fi1[v10+1]);
-				fi[u+2] = m[2] * fi[v01+0] + m[8] * fi[v01+2];
-				sum += fi[u] + fi[u+1] + fi[u+2];
-				//System.out.println("("+i+","+k+";"+u+"): "+fi[u]+","+fi[u+1]+","+fi[u+2]);
+				u = fi + set_u(bw, i, k); v11 = fi1 + set_u(bw, i-1, k-1); v10 = fi1 + set_u(bw, i-1, k); v01 = fi + set_u(bw, i, k-1);
+				f[u+0] = e * (m[0] * f[v11+0] + m[3] * f[v11+1] + m[6] * f[v11+2]);
+				f[u+1] = EI * (m[1] * f[v10+0] + m[4] * f[v10+1]);
+				f[u+2] = m[2] * f[v01+0] + m[8] * f[v01+2];
+				sum += f[u] + f[u+1] + f[u+2];
 			}
 			// rescale
 			s[i] = sum;
-			_beg = set_u(bw, i, beg); _end = set_u(bw, i, end); _end += 2;
-			for (k = _beg, sum = 1./sum; k <= _end; ++k) fi[k] *= sum;
+			_beg = fi + set_u(bw, i, beg); _end = fi + set_u(bw, i, end); _end += 2;
+			for (k = _beg, sum = 1./sum; k <= _end; ++k) f[k] *= sum;
 		}
 		{ // f[l_query+1]
+			final int fi = l_query * w;
 			double sum;
 			for (k = 1, sum = 0.; k <= l_ref; ++k) {
 				int u = set_u(bw, l_query, k);
 				if (u < 3 || u >= bw2*3+3) continue;
-				sum += f[l_query][u+0] * sM + f[l_query][u+1] * sI;
+				sum += f[fi+u+0] * sM + f[fi+u+1] * sI;
 			}
 			s[l_query+1] = sum; // the last scaling factor
 		}
 
-		/*** backward ***/
+		/*** backward, and MAP as soon as each row is done ***/
 		// b[l_query] (b[l_query+1][0]=1 and thus \tilde{b}[][]=1/s[l_query+1]; this is where s[l_query+1] comes from)
+		Arrays.fill(bi, 0, w, 0.);
 		for (k = 1; k <= l_ref; ++k) {
 			int u = set_u(bw, l_query, k);
-			double[] bi = b[l_query];
 			if (u < 3 || u >= bw2*3+3) continue;
 			bi[u+0] = sM / s[l_query] / s[l_query+1]; bi[u+1] = sI / s[l_query] / s[l_query+1];
 		}
+		map(l_query, bw, l_ref, f, l_query * w, bi, s, qstart, state, q);
+
 		// b[l_query-1..1]
 		for (i = l_query - 1; i >= 1; --i) {
 			int beg = 1, end = l_ref, x, _beg, _end;
-			double[] bi = b[i], bi1 = b[i+1];
+			final double[] tmp = bi1; bi1 = bi; bi = tmp;
 			double y = (i > 1)? 1. : 0.;
 			byte qyi1 = query[qstart+i];
+			Arrays.fill(bi, 0, w, 0.);
 			x = i - bw; beg = beg > x? beg : x;
 			x = i + bw; end = end < x? end : x;
 			for (k = end; k >= beg; --k) {
@@ -319,47 +380,47 @@ public class BAQ {
 			// rescale
 			_beg = set_u(bw, i, beg); _end = set_u(bw, i, end); _end += 2;
 			for (k = _beg, y = 1./s[i]; k <= _end; ++k) bi[k] *= y;
-		}
 
- 		double pb;
-		{ // b[0]
-			int beg = 1, end = l_ref < bw + 1? l_ref : bw + 1;
-			double sum = 0.;
-			for (k = end; k >= beg; --k) {
-				int u = set_u(bw, 1, k);
-                double e = calcEpsilon(ref[k-1], query[qstart], _iqual[qstart]);
-                if (u < 3 || u >= bw2*3+3) continue;
-				sum += e * b[1][u+0] * bM + EI * b[1][u+1] * bI;
-			}
-			pb = b[0][set_u(bw, 0, 0)] = sum / s[0]; // if everything works as is expected, pb == 1.0
-		}
-
-        
-		/*** MAP ***/
-		for (i = 1; i <= l_query; ++i) {
-			double sum = 0., max = 0.;
-			final double[] fi = f[i], bi = b[i];
-			int beg = 1, end = l_ref, x, max_k = -1;
-			x = i - bw; beg = beg > x? beg : x;
-			x = i + bw; end = end < x? end : x;
-			for (k = beg; k <= end; ++k) {
-				final int u = set_u(bw, i, k);
-				double z;
-				sum += (z = fi[u+0] * bi[u+0]); if (z > max) { max = z; max_k = (k-1)<<2 | 0; }
-				sum += (z = fi[u+1] * bi[u+1]); if (z > max) { max = z; max_k = (k-1)<<2 | 1; }
-			}
-			max /= sum; sum *= s[i]; // if everything works as is expected, sum == 1.0
-			if (state != null) state[qstart+i-1] = max_k;
-			if (q != null) {
-				k = (int)(-4.343 * Math.log(1. - max) + .499); // = 10*log10(1-max)
-				q[qstart+i-1] = (byte)(k > 100? 99 : (k < minBaseQual ? minBaseQual : k));
-			}
-			//System.out.println("("+pb+","+sum+")"+" ("+(i-1)+","+(max_k>>2)+","+(max_k&3)+","+max+")");
+			map(i, bw, l_ref, f, i * w, bi, s, qstart, state, q);
 		}
 
 		return 0;
 	}
 
+    /**
+     * Fills in the MAP state and quality of one query base, from its rows of the forward and backward matrices
+     *
+     * @param i the (1-based) position of the base in the query
+     * @param bw the band width
+     * @param l_ref the length of the reference
+     * @param f the forward matrix
+     * @param fi the offset of row i in f
+     * @param bi row i of the backward matrix
+     * @param s the scaling factors
+     * @param qstart the start of the query in the read
+     * @param state if not null, receives the MAP state of the base
+     * @param q if not null, receives the phred scaled probability that the MAP state is wrong
+     */
+    private void map(final int i, final int bw, final int l_ref, final double[] f, final int fi, final double[] bi, final double[] s,
+                     final int qstart, final int[] state, final byte[] q) {
+		double sum = 0., max = 0.;
+		int beg = 1, end = l_ref, x, k, max_k = -1;
+		x = i - bw; beg = beg > x? beg : x;
+		x = i + bw; end = end < x? end : x;
+		for (k = beg; k <= end; ++k) {
+			final int u = set_u(bw, i, k);
+			double z;
+			sum += (z = f[fi+u+0] * bi[u+0]); if (z > max) { max = z; max_k = (k-1)<<2 | 0; }
+			sum += (z = f[fi+u+1] * bi[u+1]); if (z > max) { max = z; max_k = (k-1)<<2 | 1; }
+		}
+		max /= sum; sum *= s[i]; // if everything works as is expected, sum == 1.0
+		if (state != null) state[qstart+i-1] = max_k;
+		if (q != null) {
+			k = (int)(-4.343 * Math.log(1. - max) + .499); // = 10*log10(1-max)
+			q[qstart+i-1] = (byte)(k > 100? 99 : (k < minBaseQual ? minBaseQual : k));
+		}
+	}
+
     // ---------------------------------------------------------------------------------------------------------------
     //
     // Helper routines
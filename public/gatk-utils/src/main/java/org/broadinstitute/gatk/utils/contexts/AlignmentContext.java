@@ -28,6 +28,7 @@ package org.broadinstitute.gatk.utils.contexts;
 import org.broadinstitute.gatk.utils.GenomeLoc;
 import org.broadinstitute.gatk.utils.HasGenomeLocation;
 import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
+import org.broadinstitute.gatk.utils.pileup.ColumnarPileup;
 import org.broadinstitute.gatk.utils.pileup.ReadBackedPileup;
 import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
 
@@ -45,6 +46,11 @@ import java.util.List;
 public class AlignmentContext implements HasGenomeLocation {
     protected GenomeLoc loc = null;
     protected ReadBackedPileup basePileup = null;
+
+    /**
+     * The columnar form of the pileup, or null if we haven't needed one or it has been released
+     */
+    protected ColumnarPileup columnarPileup = null;
     protected boolean hasPileupBeenDownsampled;
 
     /**
@@ -76,21 +82,71 @@ public class AlignmentContext implements HasGenomeLocation {
         this.hasPileupBeenDownsampled = hasPileupBeenDownsampled;
     }
 
+    /**
+     * Create a context whose pileup is held in columnar form.  The ReadBackedPileup is only created if someone
+     * asks for it.
+     *
+     * @param loc the location of the context
+     * @param columnarPileup the pileup over loc, typically from a ColumnarPileup.Pool
+     * @param hasPileupBeenDownsampled true if any reads have been filtered out of the pileup due to excess DoC
+     */
+    public AlignmentContext(GenomeLoc loc, ColumnarPileup columnarPileup, boolean hasPileupBeenDownsampled) {
+        if ( loc == null ) throw new ReviewedGATKException("BUG: GenomeLoc in Alignment context is null");
+        if ( columnarPileup == null ) throw new ReviewedGATKException("BUG: ColumnarPileup in Alignment context is null");
+
+        this.loc = loc;
+        this.columnarPileup = columnarPileup;
+        this.hasPileupBeenDownsampled = hasPileupBeenDownsampled;
+    }
+
     /** Returns base pileup over the current genomic location. Deprectated. Use getBasePileup() to make your intentions
      * clear.
      * @return
      */
     @Deprecated
-    public ReadBackedPileup getPileup() { return basePileup; }
+    public ReadBackedPileup getPileup() { return getBasePileup(); }
 
     /** Returns base pileup over the current genomic location. May return null if this context keeps only
      * extended event (indel) pileup.
      * @return
      */
     public ReadBackedPileup getBasePileup() {
+        if ( basePileup == null ) {
+            if ( columnarPileup == null ) throw new ReviewedGATKException("BUG: the pileup of the Alignment context at " + loc + " has already been released");
+            basePileup = columnarPileup.toReadBackedPileup();
+        }
         return basePileup;
     }
 
+    /**
+     * Returns the base pileup over the current genomic location in columnar form, which walkers can
+     * read without creating any PileupElements.
+     *
+     * Contexts made by the engine for LocusWalkers whose usesColumnarPileups() is true hold pooled columnar
+     * pileups, which the engine releases as soon as map() returns.  Otherwise the columnar pileup is created
+     * from the base pileup the first time it is asked for.
+     *
+     * @return a non-null columnar pileup
+     */
+    public ColumnarPileup getColumnarPileup() {
+        if ( columnarPileup == null )
+            columnarPileup = ColumnarPileup.fromPileup(getBasePileup());
+        return columnarPileup;
+    }
+
+    /**
+     * Give the columnar pileup of this context back to its pool, if it came from one
+     *
+     * Unless getBasePileup() has already been called, the pileup of this context is no longer available after
+     * this call.
+     */
+    public void releaseColumnarPileup() {
+        if ( columnarPileup != null ) {
+            columnarPileup.release();
+            columnarPileup = null;
+        }
+    }
+
     /**
      * Returns true if any reads have been filtered out of the pileup due to excess DoC.
      * @return True if reads have been filtered out.  False otherwise.
@@ -104,7 +160,7 @@ public class AlignmentContext implements HasGenomeLocation {
      */
     @Deprecated
     //todo: unsafe and tailored for current usage only; both pileups can be null or worse, bot can be not null in theory
-    public List<GATKSAMRecord> getReads() { return ( basePileup.getReads() ); }
+    public List<GATKSAMRecord> getReads() { return ( getBasePileup().getReads() ); }
 
     /**
      * Are there any reads associated with this locus?
@@ -112,6 +168,8 @@ public class AlignmentContext implements HasGenomeLocation {
      * @return
      */
     public boolean hasReads() {
+        if ( basePileup == null && columnarPileup != null )
+            return ! columnarPileup.isEmpty();
         return basePileup != null && basePileup.getNumberOfElements() > 0 ;
     }
 
@@ -120,7 +178,9 @@ public class AlignmentContext implements HasGenomeLocation {
      * @return
      */
     public int size() {
-        return basePileup.getNumberOfElements();
+        if ( basePileup == null && columnarPileup != null )
+            return columnarPileup.size();
+        return getBasePileup().getNumberOfElements();
     }
 
     /**
@@ -130,7 +190,7 @@ public class AlignmentContext implements HasGenomeLocation {
      */
     @Deprecated
     public List<Integer> getOffsets() {
-        return basePileup.getOffsets();
+        return getBasePileup().getOffsets();
     }
 
     public String getContig() { return getLocation().getContig(); }
@@ -138,8 +198,11 @@ public class AlignmentContext implements HasGenomeLocation {
     public GenomeLoc getLocation() { return loc; }
 
     public void downsampleToCoverage(int coverage) {
-        basePileup = basePileup.getDownsampledPileup(coverage);
+        basePileup = getBasePileup().getDownsampledPileup(coverage);
         hasPileupBeenDownsampled = true;
+
+        // the columnar pileup no longer matches the downsampled one
+        releaseColumnarPileup();
     }
 
     /**
@@ -142,7 +142,7 @@ public class AlignmentContextUtils {
 
         List<PileupElement> pe = new ArrayList<PileupElement>();
         for(AlignmentContext context: contexts) {
-            for(PileupElement pileupElement: context.basePileup)
+            for(PileupElement pileupElement: context.getBasePileup())
                 pe.add(pileupElement);
         }
         return new AlignmentContext(loc, new ReadBackedPileupImpl(loc,pe));
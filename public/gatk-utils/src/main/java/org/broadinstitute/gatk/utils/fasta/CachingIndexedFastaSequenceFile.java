@@ -198,6 +198,17 @@ public class CachingIndexedFastaSequenceFile extends IndexedFastaSequenceFile {
      * @throws IllegalArgumentException if Fasta file is null
      */
     public static ReferenceSequenceFile checkAndCreate(final File fastaFile) {
+        return checkAndCreate(fastaFile, false);
+    }
+
+    /**
+     * Create reference data source from fasta file, after performing several preliminary checks on the file.
+     * @param fastaFile Fasta file to be used as reference
+     * @param memoryMapped If true, memory map the fasta and share it between threads rather than caching it per thread
+     * @return A new instance of a CachingIndexedFastaSequenceFile, or of a MappedIndexedFastaSequenceFile if memoryMapped.
+     * @throws IllegalArgumentException if Fasta file is null
+     */
+    public static ReferenceSequenceFile checkAndCreate(final File fastaFile, final boolean memoryMapped) {
         if ( fastaFile == null ) {
             throw new IllegalArgumentException("Fasta file is null");
         }
@@ -232,7 +243,7 @@ public class CachingIndexedFastaSequenceFile extends IndexedFastaSequenceFile {
 
         // Read reference data by creating an IndexedFastaSequenceFile.
         try {
-            return new CachingIndexedFastaSequenceFile(fastaFile);
+            return memoryMapped ? new MappedIndexedFastaSequenceFile(fastaFile) : new CachingIndexedFastaSequenceFile(fastaFile);
         }
         catch (IllegalArgumentException e) {
             throw new UserException.CouldNotReadInputFile(fastaFile, "Could not read reference sequence.  The FASTA must have either a .fasta or .fa extension", e);
@@ -259,7 +270,7 @@ public class CachingIndexedFastaSequenceFile extends IndexedFastaSequenceFile {
      * Print the efficiency (hits / queries) to logger with priority
      */
     public void printEfficiency(final Priority priority) {
-        logger.log(priority, String.format("### CachingIndexedFastaReader: hits=%d misses=%d efficiency %.6f%%", cacheHits, cacheMisses, calcEfficiency()));
+        logger.log(priority, String.format("### CachingIndexedFastaReader: hits=%d misses=%d efficiency %.6f%%", getCacheHits(), getCacheMisses(), calcEfficiency()));
     }
 
     /**
@@ -267,7 +278,7 @@ public class CachingIndexedFastaSequenceFile extends IndexedFastaSequenceFile {
      * @return
      */
     public double calcEfficiency() {
-        return 100.0 * cacheHits / (cacheMisses + cacheHits * 1.0);
+        return 100.0 * getCacheHits() / (getCacheMisses() + getCacheHits() * 1.0);
     }
 
     /**
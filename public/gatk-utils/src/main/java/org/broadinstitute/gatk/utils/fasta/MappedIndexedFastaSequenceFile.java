@@ -0,0 +1,221 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.fasta;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.FastaSequenceIndex;
+import htsjdk.samtools.reference.FastaSequenceIndexEntry;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.util.StringUtil;
+import org.broadinstitute.gatk.utils.BaseUtils;
+import org.broadinstitute.gatk.utils.exceptions.UserException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A CachingIndexedFastaSequenceFile that memory maps the FASTA instead of keeping a cache per thread.
+ *
+ * Each contig is mapped the first time it is asked for, and the mapping is then shared by all threads without
+ * any locking.  The bases live in the operating system's page cache, so there's only ever one copy of the
+ * reference in memory no matter how many threads use it, and any window of a mapped contig can be served
+ * without going back to the file, however far it is from the previous request.
+ *
+ * Subsequences are copied out of the mapping, as the line breaks of the FASTA have to be skipped and, as in
+ * CachingIndexedFastaSequenceFile, the bases upper cased and their IUPAC codes converted to Ns unless
+ * preserveCase and preserveIUPAC are set.
+ *
+ * A cache hit is a request served from a contig that was already mapped, and a cache miss a request that
+ * had to map its contig first.
+ *
+ * Thread-safe!
+ */
+public class MappedIndexedFastaSequenceFile extends CachingIndexedFastaSequenceFile {
+    private final FastaSequenceIndex index;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    /**
+     * The mapping of each contig, by its index in the fasta index, or null if the contig hasn't been mapped yet
+     */
+    private final AtomicReferenceArray<MappedByteBuffer> contigMappings;
+
+    private final AtomicLong mappedCacheHits = new AtomicLong(0);
+    private final AtomicLong mappedCacheMisses = new AtomicLong(0);
+
+    /**
+     * Open the given indexed fasta sequence file for memory mapped access
+     *
+     * @param fasta the file we will read our FASTA sequence from.
+     * @param index the index of the fasta file, used to find each contig in the file
+     * @param preserveCase If true, we will keep the case of the underlying bases in the FASTA, otherwise everything is converted to upper case
+     * @param preserveIUPAC If true, we will keep the IUPAC bases in the FASTA, otherwise they are converted to Ns
+     */
+    public MappedIndexedFastaSequenceFile(final File fasta, final FastaSequenceIndex index, final boolean preserveCase, final boolean preserveIUPAC) throws FileNotFoundException {
+        // the cache of the superclass is only used for the rare requests we can't serve from a mapping
+        super(fasta, index, DEFAULT_CACHE_SIZE, preserveCase, preserveIUPAC);
+        this.index = index;
+        this.file = new RandomAccessFile(fasta, "r");
+        this.channel = file.getChannel();
+        this.contigMappings = new AtomicReferenceArray<MappedByteBuffer>(index.size());
+    }
+
+    /**
+     * Open the given indexed fasta sequence file for memory mapped access, looking for its index next to it on disk
+     *
+     * @param fasta The file to open.
+     * @param preserveCase If true, we will keep the case of the underlying bases in the FASTA, otherwise everything is converted to upper case
+     * @param preserveIUPAC If true, we will keep the IUPAC bases in the FASTA, otherwise they are converted to Ns
+     */
+    public MappedIndexedFastaSequenceFile(final File fasta, final boolean preserveCase, final boolean preserveIUPAC) throws FileNotFoundException {
+        this(fasta, new FastaSequenceIndex(new File(fasta.getAbsolutePath() + ".fai")), preserveCase, preserveIUPAC);
+    }
+
+    /**
+     * Open the given indexed fasta sequence file for memory mapped access, converting all bases to upper case
+     *
+     * @param fasta The file to open.
+     */
+    public MappedIndexedFastaSequenceFile(final File fasta) throws FileNotFoundException {
+        this(fasta, false, false);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return super.getCacheHits() + mappedCacheHits.get();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return super.getCacheMisses() + mappedCacheMisses.get();
+    }
+
+    /**
+     * Gets the subsequence of the contig in the range [start,stop]
+     *
+     * Copies the bases straight out of the contig's mapping, mapping the contig first if this is the first
+     * request for it.
+     *
+     * @param contig Contig whose subsequence to retrieve.
+     * @param start inclusive, 1-based start of region.
+     * @param stop inclusive, 1-based stop of region.
+     * @return The partial reference sequence associated with this range.  If preserveCase is false, then
+     *         all of the bases in the ReferenceSequence returned by this method will be upper cased.
+     */
+    @Override
+    public ReferenceSequence getSubsequenceAt( final String contig, final long start, final long stop ) {
+        final SAMSequenceRecord contigInfo = getSequenceDictionary().getSequence(contig);
+        if ( contigInfo == null )
+            throw new SAMException("Unable to find entry for contig: " + contig);
+        if ( stop > contigInfo.getSequenceLength() )
+            throw new SAMException("Query asks for data past end of contig");
+
+        // leave the odd requests, before the start of the contig, backwards or empty, to the superclass
+        if ( start < 1 || stop < start )
+            return super.getSubsequenceAt(contig, start, stop);
+
+        final FastaSequenceIndexEntry entry = index.getIndexEntry(contig);
+        final ByteBuffer mapping = getContigMapping(entry);
+        if ( mapping == null )
+            return super.getSubsequenceAt(contig, start, stop);
+
+        final byte[] bases = new byte[(int)(stop - start + 1)];
+        copyBases(mapping, entry.getBasesPerLine(), entry.getBytesPerLine(), start - 1, bases);
+
+        if ( ! isPreservingCase() ) StringUtil.toUpperCase(bases);
+        if ( ! isPreservingIUPAC() ) BaseUtils.convertIUPACtoN(bases, true, false);
+
+        return new ReferenceSequence(contigInfo.getSequenceName(), contigInfo.getSequenceIndex(), bases);
+    }
+
+    /**
+     * Copies bases.length bases, starting at the 0-based offset within the contig, from its mapping into bases,
+     * skipping the line terminators
+     */
+    private static void copyBases(final ByteBuffer mapping, final int basesPerLine, final int bytesPerLine, final long offset, final byte[] bases) {
+        // a private view, so that threads don't fight over the position of the shared buffer
+        final ByteBuffer view = mapping.duplicate();
+
+        int copied = 0;
+        long line = offset / basesPerLine;
+        int column = (int)(offset % basesPerLine);
+        while ( copied < bases.length ) {
+            final int length = Math.min(basesPerLine - column, bases.length - copied);
+            view.position((int)(line * bytesPerLine + column));
+            view.get(bases, copied, length);
+            copied += length;
+            line++;
+            column = 0;
+        }
+    }
+
+    /**
+     * Gets the mapping of the contig, mapping it if no thread has done so yet
+     *
+     * @return the mapping of all of the bytes of the contig, or null if the contig is too large to map in one piece
+     */
+    private ByteBuffer getContigMapping(final FastaSequenceIndexEntry entry) {
+        final int contigIndex = entry.getSequenceIndex();
+        MappedByteBuffer mapping = contigMappings.get(contigIndex);
+        if ( mapping != null ) {
+            mappedCacheHits.incrementAndGet();
+            return mapping;
+        }
+
+        mappedCacheMisses.incrementAndGet();
+        final long numBytes = (entry.getSize() / entry.getBasesPerLine()) * entry.getBytesPerLine() + entry.getSize() % entry.getBasesPerLine();
+        if ( numBytes > Integer.MAX_VALUE )
+            return null;
+
+        try {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, entry.getLocation(), Math.min(numBytes, channel.size() - entry.getLocation()));
+        } catch ( IOException e ) {
+            throw new UserException.CouldNotReadInputFile("Unable to memory map contig " + entry.getContigName() + " of the reference", e);
+        }
+
+        // if another thread beat us to it, use its mapping, so every thread shares the same one
+        if ( ! contigMappings.compareAndSet(contigIndex, null, mapping) )
+            mapping = contigMappings.get(contigIndex);
+        return mapping;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            file.close();
+        } finally {
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.gatk.utils.threading.NamedThreadFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream writing BGZF, compressing its blocks on a pool of threads.
+ *
+ * The data written is cut into blocks exactly as it would be by a single threaded BGZF writer.  Each full block
+ * is compressed on the pool while the caller carries on filling the next one, and compressed blocks are written
+ * to the underlying stream in order.  At most a fixed number of blocks are in flight at once, so a caller that
+ * writes faster than the pool can compress waits for the oldest block rather than using unbounded memory.
+ *
+ * Because compressed block sizes aren't known until the blocks are compressed, positions in the stream are
+ * given as a block index and an offset within the uncompressed block.  A BlockListener is told the file address
+ * of each block index as the block is written, so that callers can turn positions into BGZF virtual file pointers.
+ *
+ * Like all OutputStreams, this class is NOT thread-safe: all writes must come from a single thread.
+ */
+public class ParallelBlockCompressedOutputStream extends OutputStream {
+    /**
+     * The amount of data in each full block.  Like samtools, this leaves room for even incompressible data to
+     * fit into a BGZF block, so no block ever needs to be split.
+     */
+    public final static int UNCOMPRESSED_BLOCK_SIZE = 0xff00;
+
+    /**
+     * The number of blocks that may be compressing or waiting to be written, per thread
+     */
+    private final static int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * Told of the file address of each block as it's written
+     */
+    public interface BlockListener {
+        /**
+         * @param blockIndex the index of the block, counting from 0
+         * @param blockAddress the offset of the block in the underlying stream
+         */
+        void blockWritten(final long blockIndex, final long blockAddress);
+    }
+
+    private final OutputStream out;
+    private final int compressionLevel;
+    private final ThreadPoolExecutor compressors;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<CompressedBlock>> blocksInFlight = new ArrayDeque<Future<CompressedBlock>>();
+    private final Deque<byte[]> freeBuffers = new ArrayDeque<byte[]>();
+    private BlockListener listener = null;
+
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(compressionLevel, true);
+        }
+    };
+
+    private final static ThreadLocal<Deflater> noCompressionDeflaters = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.NO_COMPRESSION, true);
+        }
+    };
+
+    private byte[] uncompressedBuffer = new byte[UNCOMPRESSED_BLOCK_SIZE];
+    private int numUncompressedBytes = 0;
+    private long blocksSubmitted = 0;
+    private long blocksWritten = 0;
+    private long bytesWritten = 0;
+    private boolean closed = false;
+
+    /**
+     * @param out the stream to write the compressed blocks to, closed when this stream is closed
+     * @param compressionLevel the deflate compression level, from 0 to 9
+     * @param numThreads the number of threads with which to compress blocks
+     */
+    public ParallelBlockCompressedOutputStream(final OutputStream out, final int compressionLevel, final int numThreads) {
+        if ( out == null ) throw new IllegalArgumentException("out cannot be null");
+        if ( compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION ) throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+        if ( numThreads < 1 ) throw new IllegalArgumentException("numThreads must be >= 1 but got " + numThreads);
+
+        this.out = out;
+        this.compressionLevel = compressionLevel;
+        this.maxBlocksInFlight = BLOCKS_IN_FLIGHT_PER_THREAD * numThreads;
+
+        // let idle threads die, so that a stream that's never closed can't keep the JVM alive
+        compressors = new ThreadPoolExecutor(numThreads, numThreads, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("BGZF-compressor-%d"));
+        compressors.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param listener told of the address of each block as it's written, or null
+     */
+    public void setBlockListener(final BlockListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the index of the block into which the next byte written will go
+     */
+    public long getBlockIndex() {
+        return blocksSubmitted;
+    }
+
+    /**
+     * @return the offset within the current block at which the next byte written will go
+     */
+    public int getBlockOffset() {
+        return numUncompressedBytes;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        uncompressedBuffer[numUncompressedBytes++] = (byte)b;
+        if ( numUncompressedBytes == UNCOMPRESSED_BLOCK_SIZE )
+            submitBlock();
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) throws IOException {
+        while ( length > 0 ) {
+            final int bytesToCopy = Math.min(length, UNCOMPRESSED_BLOCK_SIZE - numUncompressedBytes);
+            System.arraycopy(bytes, offset, uncompressedBuffer, numUncompressedBytes, bytesToCopy);
+            numUncompressedBytes += bytesToCopy;
+            offset += bytesToCopy;
+            length -= bytesToCopy;
+
+            // eagerly end full blocks, so the current position is always inside a block
+            if ( numUncompressedBytes == UNCOMPRESSED_BLOCK_SIZE )
+                submitBlock();
+        }
+    }
+
+    /**
+     * Ends the current block, if it has any data, and writes all blocks in flight to the underlying stream
+     */
+    @Override
+    public void flush() throws IOException {
+        if ( numUncompressedBytes > 0 )
+            submitBlock();
+        while ( ! blocksInFlight.isEmpty() )
+            writeNextBlock();
+        out.flush();
+    }
+
+    /**
+     * Writes all remaining data and the BGZF end of file marker, then closes the underlying stream
+     */
+    @Override
+    public void close() throws IOException {
+        if ( closed )
+            return;
+        closed = true;
+
+        try {
+            flush();
+
+            // the end of file marker is where a block following the last one would start
+            if ( listener != null )
+                listener.blockWritten(blocksWritten, bytesWritten);
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            out.close();
+        }
+        finally {
+            compressors.shutdownNow();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if ( blocksInFlight.size() >= maxBlocksInFlight )
+            writeNextBlock();
+
+        final byte[] buffer = uncompressedBuffer;
+        final int length = numUncompressedBytes;
+        blocksInFlight.add(compressors.submit(new Callable<CompressedBlock>() {
+            @Override
+            public CompressedBlock call() {
+                return compressBlock(buffer, length);
+            }
+        }));
+        blocksSubmitted++;
+
+        uncompressedBuffer = freeBuffers.isEmpty() ? new byte[UNCOMPRESSED_BLOCK_SIZE] : freeBuffers.poll();
+        numUncompressedBytes = 0;
+
+        // write out anything that's already done, without waiting
+        while ( ! blocksInFlight.isEmpty() && blocksInFlight.peek().isDone() )
+            writeNextBlock();
+    }
+
+    private void writeNextBlock() throws IOException {
+        final CompressedBlock block;
+        try {
+            block = blocksInFlight.poll().get();
+        } catch ( InterruptedException e ) {
+            throw new InterruptedIOException("Interrupted waiting for a BGZF block to be compressed");
+        } catch ( ExecutionException e ) {
+            throw new IOException("Unable to compress BGZF block", e.getCause());
+        }
+
+        if ( listener != null )
+            listener.blockWritten(blocksWritten, bytesWritten);
+        out.write(block.compressedBlock);
+        bytesWritten += block.compressedBlock.length;
+        blocksWritten++;
+        freeBuffers.add(block.uncompressedBuffer);
+    }
+
+    /**
+     * Compresses uncompressed[0, length) into a complete BGZF block
+     */
+    private CompressedBlock compressBlock(final byte[] uncompressed, final int length) {
+        final byte[] compressed = new byte[BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE];
+        final int maxCompressedDataSize = compressed.length - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH - BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+
+        int compressedDataSize = deflate(deflaters.get(), uncompressed, length, compressed, maxCompressedDataSize);
+        if ( compressedDataSize < 0 ) {
+            // the data didn't compress; it's guaranteed to fit when stored
+            compressedDataSize = deflate(noCompressionDeflaters.get(), uncompressed, length, compressed, maxCompressedDataSize);
+            if ( compressedDataSize < 0 )
+                throw new IllegalStateException("Unable to fit " + length + " bytes into a BGZF block");
+        }
+
+        final CRC32 crc32 = new CRC32();
+        crc32.update(uncompressed, 0, length);
+
+        final int blockSize = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + compressedDataSize + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+        int i = 0;
+        compressed[i++] = (byte)BlockCompressedStreamConstants.GZIP_ID1;
+        compressed[i++] = (byte)BlockCompressedStreamConstants.GZIP_ID2;
+        compressed[i++] = (byte)BlockCompressedStreamConstants.GZIP_CM_DEFLATE;
+        compressed[i++] = (byte)BlockCompressedStreamConstants.GZIP_FLG;
+        i = putInt(compressed, i, 0); // modification time
+        compressed[i++] = (byte)BlockCompressedStreamConstants.GZIP_XFL;
+        compressed[i++] = (byte)BlockCompressedStreamConstants.GZIP_OS_UNKNOWN;
+        i = putShort(compressed, i, BlockCompressedStreamConstants.GZIP_XLEN);
+        compressed[i++] = (byte)BlockCompressedStreamConstants.BGZF_ID1;
+        compressed[i++] = (byte)BlockCompressedStreamConstants.BGZF_ID2;
+        i = putShort(compressed, i, BlockCompressedStreamConstants.BGZF_LEN);
+        putShort(compressed, i, blockSize - 1);
+
+        i = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + compressedDataSize;
+        i = putInt(compressed, i, (int)crc32.getValue());
+        putInt(compressed, i, length);
+
+        final byte[] block = new byte[blockSize];
+        System.arraycopy(compressed, 0, block, 0, blockSize);
+        return new CompressedBlock(uncompressed, block);
+    }
+
+    /**
+     * @return the number of bytes of compressed data written after the block header, or -1 if they didn't fit
+     */
+    private static int deflate(final Deflater deflater, final byte[] uncompressed, final int length, final byte[] compressed, final int maxCompressedDataSize) {
+        deflater.reset();
+        deflater.setInput(uncompressed, 0, length);
+        deflater.finish();
+        final int compressedDataSize = deflater.deflate(compressed, BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH, maxCompressedDataSize);
+        return deflater.finished() ? compressedDataSize : -1;
+    }
+
+    private static int putShort(final byte[] bytes, final int offset, final int value) {
+        bytes[offset] = (byte)value;
+        bytes[offset + 1] = (byte)(value >>> 8);
+        return offset + 2;
+    }
+
+    private static int putInt(final byte[] bytes, final int offset, final int value) {
+        putShort(bytes, offset, value);
+        putShort(bytes, offset + 2, value >>> 16);
+        return offset + 4;
+    }
+
+    private final static class CompressedBlock {
+        private final byte[] uncompressedBuffer;
+        private final byte[] compressedBlock;
+
+        private CompressedBlock(final byte[] uncompressedBuffer, final byte[] compressedBlock) {
+            this.uncompressedBuffer = uncompressedBuffer;
+            this.compressedBlock = compressedBlock;
+        }
+    }
+}
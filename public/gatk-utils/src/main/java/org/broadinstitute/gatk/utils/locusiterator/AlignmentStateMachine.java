@@ -34,6 +34,7 @@ import htsjdk.samtools.CigarOperator;
 import org.broadinstitute.gatk.utils.GenomeLoc;
 import org.broadinstitute.gatk.utils.GenomeLocParser;
 import org.broadinstitute.gatk.utils.exceptions.UserException;
+import org.broadinstitute.gatk.utils.pileup.ColumnarPileup;
 import org.broadinstitute.gatk.utils.pileup.PileupElement;
 import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
 
@@ -368,5 +369,23 @@ public class AlignmentStateMachine {
                 getCurrentCigarElementOffset(),
                 getOffsetIntoCurrentCigarElement());
     }
+
+    /**
+     * Add an entry for the current state of this element to pileup, without creating a PileupElement
+     *
+     * Must not be a left or right edge
+     *
+     * @param pileup the columnar pileup to add to
+     */
+    @Requires("pileup != null")
+    public final void addToPileup(final ColumnarPileup pileup) {
+        if ( isLeftEdge() || isRightEdge() )
+            throw new IllegalStateException(MAKE_PILEUP_EDGE_ERROR);
+        pileup.add(read,
+                getReadOffset(),
+                getCurrentCigarElement(),
+                getCurrentCigarElementOffset(),
+                getOffsetIntoCurrentCigarElement());
+    }
 }
 
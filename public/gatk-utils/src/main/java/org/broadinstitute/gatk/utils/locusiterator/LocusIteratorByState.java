@@ -38,6 +38,7 @@ import org.broadinstitute.gatk.utils.sam.GATKSAMRecordIterator;
 import org.broadinstitute.gatk.utils.GenomeLoc;
 import org.broadinstitute.gatk.utils.GenomeLocParser;
 import org.broadinstitute.gatk.utils.downsampling.DownsamplingMethod;
+import org.broadinstitute.gatk.utils.pileup.ColumnarPileup;
 import org.broadinstitute.gatk.utils.pileup.PileupElement;
 import org.broadinstitute.gatk.utils.pileup.ReadBackedPileupImpl;
 import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
@@ -106,6 +107,11 @@ public final class LocusIteratorByState extends LocusIterator {
      */
     private final boolean includeReadsWithDeletionAtLoci;
 
+    /**
+     * The pool of columnar pileups we fill in at each locus, or null if we're making ReadBackedPileups
+     */
+    private final ColumnarPileup.Pool columnarPileups;
+
     /**
      * The next alignment context.  A non-null value means that a
      * context is waiting from hasNext() for sending off to the next next() call.  A null
@@ -140,12 +146,39 @@ public final class LocusIteratorByState extends LocusIterator {
                                 final boolean keepUniqueReadListInLIBS,
                                 final GenomeLocParser genomeLocParser,
                                 final Collection<String> samples) {
+        this(samIterator, downsamplingMethod, includeReadsWithDeletionAtLoci, keepUniqueReadListInLIBS, genomeLocParser, samples, false);
+    }
+
+    /**
+     * Create a new LocusIteratorByState, optionally producing columnar pileups
+     *
+     * @param samIterator the iterator of reads to process into pileups.  Reads must be ordered
+     *                    according to standard coordinate-sorted BAM conventions
+     * @param downsamplingMethod information about how to downsample the reads
+     * @param includeReadsWithDeletionAtLoci Include reads with deletion at loci
+     * @param keepUniqueReadListInLIBS Keep unique read list in LIBS
+     * @param genomeLocParser used to create genome locs
+     * @param samples a complete list of samples present in the read groups for the reads coming from samIterator.
+     *                This is generally just the set of read group sample fields in the SAMFileHeader.  This
+     *                list of samples may contain a null element, and all reads without read groups will
+     *                be mapped to this null sample
+     * @param columnarPileups if true, the AlignmentContexts we produce hold pooled ColumnarPileups instead of
+     *                        ReadBackedPileups.  See AlignmentContext.getColumnarPileup()
+     */
+    public LocusIteratorByState(final Iterator<GATKSAMRecord> samIterator,
+                                final DownsamplingMethod downsamplingMethod,
+                                final boolean includeReadsWithDeletionAtLoci,
+                                final boolean keepUniqueReadListInLIBS,
+                                final GenomeLocParser genomeLocParser,
+                                final Collection<String> samples,
+                                final boolean columnarPileups) {
         this(samIterator,
                 toDownsamplingInfo(downsamplingMethod),
                 includeReadsWithDeletionAtLoci,
                 genomeLocParser,
                 samples,
-                keepUniqueReadListInLIBS);
+                keepUniqueReadListInLIBS,
+                columnarPileups);
     }
 
     /**
@@ -187,6 +220,32 @@ public final class LocusIteratorByState extends LocusIterator {
                                 final GenomeLocParser genomeLocParser,
                                 final Collection<String> samples,
                                 final boolean maintainUniqueReadsList) {
+        this(samIterator, downsamplingInfo, includeReadsWithDeletionAtLoci, genomeLocParser, samples, maintainUniqueReadsList, false);
+    }
+
+    /**
+     * Create a new LocusIteratorByState
+     *
+     * @param samIterator the iterator of reads to process into pileups.  Reads must be ordered
+     *                    according to standard coordinate-sorted BAM conventions
+     * @param downsamplingInfo meta-information about how to downsampling the reads
+     * @param genomeLocParser used to create genome locs
+     * @param samples a complete list of samples present in the read groups for the reads coming from samIterator.
+     *                This is generally just the set of read group sample fields in the SAMFileHeader.  This
+     *                list of samples may contain a null element, and all reads without read groups will
+     *                be mapped to this null sample
+     * @param maintainUniqueReadsList if true, we will keep the unique reads from off the samIterator and make them
+     *                                available via the transferReadsFromAllPreviousPileups interface
+     * @param columnarPileups if true, the AlignmentContexts we produce hold pooled ColumnarPileups instead of
+     *                        ReadBackedPileups.  See AlignmentContext.getColumnarPileup()
+     */
+    public LocusIteratorByState(final Iterator<GATKSAMRecord> samIterator,
+                                final LIBSDownsamplingInfo downsamplingInfo,
+                                final boolean includeReadsWithDeletionAtLoci,
+                                final GenomeLocParser genomeLocParser,
+                                final Collection<String> samples,
+                                final boolean maintainUniqueReadsList,
+                                final boolean columnarPileups) {
         if ( samIterator == null ) throw new IllegalArgumentException("samIterator cannot be null");
         if ( downsamplingInfo == null ) throw new IllegalArgumentException("downsamplingInfo cannot be null");
         if ( genomeLocParser == null ) throw new IllegalArgumentException("genomeLocParser cannot be null");
@@ -202,6 +261,18 @@ public final class LocusIteratorByState extends LocusIterator {
         this.includeReadsWithDeletionAtLoci = includeReadsWithDeletionAtLoci;
         this.samples = new ArrayList<String>(samples);
         this.readStates = new ReadStateManager(samIterator, this.samples, downsamplingInfo, maintainUniqueReadsList);
+        this.columnarPileups = columnarPileups ? new ColumnarPileup.Pool(getSamplesInPileupOrder()) : null;
+    }
+
+    /**
+     * Get the samples in the order readStates iterates over them, which is the order of their entries in a pileup
+     * @return a non-null list of samples
+     */
+    private List<String> getSamplesInPileupOrder() {
+        final List<String> pileupSamples = new ArrayList<String>();
+        for ( final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates )
+            pileupSamples.add(sampleStatePair.getKey());
+        return pileupSamples;
     }
 
     @Override
@@ -291,6 +362,11 @@ public final class LocusIteratorByState extends LocusIterator {
      * next entry.
      */
     private void lazyLoadNextAlignmentContext() {
+        if ( columnarPileups != null ) {
+            lazyLoadNextColumnarAlignmentContext();
+            return;
+        }
+
         while (nextAlignmentContext == null && readStates.hasNext()) {
             readStates.collectPendingReads();
 
@@ -306,19 +382,8 @@ public final class LocusIteratorByState extends LocusIterator {
                 while (iterator.hasNext()) {
                     // state object with the read/offset information
                     final AlignmentStateMachine state = iterator.next();
-                    final GATKSAMRecord read = state.getRead();
-                    final CigarOperator op = state.getCigarOperator();
-
-                    if (op == CigarOperator.N) // N's are never added to any pileup
-                        continue;
-
-                    if (!dontIncludeReadInPileup(read, location.getStart())) {
-                        if ( ! includeReadsWithDeletionAtLoci && op == CigarOperator.D ) {
-                            continue;
-                        }
-
+                    if ( includeInPileup(state, location) )
                         pile.add(state.makePileupElement());
-                    }
                 }
 
                 if (! pile.isEmpty() ) // if this pileup added at least one base, add it to the full pileup
@@ -331,6 +396,54 @@ public final class LocusIteratorByState extends LocusIterator {
         }
     }
 
+    /**
+     * Version of lazyLoadNextAlignmentContext() that fills in a ColumnarPileup from the pool for each locus
+     * instead of creating PileupElements.
+     */
+    private void lazyLoadNextColumnarAlignmentContext() {
+        while (nextAlignmentContext == null && readStates.hasNext()) {
+            readStates.collectPendingReads();
+
+            final GenomeLoc location = getLocation();
+            final ColumnarPileup pileup = columnarPileups.obtain(location);
+
+            for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates ) {
+                final Iterator<AlignmentStateMachine> iterator = sampleStatePair.getValue().iterator();
+                while (iterator.hasNext()) {
+                    final AlignmentStateMachine state = iterator.next();
+                    if ( includeInPileup(state, location) )
+                        state.addToPileup(pileup);
+                }
+                pileup.finishSample();
+            }
+
+            readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
+            if ( ! pileup.isEmpty() ) // if we got reads with non-D/N over the current position, we are done
+                nextAlignmentContext = new AlignmentContext(location, pileup, false);
+            else
+                pileup.release();
+        }
+    }
+
+    /**
+     * Should the current state of a read go into the pileup at location?
+     *
+     * @param state the state object with the read/offset information
+     * @param location the location of the pileup
+     * @return true if the state should be added to the pileup
+     */
+    private boolean includeInPileup(final AlignmentStateMachine state, final GenomeLoc location) {
+        final CigarOperator op = state.getCigarOperator();
+
+        if (op == CigarOperator.N) // N's are never added to any pileup
+            return false;
+
+        if ( dontIncludeReadInPileup(state.getRead(), location.getStart()) )
+            return false;
+
+        return includeReadsWithDeletionAtLoci || op != CigarOperator.D;
+    }
+
     // -----------------------------------------------------------------------------------------------------------------
     //
     // getting the list of reads
@@ -0,0 +1,116 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.nanoScheduler;
+
+/**
+ * Chooses how many input elements should be grouped into a single map task
+ *
+ * Tracks an exponentially weighted moving average of the cost of a single map call, and
+ * picks the batch size so that each batch takes roughly targetBatchNanos to process.  Cheap
+ * map calls are therefore grouped into large batches (amortizing the scheduling cost of each
+ * task), while expensive map calls are dispatched individually (keeping all threads busy).
+ *
+ * This class is thread-safe.  Updates from several threads may race with each other, but as
+ * the result is only a scheduling hint losing an occasional update is harmless.
+ */
+class AdaptiveBatchSizer {
+    /**
+     * By default, aim for each map batch to take about 1 millisecond
+     */
+    final static long DEFAULT_TARGET_BATCH_NANOS = 1000 * 1000;
+
+    /**
+     * Weight given to each new observation in the moving average
+     */
+    final static double ALPHA = 0.1;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetBatchNanos;
+
+    /**
+     * The average cost in nanoseconds of a single map call, or a negative value if none have been observed
+     */
+    private volatile double averageMapNanos = -1.0;
+
+    /**
+     * Create a new AdaptiveBatchSizer
+     *
+     * @param minBatchSize the smallest batch size we'll ever return, must be >= 1
+     * @param maxBatchSize the largest batch size we'll ever return, must be >= minBatchSize
+     * @param targetBatchNanos how long should each batch take to map, in nanoseconds?  Must be > 0
+     */
+    public AdaptiveBatchSizer(final int minBatchSize, final int maxBatchSize, final long targetBatchNanos) {
+        if ( minBatchSize < 1 ) throw new IllegalArgumentException("minBatchSize must be >= 1, got " + minBatchSize);
+        if ( maxBatchSize < minBatchSize ) throw new IllegalArgumentException("maxBatchSize " + maxBatchSize + " must be >= minBatchSize " + minBatchSize);
+        if ( targetBatchNanos <= 0 ) throw new IllegalArgumentException("targetBatchNanos must be > 0, got " + targetBatchNanos);
+
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetBatchNanos = targetBatchNanos;
+    }
+
+    /**
+     * Record that nElements map calls took elapsedNanos in total
+     *
+     * @param nElements the number of map calls, must be >= 1
+     * @param elapsedNanos the total time taken by those map calls, must be >= 0
+     */
+    public void update(final int nElements, final long elapsedNanos) {
+        if ( nElements < 1 ) throw new IllegalArgumentException("nElements must be >= 1, got " + nElements);
+        if ( elapsedNanos < 0 ) throw new IllegalArgumentException("elapsedNanos must be >= 0, got " + elapsedNanos);
+
+        final double observed = elapsedNanos / (double)nElements;
+        final double current = averageMapNanos;
+        averageMapNanos = current < 0 ? observed : (1 - ALPHA) * current + ALPHA * observed;
+    }
+
+    /**
+     * @return the average cost of a map call in nanoseconds, or a negative value if we have no observations yet
+     */
+    public double getAverageMapNanos() {
+        return averageMapNanos;
+    }
+
+    /**
+     * Get the number of elements that should be grouped into the next batch
+     *
+     * Before any observations are available we return minBatchSize, so that the first batches
+     * are spread across all threads and provide timing information quickly.
+     *
+     * @return a batch size between minBatchSize and maxBatchSize, inclusive
+     */
+    public int getBatchSize() {
+        final double average = averageMapNanos;
+        if ( average < 0 )
+            return minBatchSize;
+        if ( average == 0.0 )
+            return maxBatchSize;
+
+        final double ideal = targetBatchNanos / average;
+        return (int)Math.max(minBatchSize, Math.min(maxBatchSize, Math.round(ideal)));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.nanoScheduler;
+
+/**
+ * The strategy used by a NanoScheduler to distribute map work across its threads
+ *
+ * Both backends provide exactly the same semantics to their clients: map may be called
+ * in any order and on any thread, but reduce is always called in the order of the input
+ * data, on the map results of each input element.
+ */
+public enum NSExecutionBackend {
+    /**
+     * The original implementation: nThreads long-lived map jobs pull elements one at a time
+     * from a shared, synchronized InputProducer and push results into a MapResultsQueue.
+     */
+    QUEUED,
+
+    /**
+     * A single producer reads batches of input elements, whose size is adapted to the observed
+     * map latency, and submits them to a work-stealing ForkJoinPool.  Map results are reduced
+     * in order through the same MapResultsQueue and Reducer as the QUEUED backend.
+     *
+     * Best for walkers with many light-weight map calls, where contention on the shared
+     * input producer dominates in the QUEUED backend.
+     */
+    WORK_STEALING
+}
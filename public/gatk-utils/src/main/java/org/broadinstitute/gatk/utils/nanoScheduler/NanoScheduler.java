@@ -31,9 +31,11 @@ import org.apache.log4j.Logger;
 import org.broadinstitute.gatk.utils.MultiThreadedErrorTracker;
 import org.broadinstitute.gatk.utils.threading.NamedThreadFactory;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Framework for very fine grained MapReduce parallelism
@@ -61,6 +63,12 @@ import java.util.concurrent.*;
  * thread is put to work by execute to help with the processing of the data.  So in reality the
  * nanoScheduler only spawn nThreads - 1 additional workers (if this is > 1).
  *
+ * How the map work is distributed across the threads is determined by the NSExecutionBackend.
+ * The QUEUED backend runs nThreads map jobs that each pull elements one at a time from a shared
+ * InputProducer.  The WORK_STEALING backend reads the input in batches, whose size adapts to the
+ * observed cost of the map function, and hands these to a ForkJoinPool.  Both backends reduce
+ * map results in input order.
+ *
  * User: depristo
  * Date: 8/24/12
  * Time: 9:47 AM
@@ -71,7 +79,8 @@ public class NanoScheduler<InputType, MapType, ReduceType> {
     protected final static int UPDATE_PROGRESS_FREQ = 100;
 
     /**
-     * Currently not used, but kept because it's conceptual reasonable to have a buffer
+     * The maximum number of input elements that may be in flight (read but not yet reduced)
+     * at any one time.  Only enforced by the WORK_STEALING backend.
      */
     final int bufferSize;
 
@@ -80,6 +89,11 @@ public class NanoScheduler<InputType, MapType, ReduceType> {
      */
     final int nThreads;
 
+    /**
+     * How we distribute map work across our nThreads
+     */
+    final NSExecutionBackend backend;
+
     final ExecutorService masterExecutor;
     final ExecutorService mapExecutor;
     final MultiThreadedErrorTracker errorTracker = new MultiThreadedErrorTracker();
@@ -95,21 +109,49 @@ public class NanoScheduler<InputType, MapType, ReduceType> {
      *                 thread calling execute
      */
     public NanoScheduler(final int nThreads) {
-        this(nThreads*100, nThreads);
+        this(nThreads, NSExecutionBackend.QUEUED);
+    }
+
+    /**
+     * Create a new nanoscheduler using the given execution backend
+     *
+     * @param nThreads the number of threads to use to get work done, in addition to the
+     *                 thread calling execute
+     * @param backend the strategy used to distribute map work across threads
+     */
+    public NanoScheduler(final int nThreads, final NSExecutionBackend backend) {
+        this(nThreads*100, nThreads, backend);
     }
 
     protected NanoScheduler(final int bufferSize, final int nThreads) {
+        this(bufferSize, nThreads, NSExecutionBackend.QUEUED);
+    }
+
+    /**
+     * Create a new nanoscheduler with an explicit bound on the input buffer
+     *
+     * @param bufferSize the maximum number of input elements in flight, for backends that enforce it
+     * @param nThreads the number of threads to use to get work done, in addition to the
+     *                 thread calling execute
+     * @param backend the strategy used to distribute map work across threads
+     */
+    public NanoScheduler(final int bufferSize, final int nThreads, final NSExecutionBackend backend) {
         if ( bufferSize < 1 ) throw new IllegalArgumentException("bufferSize must be >= 1, got " + bufferSize);
         if ( nThreads < 1 ) throw new IllegalArgumentException("nThreads must be >= 1, got " + nThreads);
+        if ( backend == null ) throw new IllegalArgumentException("backend cannot be null");
 
         this.bufferSize = bufferSize;
         this.nThreads = nThreads;
+        this.backend = backend;
 
         if ( nThreads == 1 ) {
             this.mapExecutor = this.masterExecutor = null;
         } else {
             this.masterExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("NS-master-thread-%d"));
-            this.mapExecutor = Executors.newFixedThreadPool(nThreads, new NamedThreadFactory("NS-map-thread-%d"));
+            if ( backend == NSExecutionBackend.WORK_STEALING )
+                this.mapExecutor = new ForkJoinPool(nThreads, new NamedForkJoinWorkerThreadFactory("NS-fj-map-thread-%d"), null, false);
+            else
+                this.mapExecutor = Executors.newFixedThreadPool(nThreads, new NamedThreadFactory("NS-map-thread-%d"));
         }
     }
 
@@ -122,6 +164,15 @@ public class NanoScheduler<InputType, MapType, ReduceType> {
         return nThreads;
     }
 
+    /**
+     * The execution backend used by this NanoScheduler
+     * @return a non-null backend
+     */
+    @Ensures("result != null")
+    public NSExecutionBackend getBackend() {
+        return backend;
+    }
+
     /**
      * The input buffer size used by this NanoScheduler
      * @return
@@ -306,7 +357,9 @@ public class NanoScheduler<InputType, MapType, ReduceType> {
         debugPrint("Executing nanoScheduler");
 
         // start up the master job
-        final MasterJob masterJob = new MasterJob(inputReader, map, initialValue, reduce);
+        final Callable<ReduceType> masterJob = backend == NSExecutionBackend.WORK_STEALING
+                ? new WorkStealingMasterJob(inputReader, map, initialValue, reduce)
+                : new MasterJob(inputReader, map, initialValue, reduce);
         final Future<ReduceType> reduceResult = masterExecutor.submit(masterJob);
 
         while ( true ) {
@@ -491,4 +544,141 @@ public class NanoScheduler<InputType, MapType, ReduceType> {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Master job for the WORK_STEALING backend
+     *
+     * Reads the input in batches, sized by an AdaptiveBatchSizer, and submits each batch as a single
+     * task to the ForkJoinPool mapExecutor.  The number of elements that have been read but not yet
+     * reduced is bounded by bufferSize through the inFlight semaphore, whose permits are returned
+     * by whichever thread manages to reduce the corresponding map results.
+     *
+     * The result of this callable is the final reduce value for the input / map / reduce jobs
+     */
+    private class WorkStealingMasterJob implements Callable<ReduceType> {
+        final Iterator<InputType> inputReader;
+        final NSMapFunction<InputType, MapType> map;
+        final ReduceType initialValue;
+        final NSReduceFunction<MapType, ReduceType> reduce;
+
+        final MapResultsQueue<MapType> mapResultQueue = new MapResultsQueue<MapType>();
+        final Semaphore inFlight = new Semaphore(bufferSize);
+        final AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(1, Math.max(1, bufferSize / nThreads), AdaptiveBatchSizer.DEFAULT_TARGET_BATCH_NANOS);
+        final Reducer<MapType, ReduceType> reducer;
+
+        private WorkStealingMasterJob(Iterator<InputType> inputReader, NSMapFunction<InputType, MapType> map, ReduceType initialValue, NSReduceFunction<MapType, ReduceType> reduce) {
+            this.inputReader = inputReader;
+            this.map = map;
+            this.initialValue = initialValue;
+            this.reduce = reduce;
+            this.reducer = new Reducer<MapType, ReduceType>(reduce, errorTracker, initialValue);
+        }
+
+        @Override
+        public ReduceType call() {
+            try {
+                int nextJobID = 0;
+                while ( inputReader.hasNext() && ! errorTracker.hasAnErrorOccurred() ) {
+                    final int batchSize = batchSizer.getBatchSize();
+                    final List<InputType> batch = new ArrayList<InputType>(batchSize);
+                    while ( batch.size() < batchSize && inputReader.hasNext() ) {
+                        final InputType input = inputReader.next();
+                        if ( input == null )
+                            throw new IllegalStateException("inputReader.next() returned a null value, breaking our contract");
+                        batch.add(input);
+                    }
+
+                    if ( ! acquireInFlightPermits(batch.size()) )
+                        return initialValue; // an error occurred elsewhere, which will be handled by our caller
+
+                    mapExecutor.submit(new MapBatchJob(nextJobID, batch));
+                    nextJobID += batch.size();
+                }
+
+                // wait until every element we've read has been mapped and reduced, which is the
+                // case exactly when we can reclaim all of the in flight permits
+                if ( ! acquireInFlightPermits(bufferSize) )
+                    return initialValue;
+
+                // everything has been reduced, so this is a no-op unless a map thread lost a race for the reduce lock
+                reducer.reduceAsMuchAsPossible(mapResultQueue, true);
+                return reducer.getReduceResult();
+            } catch (Throwable ex) {
+                errorTracker.notifyOfError(ex);
+                return initialValue;
+            }
+        }
+
+        /**
+         * Block until nPermits elements can be added to the in flight set
+         *
+         * While waiting we periodically reduce ourselves, as a map thread can finish its batch after
+         * another thread has checked the queue but before it has released the reduce lock, leaving
+         * results on the queue that no one is going to reduce.
+         *
+         * @param nPermits the number of permits to acquire, must be <= bufferSize
+         * @return true if the permits were acquired, false if an error occurred while waiting
+         */
+        private boolean acquireInFlightPermits(final int nPermits) throws InterruptedException {
+            while ( ! inFlight.tryAcquire(nPermits, 100, TimeUnit.MILLISECONDS) ) {
+                if ( errorTracker.hasAnErrorOccurred() )
+                    return false;
+                inFlight.release(reducer.reduceAsMuchAsPossible(mapResultQueue, true));
+            }
+            return true;
+        }
+
+        /**
+         * Maps a contiguous batch of input elements, whose first element has job id firstJobID
+         */
+        private class MapBatchJob implements Runnable {
+            final int firstJobID;
+            final List<InputType> batch;
+
+            private MapBatchJob(final int firstJobID, final List<InputType> batch) {
+                this.firstJobID = firstJobID;
+                this.batch = batch;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    final long startTime = System.nanoTime();
+                    int jobID = firstJobID;
+                    for ( final InputType input : batch ) {
+                        final MapType mapValue = map.apply(input);
+                        mapResultQueue.put(new MapResult<MapType>(mapValue, jobID));
+                        updateProgress(jobID, input);
+                        jobID++;
+                    }
+                    batchSizer.update(batch.size(), System.nanoTime() - startTime);
+
+                    // reduce as much as possible, without blocking, if another thread is already doing reduces
+                    inFlight.release(reducer.reduceAsMuchAsPossible(mapResultQueue, false));
+                } catch (Throwable ex) {
+                    errorTracker.notifyOfError(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * ForkJoinPool equivalent of NamedThreadFactory, giving our work-stealing threads meaningful names
+     */
+    private static class NamedForkJoinWorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final static AtomicInteger id = new AtomicInteger(0);
+        final String format;
+
+        private NamedForkJoinWorkerThreadFactory(final String format) {
+            this.format = format;
+            String.format(format, 0); // test the name
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(String.format(format, id.getAndIncrement()));
+            return thread;
+        }
+    }
+}
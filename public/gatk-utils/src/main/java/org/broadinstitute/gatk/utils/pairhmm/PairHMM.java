@@ -65,7 +65,9 @@ public abstract class PairHMM {
         /* Debugging for vector implementation of LOGLESS_CACHING */
         DEBUG_VECTOR_LOGLESS_CACHING,
         /* Logless caching PairHMM that stores computations in 1D arrays instead of matrices, and which proceeds diagonally over the (read x haplotype) intersection matrix */
-        ARRAY_LOGLESS
+        ARRAY_LOGLESS,
+        /* Pure Java version of VECTOR_LOGLESS_CACHING, using single precision with a double precision fallback and a loop structure the JIT can vectorize */
+        JAVA_VECTOR_LOGLESS_CACHING
     }
 
     /* Instruction sets for computing VectorLoglessHMM */
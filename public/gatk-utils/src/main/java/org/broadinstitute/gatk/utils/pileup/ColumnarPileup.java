@@ -0,0 +1,474 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.pileup;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import org.broadinstitute.gatk.utils.BaseUtils;
+import org.broadinstitute.gatk.utils.GenomeLoc;
+import org.broadinstitute.gatk.utils.sam.GATKSAMRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pileup stored as columns of primitive arrays, one entry per read covering the locus, rather than as a list of
+ * PileupElement objects.
+ *
+ * The entries are grouped by sample, in the order of the samples given on construction.  The entries of sample s
+ * are [getSampleStart(s), getSampleEnd(s)), and within each sample they are in the order the reads were added.
+ *
+ * Columnar pileups created by LocusIteratorByState come from a Pool and are refilled at each locus, so a pileup
+ * from the pool is only valid until it is released back to the pool.  Walkers get to them through
+ * AlignmentContext.getColumnarPileup(), and toReadBackedPileup() provides the usual ReadBackedPileup for code that
+ * wants one.
+ *
+ * Not thread-safe, except for the Pool.
+ */
+public class ColumnarPileup {
+    /** The read of the entry is on the negative strand */
+    public static final byte NEGATIVE_STRAND_FLAG = 0x1;
+
+    /** The entry is a deletion w.r.t. the reference */
+    public static final byte DELETION_FLAG = 0x2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final List<String> samples;
+    private final Pool pool;
+
+    private GenomeLoc location = null;
+    private boolean released = false;
+
+    /**
+     * The end of the entries of each sample.  Only samples < nFinishedSamples have been filled in.
+     */
+    private final int[] sampleEnds;
+    private int nFinishedSamples = 0;
+
+    private int size = 0;
+    private int nDeletions = 0;
+    private int nMQ0Reads = 0;
+
+    private GATKSAMRecord[] reads = new GATKSAMRecord[INITIAL_CAPACITY];
+    private byte[] bases = new byte[INITIAL_CAPACITY];
+    private byte[] quals = new byte[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] mappingQuals = new int[INITIAL_CAPACITY];
+    private CigarElement[] cigarElements = new CigarElement[INITIAL_CAPACITY];
+    private int[] cigarOffsets = new int[INITIAL_CAPACITY];
+    private int[] offsetsInCigar = new int[INITIAL_CAPACITY];
+
+    /**
+     * Create an empty columnar pileup at location, not belonging to any pool
+     *
+     * @param location the location of the pileup
+     * @param samples the samples of the entries of this pileup, in the order they'll be added.  May contain null,
+     *                for reads without a sample
+     */
+    public ColumnarPileup(final GenomeLoc location, final List<String> samples) {
+        this(samples, null);
+        reset(location);
+    }
+
+    private ColumnarPileup(final List<String> samples, final Pool pool) {
+        if ( samples == null ) throw new IllegalArgumentException("samples cannot be null");
+        this.samples = Collections.unmodifiableList(new ArrayList<String>(samples));
+        this.sampleEnds = new int[samples.size()];
+        this.pool = pool;
+    }
+
+    /**
+     * Create a columnar pileup with the same entries as pileup, grouped by the samples of its reads
+     *
+     * @param pileup a non-null pileup
+     * @return a new columnar pileup, not belonging to any pool
+     */
+    public static ColumnarPileup fromPileup(final ReadBackedPileup pileup) {
+        if ( pileup == null ) throw new IllegalArgumentException("pileup cannot be null");
+
+        final List<String> samples = new ArrayList<String>(pileup.getSamples());
+        final ColumnarPileup columnarPileup = new ColumnarPileup(pileup.getLocation(), samples);
+        for ( final String sample : samples ) {
+            final ReadBackedPileup samplePileup = pileup.getPileupForSample(sample);
+            if ( samplePileup != null ) {
+                for ( final PileupElement p : samplePileup )
+                    columnarPileup.add(p.getRead(), p.getOffset(), p.getCurrentCigarElement(), p.getCurrentCigarOffset(), p.getOffsetInCurrentCigar());
+            }
+            columnarPileup.finishSample();
+        }
+        return columnarPileup;
+    }
+
+    // --------------------------------------------------------------------------
+    //
+    // filling in the pileup
+    //
+    // --------------------------------------------------------------------------
+
+    /**
+     * Empty this pileup, and move it to location
+     *
+     * @param location the location of the pileup
+     */
+    public void reset(final GenomeLoc location) {
+        if ( location == null ) throw new IllegalArgumentException("location cannot be null");
+
+        // don't hold on to the reads of the previous locus
+        Arrays.fill(reads, 0, size, null);
+        Arrays.fill(cigarElements, 0, size, null);
+
+        this.location = location;
+        size = nDeletions = nMQ0Reads = nFinishedSamples = 0;
+    }
+
+    /**
+     * Add an entry for read to the current sample
+     *
+     * @param read a non-null read to pileup
+     * @param offset the offset into the read's bases aligned to this position on the genome.  If the
+     *               current cigar element is a deletion, offset should be the offset of the last M/=/X position.
+     * @param cigarElement the cigar element aligning the read to the genome
+     * @param cigarOffset the offset of cigarElement in the read's cigar
+     * @param offsetInCigar how far into cigarElement we are in our alignment to the genome
+     */
+    public void add(final GATKSAMRecord read, final int offset, final CigarElement cigarElement, final int cigarOffset, final int offsetInCigar) {
+        if ( nFinishedSamples == samples.size() ) throw new IllegalStateException("All of the samples of the pileup have already been finished");
+        if ( size == reads.length )
+            grow();
+
+        final boolean isDeletion = cigarElement.getOperator() == CigarOperator.D;
+        final int mappingQual = read.getMappingQuality();
+
+        reads[size] = read;
+        bases[size] = isDeletion ? PileupElement.DELETION_BASE : read.getReadBases()[offset];
+        quals[size] = isDeletion ? PileupElement.DELETION_QUAL : read.getBaseQualities()[offset];
+        flags[size] = (byte)((read.getReadNegativeStrandFlag() ? NEGATIVE_STRAND_FLAG : 0) | (isDeletion ? DELETION_FLAG : 0));
+        offsets[size] = offset;
+        mappingQuals[size] = mappingQual;
+        cigarElements[size] = cigarElement;
+        cigarOffsets[size] = cigarOffset;
+        offsetsInCigar[size] = offsetInCigar;
+        size++;
+
+        if ( isDeletion ) nDeletions++;
+        if ( mappingQual == 0 ) nMQ0Reads++;
+    }
+
+    /**
+     * Finish adding entries for the current sample, so that any further entries go to the next sample
+     */
+    public void finishSample() {
+        if ( nFinishedSamples == samples.size() ) throw new IllegalStateException("All of the samples of the pileup have already been finished");
+        sampleEnds[nFinishedSamples++] = size;
+    }
+
+    private void grow() {
+        final int capacity = reads.length * 2;
+        reads = Arrays.copyOf(reads, capacity);
+        bases = Arrays.copyOf(bases, capacity);
+        quals = Arrays.copyOf(quals, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        mappingQuals = Arrays.copyOf(mappingQuals, capacity);
+        cigarElements = Arrays.copyOf(cigarElements, capacity);
+        cigarOffsets = Arrays.copyOf(cigarOffsets, capacity);
+        offsetsInCigar = Arrays.copyOf(offsetsInCigar, capacity);
+    }
+
+    /**
+     * Give this pileup back to the pool it came from, so that it can be reused at another locus
+     *
+     * Does nothing if this pileup doesn't belong to a pool.  The pileup must not be used after it is released.
+     */
+    public void release() {
+        if ( pool == null )
+            return;
+        if ( released ) throw new IllegalStateException("Columnar pileup at " + location + " has already been released");
+
+        released = true;
+        Arrays.fill(reads, 0, size, null);
+        Arrays.fill(cigarElements, 0, size, null);
+        size = 0;
+        pool.giveBack(this);
+    }
+
+    // --------------------------------------------------------------------------
+    //
+    // accessors
+    //
+    // --------------------------------------------------------------------------
+
+    /**
+     * @return the location of this pileup
+     */
+    public GenomeLoc getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the number of entries in this pileup
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if there are no entries in this pileup
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of deletions in this pileup
+     */
+    public int getNumberOfDeletions() {
+        return nDeletions;
+    }
+
+    /**
+     * @return the number of entries whose reads have mapping quality 0
+     */
+    public int getNumberOfMappingQualityZeroReads() {
+        return nMQ0Reads;
+    }
+
+    /**
+     * @return the samples of this pileup, in the order of their entries
+     */
+    public List<String> getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of samples in this pileup, including those without any entries
+     */
+    public int getNumberOfSamples() {
+        return samples.size();
+    }
+
+    /**
+     * @return the sample name of the sampleIndex-th sample
+     */
+    public String getSample(final int sampleIndex) {
+        return samples.get(sampleIndex);
+    }
+
+    /**
+     * @return the index of the first entry of the sampleIndex-th sample
+     */
+    public int getSampleStart(final int sampleIndex) {
+        return sampleIndex == 0 ? 0 : getSampleEnd(sampleIndex - 1);
+    }
+
+    /**
+     * @return one past the index of the last entry of the sampleIndex-th sample
+     */
+    public int getSampleEnd(final int sampleIndex) {
+        if ( sampleIndex < 0 || sampleIndex >= samples.size() ) throw new IllegalArgumentException("Invalid sample index " + sampleIndex);
+        return sampleIndex < nFinishedSamples ? sampleEnds[sampleIndex] : size;
+    }
+
+    public GATKSAMRecord getRead(final int i) {
+        return reads[i];
+    }
+
+    /**
+     * @return the base of the i-th entry, or PileupElement.DELETION_BASE if it's a deletion
+     */
+    public byte getBase(final int i) {
+        return bases[i];
+    }
+
+    /**
+     * @return the base quality of the i-th entry, or PileupElement.DELETION_QUAL if it's a deletion
+     */
+    public byte getQual(final int i) {
+        return quals[i];
+    }
+
+    /**
+     * @return the offset into the read's bases of the i-th entry
+     */
+    public int getOffset(final int i) {
+        return offsets[i];
+    }
+
+    public int getMappingQual(final int i) {
+        return mappingQuals[i];
+    }
+
+    /**
+     * @return the flags of the i-th entry, a combination of NEGATIVE_STRAND_FLAG and DELETION_FLAG
+     */
+    public byte getFlags(final int i) {
+        return flags[i];
+    }
+
+    public boolean isNegativeStrand(final int i) {
+        return (flags[i] & NEGATIVE_STRAND_FLAG) != 0;
+    }
+
+    public boolean isDeletion(final int i) {
+        return (flags[i] & DELETION_FLAG) != 0;
+    }
+
+    /**
+     * Get the bases of all of the entries.  The array is shared with this pileup, and only its first size()
+     * elements belong to the pileup.
+     *
+     * @return a non-null array of bases
+     */
+    public byte[] getBases() {
+        return bases;
+    }
+
+    /**
+     * Get the base qualities of all of the entries.  The array is shared with this pileup, and only its first
+     * size() elements belong to the pileup.
+     *
+     * @return a non-null array of base qualities
+     */
+    public byte[] getQuals() {
+        return quals;
+    }
+
+    /**
+     * Get the mapping qualities of all of the entries.  The array is shared with this pileup, and only its first
+     * size() elements belong to the pileup.
+     *
+     * @return a non-null array of mapping qualities
+     */
+    public int[] getMappingQuals() {
+        return mappingQuals;
+    }
+
+    /**
+     * Get counts of A, C, G, T in order, according to BaseUtils.simpleBaseToBaseIndex, skipping deletions
+     *
+     * @param counts an int[4] into which to add the counts
+     * @return counts
+     */
+    public int[] getBaseCounts(final int[] counts) {
+        for ( int i = 0; i < size; i++ ) {
+            if ( ! isDeletion(i) ) {
+                final int index = BaseUtils.simpleBaseToBaseIndex(bases[i]);
+                if ( index != -1 )
+                    counts[index]++;
+            }
+        }
+        return counts;
+    }
+
+    // --------------------------------------------------------------------------
+    //
+    // compatibility with ReadBackedPileup
+    //
+    // --------------------------------------------------------------------------
+
+    /**
+     * @return a new PileupElement for the i-th entry
+     */
+    public PileupElement makePileupElement(final int i) {
+        return new PileupElement(reads[i], offsets[i], cigarElements[i], cigarOffsets[i], offsetsInCigar[i]);
+    }
+
+    /**
+     * Create a ReadBackedPileup with the entries of this pileup, stratified by sample
+     *
+     * The result doesn't depend on this pileup, so it stays valid after this pileup is reset or released.
+     *
+     * @return a non-null ReadBackedPileup
+     */
+    public ReadBackedPileupImpl toReadBackedPileup() {
+        final Map<String, ReadBackedPileupImpl> pileupsBySample = new HashMap<String, ReadBackedPileupImpl>();
+        for ( int s = 0; s < samples.size(); s++ ) {
+            final int start = getSampleStart(s);
+            final int end = getSampleEnd(s);
+            if ( start == end )
+                continue;
+
+            final List<PileupElement> pile = new ArrayList<PileupElement>(end - start);
+            for ( int i = start; i < end; i++ )
+                pile.add(makePileupElement(i));
+            pileupsBySample.put(samples.get(s), new ReadBackedPileupImpl(location, pile));
+        }
+        return new ReadBackedPileupImpl(location, pileupsBySample);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ColumnarPileup at %s with %d entries", location, size);
+    }
+
+    /**
+     * A pool of reusable columnar pileups for a fixed list of samples
+     *
+     * Thread-safe, so pileups can be released from other threads than the one that obtained them.
+     */
+    public static final class Pool {
+        private final List<String> samples;
+        private final ArrayDeque<ColumnarPileup> free = new ArrayDeque<ColumnarPileup>();
+
+        /**
+         * @param samples the samples of the pileups from this pool, in the order their entries will be added
+         */
+        public Pool(final List<String> samples) {
+            if ( samples == null ) throw new IllegalArgumentException("samples cannot be null");
+            this.samples = new ArrayList<String>(samples);
+        }
+
+        /**
+         * Get an empty pileup at location, reusing a released one if there is one
+         *
+         * @param location the location of the pileup
+         * @return a non-null empty columnar pileup
+         */
+        public ColumnarPileup obtain(final GenomeLoc location) {
+            ColumnarPileup pileup;
+            synchronized (this) {
+                pileup = free.poll();
+            }
+            if ( pileup == null )
+                pileup = new ColumnarPileup(samples, this);
+
+            pileup.released = false;
+            pileup.reset(location);
+            return pileup;
+        }
+
+        private synchronized void giveBack(final ColumnarPileup pileup) {
+            free.push(pileup);
+        }
+    }
+}
@@ -73,11 +73,25 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
     // because some values can be null, we don't want to duplicate effort
     private boolean retrievedReadGroup = false;
 
+    // The BAMRecord this read was made from, while its bases and base qualities haven't been copied out of it yet.
+    // BAMRecords only unpack these from their raw bytes when asked for them, so we wait until we are asked too.
+    // Reads are shared between threads, so the copy is made while holding the read's lock, and basesUndecoded is
+    // only cleared once both are copied: a thread that sees it cleared sees the bases and qualities too, and never
+    // needs undecodedRead again.
+    private SAMRecord undecodedRead = null;
+    private int undecodedReadLength = 0;
+    private volatile boolean basesUndecoded = false;
+
     // These temporary attributes were added here to make life easier for
     // certain algorithms by providing a way to label or attach arbitrary data to
     // individual GATKSAMRecords.
     // These attributes exist in memory only, and are never written to disk.
-    private Map<Object, Object> temporaryAttributes;
+    //
+    // Reads only ever carry a handful of them, so they are kept as alternating keys and values in
+    // a small array rather than a map.  The array is never changed once made, setting an attribute
+    // replaces it with a copy, so clones can share it without copying it or touching the original.
+    private final static Object[] NO_TEMPORARY_ATTRIBUTES = new Object[0];
+    private Object[] temporaryAttributes = NO_TEMPORARY_ATTRIBUTES;
 
     /**
      * HACK TO CREATE GATKSAMRECORD WITH ONLY A HEADER FOR TESTING PURPOSES ONLY
@@ -99,6 +113,7 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
         super.setMappingQuality(read.getMappingQuality());
         // indexing bin done below
         super.setCigar(read.getCigar());
+        super.setFileSource(read.getFileSource());
         super.setFlags(read.getFlags());
         super.setMateReferenceIndex(read.getMateReferenceIndex());
         super.setMateAlignmentStart(read.getMateAlignmentStart());
@@ -115,12 +130,16 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
             setReadGroup(rg);
         }
 
-        super.setFileSource(read.getFileSource());
-        super.setReadName(read.getReadName());
-        super.setCigarString(read.getCigarString());
-        super.setReadBases(read.getReadBases());
-        super.setBaseQualities(read.getBaseQualities());
-        // From SAMRecord constructor: Do this after the above because setCigarString will clear it.
+        if ( read instanceof BAMRecord ) {
+            // decoded on first use, see decodeBasesAndQualities()
+            undecodedRead = read;
+            undecodedReadLength = read.getReadLength();
+            basesUndecoded = true;
+        } else {
+            super.setReadBases(read.getReadBases());
+            super.setBaseQualities(read.getBaseQualities());
+        }
+        // From SAMRecord constructor: Do this after the above because setCigar will clear it.
         GATKBin.setReadIndexingBin(this, GATKBin.getReadIndexingBin(read));
     }
 
@@ -187,10 +206,69 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
 
     @Override
     public void setReadString(String s) {
+        decodeBasesAndQualities();
         super.setReadString(s);
         mReadString = s;
     }
 
+    @Override
+    public byte[] getReadBases() {
+        decodeBasesAndQualities();
+        return super.getReadBases();
+    }
+
+    @Override
+    public void setReadBases(final byte[] value) {
+        decodeBasesAndQualities();
+        super.setReadBases(value);
+        mReadString = null;
+    }
+
+    /**
+     * The length of the read, which doesn't require decoding its bases
+     */
+    @Override
+    public int getReadLength() {
+        return basesUndecoded ? undecodedReadLength : super.getReadLength();
+    }
+
+    @Override
+    public byte[] getBaseQualities() {
+        decodeBasesAndQualities();
+        return super.getBaseQualities();
+    }
+
+    @Override
+    public void setBaseQualities(final byte[] value) {
+        decodeBasesAndQualities();
+        super.setBaseQualities(value);
+    }
+
+    @Override
+    public void setBaseQualityString(final String value) {
+        decodeBasesAndQualities();
+        super.setBaseQualityString(value);
+    }
+
+    /**
+     * Copy the bases and base qualities out of the BAMRecord this read was made from, if that hasn't been done yet
+     *
+     * SAMRecord reads its bases and qualities directly rather than through the getters in equals() and hashCode(),
+     * so those decode first as well.
+     */
+    private void decodeBasesAndQualities() {
+        if ( basesUndecoded ) {
+            synchronized (this) {
+                if ( basesUndecoded ) {
+                    super.setReadBases(undecodedRead.getReadBases());
+                    super.setBaseQualities(undecodedRead.getBaseQualities());
+                    undecodedRead = null;
+                    basesUndecoded = false;
+                }
+            }
+        }
+    }
+
     /**
      * Get the GATKSAMReadGroupRecord of this read
      * @return a non-null GATKSAMReadGroupRecord
@@ -223,6 +301,7 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
 
     @Override
     public int hashCode() {
+        decodeBasesAndQualities();
         return super.hashCode();
     }
 
@@ -233,6 +312,8 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
         if (!(o instanceof GATKSAMRecord)) return false;
 
         // note that we do not consider the GATKSAMRecord internal state at all
+        decodeBasesAndQualities();
+        ((GATKSAMRecord)o).decodeBasesAndQualities();
         return super.equals(o);
     }
 
@@ -344,7 +425,7 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
      * @return True if an attribute has been set for this key.
      */
     public boolean containsTemporaryAttribute(Object key) {
-        return temporaryAttributes != null && temporaryAttributes.containsKey(key);
+        return findTemporaryAttribute(key) != -1;
     }
 
     /**
@@ -360,10 +441,22 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
      * @return attribute
      */
     public Object setTemporaryAttribute(Object key, Object value) {
-        if(temporaryAttributes == null) {
-            temporaryAttributes = new HashMap<>();
+        final int i = findTemporaryAttribute(key);
+
+        // copy on write, as the array may be shared with clones
+        if ( i == -1 ) {
+            final Object[] attributes = Arrays.copyOf(temporaryAttributes, temporaryAttributes.length + 2);
+            attributes[temporaryAttributes.length] = key;
+            attributes[temporaryAttributes.length + 1] = value;
+            temporaryAttributes = attributes;
+            return null;
+        } else {
+            final Object previous = temporaryAttributes[2 * i + 1];
+            final Object[] attributes = temporaryAttributes.clone();
+            attributes[2 * i + 1] = value;
+            temporaryAttributes = attributes;
+            return previous;
         }
-        return temporaryAttributes.put(key, value);
     }
 
     /**
@@ -377,10 +470,19 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
      * @return The value, or null.
      */
     public Object getTemporaryAttribute(Object key) {
-        if(temporaryAttributes != null) {
-            return temporaryAttributes.get(key);
+        final int i = findTemporaryAttribute(key);
+        return i == -1 ? null : temporaryAttributes[2 * i + 1];
+    }
+
+    /**
+     * @return the index of the temporary attribute with the given key, or -1 if it hasn't been set
+     */
+    private int findTemporaryAttribute(final Object key) {
+        for ( int i = 0; i < temporaryAttributes.length / 2; i++ ) {
+            if ( Objects.equals(key, temporaryAttributes[2 * i]) )
+                return i;
         }
-        return null;
+        return -1;
     }
 
     /**
@@ -392,7 +494,7 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
      * @return true if the read has no bases
      */
     public boolean isEmpty() {
-        return super.getReadBases() == null || super.getReadLength() == 0;
+        return getReadLength() == 0;
     }
 
     /**
@@ -585,8 +687,9 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
     }
 
     /**
-     * Shallow copy of everything, except for the attribute list and the temporary attributes. 
-     * A new list of the attributes is created for both, but the attributes themselves are copied by reference.  
+     * Shallow copy of everything, except for the attribute list. 
+     * A new list of the attributes is created, but the attributes themselves are copied by reference, and the
+     * temporary attributes are shared with the clone until either of them sets one.
      * This should be safe because callers should never modify a mutable value returned by any of the get() methods anyway.
      * 
      * @return a shallow copy of the GATKSAMRecord
@@ -594,13 +697,9 @@ public class GATKSAMRecord extends SAMRecord implements Cloneable {
     @Override
     public Object clone() {
         try {
-            final GATKSAMRecord clone = (GATKSAMRecord) super.clone();
-            if (temporaryAttributes != null) {
-                clone.temporaryAttributes = new HashMap<>();
-                for (Object attribute : temporaryAttributes.keySet())
-                    clone.setTemporaryAttribute(attribute, temporaryAttributes.get(attribute));
-            }
-            return clone;
+            // the clone must not share our BAMRecord, which would then be decoded by two reads at once
+            decodeBasesAndQualities();
+            return super.clone();
         } catch (final CloneNotSupportedException e) {
             throw new RuntimeException( e );
         }
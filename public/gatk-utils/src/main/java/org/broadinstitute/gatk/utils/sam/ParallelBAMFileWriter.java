@@ -0,0 +1,261 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.sam;
+
+import htsjdk.samtools.BAMFileSpan;
+import htsjdk.samtools.BAMIndex;
+import htsjdk.samtools.BAMIndexer;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.Chunk;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileSource;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMSortOrderChecker;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import htsjdk.samtools.util.ProgressLoggerInterface;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.broadinstitute.gatk.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A BAM writer that compresses its BGZF blocks on several threads.
+ *
+ * The output is a regular BAM file, readable by anything that reads BAMs.  Records must be added in the order
+ * of the header's sort order; unlike htsjdk's writers, this writer never sorts.
+ *
+ * If requested, a BAM index is built as the file is written.  The index needs the virtual file pointer of every
+ * record, which isn't known until the record's block has been compressed and written, so records are only
+ * passed on to the indexer once the addresses of their blocks are known.
+ */
+public class ParallelBAMFileWriter implements SAMFileWriter {
+    private final static byte[] BAM_MAGIC = "BAM\1".getBytes();
+
+    private final SAMFileHeader header;
+    private final ParallelBlockCompressedOutputStream blockOutputStream;
+    private final BAMRecordCodec recordCodec;
+    private final SAMSortOrderChecker sortOrderChecker;
+    private final BAMIndexer indexer;
+    private ProgressLoggerInterface progressLogger = null;
+
+    /**
+     * The addresses of the blocks written so far, starting at block index firstBlockIndex
+     */
+    private final Deque<Long> blockAddresses = new ArrayDeque<Long>();
+    private long firstBlockIndex = 0;
+
+    /**
+     * Records added, in order, whose blocks haven't all been written yet
+     */
+    private final Deque<PendingIndexEntry> pendingIndexEntries = new ArrayDeque<PendingIndexEntry>();
+
+    /**
+     * Create a writer for a new BAM file, and write its header
+     *
+     * @param header the header of the BAM file
+     * @param outputFile the BAM file to create
+     * @param compressionLevel the deflate compression level, from 0 to 9
+     * @param numThreads the number of threads with which to compress the file
+     * @param createIndex if true, also create an index for the file; requires coordinate sorted output
+     * @param createMd5File if true, also write the md5 of the file
+     */
+    public ParallelBAMFileWriter(final SAMFileHeader header, final File outputFile, final int compressionLevel, final int numThreads,
+                                 final boolean createIndex, final boolean createMd5File) {
+        if ( header == null ) throw new IllegalArgumentException("header cannot be null");
+        if ( outputFile == null ) throw new IllegalArgumentException("outputFile cannot be null");
+        if ( createIndex && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate )
+            throw new IllegalArgumentException("Can only create an index for coordinate sorted BAM files, but the sort order is " + header.getSortOrder());
+
+        this.header = header;
+
+        OutputStream outputStream;
+        try {
+            outputStream = new BufferedOutputStream(new FileOutputStream(outputFile), IOUtil.STANDARD_BUFFER_SIZE);
+        } catch ( IOException e ) {
+            throw new RuntimeIOException("Unable to create " + outputFile, e);
+        }
+        if ( createMd5File )
+            outputStream = new Md5CalculatingOutputStream(outputStream, new File(outputFile.getAbsolutePath() + ".md5"));
+
+        blockOutputStream = new ParallelBlockCompressedOutputStream(outputStream, compressionLevel, numThreads);
+        recordCodec = new BAMRecordCodec(header);
+        recordCodec.setOutputStream(blockOutputStream);
+        sortOrderChecker = new SAMSortOrderChecker(header.getSortOrder());
+
+        if ( createIndex ) {
+            indexer = new BAMIndexer(new File(outputFile.getParentFile(), IOUtil.basename(outputFile) + BAMIndex.BAMIndexSuffix), header);
+            blockOutputStream.setBlockListener(new ParallelBlockCompressedOutputStream.BlockListener() {
+                @Override
+                public void blockWritten(final long blockIndex, final long blockAddress) {
+                    blockAddresses.add(blockAddress);
+                }
+            });
+        }
+        else
+            indexer = null;
+
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        final StringWriter headerText = new StringWriter();
+        new SAMTextHeaderCodec().encode(headerText, header);
+
+        final BinaryCodec codec = new BinaryCodec(blockOutputStream);
+        codec.writeBytes(BAM_MAGIC);
+        codec.writeString(headerText.toString(), true, false);
+        codec.writeInt(header.getSequenceDictionary().size());
+        for ( final SAMSequenceRecord sequenceRecord : header.getSequenceDictionary().getSequences() ) {
+            codec.writeString(sequenceRecord.getSequenceName(), true, true);
+            codec.writeInt(sequenceRecord.getSequenceLength());
+        }
+
+        // start the records in a block of their own
+        try {
+            blockOutputStream.flush();
+        } catch ( IOException e ) {
+            throw new RuntimeIOException("Unable to write BAM header", e);
+        }
+    }
+
+    @Override
+    public void addAlignment(final SAMRecord read) {
+        if ( ! sortOrderChecker.isSorted(read) )
+            throw new IllegalArgumentException("Alignments added out of order in " + header.getSortOrder() + " ParallelBAMFileWriter. " +
+                    "Offending records are at " + sortOrderChecker.getSortKey(sortOrderChecker.getPreviousRecord()) + " and " + sortOrderChecker.getSortKey(read));
+
+        final long startBlockIndex = blockOutputStream.getBlockIndex();
+        final int startOffset = blockOutputStream.getBlockOffset();
+        recordCodec.encode(read);
+
+        if ( indexer != null ) {
+            pendingIndexEntries.add(new PendingIndexEntry(read, startBlockIndex, startOffset,
+                    blockOutputStream.getBlockIndex(), blockOutputStream.getBlockOffset()));
+            indexWrittenRecords();
+        }
+
+        if ( progressLogger != null )
+            progressLogger.record(read);
+    }
+
+    /**
+     * Pass on to the indexer all records whose blocks have been written
+     */
+    private void indexWrittenRecords() {
+        final long lastKnownBlockIndex = firstBlockIndex + blockAddresses.size() - 1;
+        while ( ! pendingIndexEntries.isEmpty() && pendingIndexEntries.peek().endBlockIndex <= lastKnownBlockIndex ) {
+            final PendingIndexEntry entry = pendingIndexEntries.poll();
+            final long start = virtualFilePointer(entry.startBlockIndex, entry.startOffset);
+            final long end = virtualFilePointer(entry.endBlockIndex, entry.endOffset);
+            entry.record.setFileSource(new SAMFileSource(null, new BAMFileSpan(new Chunk(start, end))));
+            indexer.processAlignment(entry.record);
+        }
+
+        // forget the addresses of blocks no record still needs
+        final long firstNeededBlockIndex = pendingIndexEntries.isEmpty() ? lastKnownBlockIndex : pendingIndexEntries.peek().startBlockIndex;
+        while ( firstBlockIndex < firstNeededBlockIndex && ! blockAddresses.isEmpty() ) {
+            blockAddresses.poll();
+            firstBlockIndex++;
+        }
+    }
+
+    private long virtualFilePointer(final long blockIndex, final int offset) {
+        // the pending entries are in order, so their blocks are near the front of the deque
+        long address = -1;
+        long index = firstBlockIndex;
+        for ( final long blockAddress : blockAddresses ) {
+            if ( index++ == blockIndex ) {
+                address = blockAddress;
+                break;
+            }
+        }
+        if ( address < 0 )
+            throw new IllegalStateException("Address of block " + blockIndex + " is unknown");
+        return (address << 16) | offset;
+    }
+
+    @Override
+    public SAMFileHeader getFileHeader() {
+        return header;
+    }
+
+    @Override
+    public void setProgressLogger(final ProgressLoggerInterface progressLogger) {
+        this.progressLogger = progressLogger;
+    }
+
+    @Override
+    public void close() {
+        try {
+            blockOutputStream.close();
+        } catch ( IOException e ) {
+            throw new RuntimeIOException("Unable to close BAM file", e);
+        }
+
+        if ( indexer != null ) {
+            indexWrittenRecords();
+            if ( ! pendingIndexEntries.isEmpty() )
+                throw new IllegalStateException("Addresses of " + pendingIndexEntries.size() + " records are unknown after closing");
+            indexer.finish();
+        }
+    }
+
+    /**
+     * A record waiting for the addresses of its blocks, so that it can be indexed.  Only what the indexer needs
+     * is kept, so that the caller is free to modify or reuse the record once added
+     */
+    private final class PendingIndexEntry {
+        private final SAMRecord record;
+        private final long startBlockIndex;
+        private final int startOffset;
+        private final long endBlockIndex;
+        private final int endOffset;
+
+        private PendingIndexEntry(final SAMRecord read, final long startBlockIndex, final int startOffset, final long endBlockIndex, final int endOffset) {
+            record = new SAMRecord(header);
+            record.setReferenceIndex(read.getReferenceIndex());
+            record.setAlignmentStart(read.getAlignmentStart());
+            record.setCigar(read.getCigar());
+            record.setFlags(read.getFlags());
+            this.startBlockIndex = startBlockIndex;
+            this.startOffset = startOffset;
+            this.endBlockIndex = endBlockIndex;
+            this.endOffset = endOffset;
+        }
+    }
+}
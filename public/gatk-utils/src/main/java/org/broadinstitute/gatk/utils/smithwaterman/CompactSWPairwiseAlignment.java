@@ -0,0 +1,250 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.smithwaterman;
+
+/**
+ * Smith-Waterman alignment that gives exactly the same results as SWPairwiseAlignment without filling
+ * the full score matrix
+ *
+ * The scores are computed two rows at a time, keeping only the rightmost column and the bottom-most row that
+ * are needed to start the backtracking, and the back track is a single flat array.  All of the working arrays
+ * are kept per thread and reused from one alignment to the next, so aligning many haplotypes or reads allocates
+ * almost nothing.  The scoring matrix is never kept, whatever the value of keepScoringMatrix.
+ *
+ * ************************************************************************
+ * ****                    IMPORTANT NOTE:                             ****
+ * ****  This class assumes that all bytes come from UPPERCASED chars! ****
+ * ************************************************************************
+ */
+public class CompactSWPairwiseAlignment extends SWPairwiseAlignment {
+
+    /**
+     * Working arrays, reused by all of the alignments made on a thread
+     */
+    private static final class Buffers {
+        private int[] previousRow = new int[0];
+        private int[] currentRow = new int[0];
+        private int[] lastColumn = new int[0];
+        private int[] bestGapV = new int[0];
+        private int[] gapSizeV = new int[0];
+        private int[] backTrack = new int[0];
+    }
+
+    private static final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    /**
+     * Create a new SW pairwise aligner
+     *
+     * After creating the object the two sequences are aligned with an internal call to align(seq1, seq2)
+     *
+     * @param seq1 the first sequence we want to align
+     * @param seq2 the second sequence we want to align
+     * @param parameters the SW parameters to use
+     */
+    public CompactSWPairwiseAlignment(final byte[] seq1, final byte[] seq2, final Parameters parameters) {
+        this(seq1, seq2, parameters, OVERHANG_STRATEGY.SOFTCLIP);
+    }
+
+    /**
+     * Create a new SW pairwise aligner
+     *
+     * After creating the object the two sequences are aligned with an internal call to align(seq1, seq2)
+     *
+     * @param seq1 the first sequence we want to align
+     * @param seq2 the second sequence we want to align
+     * @param parameters the SW parameters to use
+     * @param strategy   the overhang strategy to use
+     */
+    public CompactSWPairwiseAlignment(final byte[] seq1, final byte[] seq2, final Parameters parameters, final OVERHANG_STRATEGY strategy) {
+        super(seq1, seq2, parameters, strategy);
+    }
+
+    /**
+     * Create a new SW pairwise aligner
+     *
+     * After creating the object the two sequences are aligned with an internal call to align(seq1, seq2)
+     *
+     * @param seq1 the first sequence we want to align
+     * @param seq2 the second sequence we want to align
+     * @param parameters the named parameter set to get our parameters from
+     * @param strategy   the overhang strategy to use
+     */
+    public CompactSWPairwiseAlignment(final byte[] seq1, final byte[] seq2, final SWParameterSet parameters, final OVERHANG_STRATEGY strategy) {
+        this(seq1, seq2, parameters.parameters, strategy);
+    }
+
+    /**
+     * Aligns the alternate sequence to the reference sequence
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     */
+    @Override
+    protected void align(final byte[] reference, final byte[] alternate) {
+        if ( reference == null || reference.length == 0 || alternate == null || alternate.length == 0 )
+            throw new IllegalArgumentException("Non-null, non-empty sequences are required for the Smith-Waterman calculation");
+
+        // a back track this big cannot be held in a single array, but it can still be held as a matrix
+        if ( (long)reference.length * alternate.length > Integer.MAX_VALUE ) {
+            super.align(reference, alternate);
+            return;
+        }
+
+        final Buffers buffers = CompactSWPairwiseAlignment.buffers.get();
+        final int[] bottomRow = calculateScores(reference, alternate, buffers);
+        final int[] backTrack = buffers.backTrack;
+        final int stride = alternate.length;
+
+        alignmentResult = calculateCigar(reference.length, alternate.length, buffers.lastColumn, bottomRow, new BackTrack() {
+            @Override
+            public int get(final int i, final int j) {
+                return backTrack[(i-1) * stride + (j-1)];
+            }
+        }, overhang_strategy);
+    }
+
+    /**
+     * Computes the scores and back track for the given sequences, exactly as SWPairwiseAlignment.calculateMatrix does
+     *
+     * Fills buffers.lastColumn with the rightmost column of the SW matrix and buffers.backTrack with the back
+     * track of every cell past the first row and column, one row after the other.
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     * @param buffers    the working arrays to use, grown as needed
+     * @return the bottom-most row of the SW matrix
+     */
+    private int[] calculateScores(final byte[] reference, final byte[] alternate, final Buffers buffers) {
+        final int nrow = reference.length + 1;
+        final int ncol = alternate.length + 1;
+        ensureCapacity(buffers, nrow, ncol);
+
+        final int MATRIX_MIN_CUTOFF = cutoff ? 0 : (int) -1e8;   // never let matrix elements drop below this cutoff
+        final int lowInitValue = Integer.MIN_VALUE/2;
+        final int w_match = parameters.w_match;
+        final int w_mismatch = parameters.w_mismatch;
+        final int w_open = parameters.w_open;
+        final int w_extend = parameters.w_extend;
+
+        final int[] bestGapV = buffers.bestGapV;
+        final int[] gapSizeV = buffers.gapSizeV;
+        final int[] lastColumn = buffers.lastColumn;
+        final int[] backTrack = buffers.backTrack;
+        int[] lastRow = buffers.previousRow;
+        int[] curRow = buffers.currentRow;
+        for ( int j = 0; j < ncol; j++ ) {
+            bestGapV[j] = lowInitValue;
+            gapSizeV[j] = 0;
+        }
+
+        // we need to initialize the first row and column with gap penalties if we want to keep track of indels at the edges of alignments
+        final boolean penalizeEdges = overhang_strategy == OVERHANG_STRATEGY.INDEL || overhang_strategy == OVERHANG_STRATEGY.LEADING_INDEL;
+        lastRow[0] = 0;
+        for ( int j = 1; j < ncol; j++ )
+            lastRow[j] = penalizeEdges ? w_open + (j-1) * w_extend : 0;
+        lastColumn[0] = lastRow[ncol-1];
+
+        int cell = 0;
+        for ( int i = 1; i < nrow; i++ ) {
+            final byte a_base = reference[i-1];
+            curRow[0] = penalizeEdges ? w_open + (i-1) * w_extend : 0;
+
+            // the best horizontal gap only ever looks along the current row
+            int bestGapH = lowInitValue;
+            int gapSizeH = 0;
+
+            for ( int j = 1; j < ncol; j++, cell++ ) {
+                final int step_diag = lastRow[j-1] + (a_base == alternate[j-1] ? w_match : w_mismatch);
+
+                // see SWPairwiseAlignment.calculateMatrix for why this only works with linear gap penalties
+                int prev_gap = lastRow[j] + w_open;
+                bestGapV[j] += w_extend;
+                if ( prev_gap > bestGapV[j] ) {
+                    bestGapV[j] = prev_gap;
+                    gapSizeV[j] = 1;
+                } else {
+                    gapSizeV[j]++;
+                }
+                final int step_down = bestGapV[j];
+
+                prev_gap = curRow[j-1] + w_open;
+                bestGapH += w_extend;
+                if ( prev_gap > bestGapH ) {
+                    bestGapH = prev_gap;
+                    gapSizeH = 1;
+                } else {
+                    gapSizeH++;
+                }
+                final int step_right = bestGapH;
+
+                //priority here will be step diagonal, step right, step down
+                if ( step_diag >= step_down && step_diag >= step_right ) {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_diag);
+                    backTrack[cell] = 0;
+                } else if ( step_right >= step_down ) {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_right);
+                    backTrack[cell] = -gapSizeH; // negative = horizontal
+                } else {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_down);
+                    backTrack[cell] = gapSizeV[j]; // positive = vertical
+                }
+            }
+
+            lastColumn[i] = curRow[ncol-1];
+            final int[] tmp = lastRow;
+            lastRow = curRow;
+            curRow = tmp;
+        }
+
+        return lastRow;
+    }
+
+    /**
+     * Grows the working arrays so that they can hold an alignment of the given size
+     *
+     * @param buffers the working arrays to grow
+     * @param nrow    the number of rows of the SW matrix
+     * @param ncol    the number of columns of the SW matrix
+     */
+    private static void ensureCapacity(final Buffers buffers, final int nrow, final int ncol) {
+        if ( buffers.currentRow.length < ncol ) {
+            buffers.previousRow = new int[ncol];
+            buffers.currentRow = new int[ncol];
+            buffers.bestGapV = new int[ncol];
+            buffers.gapSizeV = new int[ncol];
+        }
+        if ( buffers.lastColumn.length < nrow )
+            buffers.lastColumn = new int[nrow];
+        final int cells = (nrow-1) * (ncol-1);
+        if ( buffers.backTrack.length < cells )
+            buffers.backTrack = new int[cells];
+    }
+}
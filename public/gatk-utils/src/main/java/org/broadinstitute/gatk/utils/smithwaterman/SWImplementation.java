@@ -0,0 +1,109 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.smithwaterman;
+
+/**
+ * The Smith-Waterman implementations that can be chosen from, which all give exactly the same alignments
+ *
+ * Clients that don't care which implementation they get should align with getDefaultImplementation(), so
+ * that the choice can be made once for the whole run.
+ */
+public enum SWImplementation {
+    /**
+     * Fill the full score and back track matrices
+     */
+    FULL_MATRIX {
+        @Override
+        public SWPairwiseAlignment align(final byte[] reference, final byte[] alternate, final Parameters parameters, final SWPairwiseAlignment.OVERHANG_STRATEGY strategy) {
+            return new SWPairwiseAlignment(reference, alternate, parameters, strategy);
+        }
+    },
+
+    /**
+     * Keep only two rows of scores and a flat back track, reusing them from one alignment to the next
+     */
+    COMPACT {
+        @Override
+        public SWPairwiseAlignment align(final byte[] reference, final byte[] alternate, final Parameters parameters, final SWPairwiseAlignment.OVERHANG_STRATEGY strategy) {
+            return new CompactSWPairwiseAlignment(reference, alternate, parameters, strategy);
+        }
+    };
+
+    private static volatile SWImplementation defaultImplementation = COMPACT;
+
+    /**
+     * Align the alternate sequence to the reference sequence with this implementation
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     * @param parameters the SW parameters to use
+     * @param strategy   the overhang strategy to use
+     * @return the non-null alignment
+     */
+    public abstract SWPairwiseAlignment align(final byte[] reference, final byte[] alternate, final Parameters parameters, final SWPairwiseAlignment.OVERHANG_STRATEGY strategy);
+
+    /**
+     * Align the alternate sequence to the reference sequence with this implementation, soft-clipping overhangs
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     * @param parameters the SW parameters to use
+     * @return the non-null alignment
+     */
+    public SWPairwiseAlignment align(final byte[] reference, final byte[] alternate, final Parameters parameters) {
+        return align(reference, alternate, parameters, SWPairwiseAlignment.OVERHANG_STRATEGY.SOFTCLIP);
+    }
+
+    /**
+     * Align the alternate sequence to the reference sequence with this implementation
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     * @param parameters the named parameter set to get our parameters from
+     * @param strategy   the overhang strategy to use
+     * @return the non-null alignment
+     */
+    public SWPairwiseAlignment align(final byte[] reference, final byte[] alternate, final SWParameterSet parameters, final SWPairwiseAlignment.OVERHANG_STRATEGY strategy) {
+        return align(reference, alternate, parameters.parameters, strategy);
+    }
+
+    /**
+     * @return the implementation used by all clients that don't ask for a specific one
+     */
+    public static SWImplementation getDefaultImplementation() {
+        return defaultImplementation;
+    }
+
+    /**
+     * Set the implementation used by all clients that don't ask for a specific one
+     *
+     * @param implementation the non-null implementation to use
+     */
+    public static void setDefaultImplementation(final SWImplementation implementation) {
+        if ( implementation == null ) throw new IllegalArgumentException("implementation cannot be null");
+        defaultImplementation = implementation;
+    }
+}
@@ -142,7 +142,21 @@ public class SWPairwiseAlignment implements SmithWaterman {
      * @param strategy   the overhang strategy to use
      */
     public SWPairwiseAlignment(final byte[] seq1, final byte[] seq2, final SWParameterSet parameters, final OVERHANG_STRATEGY strategy) {
-        this(parameters.parameters);
+        this(seq1, seq2, parameters.parameters, strategy);
+    }
+
+    /**
+     * Create a new SW pairwise aligner
+     *
+     * After creating the object the two sequences are aligned with an internal call to align(seq1, seq2)
+     *
+     * @param seq1 the first sequence we want to align
+     * @param seq2 the second sequence we want to align
+     * @param parameters the SW parameters to use
+     * @param strategy   the overhang strategy to use
+     */
+    public SWPairwiseAlignment(final byte[] seq1, final byte[] seq2, final Parameters parameters, final OVERHANG_STRATEGY strategy) {
+        this(parameters);
         overhang_strategy = strategy;
         align(seq1, seq2);
     }
@@ -343,6 +357,18 @@ public class SWPairwiseAlignment implements SmithWaterman {
         }
     }
 
+    /**
+     * Read access to the back track matrix, so that implementations are free to store it however suits them
+     */
+    protected interface BackTrack {
+        /**
+         * @param i row of the cell, between 1 and the reference length
+         * @param j column of the cell, between 1 and the alternate length
+         * @return 0 for a diagonal step, the (negated) length of a horizontal gap, or the length of a vertical gap
+         */
+        int get(final int i, final int j);
+    }
+
     /**
      * Calculates the CIGAR for the alignment from the back track matrix
      *
@@ -352,12 +378,39 @@ public class SWPairwiseAlignment implements SmithWaterman {
      * @return non-null SWPairwiseAlignmentResult object
      */
     protected SWPairwiseAlignmentResult calculateCigar(final int[][] sw, final int[][] btrack, final OVERHANG_STRATEGY overhang_strategy) {
+        final int refLength = sw.length-1;
+        final int altLength = sw[0].length-1;
+
+        final int[] lastColumn = new int[refLength+1];
+        for ( int i = 0; i < lastColumn.length; i++ )
+            lastColumn[i] = sw[i][altLength];
+
+        return calculateCigar(refLength, altLength, lastColumn, sw[refLength], new BackTrack() {
+            @Override
+            public int get(final int i, final int j) {
+                return btrack[i][j];
+            }
+        }, overhang_strategy);
+    }
+
+    /**
+     * Calculates the CIGAR for the alignment from the back track matrix
+     *
+     * Only the rightmost column and the bottom-most row of the SW matrix are needed to find where the backtracking starts.
+     *
+     * @param refLength            the length of the reference sequence
+     * @param altLength            the length of the alternate sequence
+     * @param lastColumn           the rightmost column of the SW matrix, indexed by reference position
+     * @param bottomRow            the bottom-most row of the SW matrix, indexed by alternate position
+     * @param btrack               the back track matrix to use
+     * @param overhang_strategy    the strategy to use for dealing with overhangs
+     * @return non-null SWPairwiseAlignmentResult object
+     */
+    protected SWPairwiseAlignmentResult calculateCigar(final int refLength, final int altLength, final int[] lastColumn, final int[] bottomRow,
+                                                       final BackTrack btrack, final OVERHANG_STRATEGY overhang_strategy) {
         // p holds the position we start backtracking from; we will be assembling a cigar in the backwards order
         int p1 = 0, p2 = 0;
 
-        int refLength = sw.length-1;
-        int altLength = sw[0].length-1;
-
         int maxscore = Integer.MIN_VALUE; // sw scores are allowed to be negative
         int segment_length = 0; // length of the segment (continuous matches, insertions or deletions)
 
@@ -372,8 +425,8 @@ public class SWPairwiseAlignment implements SmithWaterman {
             //excluding high scoring local alignments
             p2=altLength;
 
-            for(int i=1;i<sw.length;i++)  {
-               final int curScore = sw[i][altLength];
+            for(int i=1;i<=refLength;i++)  {
+               final int curScore = lastColumn[i];
                if (curScore >= maxscore ) {
                     p1 = i;
                     maxscore = curScore;
@@ -381,8 +434,7 @@ public class SWPairwiseAlignment implements SmithWaterman {
             }
             // now look for a larger score on the bottom-most row
             if ( overhang_strategy != OVERHANG_STRATEGY.LEADING_INDEL ) {
-                final int[] bottomRow=sw[refLength];
-                for ( int j = 1 ; j < bottomRow.length; j++) {
+                for ( int j = 1 ; j <= altLength; j++) {
                     int curScore=bottomRow[j];
                     // data_offset is the offset of [n][j]
                     if ( curScore > maxscore ||
@@ -406,7 +458,7 @@ public class SWPairwiseAlignment implements SmithWaterman {
 
         State state = State.MATCH;
         do {
-            int btr = btrack[p1][p2];
+            int btr = btrack.get(p1, p2);
             State new_state;
             int step_length = 1;
             if ( btr > 0 ) {
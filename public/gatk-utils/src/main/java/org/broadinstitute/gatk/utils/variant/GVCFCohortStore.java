@@ -0,0 +1,326 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.variant;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.FeatureReader;
+import htsjdk.variant.bcf2.BCF2Codec;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
+import org.broadinstitute.gatk.utils.exceptions.UserException;
+import org.broadinstitute.gatk.utils.text.XReadLines;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A directory holding the gVCF records of a cohort, to which samples can be added without touching the ones already there.
+ *
+ * Each sample is kept in its own indexed BCF file, which holds its reference confidence blocks and variant records
+ * as they came out of the HaplotypeCaller.  BCF is the binary encoding of VCF, so reading the cohort back involves
+ * none of the text parsing of gVCFs, and the index gives random access to any region of any sample.
+ *
+ * The store keeps two files of its own next to the samples:
+ *
+ *  - samples.tsv, the names of the samples in the order they were added, each with the name of its file
+ *  - cohort.list, the absolute paths of all of the sample files, which can be given to any tool that takes a list of
+ *    VCFs as its input, e.g. -V cohort.list to GenotypeGVCFs
+ *
+ * A sample only becomes part of the store once it has been committed, after its writer has been closed, so a
+ * failure while adding samples never leaves a partially written sample in the cohort.
+ *
+ * Not thread-safe; the store should only be modified by one process at a time.
+ */
+public class GVCFCohortStore {
+    public static final String SAMPLES_FILE_NAME = "samples.tsv";
+    public static final String MANIFEST_FILE_NAME = "cohort.list";
+    public static final String SAMPLE_FILE_EXTENSION = ".g.bcf";
+
+    private final File directory;
+
+    /**
+     * The committed samples, in the order they were added, to their files
+     */
+    private final LinkedHashMap<String, File> sampleFiles = new LinkedHashMap<>();
+
+    /**
+     * The samples whose writers have been opened but which haven't been committed yet, to their files
+     */
+    private final Map<String, File> pendingSampleFiles = new HashMap<>();
+
+    /**
+     * Open the cohort store in the given directory, creating an empty one if the directory doesn't exist yet
+     *
+     * @param directory the directory of the store
+     */
+    public GVCFCohortStore(final File directory) {
+        if ( directory == null ) throw new IllegalArgumentException("directory cannot be null");
+        this.directory = directory;
+
+        if ( ! directory.exists() && ! directory.mkdirs() )
+            throw new UserException.CouldNotCreateOutputFile(directory, "Unable to create the cohort store directory");
+        if ( ! directory.isDirectory() )
+            throw new UserException.BadInput("The cohort store " + directory + " is not a directory");
+
+        final File samplesFile = getSamplesFile();
+        if ( samplesFile.exists() ) {
+            try {
+                for ( final String line : new XReadLines(samplesFile) ) {
+                    final String[] fields = line.split("\t");
+                    if ( fields.length != 2 )
+                        throw new UserException.MalformedFile(samplesFile + " is not a valid cohort store samples file, offending line: " + line);
+                    sampleFiles.put(fields[0], new File(directory, fields[1]));
+                }
+            } catch ( FileNotFoundException e ) {
+                throw new UserException.CouldNotReadInputFile(samplesFile, e);
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the list of the sample files of this store, suitable as the input of tools that take a list of VCFs
+     */
+    public File getManifest() {
+        return new File(directory, MANIFEST_FILE_NAME);
+    }
+
+    private File getSamplesFile() {
+        return new File(directory, SAMPLES_FILE_NAME);
+    }
+
+    /**
+     * @return the names of the committed samples of this store, in the order they were added
+     */
+    public List<String> getSampleNames() {
+        return new ArrayList<>(sampleFiles.keySet());
+    }
+
+    public boolean containsSample(final String sample) {
+        return sampleFiles.containsKey(sample);
+    }
+
+    /**
+     * @return the BCF file of the sample, which must have been committed
+     */
+    public File getSampleFile(final String sample) {
+        final File file = sampleFiles.get(sample);
+        if ( file == null ) throw new IllegalArgumentException("Sample " + sample + " is not in the cohort store " + directory);
+        return file;
+    }
+
+    /**
+     * Create the writer for the records of a new sample
+     *
+     * The header written to it must contain the contig lines of the sequence dictionary and define every INFO and
+     * FORMAT field of the records.  The sample is only added to the store by commitSample(), once the writer is closed.
+     *
+     * @param sample the name of the new sample, which mustn't be in the store yet
+     * @param sequenceDictionary the sequence dictionary of the reference the records were called against
+     * @return a writer creating an indexed BCF file for the sample
+     */
+    public VariantContextWriter openSampleWriter(final String sample, final SAMSequenceDictionary sequenceDictionary) {
+        if ( sample == null ) throw new IllegalArgumentException("sample cannot be null");
+        if ( sequenceDictionary == null ) throw new IllegalArgumentException("sequenceDictionary cannot be null");
+        if ( containsSample(sample) || pendingSampleFiles.containsKey(sample) )
+            throw new UserException.BadInput("Sample " + sample + " is already in the cohort store " + directory);
+
+        // sample names can contain anything, so the files are named after the order in which the samples were added
+        final File file = new File(directory, String.format("sample%06d%s", sampleFiles.size() + pendingSampleFiles.size(), SAMPLE_FILE_EXTENSION));
+        pendingSampleFiles.put(sample, file);
+
+        return new VariantContextWriterBuilder()
+                .setOutputFile(file)
+                .setOutputFileType(VariantContextWriterBuilder.OutputType.BCF)
+                .setReferenceDictionary(sequenceDictionary)
+                .setOptions(EnumSet.of(Options.INDEX_ON_THE_FLY))
+                .build();
+    }
+
+    /**
+     * Add a sample whose writer has been closed to the store
+     *
+     * @param sample the name of a sample passed to openSampleWriter()
+     */
+    public void commitSample(final String sample) {
+        final File file = pendingSampleFiles.remove(sample);
+        if ( file == null ) throw new IllegalArgumentException("No writer was opened for sample " + sample);
+
+        try ( final PrintStream out = new PrintStream(new FileOutputStream(getSamplesFile(), true)) ) {
+            out.println(sample + "\t" + file.getName());
+            if ( out.checkError() )
+                throw new UserException.CouldNotCreateOutputFile(getSamplesFile(), "Unable to add sample " + sample);
+        } catch ( FileNotFoundException e ) {
+            throw new UserException.CouldNotCreateOutputFile(getSamplesFile(), e);
+        }
+        sampleFiles.put(sample, file);
+
+        writeManifest();
+    }
+
+    /**
+     * Rewrite the list of the sample files, replacing the old one in a single step so readers never see half of it
+     */
+    private void writeManifest() {
+        final File manifest = getManifest();
+        final File tmp = new File(directory, MANIFEST_FILE_NAME + ".tmp");
+        try ( final PrintStream out = new PrintStream(new FileOutputStream(tmp)) ) {
+            for ( final File file : sampleFiles.values() )
+                out.println(file.getAbsolutePath());
+            if ( out.checkError() )
+                throw new UserException.CouldNotCreateOutputFile(tmp, "Unable to write the cohort store manifest");
+        } catch ( FileNotFoundException e ) {
+            throw new UserException.CouldNotCreateOutputFile(tmp, e);
+        }
+
+        if ( ! tmp.renameTo(manifest) && ! (manifest.delete() && tmp.renameTo(manifest)) )
+            throw new UserException.CouldNotCreateOutputFile(manifest, "Unable to replace the cohort store manifest");
+    }
+
+    /**
+     * Open an indexed reader of the records of a sample
+     *
+     * @param sample a committed sample
+     * @return a non-null reader, which the caller must close
+     */
+    public FeatureReader<VariantContext> openSampleReader(final String sample) {
+        return AbstractFeatureReader.getFeatureReader(getSampleFile(sample).getAbsolutePath(), new BCF2Codec(), true);
+    }
+
+    /**
+     * Get the records of all of the samples overlapping an interval
+     *
+     * The records of the samples are merged as they are read, one record per sample at a time, so the memory this
+     * takes depends on the number of samples but not on the size of the interval.
+     *
+     * @param contig the contig of the interval
+     * @param start the 1-based start of the interval
+     * @param end the 1-based, inclusive end of the interval
+     * @return an iterator over the records, ordered by their start and then by the order in which their samples
+     *         were added, which the caller must close
+     */
+    public CloseableIterator<VariantContext> query(final String contig, final int start, final int end) {
+        final List<FeatureReader<VariantContext>> readers = new ArrayList<>(sampleFiles.size());
+        final List<CloseableIterator<VariantContext>> iterators = new ArrayList<>(sampleFiles.size());
+        try {
+            for ( final String sample : sampleFiles.keySet() ) {
+                final FeatureReader<VariantContext> reader = openSampleReader(sample);
+                readers.add(reader);
+                iterators.add(reader.query(contig, start, end));
+            }
+        } catch ( IOException e ) {
+            closeAll(readers);
+            throw new UserException.CouldNotReadInputFile("Unable to query the cohort store " + directory, e);
+        }
+        return new MergingIterator(readers, iterators);
+    }
+
+    private static void closeAll(final List<FeatureReader<VariantContext>> readers) {
+        for ( final FeatureReader<VariantContext> reader : readers ) {
+            try {
+                reader.close();
+            } catch ( IOException e ) {
+                throw new ReviewedGATKException("Unable to close a cohort store reader", e);
+            }
+        }
+    }
+
+    /**
+     * A k-way merge of the sorted records of each sample
+     */
+    private static class MergingIterator implements CloseableIterator<VariantContext> {
+        private final List<FeatureReader<VariantContext>> readers;
+        private final List<CloseableIterator<VariantContext>> iterators;
+
+        /**
+         * The next record of each sample that has any left, with the index of the sample
+         */
+        private final PriorityQueue<SampleRecord> nextRecords;
+
+        private MergingIterator(final List<FeatureReader<VariantContext>> readers, final List<CloseableIterator<VariantContext>> iterators) {
+            this.readers = readers;
+            this.iterators = iterators;
+            this.nextRecords = new PriorityQueue<>(Math.max(1, iterators.size()));
+            for ( int i = 0; i < iterators.size(); i++ )
+                advance(i);
+        }
+
+        private void advance(final int sampleIndex) {
+            final CloseableIterator<VariantContext> it = iterators.get(sampleIndex);
+            if ( it.hasNext() )
+                nextRecords.add(new SampleRecord(it.next(), sampleIndex));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return ! nextRecords.isEmpty();
+        }
+
+        @Override
+        public VariantContext next() {
+            final SampleRecord next = nextRecords.poll();
+            if ( next == null ) throw new NoSuchElementException();
+            advance(next.sampleIndex);
+            return next.vc;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            for ( final CloseableIterator<VariantContext> it : iterators )
+                it.close();
+            closeAll(readers);
+        }
+    }
+
+    private static class SampleRecord implements Comparable<SampleRecord> {
+        private final VariantContext vc;
+        private final int sampleIndex;
+
+        private SampleRecord(final VariantContext vc, final int sampleIndex) {
+            this.vc = vc;
+            this.sampleIndex = sampleIndex;
+        }
+
+        @Override
+        public int compareTo(final SampleRecord other) {
+            final int byStart = Integer.compare(vc.getStart(), other.vc.getStart());
+            return byStart != 0 ? byStart : Integer.compare(sampleIndex, other.sampleIndex);
+        }
+    }
+}
@@ -141,6 +141,23 @@ public class MWUnitTest extends BaseTest {
         Assert.assertEquals(test.getZ(), Z, DELTA_PRECISION, name);
     }
 
+    @Test
+    public void testU1andU2WithReusedBuffers() {
+        // big series first, so that the smaller ones after it run in buffers that are longer than they are
+        for ( final int n : Arrays.asList(200, 50, 7, 1, 120) ) {
+            final double[] series1 = new double[n];
+            final double[] series2 = new double[n + 3];
+            for ( int i = 0; i < series1.length; i++ ) series1[i] = (i * 7) % 11;
+            for ( int i = 0; i < series2.length; i++ ) series2[i] = (i * 5) % 13;
+
+            final MannWhitneyU.TestStatistic stat = rst.calculateU1andU2(series1.clone(), series2.clone());
+            Assert.assertEquals(stat.getU1() + stat.getU2(), (double) series1.length * series2.length, "n = " + n);
+
+            final MannWhitneyU.RankedData ranked = rst.calculateRank(series1.clone(), series2.clone());
+            Assert.assertEquals(stat.getTies(), rst.transformTies(series1.length + series2.length, ranked.getNumOfTies()), "n = " + n);
+        }
+    }
+
     @Test
     public void testTooManyTies(){
         ArrayList<Integer> listOfNumberOfTies = new ArrayList<>(Arrays.asList(26,3,6,4,13,18,29,36,60,58,87,63,98,125,158,185,193,171,17592,115,100,141,216,298,451,719,1060,1909,3210,5167,7135,10125,11035,3541,732,9));
@@ -41,6 +41,7 @@ import java.io.FileNotFoundException;
 import java.io.PrintStream;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 
 import htsjdk.samtools.reference.IndexedFastaSequenceFile;
 import htsjdk.samtools.*;
@@ -222,6 +223,42 @@ public class BAQUnitTest extends BaseTest {
         Assert.assertTrue(read.getAttribute("BQ") == null);
     }
 
+    @Test(enabled = true)
+    public void testBAQObjectsShareEpsilons() {
+        final BAQ baq1 = new BAQ(1e-3, 0.1, 7, (byte)4, false);
+        final BAQ baq2 = new BAQ(1e-4, 0.1, 3, (byte)4, false);
+        final BAQ baq3 = new BAQ(1e-3, 0.1, 7, (byte)10, false);
+        for ( int i = 0; i <= SAMUtils.MAX_PHRED_SCORE; i++ ) {
+            Assert.assertEquals(baq1.calcEpsilon((byte)'A', (byte)'C', (byte)i), baq2.calcEpsilon((byte)'A', (byte)'C', (byte)i));
+            Assert.assertEquals(baq3.calcEpsilon((byte)'A', (byte)'C', (byte)i), baq1.calcEpsilon((byte)'A', (byte)'C', (byte)Math.max(i, 10)));
+        }
+    }
+
+    @Test(dataProvider = "data", enabled = true)
+    public void testBAQFromManyThreads(final BAQTest test) throws Exception {
+        if ( test.refBases == null )
+            return;
+
+        final BAQ baqHMM = new BAQ(1e-3, 0.1, 7, (byte)4, false);
+        final List<Thread> threads = new ArrayList<Thread>();
+        final List<byte[]> results = Collections.synchronizedList(new ArrayList<byte[]>());
+        for ( int t = 0; t < 4; t++ ) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for ( int i = 0; i < 50; i++ )
+                        results.add(baqHMM.calcBAQFromHMM(test.createRead(), test.refBases.getBytes(), test.refOffset).bq);
+                }
+            }));
+        }
+        for ( final Thread thread : threads ) thread.start();
+        for ( final Thread thread : threads ) thread.join();
+
+        Assert.assertEquals(results.size(), 200);
+        for ( final byte[] bq : results )
+            Assert.assertEquals(bq, test.expected);
+    }
+
     public void testBAQ(BAQTest test, boolean lookupWithFasta) {
         BAQ baqHMM = new BAQ(1e-3, 0.1, 7, (byte)4, false);         // matches current samtools parameters
 
@@ -50,6 +50,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Basic unit test for CachingIndexedFastaSequenceFile
@@ -253,6 +254,98 @@ public class CachingIndexedFastaSequenceFileUnitTest extends BaseTest {
         Assert.assertEquals(changingNs, preservingNs + 4);
     }
 
+    @DataProvider(name = "MappedFastaTest")
+    public Object[][] createMappedFastaTest() {
+        List<Object[]> params = new ArrayList<Object[]>();
+
+        for ( int querySize : QUERY_SIZES ) {
+            for ( int nt : Arrays.asList(1, 3) ) {
+                params.add(new Object[]{simpleFasta, querySize, nt});
+            }
+        }
+
+        return params.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "MappedFastaTest", enabled = true && ! DEBUG, timeOut = 60000)
+    public void testMappedIndexedFastaReader(final File fasta, final int querySize, final int nt) throws Exception {
+        final MappedIndexedFastaSequenceFile mapped = new MappedIndexedFastaSequenceFile(fasta, true, false);
+        final ReferenceSequenceFile uncached = new IndexedFastaSequenceFile(fasta);
+        final List<SAMSequenceRecord> contigs = uncached.getSequenceDictionary().getSequences();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nt);
+        final Collection<Callable<Object>> tasks = new ArrayList<Callable<Object>>(nt);
+        for ( int i = 0; i < nt; i++ )
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    final ReferenceSequenceFile myUncached = new IndexedFastaSequenceFile(fasta);
+                    for ( final SAMSequenceRecord contig : contigs ) {
+                        // jump back and forth across the contig, which would defeat a windowed cache
+                        for ( int start = 1; start + querySize - 1 <= contig.getSequenceLength(); start += 7 ) {
+                            final int jumpedStart = (start % 2 == 0) ? start : contig.getSequenceLength() - querySize + 2 - start;
+                            final int stop = jumpedStart + querySize - 1;
+                            final ReferenceSequence mappedVal = mapped.getSubsequenceAt(contig.getSequenceName(), jumpedStart, stop);
+                            final ReferenceSequence uncachedVal = myUncached.getSubsequenceAt(contig.getSequenceName(), jumpedStart, stop);
+
+                            Assert.assertEquals(mappedVal.getName(), uncachedVal.getName());
+                            Assert.assertEquals(mappedVal.getContigIndex(), uncachedVal.getContigIndex());
+                            Assert.assertEquals(mappedVal.getBases(), uncachedVal.getBases());
+                        }
+                        Assert.assertEquals(mapped.getSequence(contig.getSequenceName()).getBases(), myUncached.getSequence(contig.getSequenceName()).getBases());
+                    }
+                    return null;
+                }
+            });
+        for ( final Future<Object> result : executor.invokeAll(tasks) )
+            result.get();
+        executor.shutdownNow();
+
+        // each contig is mapped only once, however many threads ask for it
+        Assert.assertTrue(mapped.getCacheMisses() >= contigs.size());
+        Assert.assertTrue(mapped.getCacheMisses() <= contigs.size() * nt);
+        Assert.assertTrue(mapped.getCacheHits() > 0);
+        mapped.close();
+    }
+
+    @Test(enabled = true)
+    public void testMappedMixedCasesAndIupac() throws Exception {
+        final ReferenceSequenceFile original = new IndexedFastaSequenceFile(new File(exampleFASTA));
+        final MappedIndexedFastaSequenceFile casePreserving = new MappedIndexedFastaSequenceFile(new File(exampleFASTA), true, false);
+        final MappedIndexedFastaSequenceFile allUpper = new MappedIndexedFastaSequenceFile(new File(exampleFASTA));
+
+        int nMixedCase = 0;
+        for ( SAMSequenceRecord contig : original.getSequenceDictionary().getSequences() ) {
+            nMixedCase += testCases(original, casePreserving, allUpper, contig.getSequenceName(), -1, -1);
+
+            final int step = 100;
+            for ( int lastPos = step; lastPos < contig.getSequenceLength(); lastPos += step ) {
+                testCases(original, casePreserving, allUpper, contig.getSequenceName(), lastPos - step + 1, lastPos);
+            }
+        }
+        Assert.assertTrue(nMixedCase > 0, "No mixed cases sequences found in file.  Unexpected test state");
+
+        final String testFasta = privateTestDir + "iupacFASTA.fasta";
+        final CachingIndexedFastaSequenceFile cachingMakeNs = new CachingIndexedFastaSequenceFile(new File(testFasta));
+        final MappedIndexedFastaSequenceFile mappedMakeNs = new MappedIndexedFastaSequenceFile(new File(testFasta));
+        final MappedIndexedFastaSequenceFile mappedIupacPreserving = new MappedIndexedFastaSequenceFile(new File(testFasta), false, true);
+        for ( SAMSequenceRecord contig : cachingMakeNs.getSequenceDictionary().getSequences() ) {
+            final String sCaching = fetchBaseString(cachingMakeNs, contig.getSequenceName(), -1, -1);
+            Assert.assertEquals(fetchBaseString(mappedMakeNs, contig.getSequenceName(), -1, -1), sCaching);
+            Assert.assertTrue(StringUtils.countMatches(sCaching, "N") >= StringUtils.countMatches(fetchBaseString(mappedIupacPreserving, contig.getSequenceName(), -1, -1), "N"));
+        }
+    }
+
+    @Test(enabled = true, expectedExceptions = {UserException.class})
+    public void testMappedFailOnBadBase() throws FileNotFoundException, InterruptedException {
+        final String testFasta = privateTestDir + "problematicFASTA.fasta";
+        final MappedIndexedFastaSequenceFile fasta = new MappedIndexedFastaSequenceFile(new File(testFasta));
+
+        for ( SAMSequenceRecord contig : fasta.getSequenceDictionary().getSequences() ) {
+            fetchBaseString(fasta, contig.getSequenceName(), -1, -1);
+        }
+    }
+
     @Test(enabled = true, expectedExceptions = {UserException.class})
     public void testFailOnBadBase() throws FileNotFoundException, InterruptedException {
         final String testFasta = privateTestDir + "problematicFASTA.fasta";
@@ -0,0 +1,108 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+public class ParallelBlockCompressedOutputStreamUnitTest extends BaseTest {
+
+    @DataProvider(name = "Streams")
+    public Object[][] makeStreams() {
+        final List<Object[]> tests = new ArrayList<Object[]>();
+        for ( final int numThreads : Arrays.asList(1, 4) )
+            for ( final int numBytes : Arrays.asList(0, 1, ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE, 1000000) )
+                for ( final boolean compressible : Arrays.asList(true, false) )
+                    tests.add(new Object[]{numThreads, numBytes, compressible});
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "Streams")
+    public void testRoundTrip(final int numThreads, final int numBytes, final boolean compressible) throws IOException {
+        final Random random = new Random(numBytes);
+        final byte[] data = new byte[numBytes];
+        for ( int i = 0; i < numBytes; i++ )
+            data[i] = compressible ? (byte)"ACGT".charAt(random.nextInt(4)) : (byte)random.nextInt();
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(compressed, 5, numThreads);
+        final List<Long> blockAddresses = new ArrayList<Long>();
+        out.setBlockListener(new ParallelBlockCompressedOutputStream.BlockListener() {
+            @Override
+            public void blockWritten(final long blockIndex, final long blockAddress) {
+                Assert.assertEquals(blockIndex, blockAddresses.size());
+                blockAddresses.add(blockAddress);
+            }
+        });
+
+        // mix single byte and array writes
+        int offset = 0;
+        while ( offset < numBytes ) {
+            if ( random.nextInt(10) == 0 )
+                out.write(data[offset++]);
+            else {
+                final int length = Math.min(numBytes - offset, random.nextInt(30000));
+                out.write(data, offset, length);
+                offset += length;
+            }
+            Assert.assertTrue(out.getBlockOffset() < ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE);
+        }
+        out.close();
+
+        final byte[] bgzf = compressed.toByteArray();
+        final int numBlocks = (numBytes + ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE - 1) / ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE;
+        Assert.assertEquals(blockAddresses.size(), numBlocks + 1);
+
+        // every block address starts a BGZF block, and the last is the end of file marker
+        for ( final long blockAddress : blockAddresses ) {
+            Assert.assertEquals(bgzf[(int)blockAddress] & 0xFF, BlockCompressedStreamConstants.GZIP_ID1);
+            Assert.assertEquals(bgzf[(int)blockAddress + 12] & 0xFF, BlockCompressedStreamConstants.BGZF_ID1);
+        }
+        final long eofAddress = blockAddresses.get(blockAddresses.size() - 1);
+        Assert.assertEquals(Arrays.copyOfRange(bgzf, (int)eofAddress, bgzf.length), BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+
+        // BGZF is a series of gzip members, which java.util.zip reads back as one stream
+        final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bgzf));
+        final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ( (n = in.read(buffer)) >= 0 )
+            uncompressed.write(buffer, 0, n);
+        Assert.assertEquals(uncompressed.toByteArray(), data);
+    }
+}
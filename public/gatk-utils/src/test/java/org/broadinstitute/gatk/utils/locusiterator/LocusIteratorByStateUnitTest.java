@@ -34,6 +34,8 @@ import org.broadinstitute.gatk.utils.downsampling.DownsamplingMethod;
 import org.broadinstitute.gatk.utils.NGSPlatform;
 import org.broadinstitute.gatk.utils.QualityUtils;
 import org.broadinstitute.gatk.utils.Utils;
+import org.broadinstitute.gatk.utils.exceptions.ReviewedGATKException;
+import org.broadinstitute.gatk.utils.pileup.ColumnarPileup;
 import org.broadinstitute.gatk.utils.pileup.PileupElement;
 import org.broadinstitute.gatk.utils.pileup.ReadBackedPileup;
 import org.broadinstitute.gatk.utils.sam.ArtificialBAMBuilder;
@@ -417,6 +419,93 @@ public class LocusIteratorByStateUnitTest extends LocusIteratorByStateBaseTest {
         Assert.assertEquals(bpVisited, expectedBpToVisit, "Didn't visit the expected number of bp");
     }
 
+    // ------------------------------------------------------------
+    //
+    // Tests for columnar pileups
+    //
+    // ------------------------------------------------------------
+
+    @DataProvider(name = "ColumnarPileupTest")
+    public Object[][] makeColumnarPileupTest() {
+        final List<Object[]> tests = new LinkedList<Object[]>();
+        for ( final int nSamples : Arrays.asList(1, 3) )
+            for ( final boolean includeDeletions : Arrays.asList(true, false) )
+                tests.add(new Object[]{nSamples, includeDeletions});
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(enabled = ! DEBUG, dataProvider = "ColumnarPileupTest")
+    public void testColumnarPileups(final int nSamples, final boolean includeDeletions) {
+        final ArtificialBAMBuilder bamBuilder = new ArtificialBAMBuilder(header.getSequenceDictionary(), 5, 20);
+        bamBuilder.createAndSetHeader(nSamples).setReadLength(10).setAlignmentStart(1);
+
+        final List<GATKSAMRecord> reads = bamBuilder.makeReads();
+        for ( int i = 0; i < reads.size(); i++ ) {
+            final GATKSAMRecord read = reads.get(i);
+            if ( i % 3 == 0 ) read.setCigarString("4M2D6M");
+            read.setReadNegativeStrandFlag(i % 2 == 0);
+            read.setMappingQuality(i % 5 == 0 ? 0 : 60);
+        }
+
+        final DownsamplingMethod noDownsampling = new DownsamplingMethod(DownsampleType.NONE, null, null);
+        final LocusIteratorByState classic = new LocusIteratorByState(new FakeCloseableIterator<GATKSAMRecord>(reads.iterator()),
+                noDownsampling, includeDeletions, false, genomeLocParser, bamBuilder.getSamples());
+        final LocusIteratorByState columnar = new LocusIteratorByState(new FakeCloseableIterator<GATKSAMRecord>(reads.iterator()),
+                noDownsampling, includeDeletions, false, genomeLocParser, bamBuilder.getSamples(), true);
+
+        while ( classic.hasNext() ) {
+            Assert.assertTrue(columnar.hasNext());
+            final AlignmentContext expected = classic.next();
+            final AlignmentContext actual = columnar.next();
+            final ReadBackedPileup expectedPileup = expected.getBasePileup();
+
+            Assert.assertEquals(actual.getLocation(), expected.getLocation());
+            Assert.assertEquals(actual.size(), expected.size());
+            Assert.assertEquals(expected.getColumnarPileup().size(), expected.size());
+
+            final ColumnarPileup pileup = actual.getColumnarPileup();
+            Assert.assertEquals(pileup.getNumberOfDeletions(), expectedPileup.getNumberOfDeletions());
+            Assert.assertEquals(pileup.getNumberOfMappingQualityZeroReads(), expectedPileup.getNumberOfMappingQualityZeroReads());
+            for ( int s = 0; s < pileup.getNumberOfSamples(); s++ ) {
+                final List<PileupElement> elements = new ArrayList<PileupElement>();
+                final ReadBackedPileup samplePileup = expectedPileup.getPileupForSample(pileup.getSample(s));
+                if ( samplePileup != null )
+                    for ( final PileupElement p : samplePileup )
+                        elements.add(p);
+
+                Assert.assertEquals(pileup.getSampleEnd(s) - pileup.getSampleStart(s), elements.size());
+                for ( int i = pileup.getSampleStart(s); i < pileup.getSampleEnd(s); i++ ) {
+                    final PileupElement p = elements.get(i - pileup.getSampleStart(s));
+                    Assert.assertSame(pileup.getRead(i), p.getRead());
+                    Assert.assertEquals(pileup.getOffset(i), p.getOffset());
+                    Assert.assertEquals(pileup.getBase(i), p.getBase());
+                    Assert.assertEquals(pileup.getQual(i), p.getQual());
+                    Assert.assertEquals(pileup.getMappingQual(i), p.getMappingQual());
+                    Assert.assertEquals(pileup.isDeletion(i), p.isDeletion());
+                    Assert.assertEquals(pileup.isNegativeStrand(i), p.getRead().getReadNegativeStrandFlag());
+                }
+            }
+
+            if ( actual.getPosition() % 2 == 0 ) {
+                // the ReadBackedPileup made from the columnar pileup outlives the columnar pileup
+                final ReadBackedPileup compatibilityPileup = actual.getBasePileup();
+                actual.releaseColumnarPileup();
+                Assert.assertEquals(compatibilityPileup.getPileupString(null), expectedPileup.getPileupString(null));
+                Assert.assertEquals(new HashSet<String>(compatibilityPileup.getSamples()), new HashSet<String>(expectedPileup.getSamples()));
+            } else {
+                actual.releaseColumnarPileup();
+                try {
+                    actual.getBasePileup();
+                    Assert.fail("Got the pileup of a context whose columnar pileup had been released");
+                } catch ( ReviewedGATKException e ) {
+                    // expected
+                }
+            }
+        }
+
+        Assert.assertFalse(columnar.hasNext());
+    }
+
     // ------------------------------------------------------------
     //
     // Tests for keeping reads
@@ -0,0 +1,87 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.nanoScheduler;
+
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UnitTests for the AdaptiveBatchSizer
+ */
+public class AdaptiveBatchSizerUnitTest extends BaseTest {
+    @Test
+    public void testNoObservationsGivesMinBatchSize() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(3, 100, 1000);
+        Assert.assertEquals(sizer.getBatchSize(), 3);
+        Assert.assertTrue(sizer.getAverageMapNanos() < 0);
+    }
+
+    @DataProvider(name = "BatchSizes")
+    public Object[][] makeBatchSizes() {
+        final List<Object[]> tests = new ArrayList<Object[]>();
+
+        // min, max, target, nanos per element, expected batch size
+        tests.add(new Object[]{1, 100, 1000, 10, 100});
+        tests.add(new Object[]{1, 1000, 1000, 10, 100});
+        tests.add(new Object[]{1, 1000, 1000, 1000, 1});
+        tests.add(new Object[]{1, 1000, 1000, 1000000, 1});
+        tests.add(new Object[]{5, 1000, 1000, 1000000, 5});
+        tests.add(new Object[]{1, 1000, 1000, 0, 1000});
+
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "BatchSizes")
+    public void testBatchSize(final int min, final int max, final long target, final long nanosPerElement, final int expected) {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(min, max, target);
+        sizer.update(10, 10 * nanosPerElement);
+        Assert.assertEquals(sizer.getAverageMapNanos(), (double)nanosPerElement, 1e-6);
+        Assert.assertEquals(sizer.getBatchSize(), expected);
+    }
+
+    @Test
+    public void testMovingAverage() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1, 1000, 1000);
+        sizer.update(1, 100);
+        sizer.update(1, 200);
+        Assert.assertEquals(sizer.getAverageMapNanos(), (1 - AdaptiveBatchSizer.ALPHA) * 100 + AdaptiveBatchSizer.ALPHA * 200, 1e-6);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadMinBatchSize() {
+        new AdaptiveBatchSizer(0, 10, 1000);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadMaxBatchSize() {
+        new AdaptiveBatchSizer(10, 1, 1000);
+    }
+}
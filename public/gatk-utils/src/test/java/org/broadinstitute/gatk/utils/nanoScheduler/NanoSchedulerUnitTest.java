@@ -105,8 +105,13 @@ public class NanoSchedulerUnitTest extends BaseTest {
     private static class NanoSchedulerBasicTest extends TestDataProvider {
         final int bufferSize, nThreads, start, end, expectedResult;
         final boolean addDelays;
+        final NSExecutionBackend backend;
 
         public NanoSchedulerBasicTest(final int bufferSize, final int nThreads, final int start, final int end, final boolean addDelays) {
+            this(bufferSize, nThreads, start, end, addDelays, NSExecutionBackend.QUEUED);
+        }
+
+        public NanoSchedulerBasicTest(final int bufferSize, final int nThreads, final int start, final int end, final boolean addDelays, final NSExecutionBackend backend) {
             super(NanoSchedulerBasicTest.class);
             this.bufferSize = bufferSize;
             this.nThreads = nThreads;
@@ -114,8 +119,9 @@ public class NanoSchedulerUnitTest extends BaseTest {
             this.end = end;
             this.expectedResult = sum2x(start, end);
             this.addDelays = addDelays;
-            setName(String.format("%s nt=%d buf=%d start=%d end=%d sum=%d delays=%b",
-                    getClass().getSimpleName(), nThreads, bufferSize, start, end, expectedResult, addDelays));
+            this.backend = backend;
+            setName(String.format("%s nt=%d buf=%d start=%d end=%d sum=%d delays=%b backend=%s",
+                    getClass().getSimpleName(), nThreads, bufferSize, start, end, expectedResult, addDelays, backend));
         }
 
         public Iterator<Integer> makeReader() {
@@ -137,9 +143,9 @@ public class NanoSchedulerUnitTest extends BaseTest {
         public NanoScheduler<Integer, Integer, Integer> makeScheduler() {
             final NanoScheduler <Integer, Integer, Integer> nano;
             if ( bufferSize == -1 )
-                nano = new NanoScheduler<Integer, Integer, Integer>(nThreads);
+                nano = new NanoScheduler<Integer, Integer, Integer>(nThreads, backend);
             else
-                nano = new NanoScheduler<Integer, Integer, Integer>(bufferSize, nThreads);
+                nano = new NanoScheduler<Integer, Integer, Integer>(bufferSize, nThreads, backend);
 
             nano.setDebug(debug);
             return nano;
@@ -172,8 +178,10 @@ public class NanoSchedulerUnitTest extends BaseTest {
                 for ( final int start : Arrays.asList(0) ) {
                     for ( final int end : Arrays.asList(0, 1, 2, 11, 100, 10000, 100000) ) {
                         for ( final boolean addDelays : Arrays.asList(true, false) ) {
-                            if ( end < 1000 )
-                                new NanoSchedulerBasicTest(bufferSize, nt, start, end, addDelays);
+                            for ( final NSExecutionBackend backend : NSExecutionBackend.values() ) {
+                                if ( end < 1000 )
+                                    new NanoSchedulerBasicTest(bufferSize, nt, start, end, addDelays, backend);
+                            }
                         }
                     }
                 }
@@ -242,6 +250,15 @@ public class NanoSchedulerUnitTest extends BaseTest {
         Assert.assertTrue(nanoScheduler.isShutdown(), "scheduler should be dead");
     }
 
+    @Test(enabled = true && ! DEBUG, timeOut = NANO_SCHEDULE_MAX_RUNTIME)
+    public void testWorkStealingShutdown() throws InterruptedException {
+        final NanoScheduler<Integer, Integer, Integer> nanoScheduler = new NanoScheduler<Integer, Integer, Integer>(2, NSExecutionBackend.WORK_STEALING);
+        Assert.assertEquals(nanoScheduler.getBackend(), NSExecutionBackend.WORK_STEALING);
+        Assert.assertFalse(nanoScheduler.isShutdown(), "scheduler should be alive");
+        nanoScheduler.shutdown();
+        Assert.assertTrue(nanoScheduler.isShutdown(), "scheduler should be dead");
+    }
+
     @Test(enabled = true && ! DEBUG, expectedExceptions = IllegalStateException.class, timeOut = NANO_SCHEDULE_MAX_RUNTIME)
     public void testShutdownExecuteFailure() throws InterruptedException {
         final NanoScheduler<Integer, Integer, Integer> nanoScheduler = new NanoScheduler<Integer, Integer, Integer>(1, 2);
@@ -257,10 +274,12 @@ public class NanoSchedulerUnitTest extends BaseTest {
         for ( final int bufSize : Arrays.asList(100) ) {
             for ( final int nThreads : Arrays.asList(8) ) {
                 for ( final boolean addDelays : Arrays.asList(true, false) ) {
-                    final NanoSchedulerBasicTest test = new NanoSchedulerBasicTest(bufSize, nThreads, 1, 1000000, false);
-                    final int maxN = addDelays ? 1000 : 10000;
-                    for ( int nElementsBeforeError = 0; nElementsBeforeError < maxN; nElementsBeforeError += Math.max(nElementsBeforeError / 10, 1) ) {
-                        tests.add(new Object[]{nElementsBeforeError, test, addDelays});
+                    for ( final NSExecutionBackend backend : NSExecutionBackend.values() ) {
+                        final NanoSchedulerBasicTest test = new NanoSchedulerBasicTest(bufSize, nThreads, 1, 1000000, false, backend);
+                        final int maxN = addDelays ? 1000 : 10000;
+                        for ( int nElementsBeforeError = 0; nElementsBeforeError < maxN; nElementsBeforeError += Math.max(nElementsBeforeError / 10, 1) ) {
+                            tests.add(new Object[]{nElementsBeforeError, test, addDelays});
+                        }
                     }
                 }
             }
@@ -25,12 +25,25 @@
 
 package org.broadinstitute.gatk.utils.sam;
 
+import htsjdk.samtools.BAMRecord;
+import htsjdk.samtools.BAMRecordCodec;
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
 import org.broadinstitute.gatk.utils.BaseTest;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 
 public class GATKSAMRecordUnitTest extends BaseTest {
     GATKSAMRecord read;
@@ -75,4 +88,182 @@ public class GATKSAMRecordUnitTest extends BaseTest {
         read.setIsStrandless(true);
         read.setReadNegativeStrandFlag(true);
     }
+
+    @Test
+    public void testTemporaryAttributes() {
+        final GATKSAMRecord read = ArtificialSAMUtils.createArtificialRead(BASES.getBytes(), QUALS.getBytes(), "4M");
+        Assert.assertFalse(read.containsTemporaryAttribute("a"));
+        Assert.assertNull(read.getTemporaryAttribute("a"));
+
+        final int nAttributes = 10;
+        for ( int i = 0; i < nAttributes; i++ )
+            Assert.assertNull(read.setTemporaryAttribute("key" + i, i));
+        for ( int i = 0; i < nAttributes; i++ ) {
+            Assert.assertTrue(read.containsTemporaryAttribute("key" + i));
+            Assert.assertEquals(read.getTemporaryAttribute("key" + i), i);
+        }
+
+        Assert.assertEquals(read.setTemporaryAttribute("key3", "three"), 3);
+        Assert.assertEquals(read.getTemporaryAttribute("key3"), "three");
+
+        // a null value is still an attribute, as with a map
+        read.setTemporaryAttribute("null", null);
+        Assert.assertTrue(read.containsTemporaryAttribute("null"));
+        Assert.assertNull(read.getTemporaryAttribute("null"));
+    }
+
+    @Test
+    public void testClonesDontShareTemporaryAttributeChanges() {
+        final GATKSAMRecord read = ArtificialSAMUtils.createArtificialRead(BASES.getBytes(), QUALS.getBytes(), "4M");
+        read.setTemporaryAttribute("a", 1);
+
+        final GATKSAMRecord clone = (GATKSAMRecord)read.clone();
+        Assert.assertEquals(clone.getTemporaryAttribute("a"), 1);
+
+        clone.setTemporaryAttribute("a", 2);
+        clone.setTemporaryAttribute("b", 3);
+        Assert.assertEquals(read.getTemporaryAttribute("a"), 1);
+        Assert.assertFalse(read.containsTemporaryAttribute("b"));
+        Assert.assertEquals(clone.getTemporaryAttribute("a"), 2);
+        Assert.assertEquals(clone.getTemporaryAttribute("b"), 3);
+
+        final GATKSAMRecord secondClone = (GATKSAMRecord)read.clone();
+        read.setTemporaryAttribute("c", 4);
+        Assert.assertFalse(secondClone.containsTemporaryAttribute("c"));
+        Assert.assertFalse(clone.containsTemporaryAttribute("c"));
+        Assert.assertEquals(read.getTemporaryAttribute("c"), 4);
+    }
+
+    @Test
+    public void testSetReadBasesResetsCachedReadString() {
+        final GATKSAMRecord read = ArtificialSAMUtils.createArtificialRead(BASES.getBytes(), QUALS.getBytes(), "4M");
+        Assert.assertEquals(read.getReadString(), BASES);
+
+        final GATKSAMRecord clone = (GATKSAMRecord)read.clone();
+        clone.setReadBases("GGGG".getBytes());
+        Assert.assertEquals(clone.getReadString(), "GGGG");
+        Assert.assertEquals(read.getReadString(), BASES);
+    }
+
+    @Test
+    public void testCopyOfSAMRecord() {
+        final SAMRecord original = new SAMRecord(ArtificialSAMUtils.createArtificialSamHeader(1, 1, 1000));
+        original.setReadName("original");
+        original.setReferenceIndex(0);
+        original.setAlignmentStart(10);
+        original.setCigarString("1S3M");
+        original.setReadBases(BASES.getBytes());
+        original.setBaseQualityString(QUALS);
+
+        final GATKSAMRecord copy = new GATKSAMRecord(original);
+        Assert.assertEquals(copy.getReadName(), "original");
+        Assert.assertEquals(copy.getCigarString(), "1S3M");
+        Assert.assertEquals(copy.getReadString(), BASES);
+        Assert.assertEquals(copy.getBaseQualityString(), QUALS);
+        Assert.assertEquals(copy.getReadLength(), BASES.length());
+        Assert.assertEquals(copy.getSoftStart(), 9);
+        Assert.assertFalse(copy.isEmpty());
+    }
+
+    private SAMRecord makeSAMRecord(final String name) {
+        final SAMRecord record = new SAMRecord(ArtificialSAMUtils.createArtificialSamHeader(1, 1, 1000));
+        record.setReadName(name);
+        record.setReferenceIndex(0);
+        record.setAlignmentStart(10);
+        record.setCigarString("4M");
+        record.setReadBases(BASES.getBytes());
+        record.setBaseQualityString(QUALS);
+        return record;
+    }
+
+    /**
+     * Round trip a record through the BAM codec, which hands back a BAMRecord that decodes its bases lazily
+     */
+    private SAMRecord toBAMRecord(final SAMRecord record) {
+        final BAMRecordCodec codec = new BAMRecordCodec(record.getHeader());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.setOutputStream(out);
+        codec.encode(record);
+        codec.setInputStream(new ByteArrayInputStream(out.toByteArray()));
+        final SAMRecord bamRecord = codec.decode();
+        Assert.assertTrue(bamRecord instanceof BAMRecord);
+        return bamRecord;
+    }
+
+    @Test
+    public void testCopyOfBAMRecord() {
+        final GATKSAMRecord copy = new GATKSAMRecord(toBAMRecord(makeSAMRecord("bam")));
+        Assert.assertEquals(copy.getReadLength(), BASES.length());
+        Assert.assertFalse(copy.isEmpty());
+
+        // equals and hashCode see the bases of a read that hasn't been decoded yet
+        final GATKSAMRecord decoded = new GATKSAMRecord(toBAMRecord(makeSAMRecord("bam")));
+        Assert.assertEquals(decoded.getReadString(), BASES);
+        Assert.assertEquals(decoded.getBaseQualityString(), QUALS);
+        Assert.assertEquals(copy.hashCode(), decoded.hashCode());
+        Assert.assertEquals(new GATKSAMRecord(toBAMRecord(makeSAMRecord("bam"))), decoded);
+        Assert.assertNotEquals(new GATKSAMRecord(toBAMRecord(makeSAMRecord("other"))), decoded);
+
+        // setting the bases must not lose the qualities that were still to be decoded
+        final GATKSAMRecord changed = new GATKSAMRecord(toBAMRecord(makeSAMRecord("bam")));
+        changed.setReadBases("GGGG".getBytes());
+        Assert.assertEquals(changed.getReadString(), "GGGG");
+        Assert.assertEquals(changed.getBaseQualityString(), QUALS);
+
+        // nor must a clone made before decoding
+        final GATKSAMRecord clone = (GATKSAMRecord)new GATKSAMRecord(toBAMRecord(makeSAMRecord("bam"))).clone();
+        Assert.assertEquals(clone.getReadString(), BASES);
+        Assert.assertEquals(clone.getBaseQualityString(), QUALS);
+    }
+
+    @Test
+    public void testConcurrentReadsOfSharedReads() throws Exception {
+        // each read is decoded by whichever thread gets to it first, while the others use it too
+        final int nReads = 500;
+        final List<GATKSAMRecord> shared = new ArrayList<>(nReads);
+        final List<GATKSAMRecord> decoded = new ArrayList<>(nReads);
+        for ( int i = 0; i < nReads; i++ ) {
+            final GATKSAMRecord read = new GATKSAMRecord(toBAMRecord(makeSAMRecord("shared" + i)));
+            read.setTemporaryAttribute("a", i);
+            shared.add(read);
+            final GATKSAMRecord copy = new GATKSAMRecord(toBAMRecord(makeSAMRecord("shared" + i)));
+            copy.getReadBases();
+            decoded.add(copy);
+        }
+
+        final int nThreads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for ( int t = 0; t < nThreads; t++ ) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for ( int i = 0; i < nReads; i++ ) {
+                            final GATKSAMRecord read = shared.get(i);
+                            final GATKSAMRecord copy = decoded.get(i);
+                            Assert.assertEquals(read.getReadLength(), BASES.length());
+                            Assert.assertTrue(Arrays.equals(read.getReadBases(), BASES.getBytes()));
+                            Assert.assertEquals(read.getBaseQualityString(), QUALS);
+                            Assert.assertEquals(read.hashCode(), copy.hashCode());
+                            Assert.assertEquals(read, copy);
+
+                            // changing a clone's temporary attributes must never touch the shared read
+                            final GATKSAMRecord clone = (GATKSAMRecord)read.clone();
+                            Assert.assertEquals(clone.getReadString(), BASES);
+                            clone.setTemporaryAttribute("a", -1);
+                            clone.setTemporaryAttribute("b", -1);
+                            Assert.assertEquals(read.getTemporaryAttribute("a"), i);
+                            Assert.assertFalse(read.containsTemporaryAttribute("b"));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for ( final Future<Void> result : results )
+                result.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.smithwaterman;
+
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.broadinstitute.gatk.utils.Utils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CompactSWPairwiseAlignmentUnitTest extends BaseTest {
+    private static final String BASES = "ACGT";
+
+    private static String randomSequence(final Random random, final int length, final int alphabetSize) {
+        final StringBuilder sequence = new StringBuilder(length);
+        for ( int i = 0; i < length; i++ )
+            sequence.append(BASES.charAt(random.nextInt(alphabetSize)));
+        return sequence.toString();
+    }
+
+    /**
+     * Copies the sequence with random substitutions, insertions and deletions
+     */
+    private static String mutate(final Random random, final String sequence) {
+        final StringBuilder mutated = new StringBuilder();
+        for ( final char base : sequence.toCharArray() ) {
+            final int event = random.nextInt(20);
+            if ( event == 0 )
+                continue;
+            mutated.append(event == 1 ? BASES.charAt(random.nextInt(4)) : base);
+            if ( event == 2 )
+                mutated.append(randomSequence(random, 1 + random.nextInt(5), 4));
+        }
+        return mutated.length() == 0 ? "A" : mutated.toString();
+    }
+
+    @DataProvider(name = "Alignments")
+    public Object[][] makeAlignments() {
+        final List<Object[]> tests = new ArrayList<Object[]>();
+
+        tests.add(new Object[]{"ACTGACTGACTG", "AAAGGACTGACTG"});
+        tests.add(new Object[]{"AAAAA", "C"});
+        tests.add(new Object[]{"A", "ACGTACGT"});
+        tests.add(new Object[]{"CCCCCGGGGGAAAAATTTTT", "GGGGGAAAAA"});
+
+        // repetitive sequences, where many alignments tie, are the interesting ones
+        final Random random = Utils.getRandomGenerator();
+        for ( int i = 0; i < 100; i++ ) {
+            final String reference = randomSequence(random, 1 + random.nextInt(i % 10 == 0 ? 200 : 40), i % 3 == 0 ? 2 : 4);
+            tests.add(new Object[]{reference, mutate(random, reference)});
+            tests.add(new Object[]{reference, reference.substring(random.nextInt(reference.length()))});
+        }
+
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "Alignments")
+    public void testSameAlignmentsAsFullMatrix(final String reference, final String alternate) {
+        for ( final SWParameterSet parameters : SWParameterSet.values() ) {
+            for ( final SWPairwiseAlignment.OVERHANG_STRATEGY strategy : SWPairwiseAlignment.OVERHANG_STRATEGY.values() ) {
+                for ( final boolean swap : new boolean[]{false, true} ) {
+                    final byte[] seq1 = (swap ? alternate : reference).getBytes();
+                    final byte[] seq2 = (swap ? reference : alternate).getBytes();
+                    final SmithWaterman expected = SWImplementation.FULL_MATRIX.align(seq1, seq2, parameters, strategy);
+                    final SmithWaterman actual = SWImplementation.COMPACT.align(seq1, seq2, parameters, strategy);
+
+                    final String context = parameters + " " + strategy + " " + new String(seq1) + " vs " + new String(seq2);
+                    Assert.assertEquals(actual.getCigar(), expected.getCigar(), context);
+                    Assert.assertEquals(actual.getAlignmentStart2wrt1(), expected.getAlignmentStart2wrt1(), context);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultImplementation() {
+        final SWImplementation original = SWImplementation.getDefaultImplementation();
+        try {
+            SWImplementation.setDefaultImplementation(SWImplementation.FULL_MATRIX);
+            Assert.assertFalse(SWImplementation.getDefaultImplementation().align("ACGT".getBytes(), "ACGT".getBytes(), SWParameterSet.STANDARD_NGS.parameters) instanceof CompactSWPairwiseAlignment);
+            SWImplementation.setDefaultImplementation(SWImplementation.COMPACT);
+            Assert.assertTrue(SWImplementation.getDefaultImplementation().align("ACGT".getBytes(), "ACGT".getBytes(), SWParameterSet.STANDARD_NGS.parameters) instanceof CompactSWPairwiseAlignment);
+        } finally {
+            SWImplementation.setDefaultImplementation(original);
+        }
+    }
+}
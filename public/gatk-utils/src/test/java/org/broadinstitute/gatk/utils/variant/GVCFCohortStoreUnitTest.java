@@ -0,0 +1,154 @@
+/*
+* Copyright 2012-2016 Broad Institute, Inc.
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.broadinstitute.gatk.utils.variant;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.variant.variantcontext.*;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import htsjdk.variant.vcf.VCFStandardHeaderLines;
+import org.broadinstitute.gatk.utils.BaseTest;
+import org.broadinstitute.gatk.utils.exceptions.UserException;
+import org.broadinstitute.gatk.utils.io.IOUtils;
+import org.broadinstitute.gatk.utils.sam.ArtificialSAMUtils;
+import org.broadinstitute.gatk.utils.text.XReadLines;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.*;
+
+public class GVCFCohortStoreUnitTest extends BaseTest {
+    private SAMSequenceDictionary dictionary;
+    private final Allele Aref = Allele.create("A", true);
+    private final Allele C = Allele.create("C");
+
+    @BeforeClass
+    public void init() {
+        dictionary = ArtificialSAMUtils.createArtificialSamHeader(1, 1, 1000).getSequenceDictionary();
+    }
+
+    private VariantContext makeRecord(final String sample, final int start, final int stop, final boolean isVariant) {
+        final List<Allele> alleles = isVariant ? Arrays.asList(Aref, C, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE)
+                                               : Arrays.asList(Aref, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE);
+        final Genotype genotype = new GenotypeBuilder(sample, Arrays.asList(Aref, isVariant ? C : Aref)).make();
+        return new VariantContextBuilder(sample, dictionary.getSequence(0).getSequenceName(), start, stop, alleles).genotypes(genotype).make();
+    }
+
+    private VCFHeader makeHeader(final String sample) {
+        final Set<VCFHeaderLine> headerLines = new LinkedHashSet<>();
+        headerLines.add(VCFStandardHeaderLines.getFormatLine("GT"));
+        final VCFHeader header = new VCFHeader(headerLines, Collections.singleton(sample));
+        header.setSequenceDictionary(dictionary);
+        return header;
+    }
+
+    private void addSample(final GVCFCohortStore store, final String sample, final List<VariantContext> records) {
+        final VariantContextWriter writer = store.openSampleWriter(sample, dictionary);
+        writer.writeHeader(makeHeader(sample));
+        for ( final VariantContext vc : records )
+            writer.add(vc);
+        writer.close();
+        store.commitSample(sample);
+    }
+
+    private List<VariantContext> query(final GVCFCohortStore store, final int start, final int end) {
+        final List<VariantContext> records = new ArrayList<>();
+        final CloseableIterator<VariantContext> it = store.query(dictionary.getSequence(0).getSequenceName(), start, end);
+        while ( it.hasNext() )
+            records.add(it.next());
+        it.close();
+        return records;
+    }
+
+    @Test
+    public void testAddAndQuerySamples() throws Exception {
+        final File directory = IOUtils.tempDir("cohortStore.", ".test");
+        try {
+            final GVCFCohortStore store = new GVCFCohortStore(directory);
+            Assert.assertTrue(store.getSampleNames().isEmpty());
+
+            addSample(store, "s1", Arrays.asList(makeRecord("s1", 1, 99, false), makeRecord("s1", 100, 100, true), makeRecord("s1", 101, 500, false)));
+            addSample(store, "s2", Arrays.asList(makeRecord("s2", 1, 49, false), makeRecord("s2", 50, 50, true), makeRecord("s2", 51, 500, false)));
+            Assert.assertEquals(store.getSampleNames(), Arrays.asList("s1", "s2"));
+
+            // samples added to a reopened store are appended to the existing ones
+            final GVCFCohortStore reopened = new GVCFCohortStore(directory);
+            Assert.assertEquals(reopened.getSampleNames(), Arrays.asList("s1", "s2"));
+            addSample(reopened, "s3", Arrays.asList(makeRecord("s3", 1, 500, false)));
+            Assert.assertEquals(reopened.getSampleNames(), Arrays.asList("s1", "s2", "s3"));
+
+            final List<String> manifest = new XReadLines(reopened.getManifest()).readLines();
+            Assert.assertEquals(manifest.size(), 3);
+            for ( final String sample : reopened.getSampleNames() )
+                Assert.assertTrue(manifest.contains(reopened.getSampleFile(sample).getAbsolutePath()));
+
+            // the records of all of the samples come out merged by position
+            final List<VariantContext> records = query(reopened, 40, 120);
+            final List<String> order = new ArrayList<>();
+            for ( final VariantContext vc : records )
+                order.add(vc.getGenotype(0).getSampleName() + ":" + vc.getStart());
+            Assert.assertEquals(order, Arrays.asList("s1:1", "s2:1", "s3:1", "s2:50", "s2:51", "s1:100", "s1:101"));
+            Assert.assertTrue(records.get(3).isVariant());
+            Assert.assertEquals(records.get(3).getEnd(), 50);
+            Assert.assertEquals(records.get(4).getEnd(), 500);
+
+            Assert.assertEquals(query(reopened, 501, 1000).size(), 0);
+        } finally {
+            IOUtils.tryDelete(directory);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testCannotAddSampleTwice() {
+        final File directory = IOUtils.tempDir("cohortStore.", ".test");
+        try {
+            final GVCFCohortStore store = new GVCFCohortStore(directory);
+            addSample(store, "s1", Arrays.asList(makeRecord("s1", 1, 500, false)));
+            new GVCFCohortStore(directory).openSampleWriter("s1", dictionary);
+        } finally {
+            IOUtils.tryDelete(directory);
+        }
+    }
+
+    @Test
+    public void testUncommittedSamplesAreNotInTheStore() {
+        final File directory = IOUtils.tempDir("cohortStore.", ".test");
+        try {
+            final GVCFCohortStore store = new GVCFCohortStore(directory);
+            final VariantContextWriter writer = store.openSampleWriter("s1", dictionary);
+            writer.writeHeader(makeHeader("s1"));
+            writer.close();
+            Assert.assertFalse(store.containsSample("s1"));
+            Assert.assertTrue(new GVCFCohortStore(directory).getSampleNames().isEmpty());
+        } finally {
+            IOUtils.tryDelete(directory);
+        }
+    }
+}